@@ -20,6 +20,7 @@
 package sk.boinc.androboinc;
 
 import sk.boinc.androboinc.util.PreferenceName;
+import edu.berkeley.boinc.AndroidBackends;
 import android.app.Application;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
@@ -67,6 +68,7 @@ public class BoincManagerApplication extends Application {
 	public void onCreate() {
 		super.onCreate();
 		if (BuildConfig.DEBUG) Log.d(TAG, "onCreate()");
+		AndroidBackends.install();
 		PreferenceManager.setDefaultValues(this, R.xml.manage_client, false);
 		PreferenceManager.setDefaultValues(this, R.xml.preferences, false);
 		retrieveAppStatus();
@@ -19,7 +19,8 @@
 
 package sk.boinc.androboinc;
 
-import sk.boinc.androboinc.clientconnection.ClientReplyReceiver;
+import sk.boinc.androboinc.clientconnection.ChangeSet;
+import sk.boinc.androboinc.clientconnection.ClientChangeReceiver;
 import sk.boinc.androboinc.clientconnection.ClientRequestHandler;
 import sk.boinc.androboinc.clientconnection.HostInfo;
 import sk.boinc.androboinc.clientconnection.MessageInfo;
@@ -53,7 +54,7 @@ import java.util.Comparator;
 import java.util.Vector;
 
 
-public class MessagesActivity extends ListActivity implements ClientReplyReceiver {
+public class MessagesActivity extends ListActivity implements ClientChangeReceiver {
 	private static final String TAG = "MessagesActivity";
 
 	private ScreenOrientationHandler mScreenOrientation;
@@ -325,6 +326,12 @@ public class MessagesActivity extends ListActivity implements ClientReplyReceive
 		return false;
 	}
 
+	@Override
+	public boolean changedTasks(ChangeSet<TaskInfo> changes) {
+		// Just ignore
+		return false;
+	}
+
 	@Override
 	public boolean updatedTransfers(Vector<TransferInfo> transfers) {
 		// Just ignore
@@ -353,15 +360,50 @@ public class MessagesActivity extends ListActivity implements ClientReplyReceive
 		return mRequestUpdates;
 	}
 
+	@Override
+	public boolean changedMessages(ChangeSet<MessageInfo> changes) {
+		if (changes.isEmpty()) {
+			// No fresh messages, view is up to date
+			return mRequestUpdates;
+		}
+		// Content of messages never changes, only fresh arrived messages are added
+		// and in rare cases the old ones are dropped
+		mMessages.removeAll(changes.removed);
+		for (int i = 0; i < changes.added.size(); ++i) {
+			MessageInfo message = changes.added.elementAt(i);
+			if (mMessages.isEmpty() || (mMessages.lastElement().seqNo < message.seqNo)) {
+				// Usual case - the newest message
+				mMessages.add(message);
+			}
+			else {
+				int pos = Collections.binarySearch(mMessages, message, cMessageOrder);
+				if (pos < 0) pos = -pos - 1;
+				mMessages.insertElementAt(message, pos);
+			}
+		}
+		if (mViewUpdatesAllowed) {
+			// We are visible, update the view with fresh data
+			if (BuildConfig.DEBUG) Log.d(TAG, "Messages are added, refreshing view");
+			((BaseAdapter)getListAdapter()).notifyDataSetChanged();
+		}
+		else {
+			// We are not visible, do not perform costly tasks now
+			if (BuildConfig.DEBUG) Log.d(TAG, "Messages are added, but view refresh is delayed");
+			mViewDirty = true;
+		}
+		return mRequestUpdates;
+	}
+
+
+	private static final Comparator<MessageInfo> cMessageOrder = new Comparator<MessageInfo>() {
+		@Override
+		public int compare(MessageInfo object1, MessageInfo object2) {
+			return object1.seqNo - object2.seqNo;
+		}
+	};
 
 	private void sortMessages() {
-		Comparator<MessageInfo> comparator = new Comparator<MessageInfo>() {
-			@Override
-			public int compare(MessageInfo object1, MessageInfo object2) {
-				return object1.seqNo - object2.seqNo;
-			}
-		};
-		Collections.sort(mMessages, comparator);
+		Collections.sort(mMessages, cMessageOrder);
 	}
 
 }
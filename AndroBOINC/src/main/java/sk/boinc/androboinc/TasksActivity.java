@@ -19,7 +19,8 @@
 
 package sk.boinc.androboinc;
 
-import sk.boinc.androboinc.clientconnection.ClientReplyReceiver;
+import sk.boinc.androboinc.clientconnection.ChangeSet;
+import sk.boinc.androboinc.clientconnection.ClientChangeReceiver;
 import sk.boinc.androboinc.clientconnection.ClientRequestHandler;
 import sk.boinc.androboinc.clientconnection.ClientRequestHandler.TaskOp;
 import sk.boinc.androboinc.clientconnection.HostInfo;
@@ -60,10 +61,11 @@ import android.widget.TextView;
 import android.widget.AdapterView.AdapterContextMenuInfo;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Vector;
 
 
-public class TasksActivity extends ListActivity implements ClientReplyReceiver {
+public class TasksActivity extends ListActivity implements ClientChangeReceiver {
 	private static final String TAG = "TasksActivity";
 
 	private static final int DIALOG_DETAILS = 1;
@@ -84,6 +86,7 @@ public class TasksActivity extends ListActivity implements ClientReplyReceiver {
 	private boolean mViewDirty = false;
 
 	private Vector<TaskInfo> mTasks = new Vector<TaskInfo>();
+	private boolean mTasksSorted = true;
 	private int mPosition = 0;
 
 	private StringBuilder mSb = new StringBuilder(SB_INIT_CAPACITY);
@@ -97,6 +100,7 @@ public class TasksActivity extends ListActivity implements ClientReplyReceiver {
 		}
 		public void restoreState(TasksActivity activity) {
 			activity.mTasks = tasks;
+			activity.mTasksSorted = false;
 			if (BuildConfig.DEBUG) Log.d(TAG, "restored: mTasks.size()=" + activity.mTasks.size());
 		}
 	}
@@ -150,13 +154,13 @@ public class TasksActivity extends ListActivity implements ClientReplyReceiver {
 			tv = (TextView)layout.findViewById(R.id.taskProjectName);
 			tv.setText(task.project);
 			tv = (TextView)layout.findViewById(R.id.taskDeadline);
-			tv.setText(task.deadline);
+			tv.setText(task.getDeadline());
 			tv = (TextView)layout.findViewById(R.id.taskElapsed);
-			tv.setText(task.elapsed);
+			tv.setText(task.getElapsed());
 			tv = (TextView)layout.findViewById(R.id.taskRemaining);
-			tv.setText(task.toCompletion);
+			tv.setText(task.getToCompletion());
 			tv = (TextView)layout.findViewById(R.id.taskProgressText);
-			tv.setText(task.progress);
+			tv.setText(task.getProgress());
 			ProgressBar progressRunning = (ProgressBar)layout.findViewById(R.id.taskProgressRunning);
 			ProgressBar progressWaiting = (ProgressBar)layout.findViewById(R.id.taskProgressWaiting);
 			ProgressBar progressSuspended = (ProgressBar)layout.findViewById(R.id.taskProgressSuspended);
@@ -284,7 +288,7 @@ public class TasksActivity extends ListActivity implements ClientReplyReceiver {
 		if (mViewDirty) {
 			// There were some updates received while we were not visible
 			// The data are stored, but view is not updated yet; Do it now
-			sortTasks();
+			if (!mTasksSorted) sortTasks();
 			((BaseAdapter)getListAdapter()).notifyDataSetChanged();
 			mViewDirty = false;
 			if (BuildConfig.DEBUG) Log.d(TAG, "Delayed refresh of view was done now");
@@ -499,6 +503,7 @@ public class TasksActivity extends ListActivity implements ClientReplyReceiver {
 	@Override
 	public boolean updatedTasks(Vector<TaskInfo> tasks) {
 		mTasks = tasks;
+		mTasksSorted = false;
 		if (mViewUpdatesAllowed) {
 			// We are visible, update the view with fresh data
 			if (BuildConfig.DEBUG) Log.d(TAG, "Tasks are updated, refreshing view");
@@ -513,6 +518,26 @@ public class TasksActivity extends ListActivity implements ClientReplyReceiver {
 		return mRequestUpdates;
 	}
 
+	@Override
+	public boolean changedTasks(ChangeSet<TaskInfo> changes) {
+		if (changes.isEmpty()) {
+			// Nothing changed, view is up to date
+			return mRequestUpdates;
+		}
+		applyTaskChanges(changes);
+		if (mViewUpdatesAllowed) {
+			// We are visible, update the view with changed data
+			if (BuildConfig.DEBUG) Log.d(TAG, "Tasks are changed, refreshing view");
+			((BaseAdapter)getListAdapter()).notifyDataSetChanged();
+		}
+		else {
+			// We are not visible, do not perform costly tasks now
+			if (BuildConfig.DEBUG) Log.d(TAG, "Tasks are changed, but view refresh is delayed");
+			mViewDirty = true;
+		}
+		return mRequestUpdates;
+	}
+
 	@Override
 	public boolean updatedTransfers(Vector<TransferInfo> transfers) {
 		// Just ignore
@@ -525,6 +550,12 @@ public class TasksActivity extends ListActivity implements ClientReplyReceiver {
 		return false;
 	}
 
+	@Override
+	public boolean changedMessages(ChangeSet<MessageInfo> changes) {
+		// Just ignore
+		return false;
+	}
+
 	// Comparison array
 	// Index in array is the stateControl of task:
 	// (not set) 0
@@ -542,31 +573,81 @@ public class TasksActivity extends ListActivity implements ClientReplyReceiver {
 	// Order is: (1) RUNNING -> (2) PREEMPTED -> (3) SUSPENDED -> (4) UPLOADING & READY_TO_REPORT -> 
 	//        -> (5) ABORTED, ERROR, DOWNLOADING, READY_TO_START -> (last) others - not set states
 
+	private static final Comparator<TaskInfo> cTaskOrder = new Comparator<TaskInfo>() {
+		@Override
+		public int compare(TaskInfo object1, TaskInfo object2) {
+			// First criteria - state
+			if ( (cStatePriority[object1.stateControl] - cStatePriority[object2.stateControl]) != 0 ) {
+				// The priorities for are different - return the order
+				return (cStatePriority[object1.stateControl] - cStatePriority[object2.stateControl]);
+			}
+			// Otherwise continue with further criteria
+			// The next criteria - deadline
+			int deadlineDiff = (int)(object1.deadlineNum - object2.deadlineNum);
+			if (deadlineDiff != 0) {
+				// not the same deadline
+				return deadlineDiff;
+			}
+			// Last, sort by project name, then by task name
+			int prjComp = object1.project.compareToIgnoreCase(object2.project);
+			if (prjComp != 0) {
+				return prjComp;
+			}
+			return object1.taskName.compareToIgnoreCase(object2.taskName);
+		}
+	};
+	// The fields used by cTaskOrder; when they change, the task must be moved in the list
+	private static final int ORDER_FIELDS = TaskInfo.FIELD_STATE | TaskInfo.FIELD_DEADLINE | TaskInfo.FIELD_PROJECT;
+
 	private void sortTasks() {
-		Comparator<TaskInfo> comparator = new Comparator<TaskInfo>() {
-			@Override
-			public int compare(TaskInfo object1, TaskInfo object2) {
-				// First criteria - state
-				if ( (cStatePriority[object1.stateControl] - cStatePriority[object2.stateControl]) != 0 ) {
-					// The priorities for are different - return the order
-					return (cStatePriority[object1.stateControl] - cStatePriority[object2.stateControl]);
-				}
-				// Otherwise continue with further criteria
-				// The next criteria - deadline
-				int deadlineDiff = (int)(object1.deadlineNum - object2.deadlineNum);
-				if (deadlineDiff != 0) {
-					// not the same deadline
-					return deadlineDiff;
-				}
-				// Last, sort by project name, then by task name
-				int prjComp = object1.project.compareToIgnoreCase(object2.project);
-				if (prjComp != 0) {
-					return prjComp;
+		Collections.sort(mTasks, cTaskOrder);
+		mTasksSorted = true;
+	}
+
+	private void applyTaskChanges(ChangeSet<TaskInfo> changes) {
+		// Tasks of previous version are matched by identity:
+		// removed tasks are mapped to null, changed tasks to their replacement
+		IdentityHashMap<TaskInfo, TaskInfo> replaced = new IdentityHashMap<TaskInfo, TaskInfo>();
+		Vector<TaskInfo> inserted = new Vector<TaskInfo>(changes.added);
+		for (int i = 0; i < changes.removed.size(); ++i) {
+			replaced.put(changes.removed.elementAt(i), null);
+		}
+		for (int i = 0; i < changes.changedTo.size(); ++i) {
+			if ((changes.changedFields[i] & ORDER_FIELDS) != 0) {
+				// Position of task could change - it will be inserted again
+				replaced.put(changes.changedFrom.elementAt(i), null);
+				inserted.add(changes.changedTo.elementAt(i));
+			}
+			else {
+				// Replace in place
+				replaced.put(changes.changedFrom.elementAt(i), changes.changedTo.elementAt(i));
+			}
+		}
+		if (!replaced.isEmpty()) {
+			int count = mTasks.size();
+			int dst = 0;
+			for (int src = 0; src < count; ++src) {
+				TaskInfo task = mTasks.elementAt(src);
+				if (replaced.containsKey(task)) {
+					task = replaced.get(task);
+					if (task == null) continue; // removed
 				}
-				return object1.taskName.compareToIgnoreCase(object2.taskName);
+				mTasks.setElementAt(task, dst++);
 			}
-		};
-		Collections.sort(mTasks, comparator);
+			mTasks.setSize(dst);
+		}
+		for (int i = 0; i < inserted.size(); ++i) {
+			TaskInfo task = inserted.elementAt(i);
+			if (mTasksSorted) {
+				int pos = Collections.binarySearch(mTasks, task, cTaskOrder);
+				if (pos < 0) pos = -pos - 1;
+				mTasks.insertElementAt(task, pos);
+			}
+			else {
+				// The list will be sorted completely before it is shown
+				mTasks.add(task);
+			}
+		}
 	}
 
 	private String prepareTaskDetails(int position) {
@@ -576,16 +657,16 @@ public class TasksActivity extends ListActivity implements ClientReplyReceiver {
 				TextUtils.htmlEncode(task.taskName),
 				TextUtils.htmlEncode(task.project),
 				TextUtils.htmlEncode(task.application),
-				task.progress,
-				task.elapsed,
-				task.toCompletion,
-				task.deadline));
-		if (task.virtMemSize != null) {
+				task.getProgress(),
+				task.getElapsed(),
+				task.getToCompletion(),
+				task.getDeadline()));
+		if (task.usesResources) {
 			mSb.append(getString(R.string.taskDetailedInfoRun, 
-					task.virtMemSize,
-					task.workSetSize,
-					task.cpuTime,
-					task.chckpntTime));
+					task.getVirtMemSize(),
+					task.getWorkSetSize(),
+					task.getCpuTime(),
+					task.getChckpntTime()));
 		}
 		if (task.resources != null) {
 			mSb.append(getString(R.string.taskDetailedInfoRes, task.resources));
@@ -28,13 +28,17 @@ import sk.boinc.androboinc.clientconnection.ConnectionManagerCallback.Disconnect
 import sk.boinc.androboinc.clientconnection.ConnectionManagerCallback.ProgressInd;
 import sk.boinc.androboinc.clientconnection.StatusNotifier;
 import sk.boinc.androboinc.clientconnection.VersionInfo;
+import edu.berkeley.boinc.AdaptiveTimeouts;
+import edu.berkeley.boinc.HostConnector;
 import edu.berkeley.boinc.NetStats;
 import sk.boinc.androboinc.util.ClientId;
 import android.content.Context;
 import android.os.Handler;
 import android.util.Log;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -51,6 +55,9 @@ public class BridgeManager implements ConnectionManager, ClientBridgeCallback, C
 	private final Context mContext;
 	private final StatusNotifier mNotifier;
 	private final NetStats mNetStats;
+	private final RpcClientPool mRpcClientPool = new RpcClientPool();
+	private final HostConnector mHostConnector = new HostConnector();
+	private final Map<ClientId, AdaptiveTimeouts> mTimeouts = new HashMap<ClientId, AdaptiveTimeouts>();
 	private ClientBridge mClientBridge = null;
 	private Runnable mDeferredConnect = null;
 	private VersionInfo mClientVersion = null;
@@ -59,6 +66,13 @@ public class BridgeManager implements ConnectionManager, ClientBridgeCallback, C
 	private Set<ConnectionManagerCallback> mStatusObservers = new HashSet<ConnectionManagerCallback>();
 	private boolean mConnectivityAvailable = true;
 
+	private final Runnable mEvictIdleConnections = new Runnable() {
+		@Override
+		public void run() {
+			mRpcClientPool.evictIdle();
+		}
+	};
+
 	/**
 	 * Creates new bridge manager.
 	 * 
@@ -104,6 +118,7 @@ public class BridgeManager implements ConnectionManager, ClientBridgeCallback, C
 		mStatusObservers.clear();
 		mClientId = null;
 		mClientVersion = null;
+		mRpcClientPool.clear();
 	}
 
 	/**
@@ -211,7 +226,7 @@ public class BridgeManager implements ConnectionManager, ClientBridgeCallback, C
 			mNotifier.cancelDisconnected();
 		}
 		// Create new bridge
-		mClientBridge = new ClientBridge(this, mContext, mNetStats);
+		mClientBridge = new ClientBridge(this, mContext, mNetStats, mRpcClientPool, mHostConnector);
 		// Propagate all current data receivers to bridge, so they will receive
 		// connected status and data
 		Iterator<ClientReplyReceiver> it = mDataReceivers.iterator();
@@ -220,7 +235,13 @@ public class BridgeManager implements ConnectionManager, ClientBridgeCallback, C
 			mClientBridge.registerDataReceiver(receiver);
 		}
 		// Finally, initiate connection to remote client
-		mClientBridge.connect(host, retrieveInitialData);
+		// Timeouts are learned per host and kept for later connections
+		AdaptiveTimeouts timeouts = mTimeouts.get(host);
+		if (timeouts == null) {
+			timeouts = new AdaptiveTimeouts();
+			mTimeouts.put(host, timeouts);
+		}
+		mClientBridge.connect(host, timeouts, retrieveInitialData);
 	}
 
 	/* (non-Javadoc)
@@ -297,17 +318,21 @@ public class BridgeManager implements ConnectionManager, ClientBridgeCallback, C
 		mClientId = null;
 		mClientVersion = null;
 		mClientBridge = null;
+		Handler handler = new Handler();
 		if (mDeferredConnect != null) {
 			// There was new connect scheduled before disconnect
-			Handler handler = new Handler();
 			handler.post(mDeferredConnect);
 		}
+		// Connection could be stored in pool - close it, if it is not reused in time
+		handler.postDelayed(mEvictIdleConnections, RpcClientPool.MAX_IDLE_TIME);
 	}
 
 	@Override
 	public void onConnectivityAvailable(int connectivityType) {
 		if (BuildConfig.DEBUG) Log.d(TAG, "onConnectivityAvailable(), connectivity type: " + connectivityType);
 		mConnectivityAvailable = true;
+		// The network could be other than the one where the timeouts were learned
+		resetTimeouts();
 		if (mClientBridge != null) {
 			if (BuildConfig.DEBUG) Log.d(TAG, "onConnectivityAvailable() while connected to host " + mClientId.getNickname() + ", connectivity type: " + connectivityType);
 			// TODO Handle connectivity restoration
@@ -318,6 +343,8 @@ public class BridgeManager implements ConnectionManager, ClientBridgeCallback, C
 	public void onConnectivityUnavailable() {
 		if (BuildConfig.DEBUG) Log.d(TAG, "onConnectivityUnavailable()");
 		mConnectivityAvailable = false;
+		// Pooled connections are not usable anymore
+		mRpcClientPool.clear();
 		if (mClientBridge != null) {
 			if (BuildConfig.DEBUG) Log.d(TAG, "onConnectivityUnavailable() while connected to host " + mClientId.getNickname());
 			// TODO Handle connectivity loss
@@ -327,9 +354,23 @@ public class BridgeManager implements ConnectionManager, ClientBridgeCallback, C
 	@Override
 	public void onConnectivityChangedType(int connectivityType) {
 		if (BuildConfig.DEBUG) Log.d(TAG, "onConnectivityChangedType(), new connectivity type: " + connectivityType);
+		// Pooled connections were opened through previous network
+		mRpcClientPool.clear();
+		// Addresses resolved in previous network could be different (e.g. local DNS)
+		mHostConnector.clear();
+		// Timeouts learned in previous network do not apply (e.g. LAN vs. mobile network)
+		resetTimeouts();
 		if (mClientBridge != null) {
 			if (BuildConfig.DEBUG) Log.d(TAG, "onConnectivityChangedType() while connected to host " + mClientId.getNickname() + ", new connectivity type: " + connectivityType);
 			// TODO Handle connectivity type change
 		}
 	}
+
+	private void resetTimeouts() {
+		// The timeouts are only reset, not dropped, because the connected client keeps using them
+		Iterator<AdaptiveTimeouts> it = mTimeouts.values().iterator();
+		while (it.hasNext()) {
+			it.next().reset();
+		}
+	}
 }
@@ -0,0 +1,96 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.androboinc.bridge;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Vector;
+
+import sk.boinc.androboinc.clientconnection.ChangeSet;
+
+
+/**
+ * The <code>ChangeTracker</code> remembers the last delivered list of entries
+ * and computes the {@link ChangeSet} of each subsequent delivery against it.
+ * <p>
+ * The entries are matched by key; the entry is changed when its instance
+ * differs from the previously delivered one (unchanged entries are kept
+ * as the same instance, see {@link MergeMap} and {@link TaskTable}).
+ * <p>
+ * The tracker is not thread-safe, it must be accessed by single thread only.
+ */
+abstract class ChangeTracker<T> {
+	private HashMap<Object, T> mDelivered = new HashMap<Object, T>();
+	private HashMap<Object, T> mCurrent = new HashMap<Object, T>();
+	private long mVersion = 0;
+
+	/**
+	 * @return the unique key of entry
+	 */
+	protected abstract Object key(final T entry);
+
+	/**
+	 * @return the set of fields which differ between the previous and current entry
+	 */
+	protected abstract int changedFields(final T previous, final T current);
+
+	/**
+	 * Computes the changes of list to be delivered since the previous delivery
+	 * 
+	 * @param entries - the list to be delivered
+	 * @return the changes, the version of which is increased on each call
+	 */
+	public final ChangeSet<T> track(final Vector<T> entries) {
+		Vector<T> added = new Vector<T>();
+		Vector<T> changedFrom = new Vector<T>();
+		Vector<T> changedTo = new Vector<T>();
+		int[] changedFields = new int[8];
+		Iterator<T> it = entries.iterator();
+		while (it.hasNext()) {
+			T entry = it.next();
+			Object key = key(entry);
+			T previous = mDelivered.remove(key);
+			if (previous == null) {
+				added.add(entry);
+			}
+			else if (previous != entry) {
+				// Also the entry with the same content must be reported,
+				// so the receiver holds the instance delivered now
+				if (changedTo.size() == changedFields.length) {
+					int[] grown = new int[changedFields.length * 2];
+					System.arraycopy(changedFields, 0, grown, 0, changedFields.length);
+					changedFields = grown;
+				}
+				changedFields[changedTo.size()] = changedFields(previous, entry);
+				changedFrom.add(previous);
+				changedTo.add(entry);
+			}
+			mCurrent.put(key, entry);
+		}
+		// What remained from previous delivery is not present anymore
+		Vector<T> removed = new Vector<T>(mDelivered.values());
+		mDelivered.clear();
+		HashMap<Object, T> swap = mDelivered;
+		mDelivered = mCurrent;
+		mCurrent = swap;
+		long baseVersion = mVersion++;
+		return new ChangeSet<T>(baseVersion, mVersion, added, removed, changedFrom, changedTo, changedFields);
+	}
+}
@@ -21,6 +21,8 @@ package sk.boinc.androboinc.bridge;
 
 import sk.boinc.androboinc.BuildConfig;
 import sk.boinc.androboinc.bridge.AutoRefresh.RequestType;
+import sk.boinc.androboinc.clientconnection.ChangeSet;
+import sk.boinc.androboinc.clientconnection.ClientChangeReceiver;
 import sk.boinc.androboinc.clientconnection.ClientReplyReceiver;
 import sk.boinc.androboinc.clientconnection.ClientRequestHandler;
 import sk.boinc.androboinc.clientconnection.ConnectionManagerCallback.DisconnectCause;
@@ -32,13 +34,17 @@ import sk.boinc.androboinc.clientconnection.ProjectInfo;
 import sk.boinc.androboinc.clientconnection.TaskInfo;
 import sk.boinc.androboinc.clientconnection.TransferInfo;
 import sk.boinc.androboinc.clientconnection.VersionInfo;
+import edu.berkeley.boinc.AdaptiveTimeouts;
+import edu.berkeley.boinc.HostConnector;
 import edu.berkeley.boinc.NetStats;
 import sk.boinc.androboinc.util.ClientId;
 import android.content.Context;
 import android.os.ConditionVariable;
 import android.util.Log;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
@@ -97,6 +103,7 @@ public class ClientBridge implements ClientRequestHandler {
 			// The disconnection will continue autonomously;
 			// We must make sure nothing else is sent out
 			mReceivers.clear();
+			clearVersions();
 			// The callback can now delete reference to us, but
 			// the worker thread continues running until disconnect is finished
 			// Worker thread still has the reference to us until disconnected() is called,
@@ -131,6 +138,7 @@ public class ClientBridge implements ClientRequestHandler {
 				if (BuildConfig.DEBUG) Log.d(TAG, "Detached receiver: " + receiver.toString()); // see below clearing of all receivers
 			}
 			mReceivers.clear();
+			clearVersions();
 		}
 
 		public void updatedClientMode(final ClientReplyReceiver callback, final ModeInfo modeInfo) {
@@ -183,21 +191,21 @@ public class ClientBridge implements ClientRequestHandler {
 			}
 		}
 
-		public void updatedTasks(final ClientReplyReceiver callback, final Vector <TaskInfo> tasks) {
+		public void updatedTasks(final ClientReplyReceiver callback, final Vector <TaskInfo> tasks, final ChangeSet<TaskInfo> changes) {
 			if (callback == null) {
 				// No specific callback - broadcast to all receivers
 				// This is used for early notification after connect
 				Iterator<ClientReplyReceiver> it = mReceivers.iterator();
 				while (it.hasNext()) {
 					ClientReplyReceiver receiver = it.next();
-					receiver.updatedTasks(tasks);
+					deliverTasks(receiver, tasks, changes);
 				}
 				return;
 			}
 			// Check whether callback is still present in receivers
 			if (mReceivers.contains(callback)) {
 				// Yes, receiver is still present, so we can call it back with data
-				boolean periodicAllowed = callback.updatedTasks(tasks);
+				boolean periodicAllowed = deliverTasks(callback, tasks, changes);
 				if (periodicAllowed) {
 					mAutoRefresh.scheduleAutomaticRefresh(callback, RequestType.TASKS);
 				}
@@ -225,30 +233,63 @@ public class ClientBridge implements ClientRequestHandler {
 			}
 		}
 
-		public void updatedMessages(final ClientReplyReceiver callback, final Vector <MessageInfo> messages) {
+		public void updatedMessages(final ClientReplyReceiver callback, final Vector <MessageInfo> messages, final ChangeSet<MessageInfo> changes) {
 			if (callback == null) {
 				// No specific callback - broadcast to all receivers
 				// This is used for early notification after connect
 				Iterator<ClientReplyReceiver> it = mReceivers.iterator();
 				while (it.hasNext()) {
 					ClientReplyReceiver receiver = it.next();
-					receiver.updatedMessages(messages);
+					deliverMessages(receiver, messages, changes);
 				}
 				return;
 			}
 			// Check whether callback is still present in receivers
 			if (mReceivers.contains(callback)) {
 				// Yes, receiver is still present, so we can call it back with data
-				boolean periodicAllowed = callback.updatedMessages(messages);
+				boolean periodicAllowed = deliverMessages(callback, messages, changes);
 				if (periodicAllowed) {
 					mAutoRefresh.scheduleAutomaticRefresh(callback, RequestType.MESSAGES);
 				}
 			}
 		}
+
+		private boolean deliverTasks(final ClientReplyReceiver receiver, final Vector <TaskInfo> tasks, final ChangeSet<TaskInfo> changes) {
+			if (receiver instanceof ClientChangeReceiver) {
+				Long version = mTaskVersions.put(receiver, changes.version);
+				if ( (version != null) && (version.longValue() == changes.baseVersion) ) {
+					// Receiver has the tasks which the changes apply to
+					return ((ClientChangeReceiver)receiver).changedTasks(changes);
+				}
+			}
+			// Not the change receiver, or it missed some update - send everything
+			return receiver.updatedTasks(tasks);
+		}
+
+		private boolean deliverMessages(final ClientReplyReceiver receiver, final Vector <MessageInfo> messages, final ChangeSet<MessageInfo> changes) {
+			if (receiver instanceof ClientChangeReceiver) {
+				Long version = mMessageVersions.put(receiver, changes.version);
+				if ( (version != null) && (version.longValue() == changes.baseVersion) ) {
+					// Receiver has the messages which the changes apply to
+					return ((ClientChangeReceiver)receiver).changedMessages(changes);
+				}
+			}
+			// Not the change receiver, or it missed some update - send everything
+			return receiver.updatedMessages(messages);
+		}
+
+		private void clearVersions() {
+			mTaskVersions.clear();
+			mMessageVersions.clear();
+		}
 	}
 
 	private final BridgeReply mBridgeReply = new BridgeReply();
 
+	// The versions of tasks and messages last delivered to each ClientChangeReceiver
+	private Map<ClientReplyReceiver, Long> mTaskVersions = new HashMap<ClientReplyReceiver, Long>();
+	private Map<ClientReplyReceiver, Long> mMessageVersions = new HashMap<ClientReplyReceiver, Long>();
+
 	private Set<ClientReplyReceiver> mReceivers = new HashSet<ClientReplyReceiver>();
 	private boolean mConnected = false;
 
@@ -264,12 +305,12 @@ public class ClientBridge implements ClientRequestHandler {
 	 * 
 	 * @throws RuntimeException if worker thread cannot start in a timely fashion
 	 */
-	public ClientBridge(ClientBridgeCallback callback, Context context, NetStats netStats) throws RuntimeException {
+	public ClientBridge(ClientBridgeCallback callback, Context context, NetStats netStats, RpcClientPool rpcClientPool, HostConnector hostConnector) throws RuntimeException {
 		mCallback = callback;
 		if (BuildConfig.DEBUG) Log.d(TAG, "Starting ClientBridgeWorkerThread");
 		ConditionVariable lock = new ConditionVariable(false);
 		mAutoRefresh = new AutoRefresh(context, this);
-		mWorker = new ClientBridgeWorkerThread(lock, mBridgeReply, context, netStats);
+		mWorker = new ClientBridgeWorkerThread(lock, mBridgeReply, context, netStats, rpcClientPool, hostConnector);
 		mWorker.start();
 		boolean runningOk = lock.block(2000); // Locking until new thread fully runs
 		if (!runningOk) {
@@ -293,6 +334,9 @@ public class ClientBridge implements ClientRequestHandler {
 	public void registerDataReceiver(ClientReplyReceiver receiver) {
 		// Another receiver wants to be notified - add him into collection of receivers
 		mReceivers.add(receiver);
+		// It will receive complete data first, before any changes
+		mTaskVersions.remove(receiver);
+		mMessageVersions.remove(receiver);
 		if (BuildConfig.DEBUG) Log.d(TAG, "Attached new receiver: " + receiver.toString());
 		if (mConnected) {
 			// New receiver is attached while we are already connected
@@ -304,6 +348,8 @@ public class ClientBridge implements ClientRequestHandler {
 	public void unregisterDataReceiver(ClientReplyReceiver receiver) {
 		// Observer does not want to receive notifications anymore - remove him
 		mReceivers.remove(receiver);
+		mTaskVersions.remove(receiver);
+		mMessageVersions.remove(receiver);
 		if (mConnected) {
 			// The receiver could have automatic refresh pending
 			// Remove it now
@@ -312,7 +358,7 @@ public class ClientBridge implements ClientRequestHandler {
 		if (BuildConfig.DEBUG) Log.d(TAG, "Detached receiver: " + receiver.toString());
 	}
 
-	public void connect(final ClientId remoteClient, final boolean retrieveInitialData) {
+	public void connect(final ClientId remoteClient, final AdaptiveTimeouts timeouts, final boolean retrieveInitialData) {
 		if (mRemoteClient != null) {
 			// already connected
 			Log.e(TAG, "Request to connect to: " + remoteClient.getNickname() + " while already connected to: " + mRemoteClient.getNickname());
@@ -325,7 +371,7 @@ public class ClientBridge implements ClientRequestHandler {
 		}
 		mBridgeReply.setClientId(remoteClient); // For bridge callback
 		mRemoteClient = remoteClient;
-		mWorker.connect(remoteClient, retrieveInitialData);
+		mWorker.connect(remoteClient, timeouts, retrieveInitialData);
 	}
 
 	public void disconnect() {
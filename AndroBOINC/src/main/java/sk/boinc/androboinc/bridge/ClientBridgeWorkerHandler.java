@@ -20,6 +20,7 @@
 package sk.boinc.androboinc.bridge;
 
 import sk.boinc.androboinc.BuildConfig;
+import sk.boinc.androboinc.clientconnection.ChangeSet;
 import sk.boinc.androboinc.clientconnection.ClientReplyReceiver;
 import sk.boinc.androboinc.clientconnection.ConnectionManagerCallback.DisconnectCause;
 import sk.boinc.androboinc.clientconnection.ConnectionManagerCallback.ProgressInd;
@@ -32,6 +33,8 @@ import sk.boinc.androboinc.clientconnection.TransferInfo;
 import sk.boinc.androboinc.clientconnection.VersionInfo;
 import sk.boinc.androboinc.util.ClientId;
 import sk.boinc.androboinc.util.PreferenceName;
+import edu.berkeley.boinc.AdaptiveTimeouts;
+import edu.berkeley.boinc.HostConnector;
 import edu.berkeley.boinc.App;
 import edu.berkeley.boinc.AuthorizationFailedException;
 import edu.berkeley.boinc.CcState;
@@ -41,8 +44,10 @@ import edu.berkeley.boinc.Message;
 import edu.berkeley.boinc.NetStats;
 import edu.berkeley.boinc.Project;
 import edu.berkeley.boinc.Result;
+import edu.berkeley.boinc.RpcBatch;
 import edu.berkeley.boinc.RpcClient;
 import edu.berkeley.boinc.RpcClientFailedException;
+import edu.berkeley.boinc.SymbolTable;
 import edu.berkeley.boinc.Transfer;
 import edu.berkeley.boinc.Workunit;
 import android.content.Context;
@@ -50,10 +55,8 @@ import android.content.SharedPreferences;
 import android.os.Handler;
 import android.preference.PreferenceManager;
 import android.util.Log;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -64,11 +67,16 @@ public class ClientBridgeWorkerHandler extends Handler {
 	private static final String TAG = "ClientBridgeWorkerHandl";
 
 	private static final int MESSAGE_INITIAL_LIMIT = 50;
+	// Host info of state is without GPU info, it is retrieved separately by <get_host_info/>
+	private static final int STATE_SECTIONS = CcState.ALL & ~CcState.HOST_INFO;
 
 	private ClientBridgeWorkerThread.ReplyHandler mReplyHandler;
 	private final Context mContext;
 	private NetStats mNetStats;
+	private final RpcClientPool mRpcClientPool;
+	private final HostConnector mHostConnector;
 	private Formatter mFormatter;
+	private Formatter mDisplayFormatter; // used by UI thread, for lazy formatting of TaskInfo
 	private RpcClient mRpcClient = null; // read/write only by worker thread 
 	private ClientId mClientId = null;
 
@@ -79,13 +87,111 @@ public class ClientBridgeWorkerHandler extends Handler {
 	private Set<ClientReplyReceiver> mUpdateCancel = new HashSet<ClientReplyReceiver>();
 
 	private VersionInfo mClientVersion = null;
-	private Map<String, ProjectInfo> mProjects = new HashMap<String, ProjectInfo>();
-	private Map<String, App> mApps = new HashMap<String, App>();
-	private Map<String, Workunit> mWorkunits = new HashMap<String, Workunit>();
-	private Map<String, TaskInfo> mTasks = new HashMap<String, TaskInfo>();
-	private Set<String> mActiveTasks = new HashSet<String>();
-	private Vector<TransferInfo> mTransfers = new Vector<TransferInfo>();
+	private float mTotalResources = 0;
+	private MergeMap<Project, ProjectInfo> mProjects = new MergeMap<Project, ProjectInfo>() {
+		@Override
+		protected String key(final Project source) {
+			return source.master_url;
+		}
+		@Override
+		protected boolean isSame(final Project stored, final Project source) {
+			return ProjectInfoCreator.isSame(stored, source);
+		}
+		@Override
+		protected Project copy(final Project from, Project to) {
+			return ProjectInfoCreator.copy(from, to);
+		}
+		@Override
+		protected ProjectInfo create(final Project source) {
+			return ProjectInfoCreator.create(source, mTotalResources, mFormatter);
+		}
+	};
+	private MergeMap<App, TaskInfoCreator.ApplicationLabels> mApps = new MergeMap<App, TaskInfoCreator.ApplicationLabels>() {
+		@Override
+		protected String key(final App source) {
+			return source.name;
+		}
+		@Override
+		protected boolean isSame(final App stored, final App source) {
+			return TaskInfoCreator.isSame(stored, source);
+		}
+		@Override
+		protected App copy(final App from, App to) {
+			return TaskInfoCreator.copy(from, to);
+		}
+		@Override
+		protected TaskInfoCreator.ApplicationLabels create(final App source) {
+			return new TaskInfoCreator.ApplicationLabels(source.getName());
+		}
+	};
+	private MergeMap<Workunit, Workunit> mWorkunits = new MergeMap<Workunit, Workunit>() {
+		@Override
+		protected String key(final Workunit source) {
+			return source.name;
+		}
+		@Override
+		protected boolean isSame(final Workunit stored, final Workunit source) {
+			return TaskInfoCreator.isSame(stored, source);
+		}
+		@Override
+		protected Workunit copy(final Workunit from, Workunit to) {
+			return TaskInfoCreator.copy(from, to);
+		}
+		@Override
+		protected Workunit create(final Workunit source) {
+			return TaskInfoCreator.copy(source, null);
+		}
+	};
+	private TaskTable mTasks = new TaskTable();
+	private MergeMap<Transfer, TransferInfo> mTransfers = new MergeMap<Transfer, TransferInfo>() {
+		@Override
+		protected String key(final Transfer source) {
+			return source.name;
+		}
+		@Override
+		protected boolean isSame(final Transfer stored, final Transfer source) {
+			return TransferInfoCreator.isSame(stored, source);
+		}
+		@Override
+		protected Transfer copy(final Transfer from, Transfer to) {
+			return TransferInfoCreator.copy(from, to);
+		}
+		@Override
+		protected TransferInfo create(final Transfer source) {
+			ProjectInfo proj = mProjects.get(source.project_url);
+			String projectName;
+			if (proj != null) {
+				projectName = proj.project;
+			}
+			else {
+				Log.w(TAG, "No project for WU=" + source.name + " (project_url: " + source.project_url + "), setting dummy");
+				projectName = "???";
+			}
+			return TransferInfoCreator.create(source, projectName, mFormatter);
+		}
+	};
 	private SortedMap<Integer, MessageInfo> mMessages = new TreeMap<Integer, MessageInfo>();
+	private ChangeTracker<TaskInfo> mTaskChanges = new ChangeTracker<TaskInfo>() {
+		@Override
+		protected Object key(final TaskInfo entry) {
+			return entry.taskName;
+		}
+		@Override
+		protected int changedFields(final TaskInfo previous, final TaskInfo current) {
+			return TaskInfoCreator.changedFields(previous, current);
+		}
+	};
+	private ChangeTracker<MessageInfo> mMessageChanges = new ChangeTracker<MessageInfo>() {
+		@Override
+		protected Object key(final MessageInfo entry) {
+			return entry.seqNo;
+		}
+		@Override
+		protected int changedFields(final MessageInfo previous, final MessageInfo current) {
+			// Messages are never changed by client
+			return ChangeSet.ALL_FIELDS;
+		}
+	};
 	private boolean mInitialStateRetrieved = false;
 	private boolean mGpuPresent = false;
 
@@ -96,12 +202,17 @@ public class ClientBridgeWorkerHandler extends Handler {
 	 * @param replyHandler - the handler for replies from client
 	 * @param context - Context used for Android resources
 	 * @param netStats - (optional) network statistics handler
+	 * @param rpcClientPool - (optional) pool of connections, for reuse of connection after disconnect
+	 * @param hostConnector - (optional) connector caching the resolved addresses of hosts
 	 */
-	public ClientBridgeWorkerHandler(ClientBridgeWorkerThread.ReplyHandler replyHandler, final Context context, final NetStats netStats) {
+	public ClientBridgeWorkerHandler(ClientBridgeWorkerThread.ReplyHandler replyHandler, final Context context, final NetStats netStats, final RpcClientPool rpcClientPool, final HostConnector hostConnector) {
 		mReplyHandler = replyHandler;
 		mContext = context;
 		mNetStats = netStats;
+		mRpcClientPool = rpcClientPool;
+		mHostConnector = hostConnector;
 		mFormatter = new Formatter(mContext);
+		mDisplayFormatter = new Formatter(mContext);
 	}
 
 	/**
@@ -113,9 +224,12 @@ public class ClientBridgeWorkerHandler extends Handler {
 	public void cleanup() {
 		if (mFormatter != null) mFormatter.cleanup();
 		mFormatter = null;
+		// The display formatter is not cleaned up, because it can still be used
+		// by the tasks held in UI; it will be garbage collected together with them
+		mDisplayFormatter = null;
 		if (mRpcClient != null) {
 			Log.w(TAG, "cleanup(): RpcClient still opened, closing it now");
-			closeConnection();
+			closeConnection(false);
 		}
 		synchronized (this) {
 			mDisconnecting = true; // To prevent NullPointerException on wrongly called sequence
@@ -127,16 +241,25 @@ public class ClientBridgeWorkerHandler extends Handler {
 	}
 
 	/**
-	 * Closes RpcClient
+	 * Closes RpcClient, or returns it to the pool of connections
 	 * <p>
 	 * This method should be normally called in worker thread, but in case it is needed
 	 * it can be called also from UI thread (by cleanup())
+	 * 
+	 * @param reusable - true if connection is still in good shape and it can be reused later
 	 */
-	private synchronized void closeConnection() {
+	private synchronized void closeConnection(boolean reusable) {
 		if (mRpcClient != null) {
-			mRpcClient.close();
+			if (reusable && (mRpcClientPool != null) && (mClientId != null) && (mClientVersion != null)) {
+				// Connection was fully established and it was not broken - keep it for later reuse
+				mRpcClientPool.release(mClientId, mRpcClient, mClientVersion, mGpuPresent);
+				if (BuildConfig.DEBUG) Log.d(TAG, "Connection returned to pool");
+			}
+			else {
+				mRpcClient.close();
+				if (BuildConfig.DEBUG) Log.d(TAG, "Connection closed");
+			}
 			mRpcClient = null;
-			if (BuildConfig.DEBUG) Log.d(TAG, "Connection closed");
 		}
 		mClientId = null;
 	}
@@ -150,6 +273,18 @@ public class ClientBridgeWorkerHandler extends Handler {
 	 * @param cause - the reason for disconnect.
 	 */
 	private void disconnect(DisconnectCause cause) {
+		disconnect(cause, false);
+	}
+
+	/**
+	 * Notifies about disconnection and closes the RpcClient if needed.
+	 * <p> 
+	 * This method should run only in worker thread. 
+	 * 
+	 * @param cause - the reason for disconnect.
+	 * @param reusable - true if connection can be returned to pool instead of closing
+	 */
+	private void disconnect(DisconnectCause cause, boolean reusable) {
 		if (BuildConfig.DEBUG) Log.d(TAG, "disconnect(cause=" + cause.toString() + ")");
 		if (mConnectionClosed) return;  // Already done (e.g. connection failure while disconnect is in queue)
 		mDisconnectCause = cause;
@@ -162,7 +297,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 			}
 		}
 		// Close the socket
-		closeConnection();
+		closeConnection(reusable);
 		mConnectionClosed = true; // Mark the disconnecting phase
 		// Handling will continue in cleanup()
 	}
@@ -176,42 +311,27 @@ public class ClientBridgeWorkerHandler extends Handler {
 	 * in case remote host is not reachable.
 	 * 
 	 * @param client - identity of remote client
+	 * @param timeouts - (optional) timeouts adapted to remote client
 	 * @param retrieveInitialData - flag indicating whether full status of client should be
 	 *        retrieved as a part of connect operation
 	 */
-	public void connect(ClientId client, boolean retrieveInitialData) {
+	public void connect(ClientId client, AdaptiveTimeouts timeouts, boolean retrieveInitialData) {
 		if (mDisconnecting) return;  // Already in disconnect phase
 		try {
-			if (BuildConfig.DEBUG) Log.d(TAG, "Opening connection to " + client.getNickname());
-			notifyProgress(ProgressInd.CONNECTING);
-			RpcClient rpcClient = new RpcClient(mNetStats);
-			mNetStats = null; // Not needed here anymore
-			rpcClient.open(client.getAddress(), client.getPort());
-			mRpcClient = rpcClient;
-			if (BuildConfig.DEBUG) Log.d(TAG, "Connected to " + client.getNickname());
-			if (BuildConfig.DEBUG_INSERT_DELAYS) { try { Thread.sleep(1000); } catch (InterruptedException e) {} }
-			String password = client.getPassword();
-			if (!password.equals("")) {
-				// Password supplied, we need to authorize
-				if (mDisconnecting) return;  // already in disconnect phase
-				notifyProgress(ProgressInd.AUTHORIZATION_PENDING);
-				mRpcClient.authorize(password);
-				if (BuildConfig.DEBUG) Log.d(TAG, "Authorized successfully");
-				if (BuildConfig.DEBUG_INSERT_DELAYS) { try { Thread.sleep(1000); } catch (InterruptedException e) {} }
+			RpcClientPool.PooledClient pooled = (mRpcClientPool != null) ? mRpcClientPool.acquire(client) : null;
+			if (pooled != null) {
+				// Reusing connection - it is already authorized, and we know
+				// the version and host info from previous connect
+				if (BuildConfig.DEBUG) Log.d(TAG, "Reusing connection to " + client.getNickname());
+				mRpcClient = pooled.rpcClient;
+				mClientVersion = pooled.clientVersion;
+				mGpuPresent = pooled.gpuPresent;
+				mNetStats = null; // Not needed here anymore
 			}
-			edu.berkeley.boinc.VersionInfo versionInfo = mRpcClient.exchangeVersions();
-			if (versionInfo != null) {
-				// Newer client, supports operation <exchange_versions>
-				mClientVersion = VersionInfoCreator.create(versionInfo);
-				if (BuildConfig.DEBUG) Log.d(TAG, "connect(): client version " + mClientVersion.version);
+			else {
+				openConnection(client, timeouts);
+				if (mDisconnecting) return;  // already in disconnect phase
 			}
-			// We need host info to see if GPUs are present
-			// Note: The reply to <get_cc_state/> request (used in initialStateRetrieval()) 
-			//       contains <host_info> but that one is WITHOUT <coproc> info.
-			//       The reply to <get_host_info/> request contains GPU info.
-			edu.berkeley.boinc.HostInfo boincHostInfo = mRpcClient.getHostInfo();
-			mGpuPresent = (boincHostInfo.g_ngpus > 0);
-			if (BuildConfig.DEBUG) Log.d(TAG, "connect(): #GPUs=" + boincHostInfo.g_ngpus + ", mGpuPresent=" + mGpuPresent);
 			if (retrieveInitialData) {
 				// Before we reply, we also retrieve the complete state
 				// It can be time consuming, but it is very useful in typical usage;
@@ -229,7 +349,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 				// But we will not do full initial state update, only version info setting so
 				// some time can be saved this way (no parsing of all projects, applications, workunits,
 				// tasks, no retrieval of transfers/messages...)
-				CcState ccState = mRpcClient.getState();
+				CcState ccState = mRpcClient.getState(CcState.VERSION_ONLY);
 				if (mDisconnecting) return;  // already in disconnect phase
 				mClientVersion = VersionInfoCreator.create(ccState.version_info);
 			}
@@ -251,6 +371,62 @@ public class ClientBridgeWorkerHandler extends Handler {
 		}
 	}
 
+	/**
+	 * Opens new connection to client, performs authorization and retrieves basic data
+	 * (version of client, GPU presence)
+	 * 
+	 * @param client - identity of remote client
+	 * @param timeouts - (optional) timeouts adapted to remote client
+	 * @throws RpcClientFailedException in case of failure
+	 */
+	private void openConnection(ClientId client, AdaptiveTimeouts timeouts) throws RpcClientFailedException {
+		if (BuildConfig.DEBUG) Log.d(TAG, "Opening connection to " + client.getNickname());
+		notifyProgress(ProgressInd.CONNECTING);
+		RpcClient rpcClient = new RpcClient(mNetStats);
+		mNetStats = null; // Not needed here anymore
+		// Large replies (state, results) are parsed while being received
+		rpcClient.setStreamingParse(true);
+		// Results, projects and transfers are polled periodically, the parsed objects can be reused
+		// (they are not kept here, only converted to TaskInfo, ProjectInfo, TransferInfo)
+		rpcClient.setRecycling(true);
+		// Project URLs, application names and resources are shared by all parsed objects of the session
+		// (including state), so the repeated values are kept in memory only once
+		rpcClient.setSymbolTable(new SymbolTable());
+		rpcClient.setAdaptiveTimeouts(timeouts);
+		rpcClient.setHostConnector(mHostConnector);
+		rpcClient.open(client.getAddress(), client.getPort());
+		mRpcClient = rpcClient;
+		if (BuildConfig.DEBUG) Log.d(TAG, "Connected to " + client.getNickname());
+		if (BuildConfig.DEBUG_INSERT_DELAYS) { try { Thread.sleep(1000); } catch (InterruptedException e) {} }
+		String password = client.getPassword();
+		if (!password.equals("")) {
+			// Password supplied, we need to authorize
+			if (mDisconnecting) return;  // already in disconnect phase
+			notifyProgress(ProgressInd.AUTHORIZATION_PENDING);
+			mRpcClient.authorize(password);
+			if (BuildConfig.DEBUG) Log.d(TAG, "Authorized successfully");
+			if (BuildConfig.DEBUG_INSERT_DELAYS) { try { Thread.sleep(1000); } catch (InterruptedException e) {} }
+		}
+		// Version and host info are requested together, in single round trip
+		RpcBatch batch = new RpcBatch();
+		RpcBatch.Reply<edu.berkeley.boinc.VersionInfo> versionReply = batch.exchangeVersions();
+		// We need host info to see if GPUs are present
+		// Note: The reply to <get_cc_state/> request (used in initialStateRetrieval()) 
+		//       contains <host_info> but that one is WITHOUT <coproc> info.
+		//       The reply to <get_host_info/> request contains GPU info.
+		RpcBatch.Reply<edu.berkeley.boinc.HostInfo> hostInfoReply = batch.getHostInfo();
+		mRpcClient.execute(batch);
+		edu.berkeley.boinc.VersionInfo versionInfo = versionReply.get();
+		if (versionInfo != null) {
+			// Newer client, supports operation <exchange_versions>
+			mClientVersion = VersionInfoCreator.create(versionInfo);
+			if (BuildConfig.DEBUG) Log.d(TAG, "connect(): client version " + mClientVersion.version);
+		}
+		edu.berkeley.boinc.HostInfo boincHostInfo = hostInfoReply.get();
+		mGpuPresent = (boincHostInfo.g_ngpus > 0);
+		if (BuildConfig.DEBUG) Log.d(TAG, "connect(): #GPUs=" + boincHostInfo.g_ngpus + ", mGpuPresent=" + mGpuPresent);
+	}
+
 	/**
 	 * This method starts disconnect.
 	 * If there is operation towards client pending, it will not result in callback.
@@ -279,7 +455,9 @@ public class ClientBridgeWorkerHandler extends Handler {
 		this.post(new Runnable() {
 			@Override
 			public void run() {
-				disconnect(DisconnectCause.NORMAL);
+				// Connection is in sync (no request is pending between operations)
+				// so it can be reused
+				disconnect(DisconnectCause.NORMAL, true);
 			}
 		});
 	}
@@ -688,7 +866,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 
 	private synchronized void updatedTasks(final ClientReplyReceiver callback, final Vector<TaskInfo> tasks) {
 		if (mDisconnecting) return;
-		mReplyHandler.updatedTasks(callback, tasks);
+		mReplyHandler.updatedTasks(callback, tasks, mTaskChanges.track(tasks));
 	}
 
 	private synchronized void updatedTransfers(final ClientReplyReceiver callback, final Vector<TransferInfo> transfers) {
@@ -698,12 +876,12 @@ public class ClientBridgeWorkerHandler extends Handler {
 
 	private synchronized void updatedMessages(final ClientReplyReceiver callback, final Vector<MessageInfo> messages) {
 		if (mDisconnecting) return;
-		mReplyHandler.updatedMessages(callback, messages);
+		mReplyHandler.updatedMessages(callback, messages, mMessageChanges.track(messages));
 	}
 
 	private void updateState() throws RpcClientFailedException {
 		if (mDisconnecting) return;  // Started disconnect phase, don't bother with further data retrieval
-		CcState ccState = mRpcClient.getState();
+		CcState ccState = mRpcClient.getState(STATE_SECTIONS);
 		if (mDisconnecting) return;  // already in disconnect phase
 		dataSetProjects(ccState.projects);
 		dataSetApps(ccState.apps);
@@ -713,7 +891,7 @@ public class ClientBridgeWorkerHandler extends Handler {
 
 	private void initialStateRetrieval() throws RpcClientFailedException {
 		if (mDisconnecting) return;  // Started disconnect phase, don't bother with further data retrieval
-		CcState ccState = mRpcClient.getState();
+		CcState ccState = mRpcClient.getState(STATE_SECTIONS);
 		if (mDisconnecting) return;  // already in disconnect phase
 		if (mClientVersion == null) {
 			// Older versions of client do not support separate <exchange_versions>,
@@ -737,7 +915,6 @@ public class ClientBridgeWorkerHandler extends Handler {
 
 	private void dataSetProjects(Vector<Project> projects) {
 		if (BuildConfig.DEBUG) Log.d(TAG, "dataSetProjects(): Begin update");
-		mProjects.clear();
 		Iterator<Project> pi;
 		// First calculate sum of all resource shares, to get base
 		float totalResources = 0;
@@ -745,36 +922,45 @@ public class ClientBridgeWorkerHandler extends Handler {
 		while (pi.hasNext()) {
 			totalResources += pi.next().resource_share;
 		}
-		// Now set all projects, using the sum of shares
+		if (totalResources != mTotalResources) {
+			// Shares of all projects changed
+			mTotalResources = totalResources;
+			mProjects.invalidate();
+		}
+		// Now merge all projects, using the sum of shares
+		mProjects.begin();
 		pi = projects.iterator();
 		while (pi.hasNext()) {
-			Project prj = pi.next();
-			ProjectInfo project = ProjectInfoCreator.create(prj, totalResources, mFormatter);
-			mProjects.put(prj.master_url, project);
+			mProjects.merge(pi.next());
+		}
+		mProjects.end();
+		if (mProjects.changed() > 0) {
+			// Transfers show the names of projects
+			mTransfers.invalidate();
 		}
-		if (BuildConfig.DEBUG) Log.d(TAG, "dataSetProjects(): End update");
+		if (BuildConfig.DEBUG) Log.d(TAG, "dataSetProjects(): End update, " + mProjects.changed() + " changed");
 	}
 
 	private void dataSetApps(Vector<App> apps) {
-		mApps.clear();
+		mApps.begin();
 		Iterator<App> ai = apps.iterator();
 		while (ai.hasNext()) {
-			App app = ai.next();
-			mApps.put(app.name, app);
+			mApps.merge(ai.next());
 		}
+		mApps.end();
 	}
 
 	private void dataSetTasks(Vector<Workunit> workunits, Vector<Result> results) {
 		if (BuildConfig.DEBUG) Log.d(TAG, "dataSetTasks(): Begin update");
-		mTasks.clear();
-		mActiveTasks.clear();
-		// First, parse workunits, to create auxiliary map of workunits
-		mWorkunits.clear();
+		// First, merge workunits into auxiliary map of workunits
+		mWorkunits.begin();
 		Iterator<Workunit> wi = workunits.iterator();
 		while (wi.hasNext()) {
-			Workunit wu = wi.next();
-			mWorkunits.put(wu.name, wu);
+			mWorkunits.merge(wi.next());
 		}
+		mWorkunits.end();
+		// Tasks not present in state anymore will be removed
+		mTasks.beginUpdate();
 		// Then, parse results to set the tasks data
 		Iterator<Result> ri = results.iterator();
 		while (ri.hasNext()) {
@@ -789,79 +975,50 @@ public class ClientBridgeWorkerHandler extends Handler {
 				Log.w(TAG, "No workunit info for WU=" + result.name + " (wu_name: " + result.wu_name + "), skipping WU");
 				continue;
 			}
-			App app = mApps.get(workunit.app_name);
+			TaskInfoCreator.ApplicationLabels app = mApps.get(workunit.app_name);
 			if (app == null) {
 				Log.w(TAG, "No application info for WU=" + result.name + " (app_name: " + workunit.app_name + "), skipping WU");
 				continue;
 			}
-			TaskInfo task = TaskInfoCreator.create(result, workunit, pi, app, mFormatter);
-			mTasks.put(task.taskName, task);
-			if (result.active_task) {
-				// This is also active task
-				mActiveTasks.add(result.name);
-			}
+			mTasks.put(result, pi.project, app.label(result, workunit));
 		}
+		mTasks.removeNotUpdated();
 		if (BuildConfig.DEBUG) Log.d(TAG, "dataSetTasks(): End update");
 	}
 
 	private void dataSetTransfers(Vector<Transfer> transfers) {
 		if (BuildConfig.DEBUG) Log.d(TAG, "dataSetTransfers(): Begin update");
-		mTransfers.clear();
+		mTransfers.begin();
 		Iterator<Transfer> ti = transfers.iterator();
 		while (ti.hasNext()) {
-			Transfer transfer = ti.next();
-			String projectName;
-			ProjectInfo proj = mProjects.get(transfer.project_url);
-			if (proj != null) {
-				projectName = proj.project;
-			}
-			else {
-				Log.w(TAG, "No project for WU=" + transfer.name + " (project_url: " + transfer.project_url + "), setting dummy");
-				projectName = "???";
-			}
-			TransferInfo transferInfo = TransferInfoCreator.create(transfer, projectName, mFormatter);
-			mTransfers.add(transferInfo);
+			mTransfers.merge(ti.next());
 		}
-		if (BuildConfig.DEBUG) Log.d(TAG, "dataSetTransfers(): End update");
+		mTransfers.end();
+		if (BuildConfig.DEBUG) Log.d(TAG, "dataSetTransfers(): End update, " + mTransfers.changed() + " changed");
 	}
 
 	private boolean dataUpdateTasks(Vector<Result> results) {
 		if (BuildConfig.DEBUG) Log.d(TAG, "dataUpdateTasks(): Begin update");
-		// Auxiliary set, to know which tasks were updated and which not
-		Set<String> oldTaskNames = new HashSet<String>(mTasks.keySet());
-		mActiveTasks.clear(); // We will build new record of active tasks
-		// Parse results to set the tasks data
+		// Tasks not updated by results will be known as obsolete
+		mTasks.beginUpdate();
+		// Parse results to update the tasks data in place
 		Iterator<Result> ri = results.iterator();
 		while (ri.hasNext()) {
 			Result result = ri.next();
-			TaskInfo task = (TaskInfo)mTasks.get(result.name);
-			if (task == null) {
+			if (mTasks.update(result) < 0) {
 				// Maybe new workunit wad downloaded meanwhile, so we have
 				// its result part, but not workunit part
 				if (BuildConfig.DEBUG) Log.d(TAG, "Task not found while trying dataUpdateTasks() - needs full updateCcState() update");
 				return false;
 			}
-			task = TaskInfoCreator.update(task, result, mFormatter);
-			mTasks.put(task.taskName, task);
-			if (result.active_task) {
-				// This is also active task
-				mActiveTasks.add(result.name);
-			}
-			// We updated this task - remove it from auxiliary set
-			oldTaskNames.remove(result.name);
 		}
-		// We updated all entries in mTasks, which were in results
+		// We updated all rows of mTasks, which were in results
 		// But, there could still be some obsolete tasks in mTasks
 		// e.g. those uploaded and reported successfully
 		// We should remove them now
-		if (oldTaskNames.size() > 0) {
-			if (BuildConfig.DEBUG) Log.d(TAG, "dataUpdateTasks(): " + oldTaskNames.size() + " obsolete tasks detected");
-			Iterator<String> it = oldTaskNames.iterator();
-			while (it.hasNext()) {
-				String obsoleteName = it.next();
-				mTasks.remove(obsoleteName);
-				if (BuildConfig.DEBUG) Log.d(TAG, "dataUpdateTasks(): removed " + obsoleteName);
-			}
+		int removed = mTasks.removeNotUpdated();
+		if (removed > 0) {
+			if (BuildConfig.DEBUG) Log.d(TAG, "dataUpdateTasks(): removed " + removed + " obsolete tasks");
 		}
 		if (BuildConfig.DEBUG) Log.d(TAG, "dataUpdateTasks(): End update");
 		return true;
@@ -880,15 +1037,26 @@ public class ClientBridgeWorkerHandler extends Handler {
 	}
 
 	private final Vector<ProjectInfo> getProjects() {
-		return new Vector<ProjectInfo>(mProjects.values());
+		return mProjects.values();
 	}
 
 	private final Vector<TaskInfo> getTasks() {
-		return new Vector<TaskInfo>(mTasks.values());
+		int count = mTasks.size();
+		Vector<TaskInfo> tasks = new Vector<TaskInfo>(count);
+		for (int row = 0; row < count; ++row) {
+			TaskInfo task = mTasks.info(row);
+			if (task == null) {
+				// New or changed task
+				task = TaskInfoCreator.create(mTasks, row, mFormatter, mDisplayFormatter, mTasks.previousInfo(row));
+				mTasks.setInfo(row, task);
+			}
+			tasks.add(task);
+		}
+		return tasks;
 	}
 
 	private final Vector<TransferInfo> getTransfers() {
-		return new Vector<TransferInfo>(mTransfers);
+		return mTransfers.values();
 	}
 
 	private final Vector<MessageInfo> getMessages() {
@@ -20,6 +20,7 @@
 package sk.boinc.androboinc.bridge;
 
 import sk.boinc.androboinc.BuildConfig;
+import sk.boinc.androboinc.clientconnection.ChangeSet;
 import sk.boinc.androboinc.clientconnection.ClientReplyReceiver;
 import sk.boinc.androboinc.clientconnection.HostInfo;
 import sk.boinc.androboinc.clientconnection.MessageInfo;
@@ -30,6 +31,8 @@ import sk.boinc.androboinc.clientconnection.ProjectInfo;
 import sk.boinc.androboinc.clientconnection.TaskInfo;
 import sk.boinc.androboinc.clientconnection.TransferInfo;
 import sk.boinc.androboinc.clientconnection.VersionInfo;
+import edu.berkeley.boinc.AdaptiveTimeouts;
+import edu.berkeley.boinc.HostConnector;
 import edu.berkeley.boinc.NetStats;
 import sk.boinc.androboinc.util.ClientId;
 import android.content.Context;
@@ -140,11 +143,11 @@ public class ClientBridgeWorkerThread extends Thread {
 			});
 		}
 
-		public void updatedTasks(final ClientReplyReceiver callback, final Vector <TaskInfo> tasks) {
+		public void updatedTasks(final ClientReplyReceiver callback, final Vector <TaskInfo> tasks, final ChangeSet<TaskInfo> changes) {
 			mBridgeReplyHandler.post(new Runnable() {
 				@Override
 				public void run() {
-					mBridgeReply.updatedTasks(callback, tasks);
+					mBridgeReply.updatedTasks(callback, tasks, changes);
 				}
 			});
 		}
@@ -158,11 +161,11 @@ public class ClientBridgeWorkerThread extends Thread {
 			});
 		}
 
-		public void updatedMessages(final ClientReplyReceiver callback, final Vector <MessageInfo> messages) {
+		public void updatedMessages(final ClientReplyReceiver callback, final Vector <MessageInfo> messages, final ChangeSet<MessageInfo> changes) {
 			mBridgeReplyHandler.post(new Runnable() {
 				@Override
 				public void run() {
-					mBridgeReply.updatedMessages(callback, messages);
+					mBridgeReply.updatedMessages(callback, messages, changes);
 				}
 			});
 		}
@@ -174,17 +177,23 @@ public class ClientBridgeWorkerThread extends Thread {
 	private ClientBridge.BridgeReply mBridgeReply;
 	private Context mContext;
 	private NetStats mNetStats;
+	private RpcClientPool mRpcClientPool;
+	private HostConnector mHostConnector;
 
 	public ClientBridgeWorkerThread(
 			ConditionVariable lock, 
 			final ClientBridge.BridgeReply bridgeReply, 
 			final Context context, 
-			final NetStats netStats) {
+			final NetStats netStats,
+			final RpcClientPool rpcClientPool,
+			final HostConnector hostConnector) {
 		if (bridgeReply == null) throw new NullPointerException();
 		mLock = lock;
 		mBridgeReply = bridgeReply;
 		mContext = context;
 		mNetStats = netStats;
+		mRpcClientPool = rpcClientPool;
+		mHostConnector = hostConnector;
 		mReplyHandler = new ReplyHandler(); // Create in UI thread
 		setDaemon(true);
 	}
@@ -199,7 +208,7 @@ public class ClientBridgeWorkerThread extends Thread {
 
 		// Create Handler - we must create it within run() method,
 		// so it will be associated with this thread
-		mHandler = new ClientBridgeWorkerHandler(mReplyHandler, mContext, mNetStats);
+		mHandler = new ClientBridgeWorkerHandler(mReplyHandler, mContext, mNetStats, mRpcClientPool, mHostConnector);
 
 		// We have handler, we are ready to receive messages :-)
 		if (mLock != null) {
@@ -210,6 +219,8 @@ public class ClientBridgeWorkerThread extends Thread {
 		// We passed the references to handler, we don't need them here anymore
 		mContext = null;
 		mNetStats = null;
+		mRpcClientPool = null;
+		mHostConnector = null;
 
 		// Now, start looping
 		Looper.loop();
@@ -236,12 +247,12 @@ public class ClientBridgeWorkerThread extends Thread {
 		});
 	}
 
-	public void connect(final ClientId remoteClient, final boolean retrieveInitialData) {
+	public void connect(final ClientId remoteClient, final AdaptiveTimeouts timeouts, final boolean retrieveInitialData) {
 		// Execute in worker thread
 		mHandler.post(new Runnable() {
 			@Override
 			public void run() {
-				mHandler.connect(remoteClient, retrieveInitialData);
+				mHandler.connect(remoteClient, timeouts, retrieveInitialData);
 			}
 		});
 	}
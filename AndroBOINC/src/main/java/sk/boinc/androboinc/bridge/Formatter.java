@@ -23,6 +23,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import sk.boinc.androboinc.R;
+import sk.boinc.androboinc.clientconnection.TaskInfo;
 import android.content.Context;
 import android.content.res.Resources;
 
@@ -35,11 +36,13 @@ import android.content.res.Resources;
  * For formatting a lot of objects is needed only for short time, so
  * reusing of objects could prevent some garbage collection.
  */
-public class Formatter {
+public class Formatter implements TaskInfo.ValueFormatter {
 	private final Context mContext;
 	private Resources mResources = null;
 	private StringBuilder mSb = new StringBuilder();
 	private SimpleDateFormat mDateFormatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	private String[] mResultStates = null;
+	private String[] mActiveTaskStates = null;
 
 	public Formatter(Context context) {
 		mContext = context;
@@ -50,12 +53,28 @@ public class Formatter {
 		mResources = null;
 		mSb = null;
 		mDateFormatter = null;
+		mResultStates = null;
+		mActiveTaskStates = null;
 	}
 
 	public final Resources getResources() {
 		return mResources;
 	}
 
+	public final String[] getResultStates() {
+		if (mResultStates == null) {
+			mResultStates = mResources.getStringArray(R.array.resultStates);
+		}
+		return mResultStates;
+	}
+
+	public final String[] getActiveTaskStates() {
+		if (mActiveTaskStates == null) {
+			mActiveTaskStates = mResources.getStringArray(R.array.activeTaskStates);
+		}
+		return mActiveTaskStates;
+	}
+
 	public final StringBuilder getStringBuilder() {
 		mSb.setLength(0);
 		return mSb;
@@ -66,6 +85,10 @@ public class Formatter {
 		return mDateFormatter.format(date).toString();
 	}
 
+	public final String formatTime(long seconds) {
+		return formatElapsedTime(seconds);
+	}
+
 	public static final String formatElapsedTime(long seconds) {
 		long hours = seconds / 3600;
 		int remain = (int)(seconds % 3600);
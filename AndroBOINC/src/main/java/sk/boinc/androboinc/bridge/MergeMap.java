@@ -0,0 +1,174 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.androboinc.bridge;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Vector;
+
+
+/**
+ * The <code>MergeMap</code> keeps the objects presented to UI (values), created
+ * from the objects retrieved from client (sources), keyed by unique key of source.
+ * <p>
+ * Instead of re-creating all the values on each refresh, the new reply is merged
+ * into the map: the value of unchanged source is kept (the same instance),
+ * the value of changed or new source is created and the values of sources
+ * not present in reply anymore are removed. The copy of each merged source
+ * is kept for comparison with the next reply, the copy is updated in place.
+ * <p>
+ * The values are kept in order in which they were added.
+ * The map is not thread-safe, it must be accessed by single thread only.
+ *
+ * @param <S> type of source (as retrieved from client)
+ * @param <V> type of value (as presented to UI)
+ */
+abstract class MergeMap<S, V> {
+	private static final class Entry<S, V> {
+		S source;
+		V value;
+		int generation;
+		boolean valid;
+	}
+
+	private final LinkedHashMap<String, Entry<S, V>> mEntries = new LinkedHashMap<String, Entry<S, V>>();
+	private int mGeneration = 0;
+	private int mChanged = 0;
+
+	/**
+	 * @return the unique key of source
+	 */
+	protected abstract String key(final S source);
+
+	/**
+	 * @return true if the value created from source would be the same
+	 *         as the value created from stored copy
+	 */
+	protected abstract boolean isSame(final S stored, final S source);
+
+	/**
+	 * Copies the data needed by {@link #isSame(Object, Object)} from source to stored copy.
+	 * 
+	 * @param to the stored copy to be overwritten, or null when new copy must be created
+	 * @return the stored copy
+	 */
+	protected abstract S copy(final S from, S to);
+
+	/**
+	 * @return the value created from source
+	 */
+	protected abstract V create(final S source);
+
+	/**
+	 * Starts the merge of new reply
+	 */
+	public final void begin() {
+		mGeneration++;
+		mChanged = 0;
+	}
+
+	/**
+	 * Merges the single source of new reply
+	 * 
+	 * @return the value for source, the kept one when source is unchanged
+	 */
+	public final V merge(final S source) {
+		String key = key(source);
+		Entry<S, V> entry = mEntries.get(key);
+		if (entry == null) {
+			entry = new Entry<S, V>();
+			mEntries.put(key, entry);
+		}
+		else if (entry.valid && isSame(entry.source, source)) {
+			// Unchanged, keep the value
+			entry.generation = mGeneration;
+			return entry.value;
+		}
+		entry.source = copy(source, entry.source);
+		entry.value = create(source);
+		entry.generation = mGeneration;
+		entry.valid = true;
+		mChanged++;
+		return entry.value;
+	}
+
+	/**
+	 * Finishes the merge of new reply, the values of sources which
+	 * were not merged since {@link #begin()} are removed.
+	 * 
+	 * @return the number of removed values
+	 */
+	public final int end() {
+		int removed = 0;
+		Iterator<Entry<S, V>> it = mEntries.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().generation != mGeneration) {
+				it.remove();
+				removed++;
+			}
+		}
+		mChanged += removed;
+		return removed;
+	}
+
+	/**
+	 * @return the number of values added, changed or removed by last merge
+	 */
+	public final int changed() {
+		return mChanged;
+	}
+
+	/**
+	 * Forces re-creation of all values on next merge, e.g. when
+	 * the values depend on data other than their sources which changed
+	 */
+	public final void invalidate() {
+		Iterator<Entry<S, V>> it = mEntries.values().iterator();
+		while (it.hasNext()) {
+			it.next().valid = false;
+		}
+	}
+
+	public final V get(final String key) {
+		Entry<S, V> entry = mEntries.get(key);
+		return (entry == null) ? null : entry.value;
+	}
+
+	public final int size() {
+		return mEntries.size();
+	}
+
+	public final Vector<V> values() {
+		Vector<V> values = new Vector<V>(mEntries.size());
+		Iterator<Entry<S, V>> it = mEntries.values().iterator();
+		while (it.hasNext()) {
+			values.add(it.next().value);
+		}
+		return values;
+	}
+
+	public final void clear() {
+		mEntries.clear();
+	}
+
+	static boolean equal(final Object a, final Object b) {
+		return (a == b) || ((a != null) && a.equals(b));
+	}
+}
@@ -59,4 +59,35 @@ public class ProjectInfoCreator {
 				share,
 				sb.toString());
 	}
+
+	public static boolean isSame(final Project stored, final Project prj) {
+		return (stored.resource_share == prj.resource_share) &&
+				(stored.suspended_via_gui == prj.suspended_via_gui) &&
+				(stored.dont_request_more_work == prj.dont_request_more_work) &&
+				(stored.user_total_credit == prj.user_total_credit) &&
+				(stored.user_expavg_credit == prj.user_expavg_credit) &&
+				(stored.host_total_credit == prj.host_total_credit) &&
+				(stored.host_expavg_credit == prj.host_expavg_credit) &&
+				MergeMap.equal(stored.master_url, prj.master_url) &&
+				MergeMap.equal(stored.project_name, prj.project_name) &&
+				MergeMap.equal(stored.user_name, prj.user_name) &&
+				MergeMap.equal(stored.team_name, prj.team_name);
+	}
+
+	public static Project copy(final Project prj, Project stored) {
+		// Only the data used by create() are copied
+		if (stored == null) stored = new Project();
+		stored.master_url = prj.master_url;
+		stored.resource_share = prj.resource_share;
+		stored.project_name = prj.project_name;
+		stored.user_name = prj.user_name;
+		stored.team_name = prj.team_name;
+		stored.user_total_credit = prj.user_total_credit;
+		stored.user_expavg_credit = prj.user_expavg_credit;
+		stored.host_total_credit = prj.host_total_credit;
+		stored.host_expavg_credit = prj.host_expavg_credit;
+		stored.suspended_via_gui = prj.suspended_via_gui;
+		stored.dont_request_more_work = prj.dont_request_more_work;
+		return stored;
+	}
 }
@@ -0,0 +1,143 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.androboinc.bridge;
+
+import sk.boinc.androboinc.BuildConfig;
+import sk.boinc.androboinc.clientconnection.VersionInfo;
+import sk.boinc.androboinc.util.ClientId;
+import edu.berkeley.boinc.RpcClient;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Pool of opened and authorized connections to BOINC clients, keyed by {@link ClientId}.
+ * <p>
+ * When user disconnects from client, the connection is not closed, but it is kept
+ * here for some time. When user connects to the same client again, the pooled
+ * connection is reused, so the connect, authorization, version exchange and host info
+ * retrieval are not needed.
+ * <p>
+ * Methods can be called from worker threads of bridges as well as from UI thread.
+ */
+public class RpcClientPool {
+	private static final String TAG = "RpcClientPool";
+
+	public static final long MAX_IDLE_TIME = 120000; // 2 minutes
+	private static final int MAX_POOLED_CONNECTIONS = 3;
+
+	/**
+	 * Connection stored in the pool, together with the data retrieved during connect
+	 */
+	public static class PooledClient {
+		public final RpcClient rpcClient;
+		public final VersionInfo clientVersion;
+		public final boolean gpuPresent;
+		private final long mReleaseTime;
+
+		private PooledClient(RpcClient rpcClient, VersionInfo clientVersion, boolean gpuPresent) {
+			this.rpcClient = rpcClient;
+			this.clientVersion = clientVersion;
+			this.gpuPresent = gpuPresent;
+			mReleaseTime = SystemClock.elapsedRealtime();
+		}
+	}
+
+	// Ordered by insertion, so the first entry is the oldest one
+	private Map<ClientId, PooledClient> mPool = new LinkedHashMap<ClientId, PooledClient>();
+
+	/**
+	 * Takes the connection to the client from pool.
+	 * The connection is checked (without round trip to client) before it is returned.
+	 * 
+	 * @param clientId - identity of remote client
+	 * @return pooled connection, or null if there is no usable connection to the client
+	 */
+	public PooledClient acquire(ClientId clientId) {
+		PooledClient pooled;
+		synchronized (this) {
+			evictIdle();
+			pooled = mPool.remove(clientId);
+		}
+		if (pooled == null) return null;
+		if (!pooled.rpcClient.idleConnectionAlive()) {
+			if (BuildConfig.DEBUG) Log.d(TAG, "acquire(): pooled connection to " + clientId.getNickname() + " is not alive anymore");
+			pooled.rpcClient.close();
+			return null;
+		}
+		if (BuildConfig.DEBUG) Log.d(TAG, "acquire(): reusing pooled connection to " + clientId.getNickname());
+		return pooled;
+	}
+
+	/**
+	 * Returns the connection to the pool. The connection must be opened,
+	 * authorized and there must be no request pending on it.
+	 * 
+	 * @param clientId - identity of remote client
+	 * @param rpcClient - the connection
+	 * @param clientVersion - version of client as retrieved at connect time
+	 * @param gpuPresent - GPU presence as retrieved at connect time
+	 */
+	public synchronized void release(ClientId clientId, RpcClient rpcClient, VersionInfo clientVersion, boolean gpuPresent) {
+		PooledClient previous = mPool.remove(clientId);
+		if (previous != null) {
+			// Should not happen - only one bridge is connected at the same time
+			previous.rpcClient.close();
+		}
+		mPool.put(clientId, new PooledClient(rpcClient, clientVersion, gpuPresent));
+		if (BuildConfig.DEBUG) Log.d(TAG, "release(): connection to " + clientId.getNickname() + " stored in pool");
+		while (mPool.size() > MAX_POOLED_CONNECTIONS) {
+			// Close the oldest one
+			Iterator<PooledClient> it = mPool.values().iterator();
+			it.next().rpcClient.close();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Closes the connections which were idle for more than {@link #MAX_IDLE_TIME}
+	 */
+	public synchronized void evictIdle() {
+		long now = SystemClock.elapsedRealtime();
+		Iterator<PooledClient> it = mPool.values().iterator();
+		while (it.hasNext()) {
+			PooledClient pooled = it.next();
+			if (now - pooled.mReleaseTime >= MAX_IDLE_TIME) {
+				pooled.rpcClient.close();
+				it.remove();
+				if (BuildConfig.DEBUG) Log.d(TAG, "evictIdle(): closed idle connection");
+			}
+		}
+	}
+
+	/**
+	 * Closes all pooled connections (e.g. when network connectivity is lost)
+	 */
+	public synchronized void clear() {
+		Iterator<PooledClient> it = mPool.values().iterator();
+		while (it.hasNext()) {
+			it.next().rpcClient.close();
+		}
+		mPool.clear();
+	}
+}
@@ -23,75 +23,112 @@ import sk.boinc.androboinc.R;
 import sk.boinc.androboinc.clientconnection.ProjectInfo;
 import sk.boinc.androboinc.clientconnection.TaskInfo;
 import android.content.res.Resources;
+import java.util.HashMap;
 import edu.berkeley.boinc.App;
 import edu.berkeley.boinc.Result;
 import edu.berkeley.boinc.Workunit;
 
 
 public class TaskInfoCreator {
-	public static TaskInfo create(final Result result, final Workunit workunit, final ProjectInfo pi, final App app, final Formatter formatter) {
-		int appVersion = result.version_num;
-		if (appVersion == 0) {
-			// Older versions of client do not contain this information in Result,
-			// but it is present in Workunit
-			appVersion = workunit.version_num;
-		}
-		String application = String.format("%s %.2f", app.getName(), appVersion/100.0);
-		String deadline = formatter.formatDate(result.report_deadline);
-		TaskInfo skelTaskInfo = new TaskInfo(result.name,
-				result.project_url,
-				0,			// dummy stateControl
-				0,			// dummy progInd
-				result.report_deadline,
-				pi.project,
-				application,
-				null,		// dummy elapsed
-				null,		// dummy progress
-				null,		// dummy toCompletion
-				deadline,
-				null,		// dummy virtMemSize
-				null,		// dummy workSetSize
-				null,		// dummy cpuTime
-				null,		// dummy chckpntTime
-				null,		// dummy resources
-				null		// dummy state
-				);
-		return update(skelTaskInfo, result, formatter);
+	/**
+	 * The descriptions of versions of one application (e.g. "Application 7.06"),
+	 * each one formatted once and then shared by all tasks of that version.
+	 */
+	public static final class ApplicationLabels {
+		private final String mName;
+		private final HashMap<Integer, String> mLabels = new HashMap<Integer, String>();
+
+		public ApplicationLabels(final String name) {
+			mName = name;
+		}
+
+		public final String label(final Result result, final Workunit workunit) {
+			int appVersion = result.version_num;
+			if (appVersion == 0) {
+				// Older versions of client do not contain this information in Result,
+				// but it is present in Workunit
+				appVersion = workunit.version_num;
+			}
+			String label = mLabels.get(appVersion);
+			if (label == null) {
+				label = String.format("%s %.2f", mName, appVersion/100.0);
+				mLabels.put(appVersion, label);
+			}
+			return label;
+		}
+	}
+
+	public static boolean isSame(final App stored, final App app) {
+		return MergeMap.equal(stored.user_friendly_name, app.user_friendly_name);
+	}
+
+	public static App copy(final App app, App stored) {
+		// Only the data used by ApplicationLabels are copied
+		if (stored == null) stored = new App();
+		stored.name = app.name;
+		stored.user_friendly_name = app.user_friendly_name;
+		return stored;
+	}
+
+	public static boolean isSame(final Workunit stored, final Workunit wu) {
+		return (stored.version_num == wu.version_num) &&
+				MergeMap.equal(stored.app_name, wu.app_name);
 	}
 
-	public static TaskInfo update(TaskInfo old, Result result, final Formatter formatter) {
+	public static Workunit copy(final Workunit wu, Workunit stored) {
+		if (stored == null) stored = new Workunit();
+		stored.name = wu.name;
+		stored.app_name = wu.app_name;
+		stored.version_num = wu.version_num;
+		return stored;
+	}
+
+	/**
+	 * Creates the task from the row of table.
+	 * <p>
+	 * Only the state is resolved now; the display strings of numerical values are formatted
+	 * by <code>displayFormatter</code> when they are accessed for the first time.
+	 * 
+	 * @param formatter - the formatter of worker thread
+	 * @param displayFormatter - the formatter used by UI thread
+	 * @param previous - (optional) the previous state of the task, to reuse its display strings
+	 */
+	public static TaskInfo create(final TaskTable tasks, int row, final Formatter formatter, final Formatter displayFormatter, final TaskInfo previous) {
 		Resources resources = formatter.getResources();
-		String state = formatTaskState(result.state, result.active_task_state, resources);
+		int resultState = tasks.state(row);
+		int activeTaskState = tasks.activeTaskState(row);
+		float fractionDone = tasks.fractionDone(row);
+		String state = formatTaskState(resultState, activeTaskState, formatter);
 		int stateControl = 0;
-		if (result.project_suspended_via_gui) {
+		if (tasks.isProjectSuspendedViaGui(row)) {
 			stateControl = TaskInfo.SUSPENDED;
 			state = resources.getString(R.string.projectSuspendedByUser);
 		}
-		if (result.suspended_via_gui) {
+		if (tasks.isSuspendedViaGui(row)) {
 			stateControl = TaskInfo.SUSPENDED;
 			state = resources.getString(R.string.taskSuspendedByUser);
 		}
 		if (stateControl == 0) {
 			// Not suspended - we retrieve detailed state
-			switch (result.state) {
+			switch (resultState) {
 			case 0:
 			case 1:
 				stateControl = TaskInfo.DOWNLOADING;
 				break;
 			case 2:
-				if (result.active_task_state == 1) {
+				if (activeTaskState == 1) {
 					// Running right now
 					stateControl = TaskInfo.RUNNING;
 				}
-				else if ( (result.active_task_state != 0) || (result.fraction_done > 0.0) ) {
+				else if ( (activeTaskState != 0) || (fractionDone > 0.0) ) {
 					// Was already running before, but now it's not running
 					stateControl = TaskInfo.PREEMPTED;
 				}
-				else if (result.active_task_state == 0) {
+				else if (activeTaskState == 0) {
 					// Ready to start (was not running yet)
 					stateControl = TaskInfo.READY_TO_START;
 				}
-				else if (result.active_task_state == 5) {
+				else if (activeTaskState == 5) {
 					// Aborted
 					stateControl = TaskInfo.ABORTED;
 				}
@@ -110,75 +147,92 @@ public class TaskInfoCreator {
 				break;
 			}
 		}
-		double pctDone = result.fraction_done*100;
+		float pctDone = fractionDone*100;
 		long elapsedTime;
-		if ((result.state == 4) || (result.state == 5)) {
+		if ((resultState == 4) || (resultState == 5)) {
 			// The task has been completed
-			pctDone = 100.0;
-			elapsedTime = (long)result.final_elapsed_time;
+			pctDone = 100.0F;
+			elapsedTime = (long)tasks.finalElapsedTime(row);
 			if (elapsedTime == 0) {
 				// Older versions of client do not contain this information,
 				// but they have CPU-time instead
-				elapsedTime = (long)result.final_cpu_time;
+				elapsedTime = (long)tasks.finalCpuTime(row);
 			}
 		}
 		else {
 			// Task not completed yet (or not started yet)
-			elapsedTime = (long)result.elapsed_time;
+			elapsedTime = (long)tasks.elapsedTime(row);
 			if (elapsedTime == 0) {
 				// Older versions of client do not contain this information,
 				// but they have CPU-time instead
-				elapsedTime = (long)result.current_cpu_time;
+				elapsedTime = (long)tasks.currentCpuTime(row);
 			}
 		}
-		String elapsed = Formatter.formatElapsedTime(elapsedTime);
-		int progInd = (int)pctDone;
-		String progress = String.format("%.3f%%", pctDone);
-		String toCompletion = Formatter.formatElapsedTime((long)result.estimated_cpu_time_remaining);
-		String virtMemSize = null;
-		String workSetSize = null;
-		String cpuTime = null;
-		String chckpntTime = null;
-		if (result.fraction_done > 0.0) {
-			// Task is running/preempted, probably using some resources
-			virtMemSize = formatter.formatBinSize((long)result.swap_size);
-			workSetSize = formatter.formatSize((long)result.working_set_size_smoothed);
-			cpuTime = Formatter.formatElapsedTime((long)result.current_cpu_time);
-			chckpntTime = Formatter.formatElapsedTime((long)result.checkpoint_cpu_time);
-		}
-		return new TaskInfo(old.taskName,
-				old.projectUrl,
+		// Task which is running/preempted probably uses some resources
+		boolean usesResources = (fractionDone > 0.0);
+		return new TaskInfo(tasks.name(row),
+				tasks.projectUrl(row),
 				stateControl,
-				progInd,
-				old.deadlineNum,
-				old.project,
-				old.application,
-				elapsed,
-				progress,
-				toCompletion,
-				old.deadline,
-				virtMemSize,
-				workSetSize,
-				cpuTime,
-				chckpntTime,
-				result.resources,
-				state
+				(int)pctDone,
+				tasks.reportDeadline(row),
+				tasks.project(row),
+				tasks.application(row),
+				pctDone,
+				elapsedTime,
+				(long)tasks.estimatedCpuTimeRemaining(row),
+				usesResources,
+				(long)tasks.swapSize(row),
+				(long)tasks.workingSetSize(row),
+				(long)tasks.currentCpuTime(row),
+				(long)tasks.checkpointCpuTime(row),
+				tasks.resources(row),
+				state,
+				displayFormatter,
+				previous
 				);
 	}
 
-	private static final String formatTaskState(int state, int activeTaskState, final Resources resources) {
-		String result = resources.getString(R.string.unknown); // init for case something goes wrong
-		String[] states = resources.getStringArray(R.array.resultStates);
-		if (state < states.length) {
-			result = states[state];
-			if (state == 2) {
-				// the task is active - we have more details to show
-				String[] activeStates = resources.getStringArray(R.array.activeTaskStates);
-				if (activeTaskState < activeStates.length) {
-					result = activeStates[activeTaskState];
-				}
+	public static int changedFields(final TaskInfo previous, final TaskInfo current) {
+		int fields = 0;
+		if ( (previous.stateControl != current.stateControl) || !MergeMap.equal(previous.state, current.state) ) {
+			fields |= TaskInfo.FIELD_STATE;
+		}
+		if ( (previous.progInd != current.progInd) || (previous.pctDone != current.pctDone) ) {
+			fields |= TaskInfo.FIELD_PROGRESS;
+		}
+		if ( (previous.elapsedNum != current.elapsedNum) || (previous.toCompletionNum != current.toCompletionNum) ||
+				(previous.cpuTimeNum != current.cpuTimeNum) || (previous.chckpntTimeNum != current.chckpntTimeNum) ) {
+			fields |= TaskInfo.FIELD_TIMES;
+		}
+		if ( (previous.usesResources != current.usesResources) ||
+				(previous.virtMemNum != current.virtMemNum) || (previous.workSetNum != current.workSetNum) ) {
+			fields |= TaskInfo.FIELD_MEMORY;
+		}
+		if (previous.deadlineNum != current.deadlineNum) {
+			fields |= TaskInfo.FIELD_DEADLINE;
+		}
+		if ( !MergeMap.equal(previous.projectUrl, current.projectUrl) || !MergeMap.equal(previous.project, current.project) ) {
+			fields |= TaskInfo.FIELD_PROJECT;
+		}
+		if ( !MergeMap.equal(previous.application, current.application) || !MergeMap.equal(previous.resources, current.resources) ) {
+			fields |= TaskInfo.FIELD_APPLICATION;
+		}
+		return fields;
+	}
+
+	private static final String formatTaskState(int state, int activeTaskState, final Formatter formatter) {
+		String[] states = formatter.getResultStates();
+		if (state >= states.length) {
+			// something went wrong
+			return formatter.getResources().getString(R.string.unknown);
+		}
+		if (state == 2) {
+			// the task is active - we have more details to show
+			String[] activeStates = formatter.getActiveTaskStates();
+			if (activeTaskState < activeStates.length) {
+				return activeStates[activeTaskState];
 			}
 		}
-		return result;
+		return states[state];
 	}
 }
@@ -0,0 +1,428 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.androboinc.bridge;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import sk.boinc.androboinc.clientconnection.TaskInfo;
+import edu.berkeley.boinc.Result;
+
+
+/**
+ * The <code>TaskTable</code> keeps the tasks of connected client in columnar form.
+ * <p>
+ * Each task occupies one row; numbers of the row are stored in primitive arrays
+ * (one array per column) and the textual columns which repeat across the tasks
+ * (project, application, resources) are stored as indexes to small pool of strings.
+ * The columns take about 80 bytes per task, plus the entry of name in the index of rows.
+ * <p>
+ * The rows are updated in place from the results retrieved by get_results,
+ * no objects are created for tasks which are already known.
+ * Rows keep the order in which the tasks were added.
+ * <p>
+ * Each row can also hold the {@link TaskInfo} created from it. It becomes stale
+ * when the row changes, so the <code>TaskInfo</code> of unchanged task can be kept
+ * and the stale one can be used as base of the new one. This is the main part of memory
+ * taken by task (object of about 20 fields, plus the display strings once formatted);
+ * the same instance is delivered to UI, which reads it on its own thread while the rows
+ * are updated in place, so it cannot be replaced by a view of the row. Compared to keeping
+ * the parsed results, workunits and applications of all tasks, the cost of task is still
+ * reduced to a few hundreds of bytes.
+ * <p>
+ * The table is not thread-safe, it must be accessed by single thread only.
+ */
+final class TaskTable {
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Bits of mFlags
+	private static final byte SUSPENDED_VIA_GUI = 0x01;
+	private static final byte PROJECT_SUSPENDED_VIA_GUI = 0x02;
+	private static final byte ACTIVE_TASK = 0x04;
+	private static final byte SEEN = 0x08;
+	private static final byte STALE_INFO = 0x10;
+
+	private int mSize = 0;
+	private final HashMap<String, Integer> mRows = new HashMap<String, Integer>();
+	private final ArrayList<String> mPool = new ArrayList<String>();
+	private final HashMap<String, Integer> mPoolIndex = new HashMap<String, Integer>();
+
+	private String[] mName;
+	private int[] mProjectUrl;
+	private int[] mProject;
+	private int[] mApplication;
+	private int[] mResources;
+	private int[] mState;
+	private int[] mActiveTaskState;
+	private byte[] mFlags;
+	private float[] mFractionDone;
+	private float[] mElapsedTime;
+	private float[] mFinalElapsedTime;
+	private float[] mCurrentCpuTime;
+	private float[] mFinalCpuTime;
+	private float[] mCheckpointCpuTime;
+	private float[] mEstimatedRemaining;
+	private float[] mSwapSize;
+	private float[] mWorkingSetSize;
+	private long[] mReportDeadline;
+	private TaskInfo[] mInfo;
+
+	public TaskTable() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	public final int size() {
+		return mSize;
+	}
+
+	public final int indexOf(String name) {
+		Integer row = mRows.get(name);
+		return (row == null) ? -1 : row.intValue();
+	}
+
+	public final void clear() {
+		// Drop also references to strings, so they can be garbage collected
+		Arrays.fill(mName, 0, mSize, null);
+		Arrays.fill(mInfo, 0, mSize, null);
+		mSize = 0;
+		mRows.clear();
+		mPool.clear();
+		mPoolIndex.clear();
+	}
+
+	/**
+	 * Sets the task described by result. The task is added as new row
+	 * if it is not in the table yet, otherwise its row is overwritten.
+	 * 
+	 * @param result the result as retrieved from client
+	 * @param project the name of project of the task
+	 * @param application the description of application of the task
+	 * @return the row of the task
+	 */
+	public final int put(final Result result, final String project, final String application) {
+		int row = indexOf(result.name);
+		if (row < 0) {
+			if (mSize == mName.length) {
+				allocate(mSize * 2);
+			}
+			row = mSize++;
+			mName[row] = result.name;
+			mRows.put(result.name, row);
+		}
+		int projectUrl = pool(result.project_url);
+		int projectIdx = pool(project);
+		int applicationIdx = pool(application);
+		if ( (mProjectUrl[row] != projectUrl) || (mProject[row] != projectIdx) || (mApplication[row] != applicationIdx) ) {
+			mProjectUrl[row] = projectUrl;
+			mProject[row] = projectIdx;
+			mApplication[row] = applicationIdx;
+			mFlags[row] |= STALE_INFO;
+		}
+		setValues(row, result);
+		return row;
+	}
+
+	/**
+	 * Marks all the rows as not updated yet. Used together with
+	 * {@link #update(Result)} and {@link #removeNotUpdated()}.
+	 */
+	public final void beginUpdate() {
+		for (int i = 0; i < mSize; ++i) {
+			mFlags[i] &= ~SEEN;
+		}
+	}
+
+	/**
+	 * Updates the row of already known task in place.
+	 * 
+	 * @param result the result as retrieved from client
+	 * @return the row of updated task, or -1 if the task is not in the table
+	 */
+	public final int update(final Result result) {
+		int row = indexOf(result.name);
+		if (row >= 0) {
+			setValues(row, result);
+		}
+		return row;
+	}
+
+	/**
+	 * Removes the rows which were not updated since {@link #beginUpdate()},
+	 * i.e. the tasks which are not reported by client anymore.
+	 * The order of remaining rows is kept.
+	 * 
+	 * @return the number of removed rows
+	 */
+	public final int removeNotUpdated() {
+		int dst = 0;
+		for (int src = 0; src < mSize; ++src) {
+			if ((mFlags[src] & SEEN) == 0) {
+				mRows.remove(mName[src]);
+				continue;
+			}
+			if (dst != src) {
+				moveRow(src, dst);
+				mRows.put(mName[dst], dst);
+			}
+			dst++;
+		}
+		int removed = mSize - dst;
+		Arrays.fill(mName, dst, mSize, null);
+		Arrays.fill(mInfo, dst, mSize, null);
+		mSize = dst;
+		return removed;
+	}
+
+	/**
+	 * @return the TaskInfo set for the row, or null if the row
+	 *         changed since {@link #setInfo(int, TaskInfo)}
+	 */
+	public final TaskInfo info(int row) {
+		return ((mFlags[row] & STALE_INFO) != 0) ? null : mInfo[row];
+	}
+
+	/**
+	 * @return the TaskInfo set for the row, even if the row changed meanwhile
+	 *         (null if the TaskInfo was never set)
+	 */
+	public final TaskInfo previousInfo(int row) {
+		return mInfo[row];
+	}
+
+	public final void setInfo(int row, final TaskInfo info) {
+		mInfo[row] = info;
+		mFlags[row] &= ~STALE_INFO;
+	}
+
+	public final String name(int row) {
+		return mName[row];
+	}
+
+	public final String projectUrl(int row) {
+		return mPool.get(mProjectUrl[row]);
+	}
+
+	public final String project(int row) {
+		return mPool.get(mProject[row]);
+	}
+
+	public final String application(int row) {
+		return mPool.get(mApplication[row]);
+	}
+
+	public final String resources(int row) {
+		int index = mResources[row];
+		return (index < 0) ? null : mPool.get(index);
+	}
+
+	public final int state(int row) {
+		return mState[row];
+	}
+
+	public final int activeTaskState(int row) {
+		return mActiveTaskState[row];
+	}
+
+	public final boolean isSuspendedViaGui(int row) {
+		return (mFlags[row] & SUSPENDED_VIA_GUI) != 0;
+	}
+
+	public final boolean isProjectSuspendedViaGui(int row) {
+		return (mFlags[row] & PROJECT_SUSPENDED_VIA_GUI) != 0;
+	}
+
+	public final boolean isActiveTask(int row) {
+		return (mFlags[row] & ACTIVE_TASK) != 0;
+	}
+
+	public final float fractionDone(int row) {
+		return mFractionDone[row];
+	}
+
+	public final float elapsedTime(int row) {
+		return mElapsedTime[row];
+	}
+
+	public final float finalElapsedTime(int row) {
+		return mFinalElapsedTime[row];
+	}
+
+	public final float currentCpuTime(int row) {
+		return mCurrentCpuTime[row];
+	}
+
+	public final float finalCpuTime(int row) {
+		return mFinalCpuTime[row];
+	}
+
+	public final float checkpointCpuTime(int row) {
+		return mCheckpointCpuTime[row];
+	}
+
+	public final float estimatedCpuTimeRemaining(int row) {
+		return mEstimatedRemaining[row];
+	}
+
+	public final float swapSize(int row) {
+		return mSwapSize[row];
+	}
+
+	public final float workingSetSize(int row) {
+		return mWorkingSetSize[row];
+	}
+
+	public final long reportDeadline(int row) {
+		return mReportDeadline[row];
+	}
+
+	private void setValues(int row, final Result result) {
+		byte flags = SEEN;
+		if (result.suspended_via_gui) flags |= SUSPENDED_VIA_GUI;
+		if (result.project_suspended_via_gui) flags |= PROJECT_SUSPENDED_VIA_GUI;
+		if (result.active_task) flags |= ACTIVE_TASK;
+		int resources = (result.resources == null) ? -1 : pool(result.resources);
+		float elapsedTime = (float)result.elapsed_time;
+		float finalElapsedTime = (float)result.final_elapsed_time;
+		float currentCpuTime = (float)result.current_cpu_time;
+		float finalCpuTime = (float)result.final_cpu_time;
+		float checkpointCpuTime = (float)result.checkpoint_cpu_time;
+		float estimatedRemaining = (float)result.estimated_cpu_time_remaining;
+		float swapSize = (float)result.swap_size;
+		float workingSetSize = (float)result.working_set_size_smoothed;
+		byte staleInfo = (byte)(mFlags[row] & STALE_INFO);
+		if ( (((mFlags[row] & ~STALE_INFO) | SEEN) == flags) &&
+				(mResources[row] == resources) &&
+				(mState[row] == result.state) &&
+				(mActiveTaskState[row] == result.active_task_state) &&
+				(mFractionDone[row] == result.fraction_done) &&
+				(mElapsedTime[row] == elapsedTime) &&
+				(mFinalElapsedTime[row] == finalElapsedTime) &&
+				(mCurrentCpuTime[row] == currentCpuTime) &&
+				(mFinalCpuTime[row] == finalCpuTime) &&
+				(mCheckpointCpuTime[row] == checkpointCpuTime) &&
+				(mEstimatedRemaining[row] == estimatedRemaining) &&
+				(mSwapSize[row] == swapSize) &&
+				(mWorkingSetSize[row] == workingSetSize) &&
+				(mReportDeadline[row] == result.report_deadline) ) {
+			// Unchanged task, only mark it as updated
+			mFlags[row] = (byte)(flags | staleInfo);
+			return;
+		}
+		mFlags[row] = (byte)(flags | STALE_INFO);
+		mResources[row] = resources;
+		mState[row] = result.state;
+		mActiveTaskState[row] = result.active_task_state;
+		mFractionDone[row] = result.fraction_done;
+		mElapsedTime[row] = elapsedTime;
+		mFinalElapsedTime[row] = finalElapsedTime;
+		mCurrentCpuTime[row] = currentCpuTime;
+		mFinalCpuTime[row] = finalCpuTime;
+		mCheckpointCpuTime[row] = checkpointCpuTime;
+		mEstimatedRemaining[row] = estimatedRemaining;
+		mSwapSize[row] = swapSize;
+		mWorkingSetSize[row] = workingSetSize;
+		mReportDeadline[row] = result.report_deadline;
+	}
+
+	private void moveRow(int src, int dst) {
+		mName[dst] = mName[src];
+		mProjectUrl[dst] = mProjectUrl[src];
+		mProject[dst] = mProject[src];
+		mApplication[dst] = mApplication[src];
+		mResources[dst] = mResources[src];
+		mState[dst] = mState[src];
+		mActiveTaskState[dst] = mActiveTaskState[src];
+		mFlags[dst] = mFlags[src];
+		mFractionDone[dst] = mFractionDone[src];
+		mElapsedTime[dst] = mElapsedTime[src];
+		mFinalElapsedTime[dst] = mFinalElapsedTime[src];
+		mCurrentCpuTime[dst] = mCurrentCpuTime[src];
+		mFinalCpuTime[dst] = mFinalCpuTime[src];
+		mCheckpointCpuTime[dst] = mCheckpointCpuTime[src];
+		mEstimatedRemaining[dst] = mEstimatedRemaining[src];
+		mSwapSize[dst] = mSwapSize[src];
+		mWorkingSetSize[dst] = mWorkingSetSize[src];
+		mReportDeadline[dst] = mReportDeadline[src];
+		mInfo[dst] = mInfo[src];
+	}
+
+	private int pool(String value) {
+		Integer index = mPoolIndex.get(value);
+		if (index == null) {
+			index = mPool.size();
+			mPool.add(value);
+			mPoolIndex.put(value, index);
+		}
+		return index.intValue();
+	}
+
+	private void allocate(int capacity) {
+		if (mName == null) {
+			mName = new String[capacity];
+			mProjectUrl = new int[capacity];
+			mProject = new int[capacity];
+			mApplication = new int[capacity];
+			mResources = new int[capacity];
+			mState = new int[capacity];
+			mActiveTaskState = new int[capacity];
+			mFlags = new byte[capacity];
+			mFractionDone = new float[capacity];
+			mElapsedTime = new float[capacity];
+			mFinalElapsedTime = new float[capacity];
+			mCurrentCpuTime = new float[capacity];
+			mFinalCpuTime = new float[capacity];
+			mCheckpointCpuTime = new float[capacity];
+			mEstimatedRemaining = new float[capacity];
+			mSwapSize = new float[capacity];
+			mWorkingSetSize = new float[capacity];
+			mReportDeadline = new long[capacity];
+			mInfo = new TaskInfo[capacity];
+			return;
+		}
+		mName = (String[])grow(mName, capacity);
+		mProjectUrl = (int[])grow(mProjectUrl, capacity);
+		mProject = (int[])grow(mProject, capacity);
+		mApplication = (int[])grow(mApplication, capacity);
+		mResources = (int[])grow(mResources, capacity);
+		mState = (int[])grow(mState, capacity);
+		mActiveTaskState = (int[])grow(mActiveTaskState, capacity);
+		mFlags = (byte[])grow(mFlags, capacity);
+		mFractionDone = (float[])grow(mFractionDone, capacity);
+		mElapsedTime = (float[])grow(mElapsedTime, capacity);
+		mFinalElapsedTime = (float[])grow(mFinalElapsedTime, capacity);
+		mCurrentCpuTime = (float[])grow(mCurrentCpuTime, capacity);
+		mFinalCpuTime = (float[])grow(mFinalCpuTime, capacity);
+		mCheckpointCpuTime = (float[])grow(mCheckpointCpuTime, capacity);
+		mEstimatedRemaining = (float[])grow(mEstimatedRemaining, capacity);
+		mSwapSize = (float[])grow(mSwapSize, capacity);
+		mWorkingSetSize = (float[])grow(mWorkingSetSize, capacity);
+		mReportDeadline = (long[])grow(mReportDeadline, capacity);
+		mInfo = (TaskInfo[])grow(mInfo, capacity);
+	}
+
+	private static Object grow(Object array, int capacity) {
+		// Arrays.copyOf() is not available on older platforms
+		Object grown = Array.newInstance(array.getClass().getComponentType(), capacity);
+		System.arraycopy(array, 0, grown, 0, Array.getLength(array));
+		return grown;
+	}
+}
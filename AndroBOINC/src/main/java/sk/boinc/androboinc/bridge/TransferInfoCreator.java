@@ -103,4 +103,38 @@ public class TransferInfoCreator {
 				speed,
 				state);
 	}
+
+	public static boolean isSame(final Transfer stored, final Transfer transfer) {
+		if (transfer.next_request_time > (System.currentTimeMillis() / 1000)) {
+			// Suspended transfer shows the remaining time, which changes on each refresh
+			return false;
+		}
+		return (stored.is_upload == transfer.is_upload) &&
+				(stored.nbytes == transfer.nbytes) &&
+				(stored.xfer_active == transfer.xfer_active) &&
+				(stored.status == transfer.status) &&
+				(stored.next_request_time == transfer.next_request_time) &&
+				(stored.time_so_far == transfer.time_so_far) &&
+				(stored.bytes_xferred == transfer.bytes_xferred) &&
+				(stored.xfer_speed == transfer.xfer_speed) &&
+				(stored.project_backoff == transfer.project_backoff) &&
+				MergeMap.equal(stored.name, transfer.name) &&
+				MergeMap.equal(stored.project_url, transfer.project_url);
+	}
+
+	public static Transfer copy(final Transfer transfer, Transfer stored) {
+		if (stored == null) stored = new Transfer();
+		stored.name = transfer.name;
+		stored.project_url = transfer.project_url;
+		stored.is_upload = transfer.is_upload;
+		stored.nbytes = transfer.nbytes;
+		stored.xfer_active = transfer.xfer_active;
+		stored.status = transfer.status;
+		stored.next_request_time = transfer.next_request_time;
+		stored.time_so_far = transfer.time_so_far;
+		stored.bytes_xferred = transfer.bytes_xferred;
+		stored.xfer_speed = transfer.xfer_speed;
+		stored.project_backoff = transfer.project_backoff;
+		return stored;
+	}
 }
@@ -0,0 +1,64 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.androboinc.clientconnection;
+
+import java.util.Vector;
+
+
+/**
+ * Changes of the list of entries (tasks, messages) between two subsequent deliveries
+ * to {@link ClientChangeReceiver}.
+ * <p>
+ * The entries are immutable; entry which was not changed is delivered as the same
+ * instance again, so the receiver can find the entries of previous delivery by identity.
+ * The changes are applicable only on the list of version <code>baseVersion</code>;
+ * the versions increase monotonically during the connection.
+ */
+public class ChangeSet<T> {
+	public static final int ALL_FIELDS = 0xFFFFFFFF;
+
+	public final long      baseVersion;   // The version of list the changes apply to
+	public final long      version;       // The version of list after the changes are applied
+	public final Vector<T> added;         // New entries
+	public final Vector<T> removed;       // Entries of previous version which are not present anymore
+	public final Vector<T> changedFrom;   // Entries of previous version which changed
+	public final Vector<T> changedTo;     // The replacements of changedFrom entries (at the same index)
+	public final int[]     changedFields; // The set of changed fields of changedTo entries (at the same index)
+
+	public ChangeSet(long baseVersion,
+			long version,
+			Vector<T> added,
+			Vector<T> removed,
+			Vector<T> changedFrom,
+			Vector<T> changedTo,
+			int[] changedFields) {
+		this.baseVersion = baseVersion;
+		this.version = version;
+		this.added = added;
+		this.removed = removed;
+		this.changedFrom = changedFrom;
+		this.changedTo = changedTo;
+		this.changedFields = changedFields;
+	}
+
+	public final boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changedTo.isEmpty();
+	}
+}
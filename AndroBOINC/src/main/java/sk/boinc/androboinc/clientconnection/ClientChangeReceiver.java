@@ -0,0 +1,53 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package sk.boinc.androboinc.clientconnection;
+
+
+/**
+ * Extended callback interface for BOINC client connection.
+ * The receivers implementing this interface receive only the changes
+ * since the previous update of tasks and messages, so they can patch
+ * their data in place instead of processing the complete list again.
+ * <p>
+ * The complete list is still delivered via {@link ClientReplyReceiver} methods
+ * whenever the changes cannot be applied, e.g. for the first update after
+ * registration of receiver or when receiver missed some update.
+ * 
+ * @see ClientReplyReceiver
+ */
+public interface ClientChangeReceiver extends ClientReplyReceiver {
+
+	/**
+	 * Notifies about the changes of tasks since the previous update
+	 * 
+	 * @param changes - the changes of tasks
+	 * @return true if further updates should be sent, false otherwise
+	 */
+	public abstract boolean changedTasks(ChangeSet<TaskInfo> changes);
+
+	/**
+	 * Notifies about the changes of messages since the previous update
+	 * 
+	 * @param changes - the changes of messages
+	 * @return true if further updates should be sent, false otherwise
+	 */
+	public abstract boolean changedMessages(ChangeSet<MessageInfo> changes);
+
+}
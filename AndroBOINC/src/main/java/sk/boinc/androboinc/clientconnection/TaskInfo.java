@@ -23,8 +23,22 @@ package sk.boinc.androboinc.clientconnection;
 /**
  * Description of BOINC task for AndroBOINC purpose
  * Reflects the classes of BOINC-library: Result, Project, Workunit, App
+ * <p>
+ * The numerical values are kept in raw form; their display strings are formatted
+ * on first access only (so the tasks which are never shown cost no formatting)
+ * and then kept. The display strings are accessed by UI thread only.
  */
 public class TaskInfo {
+	/**
+	 * Formats the raw values of task for display
+	 */
+	public interface ValueFormatter {
+		public abstract String formatDate(long time);
+		public abstract String formatTime(long seconds);
+		public abstract String formatSize(long size);
+		public abstract String formatBinSize(long size);
+	}
+
 	public final String taskName;     // Result.name - unique ID
 	public final String projectUrl;   // Result.project_url
 	public final int    stateControl; // state control in numerical form
@@ -38,21 +52,47 @@ public class TaskInfo {
 	public static final int ABORTED = 8;
 	public static final int ERROR = 9;
 
-	public final int    progInd;      // Progress indication in numerical form
-	public final long   deadlineNum;  // Deadline in numerical form
-	public final String project;      // Project.getName()
-	public final String application;  // App.getName() + Workunit.version_num converted to string
-	public final String elapsed;      // Result.elapsed_time converted to time-string
-	public final String progress;     // Result.fraction_done converted to percentage string
-	public final String toCompletion; // Result.estimated_cpu_time_remaining converted to time-string
-	public final String deadline;     // Result.report_deadline converted to date-string
-	public final String virtMemSize;  // Result.swap_size converted to size-string (base 2) (can be null)
-	public final String workSetSize;  // Result.working_set_size_smoothed converted to size-string (base 10) (can be null)
-	public final String cpuTime;      // Result.current_cpu_time converted to time-string (can be null)
-	public final String chckpntTime;  // Result.checkpoint_cpu_time converted to time-string (can be null)
-	public final String resources;    // Result.resources (can be null)
-	public final String state;        // Result.state combined with Result.active_task_state converted to string
+	public final int    progInd;         // Progress indication in numerical form
+	public final long   deadlineNum;     // Deadline in numerical form
+	public final String project;         // Project.getName()
+	public final String application;     // App.getName() + Workunit.version_num converted to string
+	public final float  pctDone;         // Result.fraction_done converted to percentage
+	public final long   elapsedNum;      // Result.elapsed_time (or other time when not available)
+	public final long   toCompletionNum; // Result.estimated_cpu_time_remaining
+	public final boolean usesResources;  // Result.fraction_done > 0, the task probably uses some resources
+	public final long   virtMemNum;      // Result.swap_size
+	public final long   workSetNum;      // Result.working_set_size_smoothed
+	public final long   cpuTimeNum;      // Result.current_cpu_time
+	public final long   chckpntTimeNum;  // Result.checkpoint_cpu_time
+	public final String resources;       // Result.resources (can be null)
+	public final String state;           // Result.state combined with Result.active_task_state converted to string
+
+	// Groups of fields, as reported in ChangeSet.changedFields
+	public static final int FIELD_STATE = 0x01;       // stateControl, state
+	public static final int FIELD_PROGRESS = 0x02;    // progInd, pctDone
+	public static final int FIELD_TIMES = 0x04;       // elapsedNum, toCompletionNum, cpuTimeNum, chckpntTimeNum
+	public static final int FIELD_MEMORY = 0x08;      // usesResources, virtMemNum, workSetNum
+	public static final int FIELD_DEADLINE = 0x10;    // deadlineNum
+	public static final int FIELD_PROJECT = 0x20;     // projectUrl, project
+	public static final int FIELD_APPLICATION = 0x40; // application, resources
 
+	private final ValueFormatter mFormatter;
+	private String mProgress = null;
+	private String mElapsed = null;
+	private String mToCompletion = null;
+	private String mDeadline = null;
+	private String mVirtMemSize = null;
+	private String mWorkSetSize = null;
+	private String mCpuTime = null;
+	private String mChckpntTime = null;
+
+	/**
+	 * Creates the task
+	 * 
+	 * @param formatter - the formatter of display strings, used by UI thread only
+	 * @param previous - (optional) the previous state of the same task; its display
+	 *                   strings are reused for the values which did not change
+	 */
 	public TaskInfo(String taskName,
 			String projectUrl,
 			int    stateControl,
@@ -60,16 +100,18 @@ public class TaskInfo {
 			long   deadlineNum,
 			String project,
 			String application,
-			String elapsed,
-			String progress,
-			String toCompletion,
-			String deadline,
-			String virtMemSize,
-			String workSetSize,
-			String cpuTime,
-			String chckpntTime,
+			float  pctDone,
+			long   elapsedNum,
+			long   toCompletionNum,
+			boolean usesResources,
+			long   virtMemNum,
+			long   workSetNum,
+			long   cpuTimeNum,
+			long   chckpntTimeNum,
 			String resources,
-			String state
+			String state,
+			ValueFormatter formatter,
+			TaskInfo previous
 			) {
 		this.taskName = taskName;
 		this.projectUrl = projectUrl;
@@ -78,15 +120,98 @@ public class TaskInfo {
 		this.deadlineNum = deadlineNum;
 		this.project = project;
 		this.application = application;
-		this.elapsed = elapsed;
-		this.progress = progress;
-		this.toCompletion = toCompletion;
-		this.deadline = deadline;
-		this.virtMemSize = virtMemSize;
-		this.workSetSize = workSetSize;
-		this.cpuTime = cpuTime;
-		this.chckpntTime = chckpntTime;
+		this.pctDone = pctDone;
+		this.elapsedNum = elapsedNum;
+		this.toCompletionNum = toCompletionNum;
+		this.usesResources = usesResources;
+		this.virtMemNum = virtMemNum;
+		this.workSetNum = workSetNum;
+		this.cpuTimeNum = cpuTimeNum;
+		this.chckpntTimeNum = chckpntTimeNum;
 		this.resources = resources;
 		this.state = state;
+		this.mFormatter = formatter;
+		if (previous != null) {
+			// The display strings of previous are written by UI thread meanwhile;
+			// we can see either null (will be formatted again) or the complete string
+			if (previous.pctDone == pctDone) mProgress = previous.mProgress;
+			if (previous.elapsedNum == elapsedNum) mElapsed = previous.mElapsed;
+			if (previous.toCompletionNum == toCompletionNum) mToCompletion = previous.mToCompletion;
+			if (previous.deadlineNum == deadlineNum) mDeadline = previous.mDeadline;
+			if (previous.usesResources && usesResources) {
+				if (previous.virtMemNum == virtMemNum) mVirtMemSize = previous.mVirtMemSize;
+				if (previous.workSetNum == workSetNum) mWorkSetSize = previous.mWorkSetSize;
+				if (previous.cpuTimeNum == cpuTimeNum) mCpuTime = previous.mCpuTime;
+				if (previous.chckpntTimeNum == chckpntTimeNum) mChckpntTime = previous.mChckpntTime;
+			}
+		}
+	}
+
+	/**
+	 * @return fraction_done converted to percentage string
+	 */
+	public final String getProgress() {
+		if (mProgress == null) mProgress = String.format("%.3f%%", pctDone);
+		return mProgress;
+	}
+
+	/**
+	 * @return elapsed time converted to time-string
+	 */
+	public final String getElapsed() {
+		if (mElapsed == null) mElapsed = mFormatter.formatTime(elapsedNum);
+		return mElapsed;
+	}
+
+	/**
+	 * @return estimated_cpu_time_remaining converted to time-string
+	 */
+	public final String getToCompletion() {
+		if (mToCompletion == null) mToCompletion = mFormatter.formatTime(toCompletionNum);
+		return mToCompletion;
+	}
+
+	/**
+	 * @return report_deadline converted to date-string
+	 */
+	public final String getDeadline() {
+		if (mDeadline == null) mDeadline = mFormatter.formatDate(deadlineNum);
+		return mDeadline;
+	}
+
+	/**
+	 * @return swap_size converted to size-string (base 2), or null when task does not use resources
+	 */
+	public final String getVirtMemSize() {
+		if (!usesResources) return null;
+		if (mVirtMemSize == null) mVirtMemSize = mFormatter.formatBinSize(virtMemNum);
+		return mVirtMemSize;
+	}
+
+	/**
+	 * @return working_set_size_smoothed converted to size-string (base 10), or null when task does not use resources
+	 */
+	public final String getWorkSetSize() {
+		if (!usesResources) return null;
+		if (mWorkSetSize == null) mWorkSetSize = mFormatter.formatSize(workSetNum);
+		return mWorkSetSize;
+	}
+
+	/**
+	 * @return current_cpu_time converted to time-string, or null when task does not use resources
+	 */
+	public final String getCpuTime() {
+		if (!usesResources) return null;
+		if (mCpuTime == null) mCpuTime = mFormatter.formatTime(cpuTimeNum);
+		return mCpuTime;
+	}
+
+	/**
+	 * @return checkpoint_cpu_time converted to time-string, or null when task does not use resources
+	 */
+	public final String getChckpntTime() {
+		if (!usesResources) return null;
+		if (mChckpntTime == null) mChckpntTime = mFormatter.formatTime(chckpntTimeNum);
+		return mChckpntTime;
 	}
 }
@@ -0,0 +1,61 @@
+/*
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010-2016, Pavol Michalec
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package sk.boinc.androboinc.bridge;
+
+import org.junit.Test;
+
+import edu.berkeley.boinc.Result;
+import edu.berkeley.boinc.Workunit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.*;
+
+
+public class ApplicationLabelsTest {
+    private static Result result(int versionNum) {
+        Result result = new Result();
+        result.version_num = versionNum;
+        return result;
+    }
+
+    private static Workunit workunit(int versionNum) {
+        Workunit workunit = new Workunit();
+        workunit.version_num = versionNum;
+        return workunit;
+    }
+
+    @Test
+    public void labelSharedByVersion() {
+        TaskInfoCreator.ApplicationLabels labels = new TaskInfoCreator.ApplicationLabels("Rosetta");
+        String label = labels.label(result(706), workunit(0));
+        assertThat(label, is(equalTo(String.format("%s %.2f", "Rosetta", 7.06))));
+        assertThat(labels.label(result(706), workunit(0)), is(sameInstance(label)));
+        assertThat(labels.label(result(800), workunit(0)), is(equalTo(String.format("%s %.2f", "Rosetta", 8.0))));
+    }
+
+    @Test
+    public void versionFromWorkunit() {
+        TaskInfoCreator.ApplicationLabels labels = new TaskInfoCreator.ApplicationLabels("Rosetta");
+        String label = labels.label(result(0), workunit(706));
+        assertThat(labels.label(result(706), workunit(0)), is(sameInstance(label)));
+    }
+}
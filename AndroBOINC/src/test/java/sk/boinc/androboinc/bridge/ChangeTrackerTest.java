@@ -0,0 +1,106 @@
+/*
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010-2016, Pavol Michalec
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package sk.boinc.androboinc.bridge;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Vector;
+
+import sk.boinc.androboinc.clientconnection.ChangeSet;
+import sk.boinc.androboinc.clientconnection.MessageInfo;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+
+public class ChangeTrackerTest {
+    private ChangeTracker<MessageInfo> mTracker;
+
+    @Before
+    public void setUp() {
+        mTracker = new ChangeTracker<MessageInfo>() {
+            @Override
+            protected Object key(MessageInfo entry) {
+                return entry.seqNo;
+            }
+            @Override
+            protected int changedFields(MessageInfo previous, MessageInfo current) {
+                return (previous.priority != current.priority) ? 1 : 0;
+            }
+        };
+    }
+
+    private static MessageInfo message(int seqNo, int priority) {
+        return new MessageInfo(seqNo, priority, "project", "time", "body " + seqNo);
+    }
+
+    private static Vector<MessageInfo> list(MessageInfo... messages) {
+        Vector<MessageInfo> list = new Vector<MessageInfo>();
+        for (MessageInfo message : messages) {
+            list.add(message);
+        }
+        return list;
+    }
+
+    @Test
+    public void firstDeliveryAddsAll() {
+        ChangeSet<MessageInfo> changes = mTracker.track(list(message(1, 1), message(2, 1)));
+        assertThat(changes.baseVersion, is(equalTo(0L)));
+        assertThat(changes.version, is(equalTo(1L)));
+        assertThat(changes.added.size(), is(equalTo(2)));
+        assertTrue(changes.removed.isEmpty());
+        assertTrue(changes.changedTo.isEmpty());
+    }
+
+    @Test
+    public void unchangedInstancesNotReported() {
+        MessageInfo m1 = message(1, 1);
+        MessageInfo m2 = message(2, 1);
+        mTracker.track(list(m1, m2));
+        ChangeSet<MessageInfo> changes = mTracker.track(list(m1, m2));
+        assertTrue(changes.isEmpty());
+        assertThat(changes.baseVersion, is(equalTo(1L)));
+        assertThat(changes.version, is(equalTo(2L)));
+    }
+
+    @Test
+    public void addedRemovedChanged() {
+        MessageInfo m1 = message(1, 1);
+        MessageInfo m2 = message(2, 1);
+        MessageInfo m3 = message(3, 1);
+        mTracker.track(list(m1, m2, m3));
+        MessageInfo m2changed = message(2, 2);
+        MessageInfo m3copy = message(3, 1);
+        MessageInfo m4 = message(4, 1);
+        ChangeSet<MessageInfo> changes = mTracker.track(list(m2changed, m3copy, m4));
+        assertThat(changes.added, is(equalTo(list(m4))));
+        assertThat(changes.removed, is(equalTo(list(m1))));
+        // The new instance with the same content is reported as well
+        assertThat(changes.changedFrom, is(equalTo(list(m2, m3))));
+        assertThat(changes.changedTo, is(equalTo(list(m2changed, m3copy))));
+        assertThat(changes.changedFields[0], is(equalTo(1)));
+        assertThat(changes.changedFields[1], is(equalTo(0)));
+        // The next changes are computed against the last delivery
+        changes = mTracker.track(list(m2changed, m3copy, m4));
+        assertTrue(changes.isEmpty());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010-2016, Pavol Michalec
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package sk.boinc.androboinc.bridge;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Vector;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.*;
+
+
+public class MergeMapTest {
+    private static class Source {
+        String key;
+        int value;
+
+        Source(String key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private int mCreated;
+    private MergeMap<Source, String> mMap;
+
+    @Before
+    public void setUp() {
+        mCreated = 0;
+        mMap = new MergeMap<Source, String>() {
+            @Override
+            protected String key(Source source) {
+                return source.key;
+            }
+            @Override
+            protected boolean isSame(Source stored, Source source) {
+                return stored.value == source.value;
+            }
+            @Override
+            protected Source copy(Source from, Source to) {
+                if (to == null) return new Source(from.key, from.value);
+                to.value = from.value;
+                return to;
+            }
+            @Override
+            protected String create(Source source) {
+                mCreated++;
+                return source.key + "=" + source.value;
+            }
+        };
+    }
+
+    private void merge(Source... sources) {
+        mMap.begin();
+        for (Source source : sources) {
+            mMap.merge(source);
+        }
+        mMap.end();
+    }
+
+    @Test
+    public void unchangedKept() {
+        merge(new Source("a", 1), new Source("b", 2));
+        assertThat(mMap.changed(), is(equalTo(2)));
+        String a = mMap.get("a");
+        String b = mMap.get("b");
+        merge(new Source("a", 1), new Source("b", 3));
+        assertThat(mMap.changed(), is(equalTo(1)));
+        assertThat(mCreated, is(equalTo(3)));
+        assertSame(a, mMap.get("a"));
+        assertNotSame(b, mMap.get("b"));
+        assertThat(mMap.get("b"), is(equalTo("b=3")));
+    }
+
+    @Test
+    public void staleRemoved() {
+        merge(new Source("a", 1), new Source("b", 2), new Source("c", 3));
+        merge(new Source("a", 1), new Source("c", 3));
+        assertThat(mMap.changed(), is(equalTo(1)));
+        assertThat(mMap.size(), is(equalTo(2)));
+        assertThat(mMap.get("b"), is(nullValue()));
+        Vector<String> values = mMap.values();
+        assertThat(values.get(0), is(equalTo("a=1")));
+        assertThat(values.get(1), is(equalTo("c=3")));
+    }
+
+    @Test
+    public void invalidate() {
+        merge(new Source("a", 1));
+        String a = mMap.get("a");
+        mMap.invalidate();
+        merge(new Source("a", 1));
+        assertThat(mMap.changed(), is(equalTo(1)));
+        assertNotSame(a, mMap.get("a"));
+    }
+}
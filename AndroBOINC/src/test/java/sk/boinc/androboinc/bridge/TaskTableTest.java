@@ -0,0 +1,144 @@
+/*
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010-2016, Pavol Michalec
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package sk.boinc.androboinc.bridge;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sk.boinc.androboinc.clientconnection.TaskInfo;
+import edu.berkeley.boinc.Result;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.*;
+
+
+public class TaskTableTest {
+    private TaskTable mTable;
+
+    @Before
+    public void setUp() {
+        mTable = new TaskTable();
+    }
+
+    private static Result result(String name, float fractionDone) {
+        Result result = new Result();
+        result.name = name;
+        result.project_url = "http://project.example.org/";
+        result.state = 2;
+        result.active_task = true;
+        result.active_task_state = 1;
+        result.fraction_done = fractionDone;
+        result.elapsed_time = 3600.0;
+        result.report_deadline = 1500000000L;
+        return result;
+    }
+
+    @Test
+    public void putAndRead() {
+        int row = mTable.put(result("task_1", 0.25F), "Project", "app 1.00");
+        assertThat(row, is(equalTo(0)));
+        assertThat(mTable.size(), is(equalTo(1)));
+        assertThat(mTable.indexOf("task_1"), is(equalTo(0)));
+        assertThat(mTable.indexOf("task_2"), is(equalTo(-1)));
+        assertThat(mTable.name(0), is(equalTo("task_1")));
+        assertThat(mTable.projectUrl(0), is(equalTo("http://project.example.org/")));
+        assertThat(mTable.project(0), is(equalTo("Project")));
+        assertThat(mTable.application(0), is(equalTo("app 1.00")));
+        assertThat(mTable.resources(0), is(nullValue()));
+        assertThat(mTable.state(0), is(equalTo(2)));
+        assertThat(mTable.activeTaskState(0), is(equalTo(1)));
+        assertTrue(mTable.isActiveTask(0));
+        assertFalse(mTable.isSuspendedViaGui(0));
+        assertThat(mTable.fractionDone(0), is(equalTo(0.25F)));
+        assertThat(mTable.elapsedTime(0), is(equalTo(3600.0F)));
+        assertThat(mTable.reportDeadline(0), is(equalTo(1500000000L)));
+    }
+
+    @Test
+    public void updateInPlace() {
+        mTable.put(result("task_1", 0.25F), "Project", "app 1.00");
+        Result update = result("task_1", 0.5F);
+        update.suspended_via_gui = true;
+        assertThat(mTable.update(update), is(equalTo(0)));
+        assertThat(mTable.size(), is(equalTo(1)));
+        assertThat(mTable.fractionDone(0), is(equalTo(0.5F)));
+        assertTrue(mTable.isSuspendedViaGui(0));
+        // Columns not present in results are kept
+        assertThat(mTable.project(0), is(equalTo("Project")));
+        assertThat(mTable.update(result("task_2", 0.5F)), is(equalTo(-1)));
+    }
+
+    @Test
+    public void removeNotUpdated() {
+        for (int i = 0; i < 100; ++i) {
+            mTable.put(result("task_" + i, 0.0F), "Project", "app 1.00");
+        }
+        assertThat(mTable.size(), is(equalTo(100)));
+        mTable.beginUpdate();
+        for (int i = 0; i < 100; i += 2) {
+            mTable.update(result("task_" + i, 0.5F));
+        }
+        assertThat(mTable.removeNotUpdated(), is(equalTo(50)));
+        assertThat(mTable.size(), is(equalTo(50)));
+        for (int row = 0; row < 50; ++row) {
+            // The order is kept and the index follows the moved rows
+            String name = "task_" + (row * 2);
+            assertThat(mTable.name(row), is(equalTo(name)));
+            assertThat(mTable.indexOf(name), is(equalTo(row)));
+            assertThat(mTable.fractionDone(row), is(equalTo(0.5F)));
+        }
+        assertThat(mTable.indexOf("task_1"), is(equalTo(-1)));
+    }
+
+    @Test
+    public void infoKeptWhileUnchanged() {
+        mTable.put(result("task_1", 0.25F), "Project", "app 1.00");
+        mTable.put(result("task_2", 0.25F), "Project", "app 1.00");
+        TaskInfo info1 = info("task_1");
+        TaskInfo info2 = info("task_2");
+        mTable.setInfo(0, info1);
+        mTable.setInfo(1, info2);
+        mTable.beginUpdate();
+        mTable.update(result("task_1", 0.25F));
+        mTable.update(result("task_2", 0.5F));
+        assertThat(mTable.removeNotUpdated(), is(equalTo(0)));
+        assertSame(info1, mTable.info(0));
+        assertThat(mTable.info(1), is(nullValue()));
+        // The stale info is still available as base of the new one
+        assertSame(info2, mTable.previousInfo(1));
+        // Changed project name drops the info as well
+        mTable.put(result("task_1", 0.25F), "Renamed project", "app 1.00");
+        assertThat(mTable.info(0), is(nullValue()));
+    }
+
+    private static TaskInfo info(String name) {
+        return new TaskInfo(name, null, 0, 0, 0, null, null, 0.0F, 0, 0, false, 0, 0, 0, 0, null, null, null, null);
+    }
+
+    @Test
+    public void clear() {
+        mTable.put(result("task_1", 0.25F), "Project", "app 1.00");
+        mTable.clear();
+        assertThat(mTable.size(), is(equalTo(0)));
+        assertThat(mTable.indexOf("task_1"), is(equalTo(-1)));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010-2016, Pavol Michalec
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package sk.boinc.androboinc.clientconnection;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.*;
+
+
+public class TaskInfoTest {
+    private int mFormatted;
+    private TaskInfo.ValueFormatter mFormatter;
+
+    @Before
+    public void setUp() {
+        mFormatted = 0;
+        mFormatter = new TaskInfo.ValueFormatter() {
+            public String formatDate(long time) {
+                mFormatted++;
+                return "date " + time;
+            }
+            public String formatTime(long seconds) {
+                mFormatted++;
+                return "time " + seconds;
+            }
+            public String formatSize(long size) {
+                mFormatted++;
+                return "size " + size;
+            }
+            public String formatBinSize(long size) {
+                mFormatted++;
+                return "binsize " + size;
+            }
+        };
+    }
+
+    private TaskInfo task(long elapsed, boolean usesResources, TaskInfo previous) {
+        return new TaskInfo("task", "url", TaskInfo.RUNNING, 50, 1000L, "project", "app 1.00",
+                50.0F, elapsed, 600L, usesResources, 2048L, 3000L, 100L, 90L, null, "Running",
+                mFormatter, previous);
+    }
+
+    @Test
+    public void formattedOnFirstAccessOnly() {
+        TaskInfo task = task(3600L, true, null);
+        assertThat(mFormatted, is(equalTo(0)));
+        assertThat(task.getElapsed(), is(equalTo("time 3600")));
+        assertThat(task.getElapsed(), is(equalTo("time 3600")));
+        assertThat(mFormatted, is(equalTo(1)));
+        assertThat(task.getDeadline(), is(equalTo("date 1000")));
+        assertThat(task.getVirtMemSize(), is(equalTo("binsize 2048")));
+        assertThat(task.getWorkSetSize(), is(equalTo("size 3000")));
+        assertThat(task.getProgress(), is(equalTo(String.format("%.3f%%", 50.0F))));
+        assertThat(mFormatted, is(equalTo(4)));
+    }
+
+    @Test
+    public void resourcesOnlyWhenUsed() {
+        TaskInfo task = task(0L, false, null);
+        assertThat(task.getVirtMemSize(), is(nullValue()));
+        assertThat(task.getCpuTime(), is(nullValue()));
+        assertThat(mFormatted, is(equalTo(0)));
+    }
+
+    @Test
+    public void unchangedValuesReused() {
+        TaskInfo previous = task(3600L, true, null);
+        previous.getElapsed();
+        previous.getDeadline();
+        assertThat(mFormatted, is(equalTo(2)));
+        TaskInfo task = task(3700L, true, previous);
+        assertThat(task.getDeadline(), is(equalTo("date 1000")));
+        assertThat(mFormatted, is(equalTo(2)));
+        assertThat(task.getElapsed(), is(equalTo("time 3700")));
+        assertThat(mFormatted, is(equalTo(3)));
+    }
+}
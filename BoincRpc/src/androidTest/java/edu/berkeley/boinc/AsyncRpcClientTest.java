@@ -0,0 +1,182 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import edu.berkeley.boinc.testutil.BoincClientStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class AsyncRpcClientTest {
+    private BoincClientStub boincClient;
+    private AsyncRpcClient asyncClient;
+
+    // Collects results of the callbacks
+    private static class Collector<T> implements AsyncRpcClient.Callback<T> {
+        final CountDownLatch done = new CountDownLatch(1);
+        T result = null;
+        RpcClientFailedException failure = null;
+
+        @Override
+        public void onResult(T result) {
+            this.result = result;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(RpcClientFailedException e) {
+            failure = e;
+            done.countDown();
+        }
+    }
+
+    @Before
+    public void startup() {
+        boincClient = new BoincClientStub();
+        boolean listening = boincClient.startListener();
+        assertTrue(listening);
+        asyncClient = new AsyncRpcClient();
+    }
+
+    @Test
+    public void callbacksInOrder() throws Exception {
+        asyncClient.open("127.0.0.1", 31416, AsyncRpcClient.CONNECT_DEADLINE, null);
+        Collector<CcStatus> ccStatus = new Collector<CcStatus>();
+        Collector<Vector<Result>> results = new Collector<Vector<Result>>();
+        asyncClient.getCcStatus(AsyncRpcClient.DEFAULT_DEADLINE, ccStatus);
+        Future<Vector<Result>> resultsFuture = asyncClient.getResults(AsyncRpcClient.DEFAULT_DEADLINE, results);
+        assertTrue(results.done.await(10, TimeUnit.SECONDS));
+        // Operations are performed in order, so the first one is finished as well
+        assertThat(ccStatus.done.getCount(), is(equalTo(0L)));
+        assertNull(ccStatus.failure);
+        assertThat(ccStatus.result.task_mode, is(equalTo(1)));
+        assertNull(results.failure);
+        assertThat(results.result.size(), is(equalTo(79)));
+        assertThat(resultsFuture.get().size(), is(equalTo(79)));
+    }
+
+    @Test
+    public void notConnected() throws Exception {
+        Collector<CcStatus> ccStatus = new Collector<CcStatus>();
+        asyncClient.getCcStatus(AsyncRpcClient.DEFAULT_DEADLINE, ccStatus);
+        assertTrue(ccStatus.done.await(10, TimeUnit.SECONDS));
+        assertNotNull(ccStatus.failure);
+        assertThat(ccStatus.failure.getMessage(), is(equalTo("Not connected")));
+    }
+
+    @Test
+    public void deadlineExceeded() throws Exception {
+        asyncClient.open("127.0.0.1", 31416, AsyncRpcClient.CONNECT_DEADLINE, null).get();
+        // Round trip, so the stub surely handles the connection before behavior change
+        assertNotNull(asyncClient.getCcStatus(AsyncRpcClient.DEFAULT_DEADLINE, null).get());
+        boincClient.setBehavior(BoincClientStub.Behavior.NO_REPLY);
+        Collector<Vector<Result>> results = new Collector<Vector<Result>>();
+        long start = System.currentTimeMillis();
+        asyncClient.getResults(500, results);
+        assertTrue(results.done.await(10, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertTrue(results.failure instanceof ConnectionFailedException);
+        assertThat(results.failure.getMessage(), is(equalTo("Deadline exceeded in getResults()")));
+        // Connection is closed after deadline was exceeded
+        Future<CcStatus> ccStatus = asyncClient.getCcStatus(AsyncRpcClient.DEFAULT_DEADLINE, null);
+        try {
+            ccStatus.get();
+            fail("Successful cc_status retrieval unexpected, not connected");
+        }
+        catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), is(equalTo("Not connected")));
+        }
+    }
+
+    @Test
+    public void deadlineExceededInQueue() throws Exception {
+        asyncClient.open("127.0.0.1", 31416, AsyncRpcClient.CONNECT_DEADLINE, null).get();
+        // Round trip, so the stub surely handles the connection before behavior change
+        assertNotNull(asyncClient.getCcStatus(AsyncRpcClient.DEFAULT_DEADLINE, null).get());
+        boincClient.setBehavior(BoincClientStub.Behavior.NO_REPLY);
+        Collector<Vector<Result>> results = new Collector<Vector<Result>>();
+        Collector<CcStatus> ccStatus = new Collector<CcStatus>();
+        asyncClient.getResults(1000, results);
+        // Deadline measured from submission, so it expires while waiting behind getResults()
+        asyncClient.getCcStatus(500, ccStatus);
+        assertTrue(ccStatus.done.await(10, TimeUnit.SECONDS));
+        assertThat(results.failure.getMessage(), is(equalTo("Deadline exceeded in getResults()")));
+        assertTrue(ccStatus.failure instanceof ConnectionFailedException);
+        assertThat(ccStatus.failure.getMessage(), is(equalTo("Deadline exceeded in getCcStatus() while queued")));
+    }
+
+    @Test
+    public void cancelRunning() throws Exception {
+        asyncClient.open("127.0.0.1", 31416, AsyncRpcClient.CONNECT_DEADLINE, null).get();
+        // Round trip, so the stub surely handles the connection before behavior change
+        assertNotNull(asyncClient.getCcStatus(AsyncRpcClient.DEFAULT_DEADLINE, null).get());
+        boincClient.setBehavior(BoincClientStub.Behavior.NO_REPLY);
+        Collector<CcState> state = new Collector<CcState>();
+        Future<CcState> stateFuture = asyncClient.getState(AsyncRpcClient.DEFAULT_DEADLINE, state);
+        Future<CcStatus> queued = asyncClient.getCcStatus(AsyncRpcClient.DEFAULT_DEADLINE, null);
+        Thread.sleep(200);
+        assertTrue(stateFuture.cancel(true));
+        assertTrue(stateFuture.isCancelled());
+        try {
+            stateFuture.get();
+            fail("Result of cancelled operation unexpected");
+        }
+        catch (CancellationException e) {
+            // expected
+        }
+        // Running operation was aborted, so the queued one finds connection closed
+        try {
+            queued.get(10, TimeUnit.SECONDS);
+            fail("Successful cc_status retrieval unexpected, connection aborted");
+        }
+        catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), is(equalTo("Not connected")));
+        }
+        // Callback is not called for cancelled operation
+        assertThat(state.done.getCount(), is(equalTo(1L)));
+    }
+
+    @After
+    public void tearDown() {
+        asyncClient.shutdown();
+        asyncClient = null;
+        if (boincClient != null) {
+            boolean stopped = boincClient.stopListener();
+            assertTrue(stopped);
+            boincClient = null;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import edu.berkeley.boinc.testutil.TestSupport;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.*;
 
 
@@ -126,6 +127,85 @@ public class CcStateParserTest {
         assertThat(ccState.results.elementAt(4).fraction_done, is(equalTo(0.0f)));
     }
 
+    @Test
+    public void parseVersionOnly() {
+        final String received = TestSupport.readResource(edu.berkeley.boinc.test.R.raw.get_state_reply);
+        CcState ccState = null;
+        try {
+            ccState = CcStateParser.parse(received, CcState.VERSION_ONLY);
+        }
+        catch (AuthorizationFailedException e) {
+            fail("AuthorizationFailedException unexpected");
+        }
+        catch (InvalidDataReceivedException e) {
+            fail("InvalidDataReceivedException unexpected");
+        }
+        assertNotNull(ccState);
+        assertNotNull(ccState.version_info);
+        assertThat(ccState.version_info.major, is(equalTo(7)));
+        assertThat(ccState.version_info.minor, is(equalTo(4)));
+        assertThat(ccState.version_info.release, is(equalTo(23)));
+        assertNull(ccState.host_info);
+        assertNull(ccState.projects);
+        assertNull(ccState.apps);
+        assertNull(ccState.workunits);
+        assertNull(ccState.results);
+    }
+
+    @Test
+    public void parseProjection() {
+        final String received = TestSupport.readResource(edu.berkeley.boinc.test.R.raw.get_state_reply);
+        CcState ccState = null;
+        try {
+            ccState = CcStateParser.parse(received, CcState.APPS | CcState.WORKUNITS);
+        }
+        catch (AuthorizationFailedException e) {
+            fail("AuthorizationFailedException unexpected");
+        }
+        catch (InvalidDataReceivedException e) {
+            fail("InvalidDataReceivedException unexpected");
+        }
+        assertNotNull(ccState);
+        assertThat(ccState.version_info.release, is(equalTo(23)));
+        assertNull(ccState.host_info);
+        assertNull(ccState.projects);
+        assertNotNull(ccState.apps);
+        assertThat(ccState.apps.size(), is(equalTo(32)));
+        assertThat(ccState.apps.elementAt(31).getName(), is(equalTo("fitsedwrapper")));
+        assertNotNull(ccState.workunits);
+        assertThat(ccState.workunits.size(), is(equalTo(5)));
+        assertThat(ccState.workunits.elementAt(4).app_name, is(equalTo("magphys_wrapper")));
+        assertNull(ccState.results);
+    }
+
+    @Test
+    public void parseWithSymbolTable() {
+        final String received = TestSupport.readResource(edu.berkeley.boinc.test.R.raw.get_state_reply);
+        SymbolTable symbols = new SymbolTable();
+        CcState first = null;
+        CcState second = null;
+        try {
+            first = CcStateParser.parse(received, CcState.ALL, symbols);
+            second = CcStateParser.parse(received, CcState.ALL, symbols);
+        }
+        catch (AuthorizationFailedException e) {
+            fail("AuthorizationFailedException unexpected");
+        }
+        catch (InvalidDataReceivedException e) {
+            fail("InvalidDataReceivedException unexpected");
+        }
+        assertNotNull(first);
+        assertNotNull(second);
+        // The same instances of repeated values, also across the replies
+        Result result = first.results.elementAt(0);
+        assertThat(result.project_url, is(sameInstance(symbols.intern(result.project_url))));
+        assertThat(second.results.elementAt(0).project_url, is(sameInstance(result.project_url)));
+        assertThat(second.projects.elementAt(0).master_url, is(sameInstance(first.projects.elementAt(0).master_url)));
+        Workunit workunit = first.workunits.elementAt(0);
+        assertThat(workunit.app_name, is(sameInstance(symbols.intern(workunit.app_name))));
+        assertThat(second.apps.elementAt(0).name, is(sameInstance(first.apps.elementAt(0).name)));
+    }
+
     @Test
     public void emptyAnswer() {
         final String received =
@@ -29,6 +29,8 @@ import java.util.Vector;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.*;
 
 
@@ -205,4 +207,41 @@ public class ResultsParserTest {
         assertThat(errorMsg, is(equalTo("Malformed XML while parsing <results>")));
         assertNull(results);
     }
+
+    @Test
+    public void parseRecycled() throws Exception {
+        final String received = TestSupport.readResource(edu.berkeley.boinc.test.R.raw.get_results_reply);
+        // The same reply without the first result
+        final String changed = received.replaceFirst("(?s)<result>.*?</result>", "");
+        ResultsParser parser = new ResultsParser();
+        Vector<Result> results = parser.parseRecycled(received);
+        assertThat(results.size(), is(equalTo(79)));
+        final Result first = results.elementAt(0);
+        final Result second = results.elementAt(1);
+        final String secondWuName = second.wu_name;
+        final float secondFractionDone = second.fraction_done;
+
+        Vector<Result> recycled = parser.parseRecycled(changed);
+        assertThat(recycled, is(sameInstance(results)));
+        assertThat(recycled.size(), is(equalTo(78)));
+        // Updated in place, unchanged strings are not created again
+        assertThat(recycled.elementAt(0), is(sameInstance(second)));
+        assertThat(recycled.elementAt(0).wu_name, is(sameInstance(secondWuName)));
+        assertThat(recycled.elementAt(0).fraction_done, is(equalTo(secondFractionDone)));
+        assertFalse(recycled.contains(first));
+
+        // Removed result is not in pool anymore, the same data as from new parser
+        recycled = parser.parseRecycled(received);
+        Vector<Result> fresh = ResultsParser.parse(received);
+        assertThat(recycled.size(), is(equalTo(79)));
+        assertThat(recycled.elementAt(0), is(not(sameInstance(first))));
+        assertThat(recycled.elementAt(1), is(sameInstance(second)));
+        for (int i = 0; i < fresh.size(); ++i) {
+            assertThat(recycled.elementAt(i).name, is(equalTo(fresh.elementAt(i).name)));
+            assertThat(recycled.elementAt(i).state, is(equalTo(fresh.elementAt(i).state)));
+            assertThat(recycled.elementAt(i).active_task, is(equalTo(fresh.elementAt(i).active_task)));
+            assertThat(recycled.elementAt(i).fraction_done, is(equalTo(fresh.elementAt(i).fraction_done)));
+            assertThat(recycled.elementAt(i).resources, is(equalTo(fresh.elementAt(i).resources)));
+        }
+    }
 }
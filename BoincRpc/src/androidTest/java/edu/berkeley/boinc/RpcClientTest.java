@@ -28,6 +28,9 @@ import org.junit.runner.RunWith;
 
 import edu.berkeley.boinc.testutil.BoincClientStub;
 import edu.berkeley.boinc.testutil.NetStatsStub;
+import edu.berkeley.boinc.testutil.ShapingProxy;
+import java.io.IOException;
+import java.net.InetAddress;
 import java.util.Vector;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -108,6 +111,23 @@ public class RpcClientTest {
         rpcClient.close();
     }
 
+    @Test
+    public void idleConnectionClosed() {
+        RpcClient rpcClient = new RpcClient();
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+        }
+        catch (ConnectionFailedException e) {
+            fail("ConnectionFailedException " + e.getMessage());
+        }
+        assertTrue(rpcClient.idleConnectionAlive());
+        boolean stopped = boincClient.stopListener();
+        assertTrue(stopped);
+        boincClient = null;
+        assertFalse(rpcClient.idleConnectionAlive());
+        rpcClient.close();
+    }
+
     @Test
     public void doubleConnect() {
         RpcClient rpcClient = new RpcClient();
@@ -344,6 +364,32 @@ public class RpcClientTest {
         assertThat(errorMsg, is(equalTo("Connection failed in getCcStatus()")));
     }
 
+    @Test
+    public void getCcStatusStreamingTruncated() {
+        String errorMsg = "";
+        RpcClient rpcClient = new RpcClient();
+        rpcClient.setStreamingParse(true);
+        CcStatus ccStatus = null;
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+            assertTrue(rpcClient.isConnected());
+            rpcClient.setMinimalSoTimeout();
+            boincClient.setBehavior(BoincClientStub.Behavior.TRUNCATED_DATA);
+            ccStatus = rpcClient.getCcStatus();
+            fail("Successful cc_status retrieval unexpected, truncated data");
+        }
+        catch (ConnectionFailedException e) {
+            errorMsg = e.getMessage();
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        assertNull(ccStatus);
+        assertTrue(rpcClient.isConnected());
+        rpcClient.close();
+        assertThat(errorMsg, is(equalTo("Connection failed in getCcStatus()")));
+    }
+
     @Test
     public void getFileTransfers() {
         RpcClient rpcClient = new RpcClient();
@@ -695,6 +741,64 @@ public class RpcClientTest {
         assertNull(results.elementAt(16).resources);
     }
 
+    @Test
+    public void getResultsSlowLink() throws IOException {
+        ShapingProxy proxy = new ShapingProxy(InetAddress.getByName("127.0.0.1"), 31416);
+        proxy.setRtt(300);
+        proxy.setJitter(50);
+        proxy.setBandwidth(100000);
+        final int port = proxy.start();
+        RpcClient rpcClient = new RpcClient();
+        Vector<Result> results = null;
+        try {
+            rpcClient.open("127.0.0.1", port);
+            assertTrue(rpcClient.isConnected());
+            results = rpcClient.getResults();
+        }
+        catch (ConnectionFailedException e) {
+            fail("ConnectionFailedException " + e.getMessage());
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        finally {
+            rpcClient.close();
+            proxy.stop();
+        }
+        assertNotNull(results);
+        assertThat(results.size(), is(equalTo(79)));
+        assertThat(results.elementAt(16).name, is(equalTo("FAH2_000075_avx17680_000099_0046_013_0")));
+    }
+
+    @Test
+    public void getResultsConnectionReset() throws IOException {
+        String errorMsg = "";
+        ShapingProxy proxy = new ShapingProxy(InetAddress.getByName("127.0.0.1"), 31416);
+        proxy.setResetRate(1.0);
+        final int port = proxy.start();
+        RpcClient rpcClient = new RpcClient();
+        Vector<Result> results = null;
+        try {
+            rpcClient.open("127.0.0.1", port);
+            assertTrue(rpcClient.isConnected());
+            results = rpcClient.getResults();
+            fail("Successful results retrieval unexpected, connection should be reset instead");
+        }
+        catch (ConnectionFailedException e) {
+            errorMsg = e.getMessage();
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        finally {
+            rpcClient.close();
+            proxy.stop();
+        }
+        assertNull(results);
+        assertThat(errorMsg, is(equalTo("Connection failed in getResults()")));
+        assertThat(proxy.resetCount(), is(equalTo(1L)));
+    }
+
     @Test
     public void getState() {
         RpcClient rpcClient = new RpcClient();
@@ -789,6 +893,47 @@ public class RpcClientTest {
         assertThat(ccState.results.elementAt(4).fraction_done, is(equalTo(0.0f)));
     }
 
+    @Test
+    public void getStateStreaming() {
+        RpcClient rpcClient = new RpcClient();
+        rpcClient.setStreamingParse(true);
+        CcState ccState = null;
+        Vector<Result> results = null;
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+            assertTrue(rpcClient.isConnected());
+            ccState = rpcClient.getState();
+            // Following reply must be read correctly after the streamed one
+            results = rpcClient.getResults();
+        }
+        catch (ConnectionFailedException e) {
+            fail("ConnectionFailedException " + e.getMessage());
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        assertTrue(rpcClient.isConnected());
+        rpcClient.close();
+        assertNotNull(ccState);
+        assertNotNull(ccState.version_info);
+        assertThat(ccState.version_info.major, is(equalTo(7)));
+        assertThat(ccState.version_info.minor, is(equalTo(4)));
+        assertThat(ccState.version_info.release, is(equalTo(23)));
+        assertNotNull(ccState.host_info);
+        assertThat(ccState.host_info.domain_name, is(equalTo("machine3")));
+        assertNotNull(ccState.projects);
+        assertThat(ccState.projects.size(), is(equalTo(3)));
+        assertThat(ccState.projects.elementAt(1).getName(), is(equalTo("World Community Grid")));
+        assertNotNull(ccState.apps);
+        assertThat(ccState.apps.size(), is(equalTo(32)));
+        assertNotNull(ccState.workunits);
+        assertThat(ccState.workunits.size(), is(equalTo(5)));
+        assertNotNull(ccState.results);
+        assertThat(ccState.results.size(), is(equalTo(5)));
+        assertNotNull(results);
+        assertThat(results.size(), is(equalTo(79)));
+    }
+
     @Test
     public void networkAvailable() {
         RpcClient rpcClient = new RpcClient();
@@ -1423,6 +1568,233 @@ public class RpcClientTest {
         assertNotNull(ccState);
     }
 
+    @Test
+    public void useNetStatsStreaming() {
+        NetStatsStub netStats = new NetStatsStub();
+        RpcClient rpcClient = new RpcClient(netStats);
+        rpcClient.setStreamingParse(true);
+        HostInfo hostInfo = null;
+        CcState ccState = null;
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+            assertTrue(rpcClient.isConnected());
+            hostInfo = rpcClient.getHostInfo();
+            assertThat(netStats.getBytesSent(), is(equalTo(67L)));
+            assertThat(netStats.getBytesReceived(), is(equalTo(4477L)));
+            ccState = rpcClient.getState();
+            assertThat(netStats.getBytesSent(), is(equalTo(67L+63L)));
+            assertThat(netStats.getBytesReceived(), is(equalTo(4477L+98963L)));
+        }
+        catch (ConnectionFailedException e) {
+            fail("ConnectionFailedException " + e.getMessage());
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        assertTrue(rpcClient.isConnected());
+        rpcClient.close();
+        assertNotNull(hostInfo);
+        assertNotNull(ccState);
+    }
+
+    @Test
+    public void adaptiveTimeoutNoReply() {
+        String errorMsg = "";
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts();
+        RpcClient rpcClient = new RpcClient();
+        rpcClient.setAdaptiveTimeouts(timeouts);
+        long start = 0;
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+            assertTrue(rpcClient.isConnected());
+            assertNotNull(rpcClient.getCcStatus());
+            // Fast local host - timeouts are learned
+            assertThat(timeouts.connectTimeout(), is(equalTo(3000)));
+            assertThat(timeouts.replyTimeout("get_cc_status"), is(equalTo(8000)));
+            boincClient.setBehavior(BoincClientStub.Behavior.NO_REPLY);
+            start = System.currentTimeMillis();
+            rpcClient.getCcStatus();
+            fail("Successful cc_status retrieval unexpected, timeout should happen instead");
+        }
+        catch (ConnectionFailedException e) {
+            errorMsg = e.getMessage();
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        // Detected in learned time, not in default 15 seconds
+        assertTrue(System.currentTimeMillis() - start < 12000);
+        assertThat(errorMsg, is(equalTo("Connection failed in getCcStatus()")));
+        // Next time, client gets more time (backoff)
+        assertThat(timeouts.replyTimeout("get_cc_status"), is(equalTo(16000)));
+        rpcClient.close();
+    }
+
+    @Test
+    public void executeBatch() {
+        RpcClient rpcClient = new RpcClient();
+        RpcBatch batch = new RpcBatch();
+        RpcBatch.Reply<CcStatus> ccStatusReply = batch.getCcStatus();
+        RpcBatch.Reply<Vector<Result>> resultsReply = batch.getResults();
+        RpcBatch.Reply<Vector<Transfer>> transfersReply = batch.getFileTransfers();
+        RpcBatch.Reply<Vector<Message>> messagesReply = batch.getMessages(12692);
+        assertThat(batch.size(), is(equalTo(4)));
+        assertFalse(ccStatusReply.isCompleted());
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+            assertTrue(rpcClient.isConnected());
+            rpcClient.execute(batch);
+            assertTrue(ccStatusReply.isCompleted());
+            assertTrue(messagesReply.isCompleted());
+            assertThat(ccStatusReply.get().task_mode, is(equalTo(1)));
+            assertThat(resultsReply.get().size(), is(equalTo(79)));
+            assertThat(transfersReply.get().size(), is(equalTo(17)));
+            assertThat(messagesReply.get().size(), is(equalTo(50)));
+            // Connection can be used further after batch
+            assertThat(rpcClient.getFileTransfers().size(), is(equalTo(17)));
+        }
+        catch (ConnectionFailedException e) {
+            fail("ConnectionFailedException " + e.getMessage());
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        assertTrue(rpcClient.isConnected());
+        rpcClient.close();
+    }
+
+    @Test
+    public void executeBatchStreaming() {
+        NetStatsStub netStats = new NetStatsStub();
+        RpcClient rpcClient = new RpcClient(netStats);
+        rpcClient.setStreamingParse(true);
+        RpcBatch batch = new RpcBatch();
+        RpcBatch.Reply<HostInfo> hostInfoReply = batch.getHostInfo();
+        RpcBatch.Reply<Vector<Result>> resultsReply = batch.getResults();
+        RpcBatch.Reply<VersionInfo> versionReply = batch.exchangeVersions();
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+            assertTrue(rpcClient.isConnected());
+            rpcClient.execute(batch);
+            assertNotNull(hostInfoReply.get());
+            assertThat(resultsReply.get().size(), is(equalTo(79)));
+            assertThat(versionReply.get().major, is(equalTo(7)));
+        }
+        catch (ConnectionFailedException e) {
+            fail("ConnectionFailedException " + e.getMessage());
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        assertTrue(netStats.getBytesSent() > 67L);
+        assertTrue(netStats.getBytesReceived() > 4477L);
+        assertTrue(rpcClient.isConnected());
+        rpcClient.close();
+    }
+
+    @Test
+    public void executeBatchRecycling() {
+        RpcClient rpcClient = new RpcClient();
+        rpcClient.setRecycling(true);
+        RpcBatch batch = new RpcBatch();
+        RpcBatch.Reply<Vector<Result>> resultsReply = batch.getResults();
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+            assertTrue(rpcClient.isConnected());
+            Vector<Result> results = rpcClient.getResults();
+            Result first = results.firstElement();
+            rpcClient.execute(batch);
+            // Batch reply updates the objects returned by previous call of getResults()
+            assertSame(results, resultsReply.get());
+            assertSame(first, resultsReply.get().firstElement());
+            assertThat(resultsReply.get().size(), is(equalTo(79)));
+        }
+        catch (ConnectionFailedException e) {
+            fail("ConnectionFailedException " + e.getMessage());
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        rpcClient.close();
+    }
+
+    @Test
+    public void executeBatchUnauthorized() {
+        boincClient.setPassword("123456");
+        RpcClient rpcClient = new RpcClient();
+        RpcBatch batch = new RpcBatch();
+        RpcBatch.Reply<CcStatus> ccStatusReply = batch.getCcStatus();
+        RpcBatch.Reply<Vector<Message>> messagesReply = batch.getMessages(0);
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+            assertTrue(rpcClient.isConnected());
+            rpcClient.execute(batch);
+        }
+        catch (ConnectionFailedException e) {
+            fail("ConnectionFailedException " + e.getMessage());
+        }
+        // Each request failed on its own, connection is still usable
+        assertTrue(ccStatusReply.isCompleted());
+        assertTrue(messagesReply.isCompleted());
+        try {
+            ccStatusReply.get();
+            fail("Successful cc_status retrieval unexpected, not authorized");
+        }
+        catch (AuthorizationFailedException e) {
+            // expected
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        try {
+            messagesReply.get();
+            fail("Successful messages retrieval unexpected, not authorized");
+        }
+        catch (AuthorizationFailedException e) {
+            // expected
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        assertTrue(rpcClient.isConnected());
+        rpcClient.close();
+    }
+
+    @Test
+    public void executeBatchTruncated() {
+        String errorMsg = "";
+        RpcClient rpcClient = new RpcClient();
+        RpcBatch batch = new RpcBatch();
+        RpcBatch.Reply<CcStatus> ccStatusReply = batch.getCcStatus();
+        RpcBatch.Reply<Vector<Transfer>> transfersReply = batch.getFileTransfers();
+        try {
+            rpcClient.open("127.0.0.1", 31416);
+            assertTrue(rpcClient.isConnected());
+            rpcClient.setMinimalSoTimeout();
+            boincClient.setBehavior(BoincClientStub.Behavior.TRUNCATED_DATA);
+            rpcClient.execute(batch);
+            fail("Successful batch unexpected, truncated data");
+        }
+        catch (ConnectionFailedException e) {
+            errorMsg = e.getMessage();
+        }
+        assertThat(errorMsg, is(equalTo("Connection failed in execute()")));
+        assertTrue(ccStatusReply.isCompleted());
+        assertTrue(transfersReply.isCompleted());
+        try {
+            transfersReply.get();
+            fail("Successful transfers retrieval unexpected, truncated data");
+        }
+        catch (ConnectionFailedException e) {
+            errorMsg = e.getMessage();
+        }
+        catch (RpcClientFailedException e) {
+            fail("RpcClientFailedException " + e.getMessage());
+        }
+        assertThat(errorMsg, is(equalTo("Connection failed in execute()")));
+        rpcClient.close();
+    }
+
     @After
     public void tearDown() {
         if (boincClient != null) {
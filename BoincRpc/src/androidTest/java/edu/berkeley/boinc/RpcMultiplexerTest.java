@@ -0,0 +1,221 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import edu.berkeley.boinc.testutil.BoincClientStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import java.io.IOException;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class RpcMultiplexerTest {
+    private static final int[] PORTS = { 31416, 31420, 31421 };
+
+    private BoincClientStub[] boincClients = new BoincClientStub[PORTS.length];
+    private RpcMultiplexer multiplexer;
+
+    // Collects results of the callbacks
+    private static class Collector implements RpcMultiplexer.SessionListener, RpcMultiplexer.ReplyCallback {
+        final CountDownLatch done;
+        final Vector<String> replies = new Vector<String>();
+        final Vector<String> failures = new Vector<String>();
+        int readyCount = 0;
+
+        Collector(int expectedEvents) {
+            done = new CountDownLatch(expectedEvents);
+        }
+
+        @Override
+        public synchronized void sessionReady(RpcMultiplexer.Session session) {
+            ++readyCount;
+        }
+
+        @Override
+        public synchronized void sessionFailed(RpcMultiplexer.Session session, RpcClientFailedException e) {
+            failures.add(e.getClass().getSimpleName());
+            done.countDown();
+        }
+
+        @Override
+        public synchronized void onReply(RpcMultiplexer.Session session, String reply) {
+            replies.add(reply);
+            done.countDown();
+        }
+
+        @Override
+        public synchronized void onFailure(RpcMultiplexer.Session session, RpcClientFailedException e) {
+            failures.add(e.getClass().getSimpleName());
+            done.countDown();
+        }
+    }
+
+    @Before
+    public void startup() throws IOException {
+        for (int i = 0; i < PORTS.length; ++i) {
+            boincClients[i] = new BoincClientStub(PORTS[i]);
+            assertTrue(boincClients[i].startListener());
+        }
+        multiplexer = new RpcMultiplexer();
+        multiplexer.start();
+    }
+
+    @Test
+    public void pipelinedRequestsOnManySessions() throws Exception {
+        boincClients[1].setPassword("123456");
+        // 2 requests on each session
+        Collector collector = new Collector(2 * PORTS.length);
+        for (int i = 0; i < PORTS.length; ++i) {
+            String password = (i == 1) ? "123456" : "";
+            RpcMultiplexer.Session session = multiplexer.openSession("127.0.0.1", PORTS[i], password, collector);
+            session.request("<get_cc_status/>\n", collector);
+            session.request("<get_results/>\n", collector);
+        }
+        assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+        assertThat(collector.failures.size(), is(equalTo(0)));
+        assertThat(collector.readyCount, is(equalTo(PORTS.length)));
+        assertThat(collector.replies.size(), is(equalTo(2 * PORTS.length)));
+        int statusCount = 0;
+        int resultsCount = 0;
+        for (String reply : collector.replies) {
+            if (reply.contains("<cc_status>")) {
+                CcStatus ccStatus = CcStatusParser.parse(reply);
+                assertThat(ccStatus.task_mode, is(equalTo(1)));
+                ++statusCount;
+            }
+            else {
+                Vector<Result> results = ResultsParser.parse(reply);
+                assertThat(results.size(), is(equalTo(79)));
+                ++resultsCount;
+            }
+        }
+        assertThat(statusCount, is(equalTo(PORTS.length)));
+        assertThat(resultsCount, is(equalTo(PORTS.length)));
+    }
+
+    @Test
+    public void smallReplyAfterLargeReply() throws Exception {
+        Collector collector = new Collector(3);
+        RpcMultiplexer.Session session = multiplexer.openSession("127.0.0.1", PORTS[0], "", collector);
+        // Reply to <get_results/> is larger than initial reply buffer
+        session.request("<get_results/>\n", collector);
+        session.request("<get_cc_status/>\n", collector);
+        session.request("<get_results/>\n", collector);
+        assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+        assertThat(collector.failures.size(), is(equalTo(0)));
+        assertThat(collector.replies.size(), is(equalTo(3)));
+        assertThat(ResultsParser.parse(collector.replies.elementAt(0)).size(), is(equalTo(79)));
+        assertThat(CcStatusParser.parse(collector.replies.elementAt(1)).task_mode, is(equalTo(1)));
+        assertThat(ResultsParser.parse(collector.replies.elementAt(2)).size(), is(equalTo(79)));
+    }
+
+    @Test
+    public void authorizationFailure() throws Exception {
+        boincClients[0].setPassword("123456");
+        // Session failure + failure of the waiting request
+        Collector collector = new Collector(2);
+        RpcMultiplexer.Session session = multiplexer.openSession("127.0.0.1", PORTS[0], "654321", collector);
+        session.request("<get_cc_status/>\n", collector);
+        assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+        assertThat(collector.readyCount, is(equalTo(0)));
+        assertThat(collector.replies.size(), is(equalTo(0)));
+        assertThat(collector.failures.size(), is(equalTo(2)));
+        assertTrue(collector.failures.contains("AuthorizationFailedException"));
+    }
+
+    @Test
+    public void connectionFailed() throws Exception {
+        Collector collector = new Collector(1);
+        multiplexer.openSession("127.0.0.1", 31417, "", collector);
+        assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+        assertThat(collector.failures.size(), is(equalTo(1)));
+        assertThat(collector.failures.elementAt(0), is(equalTo("ConnectionFailedException")));
+    }
+
+    @Test
+    public void unknownHost() {
+        String errorMsg = "";
+        try {
+            multiplexer.openSession("256.0.0.1", 31416, "", new Collector(0));
+            fail("Successful session unexpected, address is invalid");
+        }
+        catch (ConnectionFailedException e) {
+            errorMsg = e.getMessage();
+        }
+        assertThat(errorMsg, is(equalTo("Connection failed: unknown host \"256.0.0.1\"")));
+    }
+
+    @Test
+    public void failingCallbackDoesNotStopMultiplexer() throws Exception {
+        Collector collector = new Collector(1);
+        RpcMultiplexer.Session session = multiplexer.openSession("127.0.0.1", PORTS[0], "", collector);
+        session.request("<get_cc_status/>\n", new RpcMultiplexer.ReplyCallback() {
+            @Override
+            public void onReply(RpcMultiplexer.Session session, String reply) {
+                throw new IllegalStateException("Callback failure");
+            }
+
+            @Override
+            public void onFailure(RpcMultiplexer.Session session, RpcClientFailedException e) {
+            }
+        });
+        session.request("<get_cc_status/>\n", collector);
+        assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+        assertThat(collector.replies.size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void requestAfterStop() throws Exception {
+        Collector collector = new Collector(1);
+        RpcMultiplexer.Session session = multiplexer.openSession("127.0.0.1", PORTS[0], "", collector);
+        multiplexer.stop();
+        session.request("<get_cc_status/>\n", collector);
+        assertThat(collector.done.getCount(), is(equalTo(0L)));
+        assertThat(collector.failures.size(), is(equalTo(1)));
+        try {
+            multiplexer.openSession("127.0.0.1", PORTS[0], "", collector);
+            fail("Session opened on stopped multiplexer");
+        }
+        catch (ConnectionFailedException e) {
+            assertThat(e.getMessage(), is(equalTo("Connection failed: multiplexer is not running")));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        multiplexer.stop();
+        for (int i = 0; i < PORTS.length; ++i) {
+            assertTrue(boincClients[i].stopListener());
+            boincClients[i] = null;
+        }
+    }
+}
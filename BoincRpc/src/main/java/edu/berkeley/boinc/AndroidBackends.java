@@ -0,0 +1,73 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * Adapter of the protocol library (module BoincRpcCore) to Android.
+ * <p>
+ * {@link #install()} routes the logs of library to Android log, uses the native SAX parser
+ * of Android for parsing of replies and sets the {@link DebugFlags} from the build
+ * configuration of this module. It should be called once at start of application.
+ */
+public final class AndroidBackends {
+    private static boolean sInstalled = false;
+
+    private static class AndroidLog implements Log.Backend {
+        @Override
+        public void log(int priority, String tag, String msg, Throwable tr) {
+            switch (priority) {
+            case Log.DEBUG: android.util.Log.d(tag, msg, tr); break;
+            case Log.INFO:  android.util.Log.i(tag, msg, tr); break;
+            case Log.WARN:  android.util.Log.w(tag, msg, tr); break;
+            default:        android.util.Log.e(tag, msg, tr); break;
+            }
+        }
+    }
+
+    private static class AndroidXml implements Xml.Backend {
+        @Override
+        public void parse(String xml, ContentHandler contentHandler) throws SAXException {
+            android.util.Xml.parse(xml, contentHandler);
+        }
+
+        @Override
+        public void parse(Reader in, ContentHandler contentHandler) throws IOException, SAXException {
+            android.util.Xml.parse(in, contentHandler);
+        }
+    }
+
+    private AndroidBackends() {}
+
+    public static synchronized void install() {
+        if (sInstalled) return;
+        DebugFlags.DEBUG = BuildConfig.DEBUG;
+        DebugFlags.DEBUG_DATA = BuildConfig.DEBUG_DATA;
+        DebugFlags.DEBUG_PERFORMANCE = BuildConfig.DEBUG_PERFORMANCE;
+        Log.setBackend(new AndroidLog());
+        Xml.setBackend(new AndroidXml());
+        sInstalled = true;
+    }
+}
@@ -0,0 +1,64 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.benchmark;
+
+import edu.berkeley.boinc.CcState;
+import edu.berkeley.boinc.CcStateParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+
+
+/**
+ * Parsing of {@code <get_state/>} reply with given number of results (and workunits).
+ */
+@State(Scope.Benchmark)
+public class CcStateParserBenchmark extends ParserBenchmark {
+    @Param({"10", "100", "1000", "20000"})
+    public int results;
+
+    private String mReply;
+    private byte[] mReplyBytes;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        mReply = new ReplyGenerator().state(results);
+        mReplyBytes = mReply.getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public CcState parseString() throws Exception {
+        return CcStateParser.parse(mReply);
+    }
+
+    @Benchmark
+    public CcState parseStream() throws Exception {
+        return CcStateParser.parse(new ByteArrayInputStream(mReplyBytes));
+    }
+
+    @Benchmark
+    public CcState parseVersionOnly() throws Exception {
+        return CcStateParser.parse(new ByteArrayInputStream(mReplyBytes), CcState.VERSION_ONLY);
+    }
+}
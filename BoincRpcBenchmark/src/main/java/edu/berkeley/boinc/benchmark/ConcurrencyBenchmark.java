@@ -0,0 +1,166 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.benchmark;
+
+import edu.berkeley.boinc.ResultsParser;
+import edu.berkeley.boinc.RpcClient;
+import edu.berkeley.boinc.RpcClientFailedException;
+import edu.berkeley.boinc.RpcMultiplexer;
+import edu.berkeley.boinc.testutil.BenchmarkServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Polling of more hosts at once: one operation is {@code <get_results/>} (1000 results)
+ * completed on each of {@code clients} connections, either by blocking {@link RpcClient}
+ * per thread or by {@link RpcMultiplexer} on single I/O thread.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrencyBenchmark {
+    private static final String REQUEST = "<get_results/>\n";
+
+    @Param({"1", "4", "16"})
+    public int clients;
+
+    @Param({"threads", "multiplexer"})
+    public String transport;
+
+    private BenchmarkServer mServer;
+    private ExecutorService mExecutor;
+    private ArrayList<Callable<Object>> mCalls = new ArrayList<Callable<Object>>();
+    private ArrayList<RpcClient> mRpcClients = new ArrayList<RpcClient>();
+    private RpcMultiplexer mMultiplexer;
+    private ArrayList<RpcMultiplexer.Session> mSessions = new ArrayList<RpcMultiplexer.Session>();
+
+    @Setup
+    public void setUp() throws Exception {
+        mServer = new BenchmarkServer();
+        mServer.setReply("get_results", new ReplyGenerator().results(1000));
+        final int port = mServer.start();
+        if (transport.equals("threads")) {
+            mExecutor = Executors.newFixedThreadPool(clients);
+            for (int i = 0; i < clients; ++i) {
+                final RpcClient rpcClient = new RpcClient();
+                rpcClient.open("127.0.0.1", port);
+                mRpcClients.add(rpcClient);
+                mCalls.add(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        return rpcClient.getResults();
+                    }
+                });
+            }
+        }
+        else {
+            mMultiplexer = new RpcMultiplexer();
+            mMultiplexer.start();
+            final CountDownLatch ready = new CountDownLatch(clients);
+            RpcMultiplexer.SessionListener listener = new RpcMultiplexer.SessionListener() {
+                @Override
+                public void sessionReady(RpcMultiplexer.Session session) {
+                    ready.countDown();
+                }
+
+                @Override
+                public void sessionFailed(RpcMultiplexer.Session session, RpcClientFailedException e) {
+                }
+            };
+            for (int i = 0; i < clients; ++i) {
+                mSessions.add(mMultiplexer.openSession("127.0.0.1", port, "", listener));
+            }
+            if (!ready.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Sessions not ready");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+            for (RpcClient rpcClient: mRpcClients) {
+                rpcClient.close();
+            }
+        }
+        if (mMultiplexer != null) {
+            mMultiplexer.stop();
+        }
+        mServer.stop();
+    }
+
+    @Benchmark
+    public void pollAll() throws Exception {
+        if (mExecutor != null) {
+            for (Future<Object> future: mExecutor.invokeAll(mCalls)) {
+                future.get();
+            }
+            return;
+        }
+        final CountDownLatch done = new CountDownLatch(clients);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        RpcMultiplexer.ReplyCallback callback = new RpcMultiplexer.ReplyCallback() {
+            @Override
+            public void onReply(RpcMultiplexer.Session session, String reply) {
+                try {
+                    ResultsParser.parse(reply);
+                }
+                catch (RpcClientFailedException e) {
+                    failure.set(e);
+                }
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(RpcMultiplexer.Session session, RpcClientFailedException e) {
+                failure.set(e);
+                done.countDown();
+            }
+        };
+        for (RpcMultiplexer.Session session: mSessions) {
+            session.request(REQUEST, callback);
+        }
+        done.await();
+        if (failure.get() != null) throw failure.get();
+    }
+}
@@ -0,0 +1,59 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.benchmark;
+
+import edu.berkeley.boinc.HostInfo;
+import edu.berkeley.boinc.HostInfoParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+
+
+/**
+ * Parsing of {@code <get_host_info/>} reply, with and without GPU.
+ */
+@State(Scope.Benchmark)
+public class HostInfoParserBenchmark extends ParserBenchmark {
+    @Param({"false", "true"})
+    public boolean gpu;
+
+    private String mReply;
+    private byte[] mReplyBytes;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        mReply = new ReplyGenerator().hostInfo(gpu);
+        mReplyBytes = mReply.getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public HostInfo parseString() throws Exception {
+        return HostInfoParser.parse(mReply);
+    }
+
+    @Benchmark
+    public HostInfo parseStream() throws Exception {
+        return HostInfoParser.parse(new ByteArrayInputStream(mReplyBytes));
+    }
+}
@@ -0,0 +1,65 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.benchmark;
+
+import edu.berkeley.boinc.Message;
+import edu.berkeley.boinc.MessagesParser;
+import edu.berkeley.boinc.XmlSanitizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.Vector;
+
+
+/**
+ * Parsing of {@code <get_messages/>} reply with given number of messages.
+ * <p>
+ * With {@code unescaped=true} some message bodies contain unescaped HTML (as sent
+ * by real client); {@link MessagesParser} takes the bodies as opaque text, so both
+ * variants should take the same time. The former fallback (sanitizing by
+ * {@link XmlSanitizer}, to be followed by second parsing) is measured by {@link #sanitize()}.
+ */
+@State(Scope.Benchmark)
+public class MessagesParserBenchmark extends ParserBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int messages;
+
+    @Param({"false", "true"})
+    public boolean unescaped;
+
+    private String mReply;
+
+    @Setup
+    public void setUp() {
+        mReply = new ReplyGenerator().messages(messages, unescaped);
+    }
+
+    @Benchmark
+    public Vector<Message> parse() throws Exception {
+        return MessagesParser.parse(mReply);
+    }
+
+    @Benchmark
+    public String sanitize() {
+        return XmlSanitizer.sanitize(mReply, "body");
+    }
+}
@@ -0,0 +1,60 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.benchmark;
+
+import edu.berkeley.boinc.Project;
+import edu.berkeley.boinc.ProjectsParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Vector;
+
+
+/**
+ * Parsing of {@code <get_project_status/>} reply with given number of projects.
+ */
+@State(Scope.Benchmark)
+public class ProjectsParserBenchmark extends ParserBenchmark {
+    @Param({"1", "10", "100"})
+    public int projects;
+
+    private String mReply;
+    private byte[] mReplyBytes;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        mReply = new ReplyGenerator().projects(projects);
+        mReplyBytes = mReply.getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public Vector<Project> parseString() throws Exception {
+        return ProjectsParser.parse(mReply);
+    }
+
+    @Benchmark
+    public Vector<Project> parseStream() throws Exception {
+        return ProjectsParser.parse(new ByteArrayInputStream(mReplyBytes));
+    }
+}
@@ -0,0 +1,308 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.benchmark;
+
+import java.util.Locale;
+import java.util.Random;
+
+
+/**
+ * Generator of synthetic GUI RPC replies of arbitrary size.
+ * <p>
+ * The replies have the same structure and similar content as the replies of real
+ * BOINC core client (see the samples in BoincRpc/src/androidTest/res/raw),
+ * only the number of items is given by caller. The content is deterministic
+ * (fixed random seed), so the results of benchmark runs are comparable.
+ */
+public class ReplyGenerator {
+    private static final String[] PROJECTS = {
+        "http://einstein.phys.uwm.edu/",
+        "http://pogs.theskynet.org/pogs/",
+        "http://wuprop.boinc-af.org/",
+        "http://setiathome.berkeley.edu/",
+        "http://www.worldcommunitygrid.org/",
+    };
+    private static final String[] APPS = {
+        "einsteinbinary_BRP4", "pogs", "data_collect_v4", "setiathome_v8", "hcc1",
+    };
+
+    private final Random mRandom = new Random(42);
+    private final StringBuilder mSb = new StringBuilder();
+
+    /**
+     * @param results number of results (and workunits) in the state
+     * @return reply to {@code <get_state/>}
+     */
+    public String state(int results) {
+        mSb.setLength(0);
+        mSb.append("<boinc_gui_rpc_reply>\n<client_state>\n");
+        appendHostInfo(false);
+        for (int i = 0; i < PROJECTS.length; ++i) {
+            appendProject(i);
+            mSb.append("<app>\n    <name>").append(APPS[i]).append("</name>\n")
+                .append("    <user_friendly_name>Application ").append(APPS[i]).append("</user_friendly_name>\n")
+                .append("    <non_cpu_intensive>0</non_cpu_intensive>\n</app>\n");
+            mSb.append("<app_version>\n    <app_name>").append(APPS[i]).append("</app_name>\n")
+                .append("    <version_num>").append(100 + i).append("</version_num>\n")
+                .append("    <platform>x86_64-pc-linux-gnu</platform>\n")
+                .append("    <avg_ncpus>1.000000</avg_ncpus>\n    <max_ncpus>1.000000</max_ncpus>\n")
+                .append("    <flops>3330128030.754157</flops>\n    <plan_class></plan_class>\n")
+                .append("    <api_version>7.6.0</api_version>\n")
+                .append("    <file_ref>\n        <file_name>").append(APPS[i]).append("_x86_64-pc-linux-gnu</file_name>\n")
+                .append("        <main_program/>\n    </file_ref>\n</app_version>\n");
+            for (int r = i; r < results; r += PROJECTS.length) {
+                mSb.append("<workunit>\n    <name>").append(wuName(r)).append("</name>\n")
+                    .append("    <app_name>").append(APPS[i]).append("</app_name>\n")
+                    .append("    <version_num>").append(100 + i).append("</version_num>\n")
+                    .append("    <rsc_fpops_est>").append(number(1e12, 1e14)).append("</rsc_fpops_est>\n")
+                    .append("    <rsc_fpops_bound>100000000000000.000000</rsc_fpops_bound>\n")
+                    .append("    <rsc_memory_bound>100000000.000000</rsc_memory_bound>\n")
+                    .append("    <rsc_disk_bound>50000000.000000</rsc_disk_bound>\n")
+                    .append("    <command_line>\n-n 360 -c 60 -g 14\n    </command_line>\n</workunit>\n");
+                appendResult(r, i);
+            }
+        }
+        mSb.append("<platform_name>x86_64-pc-linux-gnu</platform_name>\n")
+            .append("<core_client_major_version>7</core_client_major_version>\n")
+            .append("<core_client_minor_version>6</core_client_minor_version>\n")
+            .append("<core_client_release>22</core_client_release>\n")
+            .append("<executing_as_daemon/>\n")
+            .append("<host_venue>home</host_venue>\n")
+            .append("</client_state>\n</boinc_gui_rpc_reply>\n");
+        return mSb.toString();
+    }
+
+    /**
+     * @param results number of results
+     * @return reply to {@code <get_results/>}
+     */
+    public String results(int results) {
+        mSb.setLength(0);
+        mSb.append("<boinc_gui_rpc_reply>\n<results>\n");
+        for (int r = 0; r < results; ++r) {
+            appendResult(r, r % PROJECTS.length);
+        }
+        mSb.append("</results>\n</boinc_gui_rpc_reply>\n");
+        return mSb.toString();
+    }
+
+    /**
+     * @param projects number of projects
+     * @return reply to {@code <get_project_status/>}
+     */
+    public String projects(int projects) {
+        mSb.setLength(0);
+        mSb.append("<boinc_gui_rpc_reply>\n<projects>\n");
+        for (int i = 0; i < projects; ++i) {
+            appendProject(i);
+        }
+        mSb.append("</projects>\n</boinc_gui_rpc_reply>\n");
+        return mSb.toString();
+    }
+
+    /**
+     * @param messages number of messages
+     * @param unescaped true to include unescaped HTML in some bodies (as real client does),
+     *        so the parsing fails and messages are sanitized and parsed again
+     * @return reply to {@code <get_messages/>}
+     */
+    public String messages(int messages, boolean unescaped) {
+        mSb.setLength(0);
+        mSb.append("<boinc_gui_rpc_reply>\n<msgs>\n");
+        for (int i = 0; i < messages; ++i) {
+            final int p = i % PROJECTS.length;
+            mSb.append("<msg>\n <project>").append((i % 7 == 0) ? "" : APPS[p]).append("</project>\n")
+                .append(" <pri>").append((i % 11 == 0) ? 2 : 1).append("</pri>\n")
+                .append(" <seqno>").append(i + 1).append("</seqno>\n <body>\n");
+            if (unescaped && i % 100 == 0) {
+                mSb.append("A new version of BOINC is available. <a href=http://boinc.berkeley.edu/download.php>Download it.</a>");
+            }
+            else if (i % 2 == 0) {
+                mSb.append("Starting task ").append(resultName(i));
+            }
+            else {
+                mSb.append("Computation for task ").append(resultName(i - 1)).append(" finished");
+            }
+            mSb.append("\n</body>\n <time>").append(1456395487 + i).append("</time>\n</msg>\n");
+        }
+        mSb.append("</msgs>\n</boinc_gui_rpc_reply>\n");
+        return mSb.toString();
+    }
+
+    /**
+     * @param transfers number of file transfers
+     * @return reply to {@code <get_file_transfers/>}
+     */
+    public String transfers(int transfers) {
+        mSb.setLength(0);
+        mSb.append("<boinc_gui_rpc_reply>\n<file_transfers>\n");
+        for (int i = 0; i < transfers; ++i) {
+            final int p = i % PROJECTS.length;
+            final boolean upload = (i % 2 == 0);
+            mSb.append("<file_transfer>\n    <project_url>").append(PROJECTS[p]).append("</project_url>\n")
+                .append("    <project_name>Project ").append(APPS[p]).append("</project_name>\n")
+                .append("    <name>").append(resultName(i)).append("_0</name>\n")
+                .append("    <nbytes>").append(number(1e4, 1e7)).append("</nbytes>\n")
+                .append("    <max_nbytes>50000000.000000</max_nbytes>\n    <status>0</status>\n")
+                .append("    <persistent_file_xfer>\n        <num_retries>").append(i % 3).append("</num_retries>\n")
+                .append("        <first_request_time>1456543231.237237</first_request_time>\n")
+                .append("        <next_request_time>1456543231.237237</next_request_time>\n")
+                .append("        <time_so_far>").append(number(1, 100)).append("</time_so_far>\n")
+                .append("        <last_bytes_xferred>").append(number(1e3, 1e6)).append("</last_bytes_xferred>\n")
+                .append("        <is_upload>").append(upload ? 1 : 0).append("</is_upload>\n")
+                .append("    </persistent_file_xfer>\n");
+            if (i % 3 == 0) {
+                mSb.append("    <file_xfer>\n        <bytes_xferred>").append(number(1e3, 1e6)).append("</bytes_xferred>\n")
+                    .append("        <file_offset>0.000000</file_offset>\n")
+                    .append("        <xfer_speed>").append(number(1e3, 1e5)).append("</xfer_speed>\n")
+                    .append("        <url>").append(PROJECTS[p]).append(upload ? "cgi/file_upload_handler" : "download/file")
+                    .append("</url>\n    </file_xfer>\n");
+            }
+            mSb.append("</file_transfer>\n");
+        }
+        mSb.append("</file_transfers>\n</boinc_gui_rpc_reply>\n");
+        return mSb.toString();
+    }
+
+    /**
+     * @param gpu true to include GPU co-processor description
+     * @return reply to {@code <get_host_info/>}
+     */
+    public String hostInfo(boolean gpu) {
+        mSb.setLength(0);
+        mSb.append("<boinc_gui_rpc_reply>\n");
+        appendHostInfo(gpu);
+        mSb.append("</boinc_gui_rpc_reply>\n");
+        return mSb.toString();
+    }
+
+    private void appendHostInfo(boolean gpu) {
+        mSb.append("<host_info>\n    <timezone>28800</timezone>\n")
+            .append("    <domain_name>machine3</domain_name>\n    <ip_addr>192.168.0.3</ip_addr>\n")
+            .append("    <host_cpid>a8c15a2da71502bb52c8d4a5025e70b6</host_cpid>\n")
+            .append("    <p_ncpus>4</p_ncpus>\n    <p_vendor>GenuineIntel</p_vendor>\n")
+            .append("    <p_model>Intel(R) Core(TM)2 Quad CPU    Q6600  @ 2.40GHz [Family 6 Model 15 Stepping 11]</p_model>\n")
+            .append("    <p_features>fpu vme de pse tsc msr pae mce cx8 apic sep mtrr pge mca cmov pat pse36 clflush dts acpi mmx fxsr sse sse2 ss ht tm pbe syscall nx lm</p_features>\n")
+            .append("    <p_fpops>2227719169.069331</p_fpops>\n    <p_iops>12828645195.720629</p_iops>\n")
+            .append("    <p_membw>1000000000.000000</p_membw>\n    <p_calculated>1456151145.533448</p_calculated>\n")
+            .append("    <m_nbytes>4150296576.000000</m_nbytes>\n    <m_cache>4194304.000000</m_cache>\n")
+            .append("    <m_swap>5999947776.000000</m_swap>\n")
+            .append("    <d_total>131933581312.000000</d_total>\n    <d_free>67023462400.000000</d_free>\n")
+            .append("    <os_name>Linux</os_name>\n    <os_version>3.2.0-4-amd64</os_version>\n    <coprocs>\n");
+        if (gpu) {
+            mSb.append("<coproc_ati>\n   <count>1</count>\n   <name>ATI Radeon HD 4700/4800 (RV740/RV770)</name>\n")
+                .append("   <available_ram>1040187392.000000</available_ram>\n   <have_cal>1</have_cal>\n")
+                .append("   <have_opencl>1</have_opencl>\n   <peak_flops>2400000000000.000000</peak_flops>\n")
+                .append("   <coproc_opencl>\n      <name>ATI Radeon HD 4700/4800 (RV740/RV770)</name>\n")
+                .append("      <vendor>Advanced Micro Devices, Inc.</vendor>\n      <vendor_id>4098</vendor_id>\n")
+                .append("      <available>1</available>\n      <global_mem_size>1073741824</global_mem_size>\n")
+                .append("   </coproc_opencl>\n</coproc_ati>\n");
+        }
+        mSb.append("    </coprocs>\n</host_info>\n");
+    }
+
+    private void appendProject(int i) {
+        final int p = i % PROJECTS.length;
+        // More projects than known URLs get unique URL
+        final String url = (i < PROJECTS.length) ? PROJECTS[p] : PROJECTS[p] + i + "/";
+        mSb.append("<project>\n    <master_url>").append(url).append("</master_url>\n")
+            .append("    <project_name>Project ").append(APPS[p]).append("</project_name>\n")
+            .append("    <symstore></symstore>\n    <user_name>Palo M.</user_name>\n")
+            .append("    <team_name>BOINC.SK</team_name>\n    <host_venue>home</host_venue>\n")
+            .append("    <email_hash>ee8295d2acaeba9d524badbcb0f9c3dc</email_hash>\n")
+            .append("    <cross_project_id>fa07b2a43f4d50b6147908fd5bc84413</cross_project_id>\n")
+            .append("    <cpid_time>1291182512.000000</cpid_time>\n")
+            .append("    <user_total_credit>").append(number(1e3, 1e7)).append("</user_total_credit>\n")
+            .append("    <user_expavg_credit>").append(number(1, 1e4)).append("</user_expavg_credit>\n")
+            .append("    <user_create_time>1291182512.000000</user_create_time>\n")
+            .append("    <rpc_seqno>54280</rpc_seqno>\n    <userid>3060</userid>\n    <teamid>751</teamid>\n")
+            .append("    <hostid>").append(15982 + i).append("</hostid>\n")
+            .append("    <host_total_credit>").append(number(1e3, 1e6)).append("</host_total_credit>\n")
+            .append("    <host_expavg_credit>").append(number(1, 1e3)).append("</host_expavg_credit>\n")
+            .append("    <host_create_time>1300609224.000000</host_create_time>\n")
+            .append("    <nrpc_failures>0</nrpc_failures>\n    <master_fetch_failures>0</master_fetch_failures>\n")
+            .append("    <min_rpc_time>1456406331.797230</min_rpc_time>\n")
+            .append("    <next_rpc_time>1456409924.797230</next_rpc_time>\n")
+            .append("    <rec>0.004598</rec>\n    <rec_time>1456409427.477241</rec_time>\n")
+            .append("    <resource_share>").append(number(1, 100)).append("</resource_share>\n")
+            .append("    <desired_disk_usage>0.000000</desired_disk_usage>\n")
+            .append("    <duration_correction_factor>1.000000</duration_correction_factor>\n")
+            .append("    <sched_rpc_pending>0</sched_rpc_pending>\n")
+            .append("    <send_time_stats_log>0</send_time_stats_log>\n    <send_job_log>0</send_job_log>\n")
+            .append("    <njobs_success>1122</njobs_success>\n    <njobs_error>1</njobs_error>\n")
+            .append("    <elapsed_time>24249332.619133</elapsed_time>\n")
+            .append("    <rsc_backoff_time>\n        <name>CPU</name>\n        <value>0.000000</value>\n    </rsc_backoff_time>\n")
+            .append("<gui_urls>\n    <gui_url>\n        <name>Your account</name>\n")
+            .append("        <description>View your account information and credit totals</description>\n")
+            .append("        <url>").append(url).append("home.php</url>\n    </gui_url>\n")
+            .append("    <ifteam>\n        <gui_url>\n            <name>Team</name>\n")
+            .append("            <description>Info about BOINC.SK</description>\n")
+            .append("            <url>").append(url).append("team_display.php?teamid=751</url>\n")
+            .append("        </gui_url>\n    </ifteam>\n</gui_urls>\n")
+            .append("    <sched_priority>-0.000101</sched_priority>\n")
+            .append("    <last_rpc_time>1456406324.797230</last_rpc_time>\n")
+            .append("    <project_files_downloaded_time>0.000000</project_files_downloaded_time>\n")
+            .append("    <venue>home</venue>\n")
+            .append("</project>\n");
+    }
+
+    private void appendResult(int r, int p) {
+        mSb.append("<result>\n    <name>").append(resultName(r)).append("</name>\n")
+            .append("    <wu_name>").append(wuName(r)).append("</wu_name>\n")
+            .append("    <version_num>").append(100 + p).append("</version_num>\n")
+            .append("    <plan_class></plan_class>\n")
+            .append("    <project_url>").append(PROJECTS[p]).append("</project_url>\n")
+            .append("    <final_cpu_time>0.000000</final_cpu_time>\n")
+            .append("    <final_elapsed_time>0.000000</final_elapsed_time>\n")
+            .append("    <exit_status>0</exit_status>\n    <state>2</state>\n")
+            .append("    <report_deadline>").append(number(1456776412, 1457776412)).append("</report_deadline>\n")
+            .append("    <received_time>1456171613.892053</received_time>\n")
+            .append("    <estimated_cpu_time_remaining>").append(number(100, 50000)).append("</estimated_cpu_time_remaining>\n");
+        if (r % 4 == 0) {
+            // Every 4th result is running
+            mSb.append("<active_task>\n    <active_task_state>1</active_task_state>\n")
+                .append("    <app_version_num>").append(100 + p).append("</app_version_num>\n")
+                .append("    <slot>").append(r / 4).append("</slot>\n    <pid>").append(1000 + r).append("</pid>\n")
+                .append("    <scheduler_state>2</scheduler_state>\n")
+                .append("    <checkpoint_cpu_time>").append(number(1, 10000)).append("</checkpoint_cpu_time>\n")
+                .append("    <fraction_done>").append(number(0, 1)).append("</fraction_done>\n")
+                .append("    <current_cpu_time>").append(number(1, 10000)).append("</current_cpu_time>\n")
+                .append("    <elapsed_time>").append(number(1, 10000)).append("</elapsed_time>\n")
+                .append("    <swap_size>82063360.000000</swap_size>\n")
+                .append("    <working_set_size>40103936.000000</working_set_size>\n")
+                .append("    <working_set_size_smoothed>40103936.000000</working_set_size_smoothed>\n")
+                .append("    <page_fault_rate>0.000000</page_fault_rate>\n")
+                .append("</active_task>\n");
+        }
+        mSb.append("</result>\n");
+    }
+
+    private String wuName(int r) {
+        return "110355.5+373030_area" + (26987221 + r);
+    }
+
+    private String resultName(int r) {
+        return wuName(r) + "_" + (r % 2);
+    }
+
+    private String number(double min, double max) {
+        return String.format(Locale.US, "%.6f", min + mRandom.nextDouble() * (max - min));
+    }
+}
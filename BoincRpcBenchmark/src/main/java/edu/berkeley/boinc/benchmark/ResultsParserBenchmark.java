@@ -0,0 +1,72 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.benchmark;
+
+import edu.berkeley.boinc.Result;
+import edu.berkeley.boinc.ResultsParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Vector;
+
+
+/**
+ * Parsing of {@code <get_results/>} reply with given number of results.
+ */
+@State(Scope.Benchmark)
+public class ResultsParserBenchmark extends ParserBenchmark {
+    @Param({"10", "100", "1000", "20000"})
+    public int results;
+
+    private String mReply;
+    private byte[] mReplyBytes;
+    // Benchmarks run in single thread, so the parser can be shared
+    private ResultsParser mParser;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        mReply = new ReplyGenerator().results(results);
+        mReplyBytes = mReply.getBytes("UTF-8");
+        mParser = new ResultsParser();
+    }
+
+    @Benchmark
+    public Vector<Result> parseString() throws Exception {
+        return ResultsParser.parse(mReply);
+    }
+
+    @Benchmark
+    public Vector<Result> parseStream() throws Exception {
+        return ResultsParser.parse(new ByteArrayInputStream(mReplyBytes));
+    }
+
+    /**
+     * Steady state of periodic refresh: the same results parsed again by the same parser,
+     * updating the results of previous parsing in place
+     */
+    @Benchmark
+    public Vector<Result> parseRecycled() throws Exception {
+        return mParser.parseRecycled(new ByteArrayInputStream(mReplyBytes));
+    }
+}
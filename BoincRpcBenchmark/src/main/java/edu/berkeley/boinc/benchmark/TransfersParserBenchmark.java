@@ -0,0 +1,60 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.benchmark;
+
+import edu.berkeley.boinc.Transfer;
+import edu.berkeley.boinc.TransfersParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Vector;
+
+
+/**
+ * Parsing of {@code <get_file_transfers/>} reply with given number of transfers.
+ */
+@State(Scope.Benchmark)
+public class TransfersParserBenchmark extends ParserBenchmark {
+    @Param({"10", "100", "1000"})
+    public int transfers;
+
+    private String mReply;
+    private byte[] mReplyBytes;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        mReply = new ReplyGenerator().transfers(transfers);
+        mReplyBytes = mReply.getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public Vector<Transfer> parseString() throws Exception {
+        return TransfersParser.parse(mReply);
+    }
+
+    @Benchmark
+    public Vector<Transfer> parseStream() throws Exception {
+        return TransfersParser.parse(new ByteArrayInputStream(mReplyBytes));
+    }
+}
@@ -0,0 +1,132 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.benchmark;
+
+import edu.berkeley.boinc.RpcClient;
+import edu.berkeley.boinc.testutil.BenchmarkServer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * End-to-end cost of single RPC call over loopback: request, receiving of reply and parsing,
+ * for various sizes of reply buffer and for both framings (whole reply collected to String
+ * first, or parsed from socket stream while being received).
+ * <p>
+ * Latency percentiles come from {@link Mode#SampleTime}, the received bytes per millisecond
+ * are reported as {@code bytes} counter of {@link Mode#Throughput}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+    @Param({"get_state", "get_results", "get_messages"})
+    public String rpc;
+
+    /** number of results (get_state, get_results) or messages (get_messages) */
+    @Param({"100", "2000"})
+    public int items;
+
+    @Param({"2048", "16384", "131072"})
+    public int replyBuffer;
+
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    private BenchmarkServer mServer;
+    private RpcClient mRpcClient;
+    private int mReplySize;
+
+    /**
+     * Received bytes, reported as rate
+     */
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Counters {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        ReplyGenerator generator = new ReplyGenerator();
+        String reply;
+        if (rpc.equals("get_state")) {
+            reply = generator.state(items);
+        }
+        else if (rpc.equals("get_results")) {
+            reply = generator.results(items);
+        }
+        else {
+            reply = generator.messages(items, false);
+        }
+        mReplySize = BenchmarkServer.encode(reply).length;
+        mServer = new BenchmarkServer();
+        mServer.setReply(rpc, reply);
+        int port = mServer.start();
+        mRpcClient = new RpcClient();
+        mRpcClient.setReplyBufferSize(replyBuffer);
+        mRpcClient.setStreamingParse(streaming);
+        mRpcClient.open("127.0.0.1", port);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mRpcClient.close();
+        mServer.stop();
+    }
+
+    @Benchmark
+    public Object call(Counters counters) throws Exception {
+        Object result;
+        if (rpc.equals("get_state")) {
+            result = mRpcClient.getState();
+        }
+        else if (rpc.equals("get_results")) {
+            result = mRpcClient.getResults();
+        }
+        else {
+            result = mRpcClient.getMessages(0);
+        }
+        counters.bytes += mReplySize;
+        return result;
+    }
+}
@@ -0,0 +1,203 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Timeouts of single BOINC client (host), adapted to measured network and client behavior.
+ * <p>
+ * The estimation is similar to TCP retransmission timer: smoothed value and its mean
+ * deviation are kept and the timeout is {@code smoothed + 4 * deviation}, limited by
+ * minimum and maximum. After timeout the value is doubled (backoff) until new successful
+ * measurement arrives. Without any measurement, the default timeouts are used.
+ * <ul>
+ * <li>connect timeout - from the measured durations of TCP connect (round trip time)</li>
+ * <li>reply timeout - time to wait for the first bytes of reply, measured separately
+ *     for each RPC type (e.g. client needs much more time to build
+ *     {@code <get_state>} reply than {@code <get_cc_status>} reply)</li>
+ * <li>stall timeout - time without any progress while reply is being received,
+ *     estimated from the longest waits for data measured during the replies; so the large
+ *     reply on slow network is not limited by total time, but dead peer is detected quickly.
+ *     The stall timeout is never shorter than the time needed to transfer a few TCP windows
+ *     at the measured transfer rate, so the short waits on fast network do not cut
+ *     the replies on slower network</li>
+ * </ul>
+ * The measurements are valid only for the network where they were made, so they should be
+ * dropped by {@link #reset()} when the network changes.
+ * The object can be shared by more connections to the same host.
+ */
+public class AdaptiveTimeouts {
+    public static final int DEFAULT_CONNECT_TIMEOUT = 30000; // 30s
+    public static final int DEFAULT_READ_TIMEOUT = 15000;    // 15s
+    private static final int MIN_CONNECT_TIMEOUT = 3000;
+    private static final int MIN_REPLY_TIMEOUT = 8000;   // client can be busy for few seconds
+    private static final int MAX_REPLY_TIMEOUT = 60000;
+    private static final int MIN_STALL_TIMEOUT = 4000;
+    private static final int STALL_WINDOW = 131072;     // bytes which must fit into stall timeout at measured rate
+    private static final int MIN_RATE_BYTES = 16384;    // shorter replies are not used to measure transfer rate
+
+    /**
+     * Smoothed estimation of single duration
+     */
+    private static class Estimate {
+        private float mSmoothed = -1;  // not measured yet
+        private float mDeviation = 0;
+        private int mBackoff = 1;
+
+        public void sample(float duration) {
+            if (mSmoothed < 0) {
+                // First measurement
+                mSmoothed = duration;
+                mDeviation = duration / 2;
+            }
+            else {
+                mDeviation = 0.75f * mDeviation + 0.25f * Math.abs(mSmoothed - duration);
+                mSmoothed = 0.875f * mSmoothed + 0.125f * duration;
+            }
+            mBackoff = 1;
+        }
+
+        public void timedOut(int min, int max) {
+            if (mSmoothed >= 0 && timeout(min, max, max) < max) {
+                mBackoff *= 2;
+            }
+        }
+
+        public int timeout(int min, int max, int defaultTimeout) {
+            if (mSmoothed < 0) return defaultTimeout;
+            float timeout = mSmoothed + 4 * mDeviation;
+            if (timeout < min) timeout = min;
+            timeout *= mBackoff;
+            if (timeout > max) return max;
+            return (int)timeout;
+        }
+    }
+
+    private Estimate mConnect = new Estimate();
+    private Estimate mStall = new Estimate();
+    private float mRate = -1;  // smoothed transfer rate in bytes per millisecond, not measured yet
+    private Map<String, Estimate> mReplies = new HashMap<String, Estimate>();
+
+    /**
+     * @return timeout for TCP connect in milliseconds
+     */
+    public synchronized int connectTimeout() {
+        return mConnect.timeout(MIN_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    /**
+     * @param rpcName the name of request (e.g. "get_state")
+     * @return timeout in milliseconds for the first bytes of reply to the request
+     */
+    public synchronized int replyTimeout(String rpcName) {
+        Estimate estimate = mReplies.get(rpcName);
+        if (estimate == null) return DEFAULT_READ_TIMEOUT;
+        return estimate.timeout(MIN_REPLY_TIMEOUT, MAX_REPLY_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * @return timeout in milliseconds for the next bytes when receiving the reply
+     */
+    public synchronized int stallTimeout() {
+        return mStall.timeout(minStallTimeout(), DEFAULT_READ_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    // The time to transfer STALL_WINDOW bytes at measured rate, but at least MIN_STALL_TIMEOUT
+    private int minStallTimeout() {
+        if (mRate <= 0) return MIN_STALL_TIMEOUT;
+        float window = STALL_WINDOW / mRate;
+        if (window <= MIN_STALL_TIMEOUT) return MIN_STALL_TIMEOUT;
+        return (window < DEFAULT_READ_TIMEOUT) ? (int)window : DEFAULT_READ_TIMEOUT;
+    }
+
+    /**
+     * Reports successful connect
+     * @param duration the duration of connect in milliseconds
+     */
+    public synchronized void connectCompleted(float duration) {
+        mConnect.sample(duration);
+    }
+
+    /**
+     * Reports timed out connect
+     */
+    public synchronized void connectTimedOut() {
+        mConnect.timedOut(MIN_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Reports the arrival of first bytes of reply
+     * @param rpcName the name of request
+     * @param duration time from sending the request until first bytes of reply in milliseconds
+     */
+    public synchronized void replyStarted(String rpcName, float duration) {
+        Estimate estimate = mReplies.get(rpcName);
+        if (estimate == null) {
+            estimate = new Estimate();
+            mReplies.put(rpcName, estimate);
+        }
+        estimate.sample(duration);
+    }
+
+    /**
+     * Reports the reply which was received completely
+     * @param longestWait the longest wait for data while the reply was being received, in milliseconds
+     * @param bytes number of bytes received
+     * @param duration time from the first bytes of reply until its end in milliseconds
+     */
+    public synchronized void replyReceived(float longestWait, int bytes, float duration) {
+        mStall.sample(longestWait);
+        if (bytes >= MIN_RATE_BYTES && duration > 0) {
+            float rate = bytes / duration;
+            mRate = (mRate < 0) ? rate : (0.875f * mRate + 0.125f * rate);
+        }
+    }
+
+    /**
+     * Reports that no reply arrived in time
+     * @param rpcName the name of request
+     */
+    public synchronized void replyTimedOut(String rpcName) {
+        Estimate estimate = mReplies.get(rpcName);
+        if (estimate != null) {
+            estimate.timedOut(MIN_REPLY_TIMEOUT, MAX_REPLY_TIMEOUT);
+        }
+    }
+
+    /**
+     * Reports that reply stalled (no progress during stall timeout)
+     */
+    public synchronized void stallTimedOut() {
+        mStall.timedOut(minStallTimeout(), DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Forgets all measurements, so the default timeouts are used again
+     */
+    public synchronized void reset() {
+        mConnect = new Estimate();
+        mStall = new Estimate();
+        mRate = -1;
+        mReplies.clear();
+    }
+}
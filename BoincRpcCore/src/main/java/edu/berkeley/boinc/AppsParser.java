@@ -19,8 +19,6 @@
 
 package edu.berkeley.boinc;
 
-import android.util.Log;
-import android.util.Xml;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import java.util.Vector;
@@ -29,6 +27,16 @@ import java.util.Vector;
 public class AppsParser extends BaseParser {
     private static final String TAG = "AppsParser";
 
+    // Elements handled by this parser, see ELEMENTS
+    private static final int APP = 1;
+    private static final int NAME = 2;
+    private static final int USER_FRIENDLY_NAME = 3;
+
+    private static final TagTable ELEMENTS = new TagTable()
+            .add("app", APP)
+            .add("name", NAME)
+            .add("user_friendly_name", USER_FRIENDLY_NAME);
+
     private Vector<App> mApps = new Vector<App>();
     private App mApp = null;
 
@@ -50,7 +58,7 @@ public class AppsParser extends BaseParser {
             return parser.getApps();
         }
         catch (SAXException e) {
-            if (BuildConfig.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
             throw new InvalidDataReceivedException("Malformed XML while parsing <app>", e);
         }
     }
@@ -58,7 +66,7 @@ public class AppsParser extends BaseParser {
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
         super.startElement(uri, localName, qName, attributes);
-        if (localName.equalsIgnoreCase("app")) {
+        if (ELEMENTS.get(localName) == APP) {
             mApp = new App();
         }
         else {
@@ -74,7 +82,8 @@ public class AppsParser extends BaseParser {
         super.endElement(uri, localName, qName);
         if (mApp != null) {
             // We are inside <app>
-            if (localName.equalsIgnoreCase("app")) {
+            final int element = ELEMENTS.get(localName);
+            if (element == APP) {
                 // Closing tag of <app> - add to vector and be ready for next one
                 if (!mApp.name.equals("")) {
                     // name is a must
@@ -82,14 +91,16 @@ public class AppsParser extends BaseParser {
                 }
                 mApp = null;
             }
-            else {
+            else if (element != TagTable.UNKNOWN) {
                 // Not the closing tag - we decode possible inner tags
                 trimEnd();
-                if (localName.equalsIgnoreCase("name")) {
-                    mApp.name = mCurrentElement.toString();
-                }
-                else if (localName.equalsIgnoreCase("user_friendly_name")) {
+                switch (element) {
+                case NAME:
+                    mApp.name = currentSymbol(null);
+                    break;
+                case USER_FRIENDLY_NAME:
                     mApp.user_friendly_name = mCurrentElement.toString();
+                    break;
                 }
             }
         }
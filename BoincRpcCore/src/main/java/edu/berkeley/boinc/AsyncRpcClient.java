@@ -0,0 +1,582 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Asynchronous front end of {@link RpcClient}.
+ * <p>
+ * The operations are queued and performed one by one on the worker thread owned by this
+ * class (the GUI RPC connection serves one request at a time), so the caller does not
+ * block. Each operation returns {@link Future} of its result and optionally calls the
+ * {@link Callback} when finished. The {@link ExecutionException} thrown by
+ * {@link Future#get()} has {@link RpcClientFailedException} as the cause.
+ * <p>
+ * Each operation has its own deadline (in milliseconds), measured from the submission of
+ * operation, so it includes the time spent in queue behind the previous operations - when
+ * the operation does not finish in time, the connection is aborted and operation fails with
+ * {@link ConnectionFailedException}. The operation which deadline expired already in queue
+ * fails without being performed (and the connection is kept). Cancellation of operation which is already running
+ * ({@code cancel(true)}) aborts the connection as well; the cancelled queued operation
+ * is just skipped. When connection is aborted (or read timed out), it is closed and all
+ * further operations fail until {@link #open(String, int, int, Callback)} is done again.
+ * The connect in progress (also the parallel attempts of {@link HostConnector}) is aborted
+ * the same way.
+ * <p>
+ * The deadline limits the whole operation. When the {@link RpcClient} has adaptive timeouts
+ * ({@link RpcClient#setAdaptiveTimeouts(AdaptiveTimeouts)}), they still apply to the individual
+ * reads (so the dead connection can fail before the deadline), but never exceed the deadline;
+ * the expiry of deadline is not reported to the adaptive timeouts as timeout of host. Only the
+ * expiry of deadline fails with "Deadline exceeded"; the adaptive timeout fails the operation with
+ * the {@link ConnectionFailedException} of {@link RpcClient}.
+ */
+public class AsyncRpcClient {
+    private static final String TAG = "AsyncRpcClient";
+
+    public static final int DEFAULT_DEADLINE = 15000;  // 15s, same as read timeout of RpcClient
+    public static final int CONNECT_DEADLINE = 30000;  // 30s, same as connect timeout of RpcClient
+    // Socket timeout can expire a bit sooner than measured by System.nanoTime()
+    private static final long DEADLINE_TOLERANCE = 10000000L;  // 10ms, in nanoseconds
+
+    /**
+     * Receiver of the result of operation. Called on the worker thread of
+     * {@link AsyncRpcClient}, so it should not block. Not called for cancelled operation.
+     *
+     * @param <T> type of result
+     */
+    public interface Callback<T> {
+        /**
+         * Operation finished successfully
+         * @param result the result of operation
+         */
+        public abstract void onResult(T result);
+
+        /**
+         * Operation failed
+         * @param e the reason of failure
+         */
+        public abstract void onFailure(RpcClientFailedException e);
+    }
+
+    /**
+     * Single operation on RpcClient
+     */
+    private interface Operation<T> {
+        public abstract T perform(RpcClient rpcClient) throws RpcClientFailedException;
+    }
+
+    /**
+     * Queued operation, which can be cancelled or aborted when running
+     */
+    private final class RpcTask<T> extends FutureTask<T> {
+        private final Callback<T> mCallback;
+        private boolean mAborted = false;   // guarded by AsyncRpcClient.this
+        private boolean mTimedOut = false;  // guarded by AsyncRpcClient.this
+
+        public RpcTask(Callable<T> callable, Callback<T> callback) {
+            super(callable);
+            mCallback = callback;
+        }
+
+        @Override
+        public void run() {
+            synchronized (AsyncRpcClient.this) {
+                mCurrentTask = this;
+            }
+            try {
+                super.run();
+            }
+            finally {
+                synchronized (AsyncRpcClient.this) {
+                    mCurrentTask = null;
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // The blocked socket operation cannot be interrupted, connection is aborted instead
+            boolean cancelled = super.cancel(false);
+            if (cancelled && mayInterruptIfRunning) {
+                abort(this, false);
+            }
+            return cancelled;
+        }
+
+        @Override
+        protected void done() {
+            if ((mCallback == null) || isCancelled()) return;
+            try {
+                mCallback.onResult(get());
+            }
+            catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RpcClientFailedException) {
+                    mCallback.onFailure((RpcClientFailedException)cause);
+                }
+                else {
+                    mCallback.onFailure(new RpcClientFailedException("Unexpected failure", cause));
+                }
+            }
+            catch (InterruptedException e) {
+                // Cannot happen, task is already done
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String mName;
+
+        public DaemonThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, mName);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private final RpcClient mRpcClient;
+    private final ThreadPoolExecutor mExecutor;
+    private final ScheduledExecutorService mWatchdog;
+    private RpcTask<?> mCurrentTask = null;
+
+    public AsyncRpcClient() {
+        this(new RpcClient());
+    }
+
+    /**
+     * Creates asynchronous front end of RpcClient; the RpcClient must not be used
+     * directly anymore afterwards.
+     * @param rpcClient the client performing the operations
+     */
+    public AsyncRpcClient(RpcClient rpcClient) {
+        mRpcClient = rpcClient;
+        // Single worker thread, RpcClient can perform one operation at a time
+        mExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(TAG));
+        mWatchdog = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(TAG + "Watchdog"));
+    }
+
+    /**
+     * Closes the connection and stops the worker thread. Queued operations are cancelled,
+     * the running one is aborted. No operation can be submitted afterwards.
+     */
+    public synchronized void shutdown() {
+        if (mExecutor.isShutdown()) return;  // Already done
+        ArrayList<Runnable> queued = new ArrayList<Runnable>();
+        mExecutor.getQueue().drainTo(queued);
+        for (Runnable task: queued) {
+            ((RpcTask<?>)task).cancel(false);
+        }
+        if (mCurrentTask != null) {
+            abort(mCurrentTask, false);
+        }
+        // Connection is closed by worker thread, as the last task
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mRpcClient.close();
+                mWatchdog.shutdownNow();
+            }
+        });
+        mExecutor.shutdown();
+    }
+
+    private synchronized void abort(RpcTask<?> task, boolean timedOut) {
+        if (mCurrentTask != task) return;  // not running anymore (or not yet)
+        task.mAborted = true;
+        task.mTimedOut = timedOut;
+        mRpcClient.abort();
+    }
+
+    private <T> Future<T> submit(final String name, final int deadline, final boolean needsConnection, final Operation<T> operation, Callback<T> callback) {
+        final long submitted = System.nanoTime();
+        final RpcTask<T> task = new RpcTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws RpcClientFailedException {
+                return perform(name, submitted + deadline * 1000000L, needsConnection, operation);
+            }
+        }, callback);
+        mExecutor.execute(task);
+        return task;
+    }
+
+    private <T> T perform(String name, long deadlineAt, boolean needsConnection, Operation<T> operation) throws RpcClientFailedException {
+        // Remaining time to deadline, the operation could wait in queue behind slow ones
+        final int remaining = (int)((deadlineAt - System.nanoTime()) / 1000000L);
+        if (remaining <= 0) {
+            throw new ConnectionFailedException("Deadline exceeded in " + name + "() while queued");
+        }
+        if (needsConnection && !mRpcClient.isConnected()) {
+            throw new ConnectionFailedException("Not connected");
+        }
+        final RpcTask<?> task;
+        synchronized (this) {
+            task = mCurrentTask;
+        }
+        mRpcClient.setReadTimeout(remaining);
+        ScheduledFuture<?> watchdog = mWatchdog.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (DebugFlags.DEBUG) Log.d(TAG, "Deadline of operation expired");
+                abort(task, true);
+            }
+        }, remaining, TimeUnit.MILLISECONDS);
+        boolean readTimedOut = false;
+        try {
+            return operation.perform(mRpcClient);
+        }
+        catch (ConnectionFailedException e) {
+            boolean timedOut;
+            synchronized (this) {
+                timedOut = task.mTimedOut;
+            }
+            if (e.getCause() instanceof SocketTimeoutException) {
+                readTimedOut = true;
+                // Read timed out before watchdog fired: either by the deadline (the limit of read timeout),
+                // or by the adaptive timeout of stalled host
+                if (System.nanoTime() >= deadlineAt - DEADLINE_TOLERANCE) timedOut = true;
+            }
+            if (timedOut) {
+                throw new ConnectionFailedException("Deadline exceeded in " + name + "()", e);
+            }
+            throw e;
+        }
+        finally {
+            watchdog.cancel(false);
+            boolean aborted;
+            synchronized (this) {
+                aborted = task.mAborted;
+            }
+            if (aborted || readTimedOut) {
+                // The late reply would be taken as reply to next request,
+                // so the connection cannot be used anymore
+                mRpcClient.close();
+            }
+        }
+    }
+
+    /*
+     * Methods for connection - opening/closing/authorization
+     */
+
+    /**
+     * @see RpcClient#open(String, int)
+     */
+    public Future<Void> open(final String address, final int port, int deadline, Callback<Void> callback) {
+        return submit("open", deadline, false, new Operation<Void>() {
+            @Override
+            public Void perform(RpcClient rpcClient) throws RpcClientFailedException {
+                rpcClient.open(address, port);
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#close()
+     */
+    public Future<Void> close(Callback<Void> callback) {
+        return submit("close", DEFAULT_DEADLINE, false, new Operation<Void>() {
+            @Override
+            public Void perform(RpcClient rpcClient) {
+                rpcClient.close();
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#authorize(String)
+     */
+    public Future<Void> authorize(final String password, int deadline, Callback<Void> callback) {
+        return submit("authorize", deadline, true, new Operation<Void>() {
+            @Override
+            public Void perform(RpcClient rpcClient) throws RpcClientFailedException {
+                rpcClient.authorize(password);
+                return null;
+            }
+        }, callback);
+    }
+
+    /*
+     * GUI RPC calls
+     */
+
+    /**
+     * @see RpcClient#execute(RpcBatch)
+     */
+    public Future<RpcBatch> execute(final RpcBatch batch, int deadline, Callback<RpcBatch> callback) {
+        return submit("execute", deadline, true, new Operation<RpcBatch>() {
+            @Override
+            public RpcBatch perform(RpcClient rpcClient) throws RpcClientFailedException {
+                rpcClient.execute(batch);
+                return batch;
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#exchangeVersions()
+     */
+    public Future<VersionInfo> exchangeVersions(int deadline, Callback<VersionInfo> callback) {
+        return submit("exchangeVersions", deadline, true, new Operation<VersionInfo>() {
+            @Override
+            public VersionInfo perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.exchangeVersions();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#getCcStatus()
+     */
+    public Future<CcStatus> getCcStatus(int deadline, Callback<CcStatus> callback) {
+        return submit("getCcStatus", deadline, true, new Operation<CcStatus>() {
+            @Override
+            public CcStatus perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.getCcStatus();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#getFileTransfers()
+     */
+    public Future<Vector<Transfer>> getFileTransfers(int deadline, Callback<Vector<Transfer>> callback) {
+        return submit("getFileTransfers", deadline, true, new Operation<Vector<Transfer>>() {
+            @Override
+            public Vector<Transfer> perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.getFileTransfers();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#getHostInfo()
+     */
+    public Future<HostInfo> getHostInfo(int deadline, Callback<HostInfo> callback) {
+        return submit("getHostInfo", deadline, true, new Operation<HostInfo>() {
+            @Override
+            public HostInfo perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.getHostInfo();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#getMessageCount()
+     */
+    public Future<Integer> getMessageCount(int deadline, Callback<Integer> callback) {
+        return submit("getMessageCount", deadline, true, new Operation<Integer>() {
+            @Override
+            public Integer perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.getMessageCount();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#getMessages(int)
+     */
+    public Future<Vector<Message>> getMessages(final int seqNo, int deadline, Callback<Vector<Message>> callback) {
+        return submit("getMessages", deadline, true, new Operation<Vector<Message>>() {
+            @Override
+            public Vector<Message> perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.getMessages(seqNo);
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#getProjectStatus()
+     */
+    public Future<Vector<Project>> getProjectStatus(int deadline, Callback<Vector<Project>> callback) {
+        return submit("getProjectStatus", deadline, true, new Operation<Vector<Project>>() {
+            @Override
+            public Vector<Project> perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.getProjectStatus();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#getActiveResults()
+     */
+    public Future<Vector<Result>> getActiveResults(int deadline, Callback<Vector<Result>> callback) {
+        return submit("getActiveResults", deadline, true, new Operation<Vector<Result>>() {
+            @Override
+            public Vector<Result> perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.getActiveResults();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#getResults()
+     */
+    public Future<Vector<Result>> getResults(int deadline, Callback<Vector<Result>> callback) {
+        return submit("getResults", deadline, true, new Operation<Vector<Result>>() {
+            @Override
+            public Vector<Result> perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.getResults();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#getState()
+     */
+    public Future<CcState> getState(int deadline, Callback<CcState> callback) {
+        return submit("getState", deadline, true, new Operation<CcState>() {
+            @Override
+            public CcState perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.getState();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#networkAvailable()
+     */
+    public Future<Boolean> networkAvailable(int deadline, Callback<Boolean> callback) {
+        return submit("networkAvailable", deadline, true, new Operation<Boolean>() {
+            @Override
+            public Boolean perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.networkAvailable();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#projectOp(int, String)
+     */
+    public Future<Boolean> projectOp(final int operation, final String projectUrl, int deadline, Callback<Boolean> callback) {
+        return submit("projectOp", deadline, true, new Operation<Boolean>() {
+            @Override
+            public Boolean perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.projectOp(operation, projectUrl);
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#resultOp(int, String, String)
+     */
+    public Future<Boolean> resultOp(final int operation, final String projectUrl, final String taskName, int deadline, Callback<Boolean> callback) {
+        return submit("resultOp", deadline, true, new Operation<Boolean>() {
+            @Override
+            public Boolean perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.resultOp(operation, projectUrl, taskName);
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#quit()
+     */
+    public Future<Boolean> quit(int deadline, Callback<Boolean> callback) {
+        return submit("quit", deadline, true, new Operation<Boolean>() {
+            @Override
+            public Boolean perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.quit();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#runBenchmarks()
+     */
+    public Future<Boolean> runBenchmarks(int deadline, Callback<Boolean> callback) {
+        return submit("runBenchmarks", deadline, true, new Operation<Boolean>() {
+            @Override
+            public Boolean perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.runBenchmarks();
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#setGpuMode(int, double)
+     */
+    public Future<Boolean> setGpuMode(final int mode, final double duration, int deadline, Callback<Boolean> callback) {
+        return submit("setGpuMode", deadline, true, new Operation<Boolean>() {
+            @Override
+            public Boolean perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.setGpuMode(mode, duration);
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#setNetworkMode(int, double)
+     */
+    public Future<Boolean> setNetworkMode(final int mode, final double duration, int deadline, Callback<Boolean> callback) {
+        return submit("setNetworkMode", deadline, true, new Operation<Boolean>() {
+            @Override
+            public Boolean perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.setNetworkMode(mode, duration);
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#setRunMode(int, double)
+     */
+    public Future<Boolean> setRunMode(final int mode, final double duration, int deadline, Callback<Boolean> callback) {
+        return submit("setRunMode", deadline, true, new Operation<Boolean>() {
+            @Override
+            public Boolean perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.setRunMode(mode, duration);
+            }
+        }, callback);
+    }
+
+    /**
+     * @see RpcClient#transferOp(int, String, String)
+     */
+    public Future<Boolean> transferOp(final int operation, final String projectUrl, final String fileName, int deadline, Callback<Boolean> callback) {
+        return submit("transferOp", deadline, true, new Operation<Boolean>() {
+            @Override
+            public Boolean perform(RpcClient rpcClient) throws RpcClientFailedException {
+                return rpcClient.transferOp(operation, projectUrl, fileName);
+            }
+        }, callback);
+    }
+}
@@ -0,0 +1,306 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+
+public class BaseParser extends DefaultHandler {
+    // Powers of ten exactly representable as double/float, for the fast path of decoding
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] POW10F = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final long MAX_EXACT_FLOAT = 1L << 24;
+
+    protected StringBuilder mCurrentElement = new StringBuilder();
+    protected boolean mElementStarted = false;
+    protected boolean mUnauthorized = false;
+    // Canonical instances of repeated values, see currentSymbol()
+    protected SymbolTable mSymbols = null;
+
+    /**
+     * Sets the table of canonical instances for the repeated values (e.g. project URL)
+     * @param symbols the table shared by the parsers of the session, or null for none
+     */
+    public void setSymbolTable(SymbolTable symbols) {
+        mSymbols = symbols;
+    }
+
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        super.characters(ch, start, length);
+        if (mElementStarted) {
+            // put it into StringBuilder
+            if (mCurrentElement.length() == 0) {
+                // still empty - trim leading white-spaces
+                int newStart = start;
+                int newLength = length;
+                for ( ; newLength > 0; ++newStart, --newLength) {
+                    if (!Character.isWhitespace(ch[newStart])) {
+                        // First non-white-space character
+                        mCurrentElement.append(ch, newStart, newLength);
+                        break;
+                    }
+                }
+            }
+            else {
+                // Non-empty - add everything
+                mCurrentElement.append(ch, start, length);
+            }
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        super.endElement(uri, localName, qName);
+        if (localName.equalsIgnoreCase("unauthorized")) {
+            // We received <unauthorized/>
+            mUnauthorized = true;
+        }
+    }
+
+    protected void trimEnd() {
+        int length = mCurrentElement.length();
+        // Trim trailing spaces
+        for (int i = length - 1; i >= 0; --i) {
+            if (!Character.isWhitespace(mCurrentElement.charAt(i))) {
+                // All trailing white-spaces are skipped, i is position of last character
+                mCurrentElement.setLength(i+1);
+                break;
+            }
+        }
+    }
+
+    /*
+     * Decoding of numeric values directly from mCurrentElement, without creating String.
+     * The usual formats sent by BOINC client (integers, "%f" and exponent formats) are decoded
+     * in place; anything else (e.g. too many digits to be decoded exactly) falls back to the
+     * standard parse methods, so the results and NumberFormatException are the same as of
+     * Integer.parseInt(), Double.parseDouble() and Float.parseFloat().
+     */
+
+    // Result of decodeDecimal(): sign, mantissa and decimal exponent
+    private boolean mNegative;
+    private long mMantissa;
+    private int mExponent;
+
+    /**
+     * @return mCurrentElement decoded as int, like {@link Integer#parseInt(String)}
+     * @throws NumberFormatException if the value is not valid int
+     */
+    protected int currentInt() {
+        final StringBuilder sb = mCurrentElement;
+        final int length = sb.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (sb.charAt(0) == '-' || sb.charAt(0) == '+')) {
+            negative = (sb.charAt(0) == '-');
+            i = 1;
+        }
+        if (i == length || length - i > 9) {
+            // Empty or possibly out of range
+            return Integer.parseInt(sb.toString());
+        }
+        int value = 0;
+        for (; i < length; ++i) {
+            final int digit = sb.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(sb.toString());
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return mCurrentElement decoded as double, like {@link Double#parseDouble(String)}
+     * @throws NumberFormatException if the value is not valid number
+     */
+    protected double currentDouble() {
+        if (decodeDecimal() && mMantissa < MAX_EXACT_DOUBLE) {
+            // Both mantissa and power of ten are exact, so single multiplication/division
+            // is correctly rounded (the same as parseDouble)
+            final double value = (double)mMantissa;
+            final double result;
+            if (mExponent == 0) {
+                result = value;
+            }
+            else if (mExponent > 0 && mExponent < POW10.length) {
+                result = value * POW10[mExponent];
+            }
+            else if (mExponent < 0 && -mExponent < POW10.length) {
+                result = value / POW10[-mExponent];
+            }
+            else {
+                return Double.parseDouble(mCurrentElement.toString());
+            }
+            return mNegative ? -result : result;
+        }
+        return Double.parseDouble(mCurrentElement.toString());
+    }
+
+    /**
+     * @return mCurrentElement decoded as float, like {@link Float#parseFloat(String)}
+     * @throws NumberFormatException if the value is not valid number
+     */
+    protected float currentFloat() {
+        if (decodeDecimal() && mMantissa < MAX_EXACT_FLOAT) {
+            final float value = (float)mMantissa;
+            final float result;
+            if (mExponent == 0) {
+                result = value;
+            }
+            else if (mExponent > 0 && mExponent < POW10F.length) {
+                result = value * POW10F[mExponent];
+            }
+            else if (mExponent < 0 && -mExponent < POW10F.length) {
+                result = value / POW10F[-mExponent];
+            }
+            else {
+                return Float.parseFloat(mCurrentElement.toString());
+            }
+            return mNegative ? -result : result;
+        }
+        return Float.parseFloat(mCurrentElement.toString());
+    }
+
+    /**
+     * Decodes the values sent as floating point, but stored as long (e.g. timestamps)
+     * @return mCurrentElement decoded as double and truncated to long,
+     *     like {@code (long)Double.parseDouble()}
+     * @throws NumberFormatException if the value is not valid number
+     */
+    protected long currentLong() {
+        return (long)currentDouble();
+    }
+
+    /**
+     * @return false if mCurrentElement is "0", true otherwise (flags like {@code <suspended_via_gui>})
+     */
+    protected boolean currentFlag() {
+        return !(mCurrentElement.length() == 1 && mCurrentElement.charAt(0) == '0');
+    }
+
+    /**
+     * Returns mCurrentElement as String, reusing the given previous value if it is the same
+     * (e.g. the name of the same task from the previous refresh), so no new String is created
+     * @param previous the previous value of the field, can be null
+     * @return previous if it has the same content as mCurrentElement, new String otherwise
+     */
+    protected String currentString(String previous) {
+        final StringBuilder sb = mCurrentElement;
+        final int length = sb.length();
+        if (previous != null && previous.length() == length) {
+            int i = 0;
+            while (i < length && previous.charAt(i) == sb.charAt(i)) ++i;
+            if (i == length) return previous;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns mCurrentElement as String, for the values repeated in the replies (e.g. project URL).
+     * The canonical instance from symbol table is returned if the table is set, without creating
+     * new String if the value is already there; otherwise the same as {@link #currentString(String)}.
+     * @param previous the previous value of the field, can be null
+     * @return the symbol, or String as returned by {@link #currentString(String)}
+     */
+    protected String currentSymbol(String previous) {
+        if (mSymbols != null) return mSymbols.intern(mCurrentElement);
+        return currentString(previous);
+    }
+
+    /**
+     * Resets the state of parser, so it can be used for parsing of the next reply
+     */
+    protected void reset() {
+        mCurrentElement.setLength(0);
+        mElementStarted = false;
+        mUnauthorized = false;
+    }
+
+    /**
+     * Decodes mCurrentElement as decimal number [sign]digits[.digits][(e|E)[sign]digits]
+     * to mMantissa (absolute value), mExponent and mNegative
+     * @return true if decoded, false if the format is not supported by the fast path
+     */
+    private boolean decodeDecimal() {
+        final StringBuilder sb = mCurrentElement;
+        final int length = sb.length();
+        int i = 0;
+        mNegative = false;
+        if (length > 0 && (sb.charAt(0) == '-' || sb.charAt(0) == '+')) {
+            mNegative = (sb.charAt(0) == '-');
+            i = 1;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean dot = false;
+        for (; i < length; ++i) {
+            final char c = sb.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa > (Long.MAX_VALUE - 9) / 10) {
+                    // Too many digits
+                    return false;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                ++digits;
+                if (dot) --exponent;
+            }
+            else if (c == '.' && !dot) {
+                dot = true;
+            }
+            else {
+                break;
+            }
+        }
+        if (digits == 0) return false;
+        if (i < length) {
+            // Only exponent can follow
+            final char c = sb.charAt(i);
+            if (c != 'e' && c != 'E') return false;
+            ++i;
+            boolean negativeExponent = false;
+            if (i < length && (sb.charAt(i) == '-' || sb.charAt(i) == '+')) {
+                negativeExponent = (sb.charAt(i) == '-');
+                ++i;
+            }
+            if (i == length || length - i > 3) return false;
+            int e = 0;
+            for (; i < length; ++i) {
+                final int digit = sb.charAt(i) - '0';
+                if (digit < 0 || digit > 9) return false;
+                e = e * 10 + digit;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        mMantissa = mantissa;
+        mExponent = exponent;
+        return true;
+    }
+}
@@ -23,6 +23,16 @@ import java.util.Vector;
 
 
 public class CcState {
+    // Sections of state, to be combined for the projection of get_state (see RpcClient.getState(int))
+    // The version info is always parsed, the sections not requested are left null
+    public static final int VERSION_ONLY = 0;
+    public static final int HOST_INFO = 0x01;
+    public static final int PROJECTS = 0x02;
+    public static final int APPS = 0x04;
+    public static final int WORKUNITS = 0x08;
+    public static final int RESULTS = 0x10;
+    public static final int ALL = HOST_INFO | PROJECTS | APPS | WORKUNITS | RESULTS;
+
     public VersionInfo version_info;
     public HostInfo host_info;
     public Vector<Project> projects = new Vector<Project>();
@@ -0,0 +1,341 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+public class CcStateParser extends BaseParser {
+    private static final String TAG = "CcStateParser";
+
+    // Elements handled by this parser, see ELEMENTS
+    private static final int HOST_INFO = 1;
+    private static final int PROJECT = 2;
+    private static final int APP = 3;
+    private static final int WORKUNIT = 4;
+    private static final int RESULT = 5;
+    private static final int CORE_CLIENT_MAJOR_VERSION = 6;
+    private static final int CORE_CLIENT_MINOR_VERSION = 7;
+    private static final int CORE_CLIENT_RELEASE = 8;
+
+    private static final TagTable ELEMENTS = new TagTable()
+            .add("host_info", HOST_INFO)
+            .add("project", PROJECT)
+            .add("app", APP)
+            .add("workunit", WORKUNIT)
+            .add("result", RESULT)
+            .add("core_client_major_version", CORE_CLIENT_MAJOR_VERSION)
+            .add("core_client_minor_version", CORE_CLIENT_MINOR_VERSION)
+            .add("core_client_release", CORE_CLIENT_RELEASE);
+
+    private CcState mCcState = new CcState();
+    private VersionInfo mVersionInfo = new VersionInfo();
+    // Sub-parsers are created only for the sections in projection
+    private HostInfoParser mHostInfoParser = null;
+    private ProjectsParser mProjectsParser = null;
+    private AppsParser mAppsParser = null;
+    private WorkunitsParser mWorkunitsParser = null;
+    private ResultsParser mResultsParser = null;
+    // Sub-parser of the section we are inside (e.g. <result>), all events are passed only to it
+    private BaseParser mSubParser = null;
+    private int mSubParserElement = TagTable.UNKNOWN;
+    // Depth inside the skipped section (not in projection), 0 when not skipping
+    private int mSkipDepth = 0;
+
+    /**
+     * Creates parser of complete state
+     */
+    public CcStateParser() {
+        this(CcState.ALL);
+    }
+
+    /**
+     * Creates parser of projection of state
+     *
+     * @param sections the sections to be parsed, combination of
+     *                 {@link CcState#HOST_INFO}, {@link CcState#PROJECTS}, {@link CcState#APPS},
+     *                 {@link CcState#WORKUNITS} and {@link CcState#RESULTS}; or {@link CcState#VERSION_ONLY}
+     */
+    public CcStateParser(int sections) {
+        if ((sections & CcState.HOST_INFO) != 0) mHostInfoParser = new HostInfoParser();
+        if ((sections & CcState.PROJECTS) != 0) mProjectsParser = new ProjectsParser();
+        if ((sections & CcState.APPS) != 0) mAppsParser = new AppsParser();
+        if ((sections & CcState.WORKUNITS) != 0) mWorkunitsParser = new WorkunitsParser();
+        if ((sections & CcState.RESULTS) != 0) mResultsParser = new ResultsParser();
+    }
+
+    public final CcState getCcState() throws AuthorizationFailedException {
+        if (mUnauthorized) throw new AuthorizationFailedException();
+        return mCcState;
+    }
+
+    /**
+     * Parse the RPC result (state) and generate vector of projects info
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @return connected client state
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     */
+    public static CcState parse(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
+        return parse(rpcResult, CcState.ALL);
+    }
+
+    /**
+     * Parse the projection of RPC result (state); the sections not requested are skipped
+     * without creating any objects and they are left null in the returned state
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @param sections the sections to be parsed, see {@link #CcStateParser(int)}
+     * @return connected client state
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     */
+    public static CcState parse(String rpcResult, int sections) throws AuthorizationFailedException, InvalidDataReceivedException {
+        return parse(rpcResult, sections, null);
+    }
+
+    /**
+     * Parse the projection of RPC result (state), sharing the repeated values by the given symbol table
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @param sections the sections to be parsed, see {@link #CcStateParser(int)}
+     * @param symbols the symbol table of session (see {@link #setSymbolTable(SymbolTable)}), or null
+     * @return connected client state
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     */
+    public static CcState parse(String rpcResult, int sections, SymbolTable symbols) throws AuthorizationFailedException, InvalidDataReceivedException {
+        try {
+            CcStateParser parser = new CcStateParser(sections);
+            parser.setSymbolTable(symbols);
+            Xml.parse(rpcResult, parser);
+            return parser.getCcState();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            throw new InvalidDataReceivedException("Malformed XML while parsing <cc_state>", e);
+        }
+
+    }
+
+    /**
+     * Parse the RPC result (state) directly from the stream, while it is being received
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @return connected client state
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public static CcState parse(InputStream rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        return parse(rpcResult, CcState.ALL);
+    }
+
+    /**
+     * Parse the projection of RPC result (state) directly from the stream, while it is being received
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @param sections the sections to be parsed, see {@link #CcStateParser(int)}
+     * @return connected client state
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public static CcState parse(InputStream rpcResult, int sections) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        return parse(rpcResult, sections, null);
+    }
+
+    /**
+     * Parse the projection of RPC result (state) directly from the stream, sharing the repeated
+     * values by the given symbol table
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @param sections the sections to be parsed, see {@link #CcStateParser(int)}
+     * @param symbols the symbol table of session (see {@link #setSymbolTable(SymbolTable)}), or null
+     * @return connected client state
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public static CcState parse(InputStream rpcResult, int sections, SymbolTable symbols) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        try {
+            CcStateParser parser = new CcStateParser(sections);
+            parser.setSymbolTable(symbols);
+            Xml.parse(rpcResult, Xml.Encoding.UTF_8, parser);
+            return parser.getCcState();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML in received stream");
+            throw new InvalidDataReceivedException("Malformed XML while parsing <cc_state>", e);
+        }
+    }
+
+    @Override
+    public void setSymbolTable(SymbolTable symbols) {
+        super.setSymbolTable(symbols);
+        // The values are parsed by sub-parsers
+        if (mHostInfoParser != null) mHostInfoParser.setSymbolTable(symbols);
+        if (mProjectsParser != null) mProjectsParser.setSymbolTable(symbols);
+        if (mAppsParser != null) mAppsParser.setSymbolTable(symbols);
+        if (mWorkunitsParser != null) mWorkunitsParser.setSymbolTable(symbols);
+        if (mResultsParser != null) mResultsParser.setSymbolTable(symbols);
+    }
+
+    @Override
+    public void endDocument() {
+        // Commit sub-parsers data to resulting CcState
+        mCcState.version_info = mVersionInfo;
+        if (mHostInfoParser != null) {
+            try {
+                mCcState.host_info = mHostInfoParser.getHostInfo();
+            }
+            catch (AuthorizationFailedException e) {
+                mUnauthorized = true;
+                // Abort further actions
+                return;
+            }
+            catch (InvalidDataReceivedException e) {
+                // The tag <host_info> is not mandatory in <cc_state>
+                // It could be missing
+                mCcState.host_info = null;
+            }
+        }
+        try {
+            mCcState.projects = (mProjectsParser != null) ? mProjectsParser.getProjects() : null;
+            mCcState.apps = (mAppsParser != null) ? mAppsParser.getApps() : null;
+            mCcState.workunits = (mWorkunitsParser != null) ? mWorkunitsParser.getWorkunits() : null;
+            mCcState.results = (mResultsParser != null) ? mResultsParser.getResults() : null;
+        }
+        catch (AuthorizationFailedException e) {
+            mUnauthorized = true;
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        if (mSkipDepth > 0) {
+            // Inside section which is not in projection
+            ++mSkipDepth;
+            return;
+        }
+        super.startElement(uri, localName, qName, attributes);
+        if (mSubParser != null) {
+            // Inside section - the sub-parser handles everything until the section is closed
+            mSubParser.startElement(uri, localName, qName, attributes);
+            return;
+        }
+        final int element = ELEMENTS.get(localName);
+        switch (element) {
+        case HOST_INFO:
+            // Just stepped inside <host_info>
+            mSubParser = mHostInfoParser;
+            break;
+        case PROJECT:
+            // Just stepped inside <project>
+            mSubParser = mProjectsParser;
+            break;
+        case APP:
+            // Just stepped inside <app>
+            mSubParser = mAppsParser;
+            break;
+        case WORKUNIT:
+            // Just stepped inside <workunit>
+            mSubParser = mWorkunitsParser;
+            break;
+        case RESULT:
+            // Just stepped inside <result>
+            mSubParser = mResultsParser;
+            break;
+        case CORE_CLIENT_MAJOR_VERSION:
+        case CORE_CLIENT_MINOR_VERSION:
+        case CORE_CLIENT_RELEASE:
+            // VersionInfo elements
+            mElementStarted = true;
+            mCurrentElement.setLength(0);
+            break;
+        }
+        if (mSubParser != null) {
+            mSubParserElement = element;
+            mSubParser.startElement(uri, localName, qName, attributes);
+        }
+        else if (element >= HOST_INFO && element <= RESULT) {
+            // Section not in projection - skip it up to its closing tag
+            mSkipDepth = 1;
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (mSkipDepth > 0) return;
+        if (mSubParser != null) {
+            // We are inside section (e.g. <result>)
+            mSubParser.characters(ch, start, length);
+        }
+        else {
+            // VersionInfo elements are handled in super.characters()
+            super.characters(ch, start, length);
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (mSkipDepth > 0) {
+            --mSkipDepth;
+            return;
+        }
+        super.endElement(uri, localName, qName);
+        if (mSubParser != null) {
+            // We are inside section (e.g. <result>)
+            // parse it by sub-parser in any case (must parse also closing element!)
+            mSubParser.endElement(uri, localName, qName);
+            if (ELEMENTS.get(localName) == mSubParserElement) {
+                // Closing tag of section
+                mSubParser = null;
+                mSubParserElement = TagTable.UNKNOWN;
+            }
+            return;
+        }
+        try {
+            if (mElementStarted) {
+                trimEnd();
+                // VersionInfo?
+                switch (ELEMENTS.get(localName)) {
+                case CORE_CLIENT_MAJOR_VERSION:
+                    mVersionInfo.major = currentInt();
+                    break;
+                case CORE_CLIENT_MINOR_VERSION:
+                    mVersionInfo.minor = currentInt();
+                    break;
+                case CORE_CLIENT_RELEASE:
+                    mVersionInfo.release = currentInt();
+                    break;
+                }
+                mElementStarted = false;
+            }
+        }
+        catch (NumberFormatException e) {
+            Log.i(TAG, "Exception when decoding " + localName);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+public class CcStatusParser extends BaseParser {
+    private static final String TAG = "CcStatusParser";
+
+    // Elements handled by this parser, see ELEMENTS
+    private static final int CC_STATUS = 1;
+    private static final int TASK_MODE = 2;
+    private static final int TASK_MODE_PERM = 3;
+    private static final int TASK_MODE_DELAY = 4;
+    private static final int GPU_MODE = 5;
+    private static final int GPU_MODE_PERM = 6;
+    private static final int GPU_MODE_DELAY = 7;
+    private static final int NETWORK_MODE = 8;
+    private static final int NETWORK_MODE_PERM = 9;
+    private static final int NETWORK_MODE_DELAY = 10;
+    private static final int NETWORK_STATUS = 11;
+
+    private static final TagTable ELEMENTS = new TagTable()
+            .add("cc_status", CC_STATUS)
+            .add("task_mode", TASK_MODE)
+            .add("task_mode_perm", TASK_MODE_PERM)
+            .add("task_mode_delay", TASK_MODE_DELAY)
+            .add("gpu_mode", GPU_MODE)
+            .add("gpu_mode_perm", GPU_MODE_PERM)
+            .add("gpu_mode_delay", GPU_MODE_DELAY)
+            .add("network_mode", NETWORK_MODE)
+            .add("network_mode_perm", NETWORK_MODE_PERM)
+            .add("network_mode_delay", NETWORK_MODE_DELAY)
+            .add("network_status", NETWORK_STATUS);
+
+    private CcStatus mCcStatus;
+
+
+    public final CcStatus getCcStatus() throws AuthorizationFailedException, InvalidDataReceivedException {
+        if (mUnauthorized) throw new AuthorizationFailedException();
+        if (null == mCcStatus) throw new InvalidDataReceivedException();
+        return mCcStatus;
+    }
+
+    /**
+     * Parse the RPC result (cc_status)
+     * @param rpcResult String returned by RPC call of core client
+     * @return CcStatus
+     * @throws RpcClientFailedException in case of error:
+     * <ul>
+     * <li>{@link AuthorizationFailedException} in case of unauthorized</li>
+     * <li>{@link InvalidDataReceivedException} in case XML cannot be parsed
+     *     or does not contain valid {@code <cc_status>} tag</li>
+     * </ul>
+     */
+    public static CcStatus parse(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
+        try {
+            CcStatusParser parser = new CcStatusParser();
+            Xml.parse(rpcResult, parser);
+            return parser.getCcStatus();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            throw new InvalidDataReceivedException("Malformed XML while parsing <cc_status>");
+        }
+    }
+
+    /**
+     * Parse the RPC result (cc_status) directly from the stream, while it is being received
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @return CcStatus
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public static CcStatus parse(InputStream rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        try {
+            CcStatusParser parser = new CcStatusParser();
+            Xml.parse(rpcResult, Xml.Encoding.UTF_8, parser);
+            return parser.getCcStatus();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML in received stream");
+            throw new InvalidDataReceivedException("Malformed XML while parsing <cc_status>", e);
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        super.startElement(uri, localName, qName, attributes);
+        if (ELEMENTS.get(localName) == CC_STATUS) {
+            if (mCcStatus != null) {
+                // previous <cc_status> not closed - dropping it!
+                Log.i(TAG, "Dropping unfinished <cc_status> data");
+            }
+            mCcStatus = new CcStatus();
+        }
+        else {
+            // Another element, hopefully primitive and not constructor
+            // (although unknown constructor does not hurt, because there will be primitive start anyway)
+            mElementStarted = true;
+            mCurrentElement.setLength(0);
+        }
+    }
+
+    // Method characters(char[] ch, int start, int length) is implemented by BaseParser,
+    // filling mCurrentElement (including stripping of leading whitespaces)
+    //@Override
+    //public void characters(char[] ch, int start, int length) throws SAXException { }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        super.endElement(uri, localName, qName);
+        try {
+            if (mCcStatus != null) {
+                // We are inside <cc_status>
+                final int element = ELEMENTS.get(localName);
+                if (element == CC_STATUS) {
+                    // Closing tag of <cc_status> - nothing to do at the moment
+                }
+                else if (element != TagTable.UNKNOWN) {
+                    trimEnd();
+                    // Not the closing tag - we decode possible inner tags
+                    switch (element) {
+                    case TASK_MODE:
+                        mCcStatus.task_mode = currentInt();
+                        break;
+                    case TASK_MODE_PERM:
+                        mCcStatus.task_mode_perm = currentInt();
+                        break;
+                    case TASK_MODE_DELAY:
+                        mCcStatus.task_mode_delay = currentDouble();
+                        break;
+//					case TASK_SUSPEND_REASON:
+//						mCcStatus.task_suspend_reason = currentInt();
+//						break;
+                    case GPU_MODE:
+                        mCcStatus.gpu_mode = currentInt();
+                        break;
+                    case GPU_MODE_PERM:
+                        mCcStatus.gpu_mode_perm = currentInt();
+                        break;
+                    case GPU_MODE_DELAY:
+                        mCcStatus.gpu_mode_delay = currentDouble();
+                        break;
+                    case NETWORK_MODE:
+                        mCcStatus.network_mode = currentInt();
+                        break;
+                    case NETWORK_MODE_PERM:
+                        mCcStatus.network_mode_perm = currentInt();
+                        break;
+                    case NETWORK_MODE_DELAY:
+                        mCcStatus.network_mode_delay = currentDouble();
+                        break;
+//					case NETWORK_SUSPEND_REASON:
+//						mCcStatus.network_suspend_reason = currentInt();
+//						break;
+                    case NETWORK_STATUS:
+                        mCcStatus.network_status = currentInt();
+                        break;
+//					case AMS_PASSWORD_ERROR:
+//						if (mCurrentElement.length() > 1) {
+//							mCcStatus.ams_password_error = (0 != currentInt());
+//						}
+//						else {
+//							mCcStatus.ams_password_error = true;
+//						}
+//						break;
+//					case MANAGER_MUST_QUIT:
+//						if (mCurrentElement.length() > 1) {
+//							mCcStatus.manager_must_quit = (0 != currentInt());
+//						}
+//						else {
+//							mCcStatus.manager_must_quit = true;
+//						}
+//						break;
+//					case DISALLOW_ATTACH:
+//						if (mCurrentElement.length() > 1) {
+//							mCcStatus.disallow_attach = (0 != currentInt());
+//						}
+//						else {
+//							mCcStatus.disallow_attach = true;
+//						}
+//						break;
+//					case SIMPLE_GUI_ONLY:
+//						if (mCurrentElement.length() > 1) {
+//							mCcStatus.simple_gui_only = (0 != currentInt());
+//						}
+//						else {
+//							mCcStatus.simple_gui_only = true;
+//						}
+//						break;
+                    }
+                }
+            }
+        }
+        catch (NumberFormatException e) {
+            Log.i(TAG, "Exception when decoding " + localName);
+        }
+        mElementStarted = false;
+    }
+}
@@ -0,0 +1,39 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+
+/**
+ * Debugging switches of the library.
+ * <p>
+ * The library does not depend on Android build, so it does not have generated BuildConfig;
+ * all switches are off by default and the platform (e.g. {@code AndroidBackends}) sets them
+ * from its own build configuration at start-up.
+ */
+public final class DebugFlags {
+    /** Debug logs */
+    public static boolean DEBUG = false;
+    /** Logs of received data (very verbose) */
+    public static boolean DEBUG_DATA = false;
+    /** Logs of durations of RPC calls and parsing */
+    public static boolean DEBUG_PERFORMANCE = false;
+
+    private DebugFlags() {}
+}
@@ -0,0 +1,342 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Opens TCP connections to hosts, which can have more addresses.
+ * <p>
+ * The resolved addresses are cached for {@link #DEFAULT_TTL} (or TTL given to constructor),
+ * so repeated connects to the same host do not wait for DNS.
+ * When the host has more addresses, the connects are attempted in parallel:
+ * the first attempt starts immediately, next ones are started with delay
+ * of {@link #ATTEMPT_DELAY} (or immediately when previous attempt failed), with IPv6 and
+ * IPv4 addresses alternating ("Happy Eyeballs"). The first established connection
+ * is used and the others are closed. So the unreachable address (e.g. broken IPv6)
+ * does not block the connect until timeout.
+ * <p>
+ * When all attempts failed, the cached addresses are dropped, so the host is resolved again
+ * on next connect (the addresses could be stale).
+ * <p>
+ * The connect can be cancelled from other thread through its {@link Attempt}.
+ */
+public class HostConnector {
+    private static final String TAG = "HostConnector";
+
+    public static final long DEFAULT_TTL = 300000;  // 5 minutes
+    public static final int ATTEMPT_DELAY = 250;    // 250 ms
+
+    private static class CachedAddresses {
+        public final InetAddress[] addresses;
+        public final long expiration;
+
+        public CachedAddresses(InetAddress[] addresses, long expiration) {
+            this.addresses = addresses;
+            this.expiration = expiration;
+        }
+    }
+
+    /**
+     * Single connect to host (all its addresses), which can be cancelled from other thread.
+     * The object is used for one connect only.
+     */
+    public static final class Attempt {
+        // State of parallel connects to addresses; all fields guarded by this
+        private Socket winner = null;
+        private boolean finished = false;
+        private boolean cancelled = false;
+        private int failed = 0;
+        private IOException lastError = null;
+        private ArrayList<Socket> sockets = new ArrayList<Socket>();
+
+        /**
+         * Cancels the connect: the sockets being connected are closed and
+         * {@link HostConnector#connect(String, int, int, Attempt)} fails with
+         * {@link InterruptedIOException}. Also the already established connection is closed,
+         * if the cancel comes just after it was returned. When called before the connect
+         * started, the connect fails immediately. Resolving of host cannot be cancelled.
+         */
+        public synchronized void cancel() {
+            cancelled = true;
+            for (Socket socket: sockets) {
+                closeSocket(socket);
+            }
+            notifyAll();
+        }
+
+        // Registers new socket, so it is closed by cancel(); returns false if already cancelled
+        private synchronized boolean add(Socket socket) {
+            if (cancelled) return false;
+            sockets.add(socket);
+            return true;
+        }
+
+        private synchronized boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final long mTtl;
+    private Map<String, CachedAddresses> mCache = new HashMap<String, CachedAddresses>();
+
+    public HostConnector() {
+        this(DEFAULT_TTL);
+    }
+
+    /**
+     * @param ttl time (in milliseconds) for which the resolved addresses are cached
+     */
+    public HostConnector(long ttl) {
+        mTtl = ttl;
+    }
+
+    /**
+     * Opens the connection to host
+     *
+     * @param host Internet address of host (hostname or IP-address)
+     * @param port port of host
+     * @param timeout timeout of connect in milliseconds
+     * @return connected socket
+     * @throws UnknownHostException if host cannot be resolved
+     * @throws SocketTimeoutException if no connection was established before timeout
+     * @throws IOException if connect failed for all addresses
+     */
+    public Socket connect(String host, int port, int timeout) throws IOException {
+        return connect(host, port, timeout, new Attempt());
+    }
+
+    /**
+     * Opens the connection to host, which can be cancelled by {@link Attempt#cancel()}
+     *
+     * @param host Internet address of host (hostname or IP-address)
+     * @param port port of host
+     * @param timeout timeout of connect in milliseconds
+     * @param attempt the handle of this connect (new one for each connect)
+     * @return connected socket
+     * @throws UnknownHostException if host cannot be resolved
+     * @throws SocketTimeoutException if no connection was established before timeout
+     * @throws InterruptedIOException if the connect was cancelled
+     * @throws IOException if connect failed for all addresses
+     */
+    public Socket connect(String host, int port, int timeout, Attempt attempt) throws IOException {
+        InetAddress[] addresses = resolve(host);
+        try {
+            return connect(addresses, port, timeout, attempt);
+        }
+        catch (InterruptedIOException e) {
+            // Timed out or cancelled - the addresses are not proven stale
+            throw e;
+        }
+        catch (IOException e) {
+            // All addresses failed, they could be stale
+            invalidate(host);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the cached addresses of host
+     * @param host Internet address of host
+     */
+    public synchronized void invalidate(String host) {
+        mCache.remove(host);
+    }
+
+    /**
+     * Drops all cached addresses (e.g. when network changed)
+     */
+    public synchronized void clear() {
+        mCache.clear();
+    }
+
+    InetAddress[] resolve(String host) throws UnknownHostException {
+        synchronized (this) {
+            CachedAddresses cached = mCache.get(host);
+            if (cached != null) {
+                if (System.currentTimeMillis() < cached.expiration) {
+                    return cached.addresses;
+                }
+                mCache.remove(host);
+            }
+        }
+        // Resolve outside of lock - it can take long time
+        InetAddress[] addresses = interleave(InetAddress.getAllByName(host));
+        synchronized (this) {
+            mCache.put(host, new CachedAddresses(addresses, System.currentTimeMillis() + mTtl));
+        }
+        if (DebugFlags.DEBUG) Log.d(TAG, "resolve(" + host + "): " + addresses.length + " address(es)");
+        return addresses;
+    }
+
+    /**
+     * Orders the addresses so IPv6 and IPv4 alternate, starting with the family
+     * of the first address (preferred by resolver)
+     */
+    static InetAddress[] interleave(InetAddress[] addresses) {
+        if (addresses.length <= 1) return addresses;
+        ArrayList<InetAddress> first = new ArrayList<InetAddress>();
+        ArrayList<InetAddress> second = new ArrayList<InetAddress>();
+        boolean firstIsV6 = (addresses[0] instanceof Inet6Address);
+        for (InetAddress address: addresses) {
+            if ((address instanceof Inet6Address) == firstIsV6) {
+                first.add(address);
+            }
+            else {
+                second.add(address);
+            }
+        }
+        InetAddress[] result = new InetAddress[addresses.length];
+        int i = 0;
+        for (int j = 0; j < first.size() || j < second.size(); ++j) {
+            if (j < first.size()) result[i++] = first.get(j);
+            if (j < second.size()) result[i++] = second.get(j);
+        }
+        return result;
+    }
+
+    Socket connect(InetAddress[] addresses, int port, int timeout) throws IOException {
+        return connect(addresses, port, timeout, new Attempt());
+    }
+
+    Socket connect(InetAddress[] addresses, int port, int timeout, Attempt attempt) throws IOException {
+        if (addresses.length == 1) {
+            Socket socket = new Socket();
+            if (!attempt.add(socket)) {
+                throw new InterruptedIOException("connect cancelled");
+            }
+            try {
+                socket.connect(new InetSocketAddress(addresses[0], port), timeout);
+            }
+            catch (IOException e) {
+                closeSocket(socket);
+                if (attempt.isCancelled()) {
+                    throw new InterruptedIOException("connect cancelled");
+                }
+                throw e;
+            }
+            return socket;
+        }
+        return race(addresses, port, timeout, attempt);
+    }
+
+    private Socket race(final InetAddress[] addresses, final int port, final int timeout, final Attempt race) throws IOException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        long nextStart = 0;
+        int started = 0;
+        try {
+            synchronized (race) {
+                while (race.winner == null && !race.cancelled) {
+                    long now = System.currentTimeMillis();
+                    if (now >= deadline) break;
+                    if (started < addresses.length && (now >= nextStart || race.failed == started)) {
+                        startAttempt(race, addresses[started], port, (int)(deadline - now));
+                        ++started;
+                        nextStart = now + ATTEMPT_DELAY;
+                        continue;
+                    }
+                    if (race.failed == addresses.length) break;  // All failed
+                    long wakeUp = (started < addresses.length) ? Math.min(nextStart, deadline) : deadline;
+                    try {
+                        race.wait(Math.max(1, wakeUp - now));
+                    }
+                    catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                race.finished = true;
+                if (race.cancelled) {
+                    throw new InterruptedIOException("connect cancelled");
+                }
+                if (race.winner != null) {
+                    if (DebugFlags.DEBUG) Log.d(TAG, "race(): connected to " + race.winner.getInetAddress() + " after " + started + " attempt(s)");
+                    return race.winner;
+                }
+                if (race.failed == addresses.length && race.lastError != null) {
+                    throw race.lastError;
+                }
+                throw new SocketTimeoutException("connect timed out");
+            }
+        }
+        finally {
+            // Abort the attempts still in progress and close the late connections
+            synchronized (race) {
+                for (Socket socket: race.sockets) {
+                    if (socket != race.winner) {
+                        closeSocket(socket);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void startAttempt(final Attempt race, final InetAddress address, final int port, final int timeout) {
+        final Socket socket = new Socket();
+        race.add(socket);
+        Thread attempt = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    socket.connect(new InetSocketAddress(address, port), timeout);
+                }
+                catch (IOException e) {
+                    synchronized (race) {
+                        ++race.failed;
+                        race.lastError = e;
+                        race.notifyAll();
+                    }
+                    closeSocket(socket);
+                    return;
+                }
+                synchronized (race) {
+                    if (race.winner == null && !race.finished) {
+                        race.winner = socket;
+                        race.notifyAll();
+                        return;
+                    }
+                }
+                // Other attempt was faster
+                closeSocket(socket);
+            }
+        }, TAG);
+        attempt.setDaemon(true);
+        attempt.start();
+    }
+
+    private static void closeSocket(Socket socket) {
+        try {
+            socket.close();
+        }
+        catch (IOException e) {
+            // Nothing to do
+        }
+    }
+}
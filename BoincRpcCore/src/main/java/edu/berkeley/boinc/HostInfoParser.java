@@ -0,0 +1,242 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+public class HostInfoParser extends BaseParser {
+    private static final String TAG = "HostInfoParser";
+
+    // Elements handled by this parser, see ELEMENTS
+    private static final int HOST_INFO = 1;
+    private static final int COUNT = 2;
+    private static final int TIMEZONE = 3;
+    private static final int DOMAIN_NAME = 4;
+    private static final int IP_ADDR = 5;
+    private static final int HOST_CPID = 6;
+    private static final int P_NCPUS = 7;
+    private static final int P_VENDOR = 8;
+    private static final int P_MODEL = 9;
+    private static final int P_FEATURES = 10;
+    private static final int P_FPOPS = 11;
+    private static final int P_IOPS = 12;
+    private static final int P_MEMBW = 13;
+    private static final int P_CALCULATED = 14;
+    private static final int M_NBYTES = 15;
+    private static final int M_CACHE = 16;
+    private static final int M_SWAP = 17;
+    private static final int D_TOTAL = 18;
+    private static final int D_FREE = 19;
+    private static final int OS_NAME = 20;
+    private static final int OS_VERSION = 21;
+
+    private static final TagTable ELEMENTS = new TagTable()
+            .add("host_info", HOST_INFO)
+            .add("count", COUNT)
+            .add("timezone", TIMEZONE)
+            .add("domain_name", DOMAIN_NAME)
+            .add("ip_addr", IP_ADDR)
+            .add("host_cpid", HOST_CPID)
+            .add("p_ncpus", P_NCPUS)
+            .add("p_vendor", P_VENDOR)
+            .add("p_model", P_MODEL)
+            .add("p_features", P_FEATURES)
+            .add("p_fpops", P_FPOPS)
+            .add("p_iops", P_IOPS)
+            .add("p_membw", P_MEMBW)
+            .add("p_calculated", P_CALCULATED)
+            .add("m_nbytes", M_NBYTES)
+            .add("m_cache", M_CACHE)
+            .add("m_swap", M_SWAP)
+            .add("d_total", D_TOTAL)
+            .add("d_free", D_FREE)
+            .add("os_name", OS_NAME)
+            .add("os_version", OS_VERSION);
+
+    private HostInfo mHostInfo = null;
+    private boolean  mInCoprocX = false;
+
+    public final HostInfo getHostInfo() throws AuthorizationFailedException, InvalidDataReceivedException {
+        if (mUnauthorized) throw new AuthorizationFailedException();
+        if (null == mHostInfo) throw new InvalidDataReceivedException();
+        return mHostInfo;
+    }
+
+    /**
+     * Parse the RPC result (host_info)
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @return HostInfo
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     *     or does not contain valid {@code <host_info>} tag
+     */
+    public static HostInfo parse(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
+        try {
+            HostInfoParser parser = new HostInfoParser();
+            Xml.parse(rpcResult, parser);
+            return parser.getHostInfo();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            throw new InvalidDataReceivedException("Malformed XML while parsing <host_info>", e);
+        }
+    }
+
+    /**
+     * Parse the RPC result (host_info) directly from the stream, while it is being received
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @return HostInfo
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public static HostInfo parse(InputStream rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        try {
+            HostInfoParser parser = new HostInfoParser();
+            Xml.parse(rpcResult, Xml.Encoding.UTF_8, parser);
+            return parser.getHostInfo();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML in received stream");
+            throw new InvalidDataReceivedException("Malformed XML while parsing <host_info>", e);
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        super.startElement(uri, localName, qName, attributes);
+        if (ELEMENTS.get(localName) == HOST_INFO) {
+            if (mHostInfo != null) {
+                // previous <host_info> not closed - dropping it!
+                Log.i(TAG, "Dropping unfinished <host_info> data");
+            }
+            mHostInfo = new HostInfo();
+        }
+        else if (localName.startsWith("coproc_")) {
+            mInCoprocX = true;
+        }
+        else {
+            // Another element, hopefully primitive and not constructor
+            // (although unknown constructor does not hurt, because there will be primitive start anyway)
+            mElementStarted = true;
+            mCurrentElement.setLength(0);
+        }
+    }
+
+    // Method characters(char[] ch, int start, int length) is implemented by BaseParser,
+    // filling mCurrentElement (including stripping of leading whitespaces)
+    //@Override
+    //public void characters(char[] ch, int start, int length) throws SAXException { }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        super.endElement(uri, localName, qName);
+        try {
+            if (mHostInfo != null) {
+                // we are inside <host_info>
+                final int element = ELEMENTS.get(localName);
+                if (element == HOST_INFO) {
+                    // Closing tag of <host_info> - nothing to do at the moment
+                }
+                else if (mInCoprocX) {
+                    if (localName.startsWith("coproc_")) {
+                        mInCoprocX = false;
+                    }
+                    else if (element == COUNT) {
+                        mHostInfo.g_ngpus += currentInt();
+                    }
+                }
+                else if (element != TagTable.UNKNOWN) {
+                    // Not the closing tag - we decode possible inner tags
+                    trimEnd();
+                    switch (element) {
+                    case TIMEZONE:
+                        mHostInfo.timezone = currentInt();
+                        break;
+                    case DOMAIN_NAME:
+                        mHostInfo.domain_name = mCurrentElement.toString();
+                        break;
+                    case IP_ADDR:
+                        mHostInfo.ip_addr = mCurrentElement.toString();
+                        break;
+                    case HOST_CPID:
+                        mHostInfo.host_cpid = mCurrentElement.toString();
+                        break;
+                    case P_NCPUS:
+                        mHostInfo.p_ncpus = currentInt();
+                        break;
+                    case P_VENDOR:
+                        mHostInfo.p_vendor = mCurrentElement.toString();
+                        break;
+                    case P_MODEL:
+                        mHostInfo.p_model = mCurrentElement.toString();
+                        break;
+                    case P_FEATURES:
+                        mHostInfo.p_features = mCurrentElement.toString();
+                        break;
+                    case P_FPOPS:
+                        mHostInfo.p_fpops = currentDouble();
+                        break;
+                    case P_IOPS:
+                        mHostInfo.p_iops = currentDouble();
+                        break;
+                    case P_MEMBW:
+                        mHostInfo.p_membw = currentDouble();
+                        break;
+                    case P_CALCULATED:
+                        mHostInfo.p_calculated = currentLong();
+                        break;
+                    case M_NBYTES:
+                        mHostInfo.m_nbytes = currentDouble();
+                        break;
+                    case M_CACHE:
+                        mHostInfo.m_cache = currentDouble();
+                        break;
+                    case M_SWAP:
+                        mHostInfo.m_swap = currentDouble();
+                        break;
+                    case D_TOTAL:
+                        mHostInfo.d_total = currentDouble();
+                        break;
+                    case D_FREE:
+                        mHostInfo.d_free = currentDouble();
+                        break;
+                    case OS_NAME:
+                        mHostInfo.os_name = mCurrentElement.toString();
+                        break;
+                    case OS_VERSION:
+                        mHostInfo.os_version = mCurrentElement.toString();
+                        break;
+                    }
+                }
+            }
+        }
+        catch (NumberFormatException e) {
+            Log.i(TAG, "Exception when decoding " + localName);
+        }
+        mElementStarted = false;
+    }
+}
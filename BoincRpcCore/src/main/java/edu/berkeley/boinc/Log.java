@@ -0,0 +1,108 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Logging facade of the library, with the same calls as {@code android.util.Log}.
+ * <p>
+ * By default the messages go to {@link java.util.logging}; the platform can set
+ * its own {@link Backend} (e.g. Android log) by {@link #setBackend(Backend)}.
+ */
+public final class Log {
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    /**
+     * Receiver of log messages
+     */
+    public interface Backend {
+        /**
+         * @param priority one of {@link Log#DEBUG}, {@link Log#INFO}, {@link Log#WARN}, {@link Log#ERROR}
+         * @param tag source of message
+         * @param msg the message
+         * @param tr exception to log, or null
+         */
+        void log(int priority, String tag, String msg, Throwable tr);
+    }
+
+    private static class JavaLoggingBackend implements Backend {
+        @Override
+        public void log(int priority, String tag, String msg, Throwable tr) {
+            Level level;
+            switch (priority) {
+            case DEBUG: level = Level.FINE; break;
+            case INFO:  level = Level.INFO; break;
+            case WARN:  level = Level.WARNING; break;
+            default:    level = Level.SEVERE; break;
+            }
+            Logger.getLogger(tag).log(level, msg, tr);
+        }
+    }
+
+    private static volatile Backend sBackend = new JavaLoggingBackend();
+
+    private Log() {}
+
+    /**
+     * Sets the receiver of log messages
+     * @param backend the new receiver, or null to restore the default (java.util.logging)
+     */
+    public static void setBackend(Backend backend) {
+        sBackend = (backend != null) ? backend : new JavaLoggingBackend();
+    }
+
+    public static void d(String tag, String msg) {
+        sBackend.log(DEBUG, tag, msg, null);
+    }
+
+    public static void d(String tag, String msg, Throwable tr) {
+        sBackend.log(DEBUG, tag, msg, tr);
+    }
+
+    public static void i(String tag, String msg) {
+        sBackend.log(INFO, tag, msg, null);
+    }
+
+    public static void i(String tag, String msg, Throwable tr) {
+        sBackend.log(INFO, tag, msg, tr);
+    }
+
+    public static void w(String tag, String msg) {
+        sBackend.log(WARN, tag, msg, null);
+    }
+
+    public static void w(String tag, String msg, Throwable tr) {
+        sBackend.log(WARN, tag, msg, tr);
+    }
+
+    public static void e(String tag, String msg) {
+        sBackend.log(ERROR, tag, msg, null);
+    }
+
+    public static void e(String tag, String msg, Throwable tr) {
+        sBackend.log(ERROR, tag, msg, tr);
+    }
+}
@@ -19,7 +19,6 @@
 
 package edu.berkeley.boinc;
 
-import android.util.Log;
 import java.security.MessageDigest;
 
 
@@ -19,8 +19,6 @@
 
 package edu.berkeley.boinc;
 
-import android.util.Log;
-import android.util.Xml;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
@@ -54,7 +52,7 @@ public class MessageCountParser extends BaseParser {
             return parser.seqno();
         }
         catch (SAXException e) {
-            if (BuildConfig.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
             throw new InvalidDataReceivedException("Malformed XML while parsing <seqno>", e);
         }
 
@@ -91,7 +89,7 @@ public class MessageCountParser extends BaseParser {
                 else {
                     trimEnd();
                     if (localName.equalsIgnoreCase("seqno")) {
-                        mSeqno = Integer.parseInt(mCurrentElement.toString());
+                        mSeqno = currentInt();
                     }
                 }
             }
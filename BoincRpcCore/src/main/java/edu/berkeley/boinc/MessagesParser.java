@@ -19,8 +19,6 @@
 
 package edu.berkeley.boinc;
 
-import android.util.Log;
-import android.util.Xml;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
@@ -32,6 +30,8 @@ import java.util.Vector;
 
 public class MessagesParser extends BaseParser {
     private static final String TAG = "MessagesParser";
+    // Content of <body> is taken as is, it can contain unescaped HTML
+    private static final ReplyLexer LEXER = new ReplyLexer("body");
 
     private Vector<Message> mMessages = new Vector<Message>();
     private Message mMessage = null;
@@ -52,49 +52,38 @@ public class MessagesParser extends BaseParser {
     public static Vector<Message> parse(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
         MessagesParser parser = new MessagesParser();
         try {
-            // Try to parse as received first, in a hope it is valid XML
-            Xml.parse(rpcResult, parser);
-            return parser.getMessages();
-        }
-        catch (SAXException dummy) {
             // BOINC is known to not escape message body, resulting in invalid XML.
             // Typical non-escaped message is:
             // "A new version of BOINC is available. <a href=http://boinc.berkeley.edu/download.php>Download it.</a>"
             // Another example of invalid XML is produced when using the gui_rpc_debug log-flag
-            // So, we try to sanitize the body of messages by escaping XML special characters
-            // and then we try parsing the sanitized data
-            try {
-                String sanitized = XmlSanitizer.sanitize(rpcResult, "body");
-                Xml.parse(sanitized, parser);
-                return parser.getMessages();
-            }
-            catch (SAXException e) {
-                // Still some trouble, even after sanitizing the message bodies
-                if (BuildConfig.DEBUG) {
-                    SAXParseException details = (SAXParseException)e;
-                    Log.d(TAG, "Malformed XML: systemId=" + details.getSystemId() +
-                            ", publicId=" + details.getPublicId() +
-                            ", lineNumber=" + details.getLineNumber() +
-                            ", columnNumber=" + details.getColumnNumber()
-                            );
-                    BufferedReader br = new BufferedReader(new StringReader(rpcResult));
-                    String line;
-                    int lineNum = 0;
-                    try {
-                        int errLine = details.getLineNumber();
-                        while ((line = br.readLine()) != null) {
-                            ++lineNum;
-                            if ( (lineNum >= (errLine - 5)) && (lineNum <= (errLine + 5))) {
-                                Log.d("Malformed XML", "line " + lineNum + ": " + line);
-                            }
+            // So, the body is lexed as opaque text in the single pass, no sanitizing and reparsing
+            LEXER.parse(rpcResult, parser);
+            return parser.getMessages();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG && (e instanceof SAXParseException)) {
+                SAXParseException details = (SAXParseException)e;
+                Log.d(TAG, "Malformed XML: " + details.getMessage() +
+                        ", lineNumber=" + details.getLineNumber() +
+                        ", columnNumber=" + details.getColumnNumber()
+                        );
+                BufferedReader br = new BufferedReader(new StringReader(rpcResult));
+                String line;
+                int lineNum = 0;
+                try {
+                    int errLine = details.getLineNumber();
+                    while ((line = br.readLine()) != null) {
+                        ++lineNum;
+                        if ( (lineNum >= (errLine - 5)) && (lineNum <= (errLine + 5))) {
+                            Log.d("Malformed XML", "line " + lineNum + ": " + line);
                         }
                     }
-                    catch (IOException ioe) {
-                    }
-                    Log.d(TAG, "Decoded " + parser.getMessages().size() + " messages");
                 }
-                throw new InvalidDataReceivedException("Malformed XML while parsing <msgs>", e);
+                catch (IOException ioe) {
+                }
+                Log.d(TAG, "Decoded " + parser.getMessages().size() + " messages");
             }
+            throw new InvalidDataReceivedException("Malformed XML while parsing <msgs>", e);
         }
     }
 
@@ -138,13 +127,13 @@ public class MessagesParser extends BaseParser {
                         mMessage.project = mCurrentElement.toString();
                     }
                     else if (localName.equalsIgnoreCase("seqno")) {
-                        mMessage.seqno = Integer.parseInt(mCurrentElement.toString());
+                        mMessage.seqno = currentInt();
                     }
                     else if (localName.equalsIgnoreCase("pri")) {
-                        mMessage.priority = Integer.parseInt(mCurrentElement.toString());
+                        mMessage.priority = currentInt();
                     }
                     else if (localName.equalsIgnoreCase("time")) {
-                        mMessage.timestamp = (long)Double.parseDouble(mCurrentElement.toString());
+                        mMessage.timestamp = currentLong();
                     }
                     else if (localName.equalsIgnoreCase("body")) {
                         mMessage.body = mCurrentElement.toString();
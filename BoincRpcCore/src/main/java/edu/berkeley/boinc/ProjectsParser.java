@@ -0,0 +1,469 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Vector;
+
+
+public class ProjectsParser extends BaseParser {
+    private static final String TAG = "ProjectsParser";
+
+    // Elements handled by this parser, see ELEMENTS
+    private static final int PROJECT = 1;
+    private static final int GUI_URL = 2;
+    private static final int NAME = 3;
+    private static final int DESCRIPTION = 4;
+    private static final int URL = 5;
+    private static final int MASTER_URL = 6;
+    private static final int RESOURCE_SHARE = 7;
+    private static final int PROJECT_NAME = 8;
+    private static final int USER_NAME = 9;
+    private static final int TEAM_NAME = 10;
+    private static final int HOSTID = 11;
+    private static final int USER_TOTAL_CREDIT = 12;
+    private static final int USER_EXPAVG_CREDIT = 13;
+    private static final int HOST_TOTAL_CREDIT = 14;
+    private static final int HOST_EXPAVG_CREDIT = 15;
+    private static final int MIN_RPC_TIME = 16;
+    private static final int DOWNLOAD_BACKOFF = 17;
+    private static final int UPLOAD_BACKOFF = 18;
+    private static final int SHORT_TERM_DEBT = 19;
+    private static final int LONG_TERM_DEBT = 20;
+    private static final int DURATION_CORRECTION_FACTOR = 21;
+    private static final int MASTER_URL_FETCH_PENDING = 22;
+    private static final int SCHED_RPC_PENDING = 23;
+    private static final int SUSPENDED_VIA_GUI = 24;
+    private static final int DONT_REQUEST_MORE_WORK = 25;
+    private static final int SCHEDULER_RPC_IN_PROGRESS = 26;
+    private static final int TRICKLE_UP_PENDING = 27;
+
+    private static final TagTable ELEMENTS = new TagTable()
+            .add("project", PROJECT)
+            .add("gui_url", GUI_URL)
+            .add("name", NAME)
+            .add("description", DESCRIPTION)
+            .add("url", URL)
+            .add("master_url", MASTER_URL)
+            .add("resource_share", RESOURCE_SHARE)
+            .add("project_name", PROJECT_NAME)
+            .add("user_name", USER_NAME)
+            .add("team_name", TEAM_NAME)
+            .add("hostid", HOSTID)
+            .add("user_total_credit", USER_TOTAL_CREDIT)
+            .add("user_expavg_credit", USER_EXPAVG_CREDIT)
+            .add("host_total_credit", HOST_TOTAL_CREDIT)
+            .add("host_expavg_credit", HOST_EXPAVG_CREDIT)
+            .add("min_rpc_time", MIN_RPC_TIME)
+            .add("download_backoff", DOWNLOAD_BACKOFF)
+            .add("upload_backoff", UPLOAD_BACKOFF)
+            .add("short_term_debt", SHORT_TERM_DEBT)
+            .add("long_term_debt", LONG_TERM_DEBT)
+            .add("duration_correction_factor", DURATION_CORRECTION_FACTOR)
+            .add("master_url_fetch_pending", MASTER_URL_FETCH_PENDING)
+            .add("sched_rpc_pending", SCHED_RPC_PENDING)
+            .add("suspended_via_gui", SUSPENDED_VIA_GUI)
+            .add("dont_request_more_work", DONT_REQUEST_MORE_WORK)
+            .add("scheduler_rpc_in_progress", SCHEDULER_RPC_IN_PROGRESS)
+            .add("trickle_up_pending", TRICKLE_UP_PENDING);
+
+    // Projects of previous parsing, reused by parseRecycled()
+    private final Recycler<Project> mRecycler = new Recycler<Project>() {
+        @Override
+        Project create() {
+            return new Project();
+        }
+
+        @Override
+        String key(Project project) {
+            return project.master_url;
+        }
+
+        @Override
+        void copy(Project from, Project to) {
+            to.master_url = from.master_url;
+            to.resource_share = from.resource_share;
+            to.project_name = from.project_name;
+            to.user_name = from.user_name;
+            to.team_name = from.team_name;
+            to.hostid = from.hostid;
+            // Each project has its own vector
+            to.gui_urls.clear();
+            to.gui_urls.addAll(from.gui_urls);
+            to.user_total_credit = from.user_total_credit;
+            to.user_expavg_credit = from.user_expavg_credit;
+            to.host_total_credit = from.host_total_credit;
+            to.host_expavg_credit = from.host_expavg_credit;
+            to.min_rpc_time = from.min_rpc_time;
+            to.download_backoff = from.download_backoff;
+            to.upload_backoff = from.upload_backoff;
+            to.cpu_short_term_debt = from.cpu_short_term_debt;
+            to.cpu_long_term_debt = from.cpu_long_term_debt;
+            to.duration_correction_factor = from.duration_correction_factor;
+            to.master_url_fetch_pending = from.master_url_fetch_pending;
+            to.sched_rpc_pending = from.sched_rpc_pending;
+            to.suspended_via_gui = from.suspended_via_gui;
+            to.dont_request_more_work = from.dont_request_more_work;
+            to.scheduler_rpc_in_progress = from.scheduler_rpc_in_progress;
+            to.trickle_up_pending = from.trickle_up_pending;
+        }
+    };
+    private Project mProject = null;
+    // The same project from previous parsing (or empty one), its strings are reused if not changed
+    private Project mPrevious = null;
+    private GuiUrl mGuiUrl = null;
+
+    public final Vector<Project> getProjects() throws AuthorizationFailedException {
+        if (mUnauthorized) throw new AuthorizationFailedException();
+        return mRecycler.result();
+    }
+
+    /**
+     * Parse the RPC result (projects) and generate vector of projects info
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @return vector of projects info
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     */
+    public static Vector<Project> parse(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
+        try {
+            ProjectsParser parser = new ProjectsParser();
+            Xml.parse(rpcResult, parser);
+            return parser.getProjects();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            throw new InvalidDataReceivedException("Malformed XML while parsing <project>", e);
+        }
+    }
+
+    /**
+     * Parse the RPC result (projects) directly from the stream, while it is being received
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @return vector of projects info
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public static Vector<Project> parse(InputStream rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        try {
+            ProjectsParser parser = new ProjectsParser();
+            Xml.parse(rpcResult, Xml.Encoding.UTF_8, parser);
+            return parser.getProjects();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML in received stream");
+            throw new InvalidDataReceivedException("Malformed XML while parsing <project>", e);
+        }
+    }
+
+    /**
+     * Parse the RPC result (projects) by this parser, updating in place the projects returned
+     * by previous call (matched by master URL), instead of creating new ones
+     * <p>
+     * The returned vector and the projects in it are valid only until the next call.
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @return vector of projects info, the same vector in each call
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     */
+    public Vector<Project> parseRecycled(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
+        try {
+            reset();
+            Xml.parse(rpcResult, this);
+            return getProjects();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            throw new InvalidDataReceivedException("Malformed XML while parsing <project>", e);
+        }
+    }
+
+    /**
+     * Parse the RPC result (projects) by this parser directly from the stream, updating in place
+     * the projects returned by previous call, see {@link #parseRecycled(String)}
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @return vector of projects info, the same vector in each call
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public Vector<Project> parseRecycled(InputStream rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        try {
+            reset();
+            Xml.parse(rpcResult, Xml.Encoding.UTF_8, this);
+            return getProjects();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML in received stream");
+            throw new InvalidDataReceivedException("Malformed XML while parsing <project>", e);
+        }
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        mRecycler.begin();
+        mProject = null;
+        mPrevious = null;
+        mGuiUrl = null;
+    }
+
+    @Override
+    public void endDocument() {
+        mRecycler.end();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        super.startElement(uri, localName, qName, attributes);
+        switch (ELEMENTS.get(localName)) {
+        case PROJECT:
+            if (mProject != null) {
+                // previous <project> not closed - dropping it!
+                Log.i(TAG, "Dropping unfinished <project> data");
+            }
+            mProject = mRecycler.scratch();
+            mPrevious = mRecycler.candidate();
+            break;
+        case GUI_URL:
+            if (mGuiUrl != null) {
+                // previous <gui_url> not closed - dropping it!
+                Log.i(TAG, "Dropping unfinished <gui_url> data");
+            }
+            mGuiUrl = new GuiUrl();
+            break;
+        default:
+            // Another element, hopefully primitive and not constructor
+            // (although unknown constructor does not hurt, because there will be primitive start anyway)
+            mElementStarted = true;
+            mCurrentElement.setLength(0);
+            break;
+        }
+    }
+
+    // Method characters(char[] ch, int start, int length) is implemented by BaseParser,
+    // filling mCurrentElement (including stripping of leading whitespaces)
+    //@Override
+    //public void characters(char[] ch, int start, int length) throws SAXException { }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        super.endElement(uri, localName, qName);
+        try {
+            if (mProject != null) {
+                // We are inside <project>
+                final int element = ELEMENTS.get(localName);
+                if (element == PROJECT) {
+                    // Closing tag of <project> - add to vector and be ready for next one
+                    if (!mProject.master_url.equals("")) {
+                        // master_url is a must
+                        mRecycler.commit(mProject);
+                    }
+                    mProject = null;
+                    mPrevious = null;
+                }
+                else if (element != TagTable.UNKNOWN) {
+                    // Not the closing tag - we decode possible inner tags
+                    trimEnd();
+                    if (mGuiUrl != null) {
+                        // We are inside <gui_url> element
+                        switch (element) {
+                        case GUI_URL:
+                            // finish of this <gui_url> element
+                            mProject.gui_urls.add(mGuiUrl);
+                            mGuiUrl = null;
+                            break;
+                        case NAME:
+                            mGuiUrl.name = mCurrentElement.toString();
+                            break;
+                        case DESCRIPTION:
+                            mGuiUrl.description = mCurrentElement.toString();
+                            break;
+                        case URL:
+                            mGuiUrl.url = mCurrentElement.toString();
+                            break;
+                        }
+                    }
+                    else {
+                        switch (element) {
+                        case MASTER_URL:
+                            mProject.master_url = currentSymbol(mPrevious.master_url);
+                            if (mProject.master_url != mPrevious.master_url) {
+                                // Not the expected one (e.g. new project)
+                                mPrevious = mRecycler.candidate(mProject.master_url);
+                            }
+                            break;
+                        case RESOURCE_SHARE:
+                            mProject.resource_share = currentFloat();
+                            break;
+                        case PROJECT_NAME:
+                            mProject.project_name = currentString(mPrevious.project_name);
+                            break;
+                        case USER_NAME:
+                            mProject.user_name = currentString(mPrevious.user_name);
+                            break;
+                        case TEAM_NAME:
+                            mProject.team_name = currentString(mPrevious.team_name);
+                            break;
+                        case HOSTID:
+                            mProject.hostid = currentInt();
+                            break;
+                        case USER_TOTAL_CREDIT:
+                            mProject.user_total_credit = currentDouble();
+                            break;
+                        case USER_EXPAVG_CREDIT:
+                            mProject.user_expavg_credit = currentDouble();
+                            break;
+                        case HOST_TOTAL_CREDIT:
+                            mProject.host_total_credit = currentDouble();
+                            break;
+                        case HOST_EXPAVG_CREDIT:
+                            mProject.host_expavg_credit = currentDouble();
+                            break;
+//						case DISK_USAGE:
+//							mProject.disk_usage = Double.parseDouble(mCurrentElement);
+//							break;
+//						case NRPC_FAILURES:
+//							mProject.nrpc_failures = Integer.parseInt(mCurrentElement);
+//							break;
+//						case MASTER_FETCH_FAILURES:
+//							mProject.master_fetch_failures = Integer.parseInt(mCurrentElement);
+//							break;
+                        case MIN_RPC_TIME:
+                            mProject.min_rpc_time = currentDouble();
+                            break;
+                        case DOWNLOAD_BACKOFF:
+                            mProject.download_backoff = currentDouble();
+                            break;
+                        case UPLOAD_BACKOFF:
+                            mProject.upload_backoff = currentDouble();
+                            break;
+                        case SHORT_TERM_DEBT:
+                            mProject.cpu_short_term_debt = currentDouble();
+                            break;
+                        case LONG_TERM_DEBT:
+                            mProject.cpu_long_term_debt = currentDouble();
+                            break;
+//						case CPU_BACKOFF_TIME:
+//							mProject.cpu_backoff_time = Double.parseDouble(mCurrentElement);
+//							break;
+//						case CPU_BACKOFF_INTERVAL:
+//							mProject.cpu_backoff_interval = Double.parseDouble(mCurrentElement);
+//							break;
+//						case CUDA_DEBT:
+//							mProject.cuda_debt = Double.parseDouble(mCurrentElement);
+//							break;
+//						case CUDA_SHORT_TERM_DEBT:
+//							mProject.cuda_short_term_debt = Double.parseDouble(mCurrentElement);
+//							break;
+//						case CUDA_BACKOFF_TIME:
+//							mProject.cuda_backoff_time = Double.parseDouble(mCurrentElement);
+//							break;
+//						case CUDA_BACKOFF_INTERVAL:
+//							mProject.cuda_backoff_interval = Double.parseDouble(mCurrentElement);
+//							break;
+//						case ATI_DEBT:
+//							mProject.ati_debt = Double.parseDouble(mCurrentElement);
+//							break;
+//						case ATI_SHORT_TERM_DEBT:
+//							mProject.ati_short_term_debt = Double.parseDouble(mCurrentElement);
+//							break;
+//						case ATI_BACKOFF_TIME:
+//							mProject.ati_backoff_time = Double.parseDouble(mCurrentElement);
+//							break;
+//						case ATI_BACKOFF_INTERVAL:
+//							mProject.ati_backoff_interval = Double.parseDouble(mCurrentElement);
+//							break;
+                        case DURATION_CORRECTION_FACTOR:
+                            mProject.duration_correction_factor = currentDouble();
+                            break;
+                        case MASTER_URL_FETCH_PENDING:
+//							String trimmed = mCurrentElement.trim();
+//							mProject.master_url_fetch_pending = !trimmed.equals("0");
+                            mProject.master_url_fetch_pending = currentFlag();
+                            break;
+                        case SCHED_RPC_PENDING:
+                            mProject.sched_rpc_pending = currentInt();
+                            break;
+//						case NON_CPU_INTENSIVE:
+//							String trimmed = mCurrentElement.trim();
+//							mProject.non_cpu_intensive = !trimmed.equals("0");
+//							break;
+                        case SUSPENDED_VIA_GUI:
+                            mProject.suspended_via_gui = currentFlag();
+                            break;
+                        case DONT_REQUEST_MORE_WORK:
+                            mProject.dont_request_more_work = currentFlag();
+                            break;
+                        case SCHEDULER_RPC_IN_PROGRESS:
+                            mProject.scheduler_rpc_in_progress = currentFlag();
+                            break;
+//						case ATTACHED_VIA_ACCT_MGR:
+//							String trimmed = mCurrentElement.trim();
+//							mProject.attached_via_acct_mgr = !trimmed.equals("0");
+//							break;
+//						case DETACH_WHEN_DONE:
+//							String trimmed = mCurrentElement.trim();
+//							mProject.detach_when_done = !trimmed.equals("0");
+//							break;
+//						case ENDED:
+//							String trimmed = mCurrentElement.trim();
+//							mProject.ended = !trimmed.equals("0");
+//							break;
+                        case TRICKLE_UP_PENDING:
+                            mProject.trickle_up_pending = currentFlag();
+                            break;
+//						case PROJECT_FILES_DOWNLOADED_TIME:
+//							mProject.project_files_downloaded_time = Double.parseDouble(mCurrentElement);
+//							break;
+//						case LAST_RPC_TIME:
+//							mProject.last_rpc_time = Double.parseDouble(mCurrentElement);
+//							break;
+//						case NO_CPU_PREF:
+//							String trimmed = mCurrentElement.trim();
+//							mProject.no_cpu_pref = !trimmed.equals("0");
+//							break;
+//						case NO_CUDA_PREF:
+//							String trimmed = mCurrentElement.trim();
+//							mProject.no_cuda_pref = !trimmed.equals("0");
+//							break;
+//						case NO_ATI_PREF:
+//							String trimmed = mCurrentElement.trim();
+//							mProject.no_ati_pref = !trimmed.equals("0");
+//							break;
+                        }
+                    }
+                }
+            }
+        }
+        catch (NumberFormatException e) {
+            Log.i(TAG, "Exception when decoding " + localName);
+        }
+        mElementStarted = false;
+    }
+}
@@ -0,0 +1,164 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package edu.berkeley.boinc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Vector;
+
+
+/**
+ * Pool of model objects (e.g. {@link Result}) decoded by the previous parsing cycle,
+ * keyed by name, to be updated in place by the next cycle.
+ * <p>
+ * Each entity of the reply is decoded to the scratch object first. When it is complete,
+ * {@link #commit(Object)} copies it to the object of the same name from the previous cycle
+ * (so the entity keeps its identity over refreshes), or keeps the scratch object
+ * itself in case of new entity. The entity of previous cycle which is probably being decoded
+ * is offered by {@link #candidate()}, so the parser can keep the strings which did not change
+ * (see {@link BaseParser#currentString(String)}).
+ * <p>
+ * In steady state (the same entities in each reply) no objects are allocated, except for the
+ * strings whose values changed. The index by name (position in previous cycle) is rebuilt only when
+ * entities were added, removed or reordered.
+ * The names are expected to be unique within single reply.
+ */
+abstract class Recycler<T> {
+    private ArrayList<T> mPrevious = new ArrayList<T>();
+    private ArrayList<T> mCurrent = new ArrayList<T>();
+    private final HashMap<String, Integer> mByKey = new HashMap<String, Integer>();
+    private final Vector<T> mResult = new Vector<T>();
+    private final T mEmpty;
+    private T mScratch = null;
+    // Position in previous cycle where the next entity is expected
+    private int mNext = 0;
+    private int mReused = 0;
+    private boolean mAdded = false;
+    private boolean mReordered = false;
+
+    Recycler() {
+        mEmpty = create();
+    }
+
+    /** Creates new object */
+    abstract T create();
+
+    /** Returns the key (name) of the object */
+    abstract String key(T entity);
+
+    /** Copies all fields of {@code from} to {@code to} */
+    abstract void copy(T from, T to);
+
+    /**
+     * Starts new cycle; the vector returned by {@link #result()} is cleared
+     */
+    void begin() {
+        mResult.clear();
+        mCurrent.clear();
+        mNext = 0;
+        mReused = 0;
+        mAdded = false;
+        mReordered = false;
+    }
+
+    /**
+     * @return object to decode the next entity to, with all fields set to defaults
+     */
+    T scratch() {
+        if (mScratch == null) {
+            mScratch = create();
+        }
+        else {
+            copy(mEmpty, mScratch);
+        }
+        return mScratch;
+    }
+
+    /**
+     * @return the entity of previous cycle which is probably being decoded now (the next one
+     *     in the order of previous cycle), or empty object if there is none
+     */
+    T candidate() {
+        return (mNext < mPrevious.size()) ? mPrevious.get(mNext) : mEmpty;
+    }
+
+    /**
+     * @param key the key of entity being decoded
+     * @return the entity of previous cycle with the given key, or empty object if there is none
+     */
+    T candidate(String key) {
+        Integer index = mByKey.get(key);
+        return (index != null) ? mPrevious.get(index) : mEmpty;
+    }
+
+    /**
+     * Adds the decoded entity to the result of the cycle
+     *
+     * @param scratch the object returned by {@link #scratch()}, with decoded entity
+     */
+    void commit(T scratch) {
+        String key = key(scratch);
+        Integer index = (key != null) ? mByKey.get(key) : null;
+        if (index != null) {
+            T previous = mPrevious.get(index);
+            copy(scratch, previous);
+            mResult.add(previous);
+            mCurrent.add(previous);
+            ++mReused;
+            if (index == mNext) {
+                ++mNext;
+            }
+            else {
+                // Order changed, continue after the found one
+                mNext = index + 1;
+                mReordered = true;
+            }
+        }
+        else {
+            // New entity - it keeps the scratch object
+            mResult.add(scratch);
+            mCurrent.add(scratch);
+            mScratch = null;
+            mAdded = true;
+        }
+    }
+
+    /**
+     * Finishes the cycle; entities not present in this cycle are dropped from the pool
+     */
+    void end() {
+        if (mAdded || mReordered || mReused != mByKey.size()) {
+            mByKey.clear();
+            for (int i = 0; i < mCurrent.size(); ++i) {
+                mByKey.put(key(mCurrent.get(i)), i);
+            }
+        }
+        ArrayList<T> swap = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = swap;
+        mCurrent.clear();
+    }
+
+    /**
+     * @return decoded entities of current cycle, the same vector in each cycle
+     */
+    Vector<T> result() {
+        return mResult;
+    }
+}
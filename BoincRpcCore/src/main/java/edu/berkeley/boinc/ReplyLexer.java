@@ -0,0 +1,442 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package edu.berkeley.boinc;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+import java.util.ArrayList;
+
+
+/**
+ * Single-pass lexer for the restricted XML emitted by the core client.
+ * <p>
+ * The replies of the core client are not always well-formed XML: message bodies
+ * are sent without escaping (e.g. {@code <body>New version. <a href=...>Download</a></body>}),
+ * ampersands appear unescaped, attribute values may be unquoted. A strict parser
+ * rejects such reply as a whole. This lexer accepts these quirks in one linear pass
+ * and fires the same SAX events on the given handler as a strict parser would fire
+ * for the properly escaped reply:
+ * <ul>
+ * <li>content of raw-text elements (given to constructor) is opaque text up to the matching
+ * closing tag; only entities and {@code CDATA} sections are decoded inside</li>
+ * <li>{@code &} not starting a known entity is taken literally</li>
+ * <li>attribute values may be quoted by {@code "} or {@code '}, or unquoted</li>
+ * <li>characters not allowed in XML are passed through</li>
+ * </ul>
+ * The structure is still checked strictly: unbalanced tags, missing root element,
+ * markup or text after the root element and data ending in the middle of markup or
+ * inside an element are reported by {@link SAXParseException}, the same as by the strict parser.
+ * <p>
+ * The lexer holds no state between calls, so single instance can be shared by threads.
+ */
+final class ReplyLexer {
+    private final String[] mRawElements;
+
+    /**
+     * @param rawElements names of elements whose content is taken as opaque text
+     */
+    ReplyLexer(String... rawElements) {
+        mRawElements = rawElements.clone();
+    }
+
+    /**
+     * Parses the given reply and fires events on the given SAX handler
+     *
+     * @param xml the reply of the core client
+     * @param handler the receiver of the events
+     * @throws SAXException if the reply is not balanced or it is truncated,
+     *                      or if thrown by handler
+     */
+    void parse(String xml, ContentHandler handler) throws SAXException {
+        new Pass(xml.toCharArray(), handler).run();
+    }
+
+    private boolean isRaw(String name) {
+        for (String raw : mRawElements) {
+            if (raw.equals(name)) return true;
+        }
+        return false;
+    }
+
+    private final class Pass {
+        private final char[] mIn;
+        private final ContentHandler mHandler;
+        private final ArrayList<String> mOpen = new ArrayList<String>();
+        // Single-character buffer for decoded entities and line-ends
+        private final char[] mChar = new char[2];
+        private final AttributesImpl mAttributes = new AttributesImpl();
+        private int mPos = 0;
+        private boolean mRootSeen = false;
+
+        Pass(char[] in, ContentHandler handler) {
+            mIn = in;
+            mHandler = handler;
+        }
+
+        void run() throws SAXException {
+            mHandler.startDocument();
+            final int end = mIn.length;
+            while (mPos < end) {
+                if (mIn[mPos] != '<') {
+                    text();
+                }
+                else if (startsWith("<?")) {
+                    skipPast("?>");
+                }
+                else if (startsWith("<!--")) {
+                    skipPast("-->");
+                }
+                else if (startsWith("<![CDATA[")) {
+                    cdata();
+                }
+                else if (startsWith("<!")) {
+                    // DOCTYPE is never sent by the client, but it does not hurt to skip it
+                    skipPast(">");
+                }
+                else if (startsWith("</")) {
+                    endTag();
+                }
+                else {
+                    startTag();
+                }
+            }
+            if (!mOpen.isEmpty()) {
+                throw error("Element <" + mOpen.get(mOpen.size() - 1) + "> not closed");
+            }
+            if (!mRootSeen) {
+                throw error("Root element missing");
+            }
+            mHandler.endDocument();
+        }
+
+        private void startTag() throws SAXException {
+            int start = ++mPos;
+            final int end = mIn.length;
+            while (mPos < end && !isNameEnd(mIn[mPos])) ++mPos;
+            if (mPos == start) throw error("Element name expected");
+            String name = new String(mIn, start, mPos - start);
+            if (mOpen.isEmpty()) {
+                if (mRootSeen) throw error("Markup after the root element");
+                mRootSeen = true;
+            }
+            mAttributes.clear();
+            boolean empty = false;
+            for (;;) {
+                skipSpaces();
+                if (mPos >= end) throw error("Unterminated tag <" + name + ">");
+                char c = mIn[mPos];
+                if (c == '>') {
+                    ++mPos;
+                    break;
+                }
+                if (c == '/' && mPos + 1 < end && mIn[mPos + 1] == '>') {
+                    mPos += 2;
+                    empty = true;
+                    break;
+                }
+                attribute();
+            }
+            mHandler.startElement("", name, name, mAttributes);
+            if (empty) {
+                mHandler.endElement("", name, name);
+            }
+            else if (isRaw(name)) {
+                rawContent(name);
+                mHandler.endElement("", name, name);
+            }
+            else {
+                mOpen.add(name);
+            }
+        }
+
+        private void attribute() throws SAXException {
+            final int end = mIn.length;
+            int start = mPos;
+            while (mPos < end && !isNameEnd(mIn[mPos]) && mIn[mPos] != '=') ++mPos;
+            if (mPos == start) throw error("Attribute name expected");
+            String name = new String(mIn, start, mPos - start);
+            skipSpaces();
+            String value = "";
+            if (mPos < end && mIn[mPos] == '=') {
+                ++mPos;
+                skipSpaces();
+                if (mPos >= end) throw error("Attribute value expected");
+                char quote = mIn[mPos];
+                if (quote == '"' || quote == '\'') {
+                    start = ++mPos;
+                    while (mPos < end && mIn[mPos] != quote) ++mPos;
+                    if (mPos >= end) throw error("Unterminated attribute value");
+                    value = decode(start, mPos);
+                    ++mPos;
+                }
+                else {
+                    // Unquoted value, up to the white-space or end of tag (URLs contain '/')
+                    start = mPos;
+                    while (mPos < end && !isSpace(mIn[mPos]) && mIn[mPos] != '>') ++mPos;
+                    value = decode(start, mPos);
+                }
+            }
+            mAttributes.addAttribute("", name, name, "CDATA", value);
+        }
+
+        private void endTag() throws SAXException {
+            int start = mPos + 2;
+            int close = indexOf('>', start);
+            if (close < 0) throw error("Unterminated closing tag");
+            int nameEnd = close;
+            while (nameEnd > start && isSpace(mIn[nameEnd - 1])) --nameEnd;
+            String name = new String(mIn, start, nameEnd - start);
+            if (mOpen.isEmpty()) throw error("Unexpected closing tag </" + name + ">");
+            String open = mOpen.remove(mOpen.size() - 1);
+            if (!open.equals(name)) {
+                throw error("Element <" + open + "> closed by </" + name + ">");
+            }
+            mPos = close + 1;
+            mHandler.endElement("", name, name);
+        }
+
+        private void rawContent(String name) throws SAXException {
+            final int end = mIn.length;
+            final int nameLength = name.length();
+            int start = mPos;
+            while (mPos < end) {
+                char c = mIn[mPos];
+                if (c == '<') {
+                    if (startsWith("<![CDATA[")) {
+                        characters(start, mPos);
+                        cdata();
+                        start = mPos;
+                        continue;
+                    }
+                    if (mPos + 2 + nameLength < end && mIn[mPos + 1] == '/' &&
+                            matches(mPos + 2, name) && mIn[mPos + 2 + nameLength] == '>') {
+                        characters(start, mPos);
+                        mPos += 3 + nameLength;
+                        return;
+                    }
+                    ++mPos;
+                }
+                else if (c == '&' || c == '\r') {
+                    characters(start, mPos);
+                    special();
+                    start = mPos;
+                }
+                else {
+                    ++mPos;
+                }
+            }
+            throw error("Element <" + name + "> not closed");
+        }
+
+        private void text() throws SAXException {
+            final int end = mIn.length;
+            int start = mPos;
+            boolean blank = true;
+            while (mPos < end) {
+                char c = mIn[mPos];
+                if (c == '<') break;
+                if (blank && !isSpace(c)) {
+                    if (mOpen.isEmpty()) {
+                        throw error(mRootSeen ? "Text after the root element" : "Text before the root element");
+                    }
+                    blank = false;
+                }
+                if (c == '&' || c == '\r') {
+                    characters(start, mPos);
+                    special();
+                    start = mPos;
+                }
+                else {
+                    ++mPos;
+                }
+            }
+            if (!mOpen.isEmpty()) {
+                characters(start, mPos);
+            }
+        }
+
+        private void cdata() throws SAXException {
+            int start = mPos + 9;
+            int close = indexOf("]]>", start);
+            if (close < 0) throw error("Unterminated CDATA section");
+            if (mOpen.isEmpty()) throw error("CDATA outside of the root element");
+            characters(start, close);
+            mPos = close + 3;
+        }
+
+        // Handles '&' or '\r' at current position and fires the resulting character(s)
+        private void special() throws SAXException {
+            if (mIn[mPos] == '\r') {
+                // Line-ends are normalized to '\n'
+                ++mPos;
+                if (mPos < mIn.length && mIn[mPos] == '\n') ++mPos;
+                mChar[0] = '\n';
+                if (!mOpen.isEmpty()) mHandler.characters(mChar, 0, 1);
+                return;
+            }
+            int length = entity(mPos, mIn.length, mChar);
+            if (length == 0) {
+                // Not an entity - the ampersand itself
+                mChar[0] = '&';
+                length = 1;
+                ++mPos;
+            }
+            else {
+                mPos = mPos + length;
+                length = (mChar[1] != 0) ? 2 : 1;
+            }
+            if (!mOpen.isEmpty()) mHandler.characters(mChar, 0, length);
+        }
+
+        private void characters(int start, int end) throws SAXException {
+            if (end > start) mHandler.characters(mIn, start, end - start);
+        }
+
+        // Decodes the entities in the given range (used for attribute values)
+        private String decode(int start, int end) {
+            StringBuilder sb = new StringBuilder(end - start);
+            int i = start;
+            while (i < end) {
+                char c = mIn[i];
+                if (c == '&') {
+                    int length = entity(i, end, mChar);
+                    if (length > 0) {
+                        sb.append(mChar[0]);
+                        if (mChar[1] != 0) sb.append(mChar[1]);
+                        i += length;
+                        continue;
+                    }
+                }
+                sb.append(c);
+                ++i;
+            }
+            return sb.toString();
+        }
+
+        // Decodes the entity starting at given position (at '&') into out[0] and out[1] (0 if single char)
+        // Returns the length of the entity in input or 0 if it is not a recognized entity
+        private int entity(int pos, int end, char[] out) {
+            int semicolon = -1;
+            // Entities are short, do not scan further
+            for (int i = pos + 1; i < end && i < pos + 12; ++i) {
+                if (mIn[i] == ';') {
+                    semicolon = i;
+                    break;
+                }
+            }
+            if (semicolon < 0) return 0;
+            out[1] = 0;
+            int nameStart = pos + 1;
+            int nameLength = semicolon - nameStart;
+            if (nameLength >= 2 && mIn[nameStart] == '#') {
+                int code = 0;
+                int radix = 10;
+                int i = nameStart + 1;
+                if (mIn[i] == 'x' || mIn[i] == 'X') {
+                    radix = 16;
+                    ++i;
+                }
+                if (i == semicolon) return 0;
+                for ( ; i < semicolon; ++i) {
+                    int digit = Character.digit(mIn[i], radix);
+                    if (digit < 0) return 0;
+                    code = code * radix + digit;
+                }
+                if (!Character.isValidCodePoint(code)) return 0;
+                int count = Character.toChars(code, out, 0);
+                if (count == 1) out[1] = 0;
+                return semicolon - pos + 1;
+            }
+            char decoded;
+            if (matches(nameStart, "lt") && nameLength == 2) decoded = '<';
+            else if (matches(nameStart, "gt") && nameLength == 2) decoded = '>';
+            else if (matches(nameStart, "amp") && nameLength == 3) decoded = '&';
+            else if (matches(nameStart, "quot") && nameLength == 4) decoded = '"';
+            else if (matches(nameStart, "apos") && nameLength == 4) decoded = '\'';
+            else return 0;
+            out[0] = decoded;
+            return semicolon - pos + 1;
+        }
+
+        private void skipPast(String terminator) throws SAXException {
+            int found = indexOf(terminator, mPos + 2);
+            if (found < 0) throw error("Unterminated markup");
+            mPos = found + terminator.length();
+        }
+
+        private void skipSpaces() {
+            while (mPos < mIn.length && isSpace(mIn[mPos])) ++mPos;
+        }
+
+        private boolean startsWith(String s) {
+            return mPos + s.length() <= mIn.length && matches(mPos, s);
+        }
+
+        private boolean matches(int pos, String s) {
+            final int length = s.length();
+            if (pos + length > mIn.length) return false;
+            for (int i = 0; i < length; ++i) {
+                if (mIn[pos + i] != s.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private int indexOf(char c, int from) {
+            for (int i = from; i < mIn.length; ++i) {
+                if (mIn[i] == c) return i;
+            }
+            return -1;
+        }
+
+        private int indexOf(String s, int from) {
+            final int last = mIn.length - s.length();
+            for (int i = from; i <= last; ++i) {
+                if (mIn[i] == s.charAt(0) && matches(i, s)) return i;
+            }
+            return -1;
+        }
+
+        private SAXParseException error(String message) {
+            // Line and column are computed only in case of error
+            int line = 1;
+            int column = 1;
+            int limit = Math.min(mPos, mIn.length);
+            for (int i = 0; i < limit; ++i) {
+                if (mIn[i] == '\n') {
+                    ++line;
+                    column = 1;
+                }
+                else {
+                    ++column;
+                }
+            }
+            return new SAXParseException(message, null, null, line, column);
+        }
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isNameEnd(char c) {
+        return isSpace(c) || c == '>' || c == '/';
+    }
+}
@@ -0,0 +1,311 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Byte-level framing of GUI RPC replies.
+ * <p>
+ * The reply of BOINC core client is terminated by {@code \003} byte. The bytes are
+ * read directly into single reusable buffer (growing when needed), the terminator is
+ * searched in all received bytes (not only at the end of the read chunk) and the
+ * bytes received after the terminator are kept for the next reply.
+ * The reply is decoded to String only once, when it is complete. After an oversized
+ * reply, the buffer can be shrunk back to its initial size by {@link #trim()}.
+ * <p>
+ * Alternatively, the reply can be consumed through {@link #openReplyStream()}, which
+ * does not collect the whole reply, but passes the bytes to the parser as they arrive.
+ */
+class ReplyReader {
+    private static final int MIN_READ_SIZE = 2048;
+
+    private InputStream mInput = null;
+    private final int mInitialSize;
+    private byte[] mBuffer;
+    private int mStart = 0;         // first byte not consumed yet
+    private int mEnd = 0;           // end of received bytes
+    private int mReplyLength = 0;   // length of last reply (without terminator)
+    private int mBytesConsumed = 0; // bytes consumed by last reply (including terminator)
+    private ReplyStream mReplyStream = new ReplyStream();
+
+    /**
+     * Stream of the bytes of single reply.
+     * <p>
+     * The stream ends (returns -1) at the terminator of reply. Closing the stream skips
+     * the remaining bytes of the reply (e.g. when parser stopped on error), so the next
+     * reply can be read. The underlying socket stream is not closed.
+     */
+    private class ReplyStream extends InputStream {
+        private boolean mFinished = false;
+        private boolean mBroken = false;
+
+        private void begin() {
+            mFinished = false;
+            mBroken = false;
+            mReplyLength = 0;
+            mBytesConsumed = 0;
+        }
+
+        // Gets more data from socket into the (empty) buffer; returns false at end of stream
+        private boolean fill() throws IOException {
+            mStart = 0;
+            mEnd = 0;
+            int bytesRead;
+            try {
+                bytesRead = mInput.read(mBuffer, 0, mBuffer.length);
+            }
+            catch (IOException e) {
+                mBroken = true;
+                throw e;
+            }
+            if (bytesRead == -1) {
+                // End of stream before terminator
+                mFinished = true;
+                if (mReplyLength == 0) {
+                    // Nothing was read at all
+                    // Possibly closed socket on other side
+                    mBroken = true;
+                    throw new IOException("No data received");
+                }
+                return false;
+            }
+            mEnd = bytesRead;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (mFinished) return -1;
+            if (mStart == mEnd && !fill()) return -1;
+            int b = mBuffer[mStart++] & 0xff;
+            ++mBytesConsumed;
+            if (b == '\003') {
+                mFinished = true;
+                return -1;
+            }
+            ++mReplyLength;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (mFinished) return -1;
+            if (len == 0) return 0;
+            if (mStart == mEnd && !fill()) return -1;
+            int limit = Math.min(mEnd, mStart + len);
+            int pos = mStart;
+            while (pos < limit && mBuffer[pos] != '\003') {
+                ++pos;
+            }
+            int count = pos - mStart;
+            if (count == 0) {
+                // Terminator is the first pending byte
+                ++mStart;
+                ++mBytesConsumed;
+                mFinished = true;
+                return -1;
+            }
+            System.arraycopy(mBuffer, mStart, b, off, count);
+            mStart = pos;
+            mReplyLength += count;
+            mBytesConsumed += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return mFinished ? 0 : (mEnd - mStart);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mBroken) return;
+            while (!mFinished) {
+                // Skip the rest of reply
+                if (mStart == mEnd) {
+                    mStart = 0;
+                    mEnd = 0;
+                    int bytesRead;
+                    try {
+                        bytesRead = mInput.read(mBuffer, 0, mBuffer.length);
+                    }
+                    catch (IOException e) {
+                        mBroken = true;
+                        throw e;
+                    }
+                    if (bytesRead == -1) {
+                        mFinished = true;
+                        break;
+                    }
+                    mEnd = bytesRead;
+                }
+                while (mStart < mEnd) {
+                    ++mBytesConsumed;
+                    if (mBuffer[mStart++] == '\003') {
+                        mFinished = true;
+                        break;
+                    }
+                    ++mReplyLength;
+                }
+            }
+        }
+    }
+
+    public ReplyReader(int initialSize) {
+        mInitialSize = initialSize;
+        mBuffer = new byte[initialSize];
+    }
+
+    /**
+     * Attaches the reader to the new input stream, discarding all bytes buffered so far
+     * @param input the stream to read from, or null to detach
+     */
+    public void setInput(InputStream input) {
+        mInput = input;
+        mStart = 0;
+        mEnd = 0;
+        mReplyLength = 0;
+        mBytesConsumed = 0;
+    }
+
+    /**
+     * Reads the bytes of the next reply. When the method returns, the reply bytes are available
+     * in {@link #buffer()} from position 0 and of the length {@link #replyLength()}.
+     *
+     * @return true if reply was terminated by {@code \003},
+     *         false if stream reached its end before terminator arrived
+     * @throws IOException if error occurs when reading from stream
+     */
+    public boolean readReply() throws IOException {
+        // Move the unconsumed bytes (belonging to the next reply) to the beginning of buffer
+        int pending = mEnd - mStart;
+        if (pending > 0 && mStart > 0) {
+            System.arraycopy(mBuffer, mStart, mBuffer, 0, pending);
+        }
+        mStart = 0;
+        mEnd = pending;
+        int scanPos = 0;
+        while (true) {
+            for (; scanPos < mEnd; ++scanPos) {
+                if (mBuffer[scanPos] == '\003') {
+                    // Terminator found - reply is complete
+                    mReplyLength = scanPos;
+                    mStart = scanPos + 1;
+                    mBytesConsumed = mStart;
+                    return true;
+                }
+            }
+            if (mBuffer.length - mEnd < MIN_READ_SIZE) {
+                byte[] buffer = new byte[mBuffer.length * 2];
+                System.arraycopy(mBuffer, 0, buffer, 0, mEnd);
+                mBuffer = buffer;
+            }
+            int bytesRead = mInput.read(mBuffer, mEnd, mBuffer.length - mEnd);
+            if (bytesRead == -1) {
+                // End of stream - the reply is what we have got so far
+                mReplyLength = mEnd;
+                mStart = mEnd;
+                mBytesConsumed = mEnd;
+                return false;
+            }
+            mEnd += bytesRead;
+        }
+    }
+
+    /**
+     * Shrinks the buffer back to its initial size, if it was grown by oversized reply.
+     * The bytes of the last reply are discarded, so this must be called only after the reply
+     * was decoded. The pending bytes (belonging to the next reply) are kept; if they do not fit
+     * into the initial size, the buffer is left as it is.
+     */
+    public void trim() {
+        int pending = mEnd - mStart;
+        if (mBuffer.length <= mInitialSize || pending > mInitialSize) return;
+        byte[] buffer = new byte[mInitialSize];
+        System.arraycopy(mBuffer, mStart, buffer, 0, pending);
+        mBuffer = buffer;
+        mStart = 0;
+        mEnd = pending;
+        mReplyLength = 0;
+    }
+
+    /**
+     * Starts reading of the next reply as a stream. The returned stream is valid until
+     * the next call of {@link #readReply()} or {@link #openReplyStream()} and it should be
+     * closed after use, so the unread bytes of reply are skipped.
+     * <p>
+     * When the stream is closed, {@link #replyLength()} and {@link #bytesConsumed()}
+     * give the size of the reply, but {@link #buffer()} does not hold the reply.
+     *
+     * @return stream returning the bytes of reply, without terminator
+     */
+    public InputStream openReplyStream() {
+        mReplyStream.begin();
+        return mReplyStream;
+    }
+
+    /**
+     * @return buffer holding the bytes of last reply, starting at position 0
+     */
+    public final byte[] buffer() {
+        return mBuffer;
+    }
+
+    /**
+     * @return length of the last reply in bytes (terminator not included)
+     */
+    public final int replyLength() {
+        return mReplyLength;
+    }
+
+    /**
+     * @return number of bytes taken from stream by the last reply (terminator included)
+     */
+    public final int bytesConsumed() {
+        return mBytesConsumed;
+    }
+
+    /**
+     * @return number of bytes received, but not consumed by any reply yet
+     */
+    public final int pendingBytes() {
+        return mEnd - mStart;
+    }
+
+    /**
+     * @return current size of the internal buffer
+     */
+    public final int capacity() {
+        return mBuffer.length;
+    }
+
+    /**
+     * Decodes the last reply to String
+     * @param charsetName the name of charset used for decoding
+     * @return decoded reply
+     * @throws IOException if charset is not supported
+     */
+    public String decodeReply(String charsetName) throws IOException {
+        return new String(mBuffer, 0, mReplyLength, charsetName);
+    }
+}
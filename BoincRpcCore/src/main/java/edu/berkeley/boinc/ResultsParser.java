@@ -0,0 +1,379 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Vector;
+
+
+public class ResultsParser extends BaseParser {
+    private static final String TAG = "ResultsParser";
+
+    // Elements handled by this parser, see ELEMENTS
+    private static final int RESULT = 1;
+    private static final int ACTIVE_TASK = 2;
+    private static final int ACTIVE_TASK_STATE = 3;
+    private static final int APP_VERSION_NUM = 4;
+    private static final int CHECKPOINT_CPU_TIME = 5;
+    private static final int CURRENT_CPU_TIME = 6;
+    private static final int FRACTION_DONE = 7;
+    private static final int ELAPSED_TIME = 8;
+    private static final int SWAP_SIZE = 9;
+    private static final int WORKING_SET_SIZE_SMOOTHED = 10;
+    private static final int NAME = 11;
+    private static final int WU_NAME = 12;
+    private static final int PROJECT_URL = 13;
+    private static final int VERSION_NUM = 14;
+    private static final int FINAL_CPU_TIME = 15;
+    private static final int FINAL_ELAPSED_TIME = 16;
+    private static final int STATE = 17;
+    private static final int REPORT_DEADLINE = 18;
+    private static final int RECEIVED_TIME = 19;
+    private static final int ESTIMATED_CPU_TIME_REMAINING = 20;
+    private static final int SUSPENDED_VIA_GUI = 21;
+    private static final int PROJECT_SUSPENDED_VIA_GUI = 22;
+    private static final int RESOURCES = 23;
+
+    private static final TagTable ELEMENTS = new TagTable()
+            .add("result", RESULT)
+            .add("active_task", ACTIVE_TASK)
+            .add("active_task_state", ACTIVE_TASK_STATE)
+            .add("app_version_num", APP_VERSION_NUM)
+            .add("checkpoint_cpu_time", CHECKPOINT_CPU_TIME)
+            .add("current_cpu_time", CURRENT_CPU_TIME)
+            .add("fraction_done", FRACTION_DONE)
+            .add("elapsed_time", ELAPSED_TIME)
+            .add("swap_size", SWAP_SIZE)
+            .add("working_set_size_smoothed", WORKING_SET_SIZE_SMOOTHED)
+            .add("name", NAME)
+            .add("wu_name", WU_NAME)
+            .add("project_url", PROJECT_URL)
+            .add("version_num", VERSION_NUM)
+            .add("final_cpu_time", FINAL_CPU_TIME)
+            .add("final_elapsed_time", FINAL_ELAPSED_TIME)
+            .add("state", STATE)
+            .add("report_deadline", REPORT_DEADLINE)
+            .add("received_time", RECEIVED_TIME)
+            .add("estimated_cpu_time_remaining", ESTIMATED_CPU_TIME_REMAINING)
+            .add("suspended_via_gui", SUSPENDED_VIA_GUI)
+            .add("project_suspended_via_gui", PROJECT_SUSPENDED_VIA_GUI)
+            .add("resources", RESOURCES);
+
+    // Results of previous parsing, reused by parseRecycled()
+    private final Recycler<Result> mRecycler = new Recycler<Result>() {
+        @Override
+        Result create() {
+            return new Result();
+        }
+
+        @Override
+        String key(Result result) {
+            return result.name;
+        }
+
+        @Override
+        void copy(Result from, Result to) {
+            to.name = from.name;
+            to.wu_name = from.wu_name;
+            to.project_url = from.project_url;
+            to.version_num = from.version_num;
+            to.report_deadline = from.report_deadline;
+            to.received_time = from.received_time;
+            to.final_cpu_time = from.final_cpu_time;
+            to.final_elapsed_time = from.final_elapsed_time;
+            to.state = from.state;
+            to.suspended_via_gui = from.suspended_via_gui;
+            to.project_suspended_via_gui = from.project_suspended_via_gui;
+            to.active_task = from.active_task;
+            to.active_task_state = from.active_task_state;
+            to.app_version_num = from.app_version_num;
+            to.checkpoint_cpu_time = from.checkpoint_cpu_time;
+            to.current_cpu_time = from.current_cpu_time;
+            to.fraction_done = from.fraction_done;
+            to.elapsed_time = from.elapsed_time;
+            to.swap_size = from.swap_size;
+            to.working_set_size_smoothed = from.working_set_size_smoothed;
+            to.estimated_cpu_time_remaining = from.estimated_cpu_time_remaining;
+            to.resources = from.resources;
+        }
+    };
+    private Result mResult = null;
+    // The same result from previous parsing (or empty one), its strings are reused if not changed
+    private Result mPrevious = null;
+    private boolean mInActiveTask = false;
+
+    public Vector<Result> getResults() throws AuthorizationFailedException {
+        if (mUnauthorized) throw new AuthorizationFailedException();
+        return mRecycler.result();
+    }
+
+    /**
+     * Parse the RPC result (results) and generate vector of results info
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @return vector of results info
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     */
+    public static Vector<Result> parse(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
+        try {
+            ResultsParser parser = new ResultsParser();
+            Xml.parse(rpcResult, parser);
+            return parser.getResults();
+        } catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            throw new InvalidDataReceivedException("Malformed XML while parsing <results>", e);
+        }
+
+    }
+
+    /**
+     * Parse the RPC result (results) directly from the stream, while it is being received
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @return vector of results info
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public static Vector<Result> parse(InputStream rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        try {
+            ResultsParser parser = new ResultsParser();
+            Xml.parse(rpcResult, Xml.Encoding.UTF_8, parser);
+            return parser.getResults();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML in received stream");
+            throw new InvalidDataReceivedException("Malformed XML while parsing <results>", e);
+        }
+    }
+
+    /**
+     * Parse the RPC result (results) by this parser, updating in place the results returned
+     * by previous call (matched by name), instead of creating new ones
+     * <p>
+     * The returned vector and the results in it are valid only until the next call.
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @return vector of results info, the same vector in each call
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     */
+    public Vector<Result> parseRecycled(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
+        try {
+            reset();
+            Xml.parse(rpcResult, this);
+            return getResults();
+        } catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            throw new InvalidDataReceivedException("Malformed XML while parsing <results>", e);
+        }
+    }
+
+    /**
+     * Parse the RPC result (results) by this parser directly from the stream, updating in place
+     * the results returned by previous call, see {@link #parseRecycled(String)}
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @return vector of results info, the same vector in each call
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public Vector<Result> parseRecycled(InputStream rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        try {
+            reset();
+            Xml.parse(rpcResult, Xml.Encoding.UTF_8, this);
+            return getResults();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML in received stream");
+            throw new InvalidDataReceivedException("Malformed XML while parsing <results>", e);
+        }
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        mRecycler.begin();
+        mResult = null;
+        mPrevious = null;
+        mInActiveTask = false;
+    }
+
+    @Override
+    public void endDocument() {
+        mRecycler.end();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        super.startElement(uri, localName, qName, attributes);
+        switch (ELEMENTS.get(localName)) {
+        case RESULT:
+            if (mResult != null) {
+                // previous <result> not closed - dropping it!
+                Log.i(TAG, "Dropping unfinished <result> data");
+            }
+            mResult = mRecycler.scratch();
+            mPrevious = mRecycler.candidate();
+            break;
+        case ACTIVE_TASK:
+            mInActiveTask = true;
+            break;
+        default:
+            // Another element, hopefully primitive and not constructor
+            // (although unknown constructor does not hurt, because there will be primitive start anyway)
+            mElementStarted = true;
+            mCurrentElement.setLength(0);
+            break;
+        }
+    }
+
+    // Method characters(char[] ch, int start, int length) is implemented by BaseParser,
+    // filling mCurrentElement (including stripping of leading whitespaces)
+    //@Override
+    //public void characters(char[] ch, int start, int length) throws SAXException { }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        super.endElement(uri, localName, qName);
+        try {
+            if (mResult != null) {
+                // We are inside <result>
+                final int element = ELEMENTS.get(localName);
+                if (element == RESULT) {
+                    // Closing tag of <result> - add to vector and be ready for
+                    // next one
+                    if (!mResult.name.equals("")) {
+                        // name is a must
+                        mRecycler.commit(mResult);
+                    }
+                    mResult = null;
+                    mPrevious = null;
+                }
+                else if (element != TagTable.UNKNOWN) {
+                    // Not the closing tag - we decode possible inner tags
+                    trimEnd();
+                    if (mInActiveTask) {
+                        // we are in <active_task>
+                        switch (element) {
+                        case ACTIVE_TASK:
+                            // Closing of <active_task>
+                            mResult.active_task = true;
+                            mInActiveTask = false;
+                            break;
+                        case ACTIVE_TASK_STATE:
+                            mResult.active_task_state = currentInt();
+                            break;
+                        case APP_VERSION_NUM:
+                            mResult.app_version_num = currentInt();
+                            break;
+//						case SCHEDULER_STATE:
+//							mResult.scheduler_state = currentInt();
+//							break;
+                        case CHECKPOINT_CPU_TIME:
+                            mResult.checkpoint_cpu_time = currentDouble();
+                            break;
+                        case CURRENT_CPU_TIME:
+                            mResult.current_cpu_time = currentDouble();
+                            break;
+                        case FRACTION_DONE:
+                            mResult.fraction_done = currentFloat();
+                            break;
+                        case ELAPSED_TIME:
+                            mResult.elapsed_time = currentDouble();
+                            break;
+                        case SWAP_SIZE:
+                            mResult.swap_size = currentDouble();
+                            break;
+                        case WORKING_SET_SIZE_SMOOTHED:
+                            mResult.working_set_size_smoothed = currentDouble();
+                            break;
+                        }
+                    }
+                    else {
+                    // Not in <active_task>
+                        switch (element) {
+                        case NAME:
+                            mResult.name = currentString(mPrevious.name);
+                            if (mResult.name != mPrevious.name) {
+                                // Not the expected one (e.g. new task)
+                                mPrevious = mRecycler.candidate(mResult.name);
+                            }
+                            break;
+                        case WU_NAME:
+                            mResult.wu_name = currentString(mPrevious.wu_name);
+                            break;
+                        case PROJECT_URL:
+                            mResult.project_url = currentSymbol(mPrevious.project_url);
+                            break;
+                        case VERSION_NUM:
+                            mResult.version_num = currentInt();
+                            break;
+//						case READY_TO_REPORT:
+//							mResult.ready_to_report = currentFlag();
+//							break;
+//						case GOT_SERVER_ACK:
+//							mResult.got_server_ack = currentFlag();
+//							break;
+                        case FINAL_CPU_TIME:
+                            mResult.final_cpu_time = currentDouble();
+                            break;
+                        case FINAL_ELAPSED_TIME:
+                            mResult.final_elapsed_time = currentDouble();
+                            break;
+                        case STATE:
+                            mResult.state = currentInt();
+                            break;
+                        case REPORT_DEADLINE:
+                            mResult.report_deadline = currentLong();
+                            break;
+                        case RECEIVED_TIME:
+                            mResult.received_time = currentLong();
+                            break;
+                        case ESTIMATED_CPU_TIME_REMAINING:
+                            mResult.estimated_cpu_time_remaining = currentDouble();
+                            break;
+//						case EXIT_STATUS:
+//							mResult.exit_status = currentInt();
+//							break;
+                        case SUSPENDED_VIA_GUI:
+                            mResult.suspended_via_gui = currentFlag();
+                            break;
+                        case PROJECT_SUSPENDED_VIA_GUI:
+                            mResult.project_suspended_via_gui = currentFlag();
+                            break;
+                        case RESOURCES:
+                            mResult.resources = currentSymbol(mPrevious.resources);
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            Log.i(TAG, "Exception when decoding " + localName);
+        }
+        mElementStarted = false;
+    }
+}
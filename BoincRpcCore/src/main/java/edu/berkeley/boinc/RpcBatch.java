@@ -0,0 +1,300 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Vector;
+
+
+/**
+ * Batch of GUI RPC requests, sent together by {@link RpcClient#execute(RpcBatch)}.
+ * <p>
+ * All the requests of batch are written to the socket back-to-back and then the replies
+ * are read and parsed in the order of requests (BOINC core client handles the requests
+ * of one connection in order), so the whole batch costs about one round trip.
+ * <p>
+ * Each queued request returns its {@link Reply}, which holds the parsed result or the
+ * error of that particular request after the batch is executed:
+ * <pre>
+ * RpcBatch batch = new RpcBatch();
+ * RpcBatch.Reply&lt;CcStatus&gt; status = batch.getCcStatus();
+ * RpcBatch.Reply&lt;Vector&lt;Result&gt;&gt; results = batch.getResults();
+ * rpcClient.execute(batch);
+ * CcStatus ccStatus = status.get();
+ * </pre>
+ * The requests are built and the replies parsed by the same code as the single calls of
+ * {@link RpcClient}, including recycling ({@link RpcClient#setRecycling(boolean)}) and
+ * symbol table ({@link RpcClient#setSymbolTable(SymbolTable)}) of the executing client.
+ */
+public class RpcBatch {
+    private ArrayList<Reply<?>> mReplies = new ArrayList<Reply<?>>();
+
+    /**
+     * Reply to single request of batch
+     *
+     * @param <T> type of parsed result
+     */
+    public static abstract class Reply<T> {
+        private final String mRequest;
+        private boolean mCompleted = false;
+        private T mResult = null;
+        private RpcClientFailedException mError = null;
+
+        private Reply(String request) {
+            mRequest = request;
+        }
+
+        /**
+         * Parses the reply received as String
+         * @param client the client executing the batch (its parsers are used)
+         */
+        abstract T parse(RpcClient client, String reply) throws RpcClientFailedException;
+
+        final String request() {
+            return mRequest;
+        }
+
+        final void complete(T result) {
+            mResult = result;
+            mCompleted = true;
+        }
+
+        final void fail(RpcClientFailedException error) {
+            mError = error;
+            mCompleted = true;
+        }
+
+        /**
+         * @return true if reply was already received (successfully or not)
+         */
+        public final boolean isCompleted() {
+            return mCompleted;
+        }
+
+        /**
+         * Gets the parsed result of the request
+         *
+         * @return parsed result of RPC call
+         * @throws RpcClientFailedException in case of failure of this request:
+         * <ul>
+         * <li>{@link AuthorizationFailedException} in case of unauthorized</li>
+         * <li>{@link InvalidDataReceivedException} in case of incorrect data received</li>
+         * <li>{@link ConnectionFailedException} in case connection failed before reply was received</li>
+         * </ul>
+         * @throws IllegalStateException if batch was not executed yet
+         */
+        public final T get() throws RpcClientFailedException {
+            if (!mCompleted) throw new IllegalStateException("Batch not executed");
+            if (mError != null) throw mError;
+            return mResult;
+        }
+    }
+
+    /**
+     * Reply which can be parsed also directly from stream, when streaming parse
+     * is enabled in the executing client
+     *
+     * @param <T> type of parsed result
+     */
+    static abstract class StreamableReply<T> extends Reply<T> {
+        private StreamableReply(String request) {
+            super(request);
+        }
+
+        /**
+         * Parses the reply directly from stream
+         * @param client the client executing the batch (its parsers are used)
+         */
+        abstract T parse(RpcClient client, InputStream reply) throws RpcClientFailedException, IOException;
+    }
+
+    /**
+     * @return number of requests in batch
+     */
+    public final int size() {
+        return mReplies.size();
+    }
+
+    final Reply<?> reply(int index) {
+        return mReplies.get(index);
+    }
+
+    private <T> Reply<T> add(Reply<T> reply) {
+        mReplies.add(reply);
+        return reply;
+    }
+
+    /*
+     * Requests which can be batched
+     */
+
+    /**
+     * Queues {@code <exchange_versions>} request
+     * @return reply holding version info, or null if (older) client does not support the operation
+     */
+    public Reply<VersionInfo> exchangeVersions() {
+        StringBuilder request = new StringBuilder();
+        RpcClient.buildExchangeVersionsRequest(request);
+        return add(new Reply<VersionInfo>(request.toString()) {
+            @Override
+            VersionInfo parse(RpcClient client, String reply) throws RpcClientFailedException {
+                return VersionInfoParser.parse(reply);
+            }
+        });
+    }
+
+    /**
+     * Queues {@code <get_cc_status/>} request
+     * @return reply holding client status
+     */
+    public Reply<CcStatus> getCcStatus() {
+        return add(new StreamableReply<CcStatus>(RpcClient.GET_CC_STATUS_REQUEST) {
+            @Override
+            CcStatus parse(RpcClient client, String reply) throws RpcClientFailedException {
+                return CcStatusParser.parse(reply);
+            }
+
+            @Override
+            CcStatus parse(RpcClient client, InputStream reply) throws RpcClientFailedException, IOException {
+                return CcStatusParser.parse(reply);
+            }
+        });
+    }
+
+    /**
+     * Queues {@code <get_file_transfers/>} request
+     * @return reply holding file transfers
+     */
+    public Reply<Vector<Transfer>> getFileTransfers() {
+        return add(new StreamableReply<Vector<Transfer>>(RpcClient.GET_FILE_TRANSFERS_REQUEST) {
+            @Override
+            Vector<Transfer> parse(RpcClient client, String reply) throws RpcClientFailedException {
+                return client.parseTransfers(reply);
+            }
+
+            @Override
+            Vector<Transfer> parse(RpcClient client, InputStream reply) throws RpcClientFailedException, IOException {
+                return client.parseTransfers(reply);
+            }
+        });
+    }
+
+    /**
+     * Queues {@code <get_host_info/>} request
+     * @return reply holding host info
+     */
+    public Reply<HostInfo> getHostInfo() {
+        return add(new StreamableReply<HostInfo>(RpcClient.GET_HOST_INFO_REQUEST) {
+            @Override
+            HostInfo parse(RpcClient client, String reply) throws RpcClientFailedException {
+                return HostInfoParser.parse(reply);
+            }
+
+            @Override
+            HostInfo parse(RpcClient client, InputStream reply) throws RpcClientFailedException, IOException {
+                return HostInfoParser.parse(reply);
+            }
+        });
+    }
+
+    /**
+     * Queues {@code <get_message_count/>} request
+     * @return reply holding number of messages (-1 for unsupported operation on older clients)
+     */
+    public Reply<Integer> getMessageCount() {
+        return add(new Reply<Integer>(RpcClient.GET_MESSAGE_COUNT_REQUEST) {
+            @Override
+            Integer parse(RpcClient client, String reply) throws RpcClientFailedException {
+                return MessageCountParser.getSeqno(reply);
+            }
+        });
+    }
+
+    /**
+     * Queues {@code <get_messages/>} request
+     * @param seqNo sequence number of last known message (0 to get all messages)
+     * @return reply holding messages
+     */
+    public Reply<Vector<Message>> getMessages(int seqNo) {
+        // Messages are not parsed from stream: their unescaped bodies are handled
+        // by ReplyLexer, which works on the complete reply
+        return add(new Reply<Vector<Message>>(RpcClient.getMessagesRequest(seqNo)) {
+            @Override
+            Vector<Message> parse(RpcClient client, String reply) throws RpcClientFailedException {
+                return MessagesParser.parse(reply);
+            }
+        });
+    }
+
+    /**
+     * Queues {@code <get_project_status/>} request
+     * @return reply holding projects
+     */
+    public Reply<Vector<Project>> getProjectStatus() {
+        return add(new StreamableReply<Vector<Project>>(RpcClient.GET_PROJECT_STATUS_REQUEST) {
+            @Override
+            Vector<Project> parse(RpcClient client, String reply) throws RpcClientFailedException {
+                return client.parseProjects(reply);
+            }
+
+            @Override
+            Vector<Project> parse(RpcClient client, InputStream reply) throws RpcClientFailedException, IOException {
+                return client.parseProjects(reply);
+            }
+        });
+    }
+
+    /**
+     * Queues {@code <get_results/>} request (only active results)
+     * @return reply holding results
+     */
+    public Reply<Vector<Result>> getActiveResults() {
+        return add(new ResultsReply(RpcClient.GET_ACTIVE_RESULTS_REQUEST, true));
+    }
+
+    /**
+     * Queues {@code <get_results/>} request (all results)
+     * @return reply holding results
+     */
+    public Reply<Vector<Result>> getResults() {
+        return add(new ResultsReply(RpcClient.GET_RESULTS_REQUEST, false));
+    }
+
+    private static class ResultsReply extends StreamableReply<Vector<Result>> {
+        private final boolean mActiveOnly;
+
+        private ResultsReply(String request, boolean activeOnly) {
+            super(request);
+            mActiveOnly = activeOnly;
+        }
+
+        @Override
+        Vector<Result> parse(RpcClient client, String reply) throws RpcClientFailedException {
+            return client.parseResults(reply, mActiveOnly);
+        }
+
+        @Override
+        Vector<Result> parse(RpcClient client, InputStream reply) throws RpcClientFailedException, IOException {
+            return client.parseResults(reply, mActiveOnly);
+        }
+    }
+}
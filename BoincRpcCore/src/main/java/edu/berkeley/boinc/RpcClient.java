@@ -19,8 +19,6 @@
 
 package edu.berkeley.boinc;
 
-import android.util.Log;
-import android.util.Xml;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 import java.io.BufferedReader;
@@ -31,6 +29,7 @@ import java.io.StringReader;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 import java.util.Vector;
 
@@ -46,8 +45,7 @@ public class RpcClient {
     private static final String TAG = "RpcClient";
     private static final int CONNECT_TIMEOUT = 30000;      // 30s
     private static final int READ_TIMEOUT = 15000;         // 15s
-    private static final int READ_BUF_SIZE = 2048;
-    private static final int RESULT_BUILDER_INIT_SIZE = 131072; // Yes, 128K
+    private static final int REPLY_BUFFER_INIT_SIZE = 131072; // Yes, 128K
     private static final int REQUEST_BUILDER_INIT_SIZE = 80;
 
     public static final int PROJECT_UPDATE  = 1;
@@ -63,13 +61,25 @@ public class RpcClient {
     public static final int TRANSFER_RETRY  = 1;
     public static final int TRANSFER_ABORT  = 2;
 
-    private Socket mSocket;
+    private volatile Socket mSocket; // read also by abort() from other thread
+    private volatile HostConnector.Attempt mConnectAttempt = null; // connect in progress, for abort()
     private OutputStreamWriter mOutput;
     private InputStream mInput;
-    private byte[] mReadBuffer = new byte[READ_BUF_SIZE];
-    private StringBuilder mResult = new StringBuilder(RESULT_BUILDER_INIT_SIZE);
+    private ReplyReader mReplyReader = new ReplyReader(REPLY_BUFFER_INIT_SIZE);
     private StringBuilder mRequest = new StringBuilder(REQUEST_BUILDER_INIT_SIZE);
     private NetStats mNetStats = null;
+    private boolean mStreamingParse = false;
+    // Long-lived parsers, when recycling is enabled (see setRecycling())
+    private ResultsParser mResultsParser = null;
+    private ResultsParser mActiveResultsParser = null;
+    private ProjectsParser mProjectsParser = null;
+    private TransfersParser mTransfersParser = null;
+    private SymbolTable mSymbols = null;
+    private AdaptiveTimeouts mTimeouts = null;
+    private TimedInputStream mTimedInput = null;
+    private HostConnector mConnector = null;
+    private SessionRecorder mRecorder = null;
+    private long mReplyStreamStart;
 
     public RpcClient() {}
 
@@ -79,10 +89,10 @@ public class RpcClient {
 
 
     /*
-     * Private classes - Helpers
+     * Helper classes (used also by RpcMultiplexer)
      */
 
-    private class Auth1Parser extends DefaultHandler {
+    static class Auth1Parser extends DefaultHandler {
         private StringBuilder mResult = null;
         private String mCurrentElement = null;
         private boolean mNonceParsed = false;
@@ -109,7 +119,7 @@ public class RpcClient {
         }
     }
 
-    private class Auth2Parser extends DefaultHandler {
+    static class Auth2Parser extends DefaultHandler {
         private StringBuilder mResult = null;
         private boolean mParsed = false;
 
@@ -135,6 +145,126 @@ public class RpcClient {
      * Helper methods
      */
 
+    /**
+     * Enables or disables streaming parse of the replies.
+     * <p>
+     * When enabled, the larger replies (state, results, projects, transfers, host info
+     * and status) are parsed directly from the socket while being received, without
+     * building the whole reply as String first. The replies to other requests are always
+     * received fully before parsing; this includes messages, whose unescaped bodies are
+     * handled by {@link ReplyLexer}, which works on the complete reply.
+     * <p>
+     * In both cases, invalid UTF-8 byte sequences in the reply are replaced during decoding.
+     *
+     * @param enabled true to parse the replies from the socket stream
+     */
+    public void setStreamingParse(boolean enabled) {
+        mStreamingParse = enabled;
+    }
+
+    /**
+     * Sets the symbol table of the session, to share the instances of repeated values
+     * (project URLs, application names, resources) among all parsed objects.
+     * <p>
+     * The table is used when parsing the replies of {@link #getState(int)} and, when recycling is
+     * enabled (see {@link #setRecycling(boolean)}), of the results, projects and transfers.
+     *
+     * @param symbols the table, or null to not use any
+     */
+    public void setSymbolTable(SymbolTable symbols) {
+        mSymbols = symbols;
+        applySymbolTable();
+    }
+
+    private void applySymbolTable() {
+        if (mResultsParser != null) {
+            mResultsParser.setSymbolTable(mSymbols);
+            mActiveResultsParser.setSymbolTable(mSymbols);
+            mProjectsParser.setSymbolTable(mSymbols);
+            mTransfersParser.setSymbolTable(mSymbols);
+        }
+    }
+
+    /**
+     * Enables or disables recycling of parsers and parsed objects.
+     * <p>
+     * When enabled, the replies to {@link #getResults()}, {@link #getActiveResults()},
+     * {@link #getProjectStatus()} and {@link #getFileTransfers()} (also when requested through
+     * {@link RpcBatch}) are parsed by the same parser
+     * on each call, and the objects returned by the previous call of the same method are updated
+     * in place (matched by name), instead of creating new ones. This saves most of allocations
+     * when the same client is polled periodically.
+     * <p>
+     * The returned vector and its objects are then valid only until the next call of the same
+     * method, so the caller must not keep them (nor pass them to other threads).
+     *
+     * @param enabled true to reuse parsers and parsed objects
+     */
+    public void setRecycling(boolean enabled) {
+        if (enabled) {
+            if (mResultsParser == null) {
+                mResultsParser = new ResultsParser();
+                mActiveResultsParser = new ResultsParser();
+                mProjectsParser = new ProjectsParser();
+                mTransfersParser = new TransfersParser();
+                applySymbolTable();
+            }
+        }
+        else {
+            mResultsParser = null;
+            mActiveResultsParser = null;
+            mProjectsParser = null;
+            mTransfersParser = null;
+        }
+    }
+
+    /**
+     * Sets the initial size of the buffer for received replies (128 KB by default).
+     * The socket is read in chunks up to the free space of buffer and the buffer grows
+     * when reply does not fit, so the size trades memory for the number of reads.
+     * Must be set before {@link #open(String, int)}.
+     *
+     * @param size initial size of buffer in bytes
+     */
+    public void setReplyBufferSize(int size) {
+        mReplyReader = new ReplyReader(size);
+    }
+
+    /**
+     * Sets the timeouts adapted to the host. When set, the connect timeout and the timeouts
+     * of replies are taken from them (instead of fixed 30 seconds for connect and 15 seconds
+     * for reading) and the measured durations are reported to them.
+     * Must be set before {@link #open(String, int)}.
+     *
+     * @param timeouts timeouts of the host, or null to use fixed timeouts
+     */
+    public void setAdaptiveTimeouts(AdaptiveTimeouts timeouts) {
+        mTimeouts = timeouts;
+    }
+
+    /**
+     * Sets the connector used to open the connection. When set, the resolved addresses
+     * of host are cached by connector and all the addresses are tried in parallel
+     * (instead of resolving the host on each connect and trying only its first address).
+     * Must be set before {@link #open(String, int)}.
+     *
+     * @param connector connector (can be shared by more clients), or null to connect directly
+     */
+    public void setHostConnector(HostConnector connector) {
+        mConnector = connector;
+    }
+
+    /**
+     * Sets the recorder of the session. When set, all requests and the received replies
+     * are recorded with timing (e.g. for replaying them later in benchmarks).
+     * Must be set before {@link #open(String, int)}; the recorder is not closed by this client.
+     *
+     * @param recorder the recorder, or null to stop recording
+     */
+    public void setSessionRecorder(SessionRecorder recorder) {
+        mRecorder = recorder;
+    }
+
     private static final String modeName(int mode) {
         switch (mode) {
         case 1: return "<always/>";
@@ -163,11 +293,36 @@ public class RpcClient {
             close();
         }
         try {
-            mSocket = new Socket();
-            mSocket.connect(new InetSocketAddress(address, port), CONNECT_TIMEOUT);
+            final int connectTimeout = (mTimeouts != null) ? mTimeouts.connectTimeout() : CONNECT_TIMEOUT;
+            long connectStart = System.nanoTime();
+            if (mConnector != null) {
+                HostConnector.Attempt attempt = new HostConnector.Attempt();
+                mConnectAttempt = attempt;
+                try {
+                    mSocket = mConnector.connect(address, port, connectTimeout, attempt);
+                }
+                finally {
+                    mConnectAttempt = null;
+                }
+            }
+            else {
+                mSocket = new Socket();
+                mSocket.connect(new InetSocketAddress(address, port), connectTimeout);
+            }
+            if (mTimeouts != null) {
+                mTimeouts.connectCompleted((System.nanoTime() - connectStart) / 1000000.0F);
+            }
             mSocket.setSoTimeout(READ_TIMEOUT);
             mInput = mSocket.getInputStream();
+            if (mTimeouts != null) {
+                mTimedInput = new TimedInputStream(mInput, mSocket, mTimeouts);
+                mInput = mTimedInput;
+            }
+            if (mRecorder != null) {
+                mInput = mRecorder.wrap(mInput);
+            }
             mOutput = new OutputStreamWriter(mSocket.getOutputStream(), "ISO8859_1");
+            mReplyReader.setInput(mInput);
         }
         catch (UnknownHostException e) {
             mSocket = null;
@@ -177,6 +332,13 @@ public class RpcClient {
             mSocket = null;
             throw new ConnectionFailedException("Connection failed: illegal argument", e);
         }
+        catch (SocketTimeoutException e) {
+            mSocket = null;
+            if (mTimeouts != null) {
+                mTimeouts.connectTimedOut();
+            }
+            throw new ConnectionFailedException("Connect failed", e);
+        }
         catch (IOException e) {
             mSocket = null;
             throw new ConnectionFailedException("Connect failed", e);
@@ -184,7 +346,7 @@ public class RpcClient {
         if (mNetStats != null) {
             mNetStats.connectionOpened();
         }
-        if (BuildConfig.DEBUG) Log.d(TAG, "open(" + address + ", " + port + ") - Connected successfully");
+        if (DebugFlags.DEBUG) Log.d(TAG, "open(" + address + ", " + port + ") - Connected successfully");
     }
 
     /**
@@ -209,7 +371,7 @@ public class RpcClient {
         }
         try {
             mSocket.close();
-            if (BuildConfig.DEBUG) Log.d(TAG, "close() - Socket closed");
+            if (DebugFlags.DEBUG) Log.d(TAG, "close() - Socket closed");
         }
         catch (IOException e) {
             Log.w(TAG, "socket close failure", e);
@@ -217,7 +379,12 @@ public class RpcClient {
         finally {
             mSocket = null;
             mInput = null;
+            mTimedInput = null;
             mOutput = null;
+            mReplyReader.setInput(null);
+            if (mRecorder != null) {
+                mRecorder.connectionClosed();
+            }
         }
         if (mNetStats != null) {
             mNetStats.connectionClosed();
@@ -259,10 +426,10 @@ public class RpcClient {
             mRequest.setLength(0);
             Xml.parse(auth2Rsp, new Auth2Parser(mRequest));
             if (!mRequest.toString().equals("authorized")) {
-                if (BuildConfig.DEBUG) Log.d(TAG, "authorize() - Failure");
+                if (DebugFlags.DEBUG) Log.d(TAG, "authorize() - Failure");
                 throw new AuthorizationFailedException();
             }
-            if (BuildConfig.DEBUG) Log.d(TAG, "authorize() - Successful");
+            if (DebugFlags.DEBUG) Log.d(TAG, "authorize() - Successful");
         }
         catch (IOException e) {
             throw new ConnectionFailedException("Connection failed during authorization", e);
@@ -280,6 +447,48 @@ public class RpcClient {
         return (mSocket != null) && mSocket.isConnected();
     }
 
+    /**
+     * Sets the timeout of waiting for data from client (the default is 15 seconds).
+     * When adaptive timeouts are set (see {@link #setAdaptiveTimeouts(AdaptiveTimeouts)}),
+     * they still decide the timeout of each read, but they are limited by this timeout
+     * until the connection is closed.
+     * @param timeout timeout in milliseconds
+     */
+    public void setReadTimeout(int timeout) {
+        if (mTimedInput != null) {
+            mTimedInput.setLimit(timeout);
+        }
+        if (isConnected()) {
+            try {
+                mSocket.setSoTimeout(timeout);
+            }
+            catch (SocketException e) {
+                Log.w(TAG, "SocketException", e);
+            }
+        }
+    }
+
+    /**
+     * Aborts the operation in progress; intended to be called from other thread than
+     * the one performing the operation. Only the socket is closed here, so the blocked
+     * connect, read or write fails immediately; {@link #close()} must be called afterwards.
+     */
+    void abort() {
+        HostConnector.Attempt attempt = mConnectAttempt;
+        if (attempt != null) {
+            attempt.cancel();
+        }
+        Socket socket = mSocket;
+        if (socket == null) return;
+        try {
+            socket.close();
+            if (DebugFlags.DEBUG) Log.d(TAG, "abort() - Socket closed");
+        }
+        catch (IOException e) {
+            Log.w(TAG, "socket close failure", e);
+        }
+    }
+
     /**
      * Used for testing, to avoid long waiting times when checking connection failed scenarios
      */
@@ -305,7 +514,7 @@ public class RpcClient {
         if (!isConnected()) return false;
         try {
             // We just get the status via socket and do not parse reply
-            sendRequest("<get_cc_status/>\n");
+            sendRequest(GET_CC_STATUS_REQUEST);
             String result = receiveReply();
             if (result.length() == 0) {
                 // End of stream reached and no data were received in reply
@@ -316,9 +525,53 @@ public class RpcClient {
             return true;
         }
         catch (IOException e) {
-            if (BuildConfig.DEBUG) Log.d(TAG, "connectionAlive(): disconnected", e);
+            if (DebugFlags.DEBUG) Log.d(TAG, "connectionAlive(): disconnected", e);
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether idle connection (without any request pending) can still be used,
+     * without sending any request.
+     * <p>
+     * The socket is read with very short timeout, so the connection closed by the other side
+     * (e.g. client shut down or closed the idle connection) is detected without a round trip.
+     * Unlike {@link #connectionAlive()} this does not detect silently lost peer
+     * (e.g. network dropped without closing socket).
+     *
+     * @return true if connection seems to be usable, false if it is closed or unexpected data were received
+     */
+    public boolean idleConnectionAlive() {
+        if (!isConnected()) return false;
+        if (mReplyReader.pendingBytes() > 0) {
+            // Data not belonging to any request
+            return false;
+        }
+        int soTimeout = READ_TIMEOUT;
+        try {
+            soTimeout = mSocket.getSoTimeout();
+            mSocket.setSoTimeout(1);
+            mInput.read();
+            // Either end of stream reached (socket closed on the other side),
+            // or data not belonging to any request received
+            return false;
+        }
+        catch (SocketTimeoutException e) {
+            // Nothing to read - as expected for idle connection
+            return true;
+        }
+        catch (IOException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "idleConnectionAlive(): disconnected", e);
             return false;
         }
+        finally {
+            try {
+                mSocket.setSoTimeout(soTimeout);
+            }
+            catch (SocketException e) {
+                Log.w(TAG, "SocketException", e);
+            }
+        }
     }
 
     /*
@@ -332,12 +585,46 @@ public class RpcClient {
      * @throws IOException if error occurs when sending the request
      */
     private void sendRequest(String request) throws IOException {
-        if (BuildConfig.DEBUG_PERFORMANCE) Log.d(TAG, "mRequest.capacity() = " + mRequest.capacity());
-        if (BuildConfig.DEBUG_DATA) Log.d(TAG, "Sending request: \n" + request.toString());
+        if (DebugFlags.DEBUG_PERFORMANCE) Log.d(TAG, "mRequest.capacity() = " + mRequest.capacity());
+        writeRequest(request);
+        mOutput.flush();
+        expectReply(request, System.nanoTime());
+    }
+
+    /**
+     * Start waiting for the reply to request - the timeout is set accordingly.
+     * When the beginning of reply was already received (pipelined replies of batch),
+     * the reply is treated as started and only its progress is watched.
+     *
+     * @param request The request which reply is expected now
+     * @param sentAt The time when the request was flushed, by {@link System#nanoTime()}
+     * @throws IOException if socket timeout cannot be set
+     */
+    private void expectReply(String request, long sentAt) throws IOException {
+        if (mTimedInput != null) {
+            if (mReplyReader.pendingBytes() == 0) {
+                mTimedInput.expectReply(TimedInputStream.rpcName(request), sentAt);
+            }
+            else {
+                mTimedInput.replyInProgress();
+            }
+        }
+    }
+
+    /**
+     * Write RPC request to output, without flushing it
+     *
+     * @param request The request itself
+     * @throws IOException if error occurs when writing the request
+     */
+    private void writeRequest(String request) throws IOException {
+        if (DebugFlags.DEBUG_DATA) Log.d(TAG, "Sending request: \n" + request.toString());
         mOutput.write("<boinc_gui_rpc_request>\n");
         mOutput.write(request);
         mOutput.write("</boinc_gui_rpc_request>\n\003");
-        mOutput.flush();
+        if (mRecorder != null) {
+            mRecorder.requestSent(request);
+        }
         if (mNetStats != null) {
             mNetStats.bytesTransferred(50 + request.length());
         }
@@ -350,47 +637,42 @@ public class RpcClient {
      * @throws IOException if error occurs when reading from socket
      */
     private String receiveReply() throws IOException {
-        mResult.setLength(0);
-        if (BuildConfig.DEBUG_PERFORMANCE) Log.d(TAG, "mResult.capacity() = " + mResult.capacity());
-
-        long readStart;
-        if (BuildConfig.DEBUG_PERFORMANCE) readStart = System.nanoTime();
-
-        // Speed is (with large data): ~ 45 KB/s for buffer size 1024
-        //                             ~ 90 KB/s for buffer size 2048
-        //                             ~ 95 KB/s for buffer size 4096
-        // The chosen buffer size is 2048
-        int bytesRead;
-        do {
-            bytesRead = mInput.read(mReadBuffer);
-            if (bytesRead == -1) break;
-            mResult.append(new String(mReadBuffer, 0, bytesRead));
-            if (mReadBuffer[bytesRead-1] == '\003') {
-                // Last read byte marks the end of transfer
-                mResult.setLength(mResult.length() - 1);
-                break;
-            }
-        } while (true);
-        if (mResult.length() == 0) {
+        if (DebugFlags.DEBUG_PERFORMANCE) Log.d(TAG, "mReplyReader.capacity() = " + mReplyReader.capacity());
+
+        long readStart = 0;
+        if (DebugFlags.DEBUG_PERFORMANCE) readStart = System.nanoTime();
+
+        // The reply is collected as raw bytes directly in the buffer of ReplyReader
+        // (no per-chunk String conversion) and decoded only once, when complete.
+        // This way also multi-byte characters split between two reads are decoded correctly.
+        mReplyReader.readReply();
+        if (mTimedInput != null) {
+            mTimedInput.replyFinished();
+        }
+        final int replyLength = mReplyReader.replyLength();
+        if (replyLength == 0) {
             // Nothing was read at all
             // Possibly closed socket on other side
             throw new IOException("No data received");
         }
 
-        if (BuildConfig.DEBUG_PERFORMANCE) {
+        if (DebugFlags.DEBUG_PERFORMANCE) {
             float duration = (System.nanoTime() - readStart)/1000000000.0F;
-            long bytesCount = mResult.length();
+            long bytesCount = replyLength;
             if (duration == 0) duration = 0.001F;
             Log.d(TAG, "Reading from socket took " + duration + " seconds, " + bytesCount + " bytes read (" + (bytesCount / duration) + " bytes/second)");
-            Log.d(TAG, "mResult.capacity() = " + mResult.capacity());
+            Log.d(TAG, "mReplyReader.capacity() = " + mReplyReader.capacity());
         }
 
         if (mNetStats != null) {
-            mNetStats.bytesReceived(mResult.length() + 1);
+            mNetStats.bytesReceived(mReplyReader.bytesConsumed());
         }
 
-        if (BuildConfig.DEBUG_DATA) {
-            BufferedReader dbr = new BufferedReader(new StringReader(mResult.toString()), 1024);
+        String result = mReplyReader.decodeReply("UTF-8");
+        // Do not keep the buffer grown by single large reply (e.g. get_state) for whole session
+        mReplyReader.trim();
+        if (DebugFlags.DEBUG_DATA) {
+            BufferedReader dbr = new BufferedReader(new StringReader(result), 1024);
             String dl;
             int ln = 0;
             try {
@@ -402,7 +684,178 @@ public class RpcClient {
             catch (IOException ioe) {
             }
         }
-        return mResult.toString();
+        return result;
+    }
+
+    /**
+     * Start reading the reply from BOINC core client as stream. Parser can consume
+     * the data as they arrive; the stream ends at the end of reply.
+     * The stream must be closed by {@link #closeReplyStream(InputStream)}.
+     *
+     * @return stream of reply data
+     */
+    private InputStream receiveReplyStream() {
+        if (DebugFlags.DEBUG_DATA) Log.d(TAG, "Receiving reply as stream, data not logged");
+        if (DebugFlags.DEBUG_PERFORMANCE) mReplyStreamStart = System.nanoTime();
+        return mReplyReader.openReplyStream();
+    }
+
+    /**
+     * Finish reading the reply stream - the rest of reply is skipped if not read yet
+     *
+     * @param reply stream returned by {@link #receiveReplyStream()}
+     * @throws IOException if error occurs when reading from socket
+     */
+    private void closeReplyStream(InputStream reply) throws IOException {
+        reply.close();
+        if (mTimedInput != null) {
+            mTimedInput.replyFinished();
+        }
+        if (DebugFlags.DEBUG_PERFORMANCE) {
+            float duration = (System.nanoTime() - mReplyStreamStart)/1000000000.0F;
+            long bytesCount = mReplyReader.replyLength();
+            if (duration == 0) duration = 0.001F;
+            Log.d(TAG, "Reading and parsing stream took " + duration + " seconds, " + bytesCount + " bytes read (" + (bytesCount / duration) + " bytes/second)");
+        }
+        if (mNetStats != null) {
+            mNetStats.bytesReceived(mReplyReader.bytesConsumed());
+        }
+    }
+
+    /**
+     * Receive and parse the reply to single request of batch. The error of parsing
+     * (including unauthorized) is stored in the reply; only socket error is thrown.
+     *
+     * @param reply the reply of batch to be completed
+     * @throws IOException if error occurs when reading from socket
+     */
+    private <T> void receiveBatchReply(RpcBatch.Reply<T> reply) throws IOException {
+        try {
+            T result;
+            if (mStreamingParse && (reply instanceof RpcBatch.StreamableReply)) {
+                InputStream replyStream = receiveReplyStream();
+                try {
+                    result = ((RpcBatch.StreamableReply<T>)reply).parse(this, replyStream);
+                }
+                finally {
+                    closeReplyStream(replyStream);
+                }
+            }
+            else {
+                result = reply.parse(this, receiveReply());
+            }
+            reply.complete(result);
+        }
+        catch (RpcClientFailedException e) {
+            reply.fail(e);
+        }
+    }
+
+    /*
+     * Batch of GUI RPC calls
+     */
+
+    /**
+     * Performs all the requests of batch - the requests are sent together and then
+     * the replies are received in order. The results (or errors) of individual requests
+     * are available in the replies of batch.
+     *
+     * @param batch the requests to perform
+     * @throws ConnectionFailedException in case connection fails; the replies not received
+     *         until failure are completed with the same exception
+     */
+    public void execute(RpcBatch batch) throws ConnectionFailedException {
+        final int count = batch.size();
+        int received = 0;
+        try {
+            if (!isConnected()) {
+                throw new IOException("Not connected");
+            }
+            for (int i = 0; i < count; ++i) {
+                writeRequest(batch.reply(i).request());
+            }
+            mOutput.flush();
+            // All requests were sent now; the time to the first bytes of each reply is
+            // measured from here (not from the end of the previous reply), so the
+            // replies waiting in socket buffer are not taken as immediate ones
+            final long sentAt = System.nanoTime();
+            for (; received < count; ++received) {
+                RpcBatch.Reply<?> reply = batch.reply(received);
+                expectReply(reply.request(), sentAt);
+                receiveBatchReply(reply);
+            }
+        }
+        catch (IOException e) {
+            ConnectionFailedException failure = new ConnectionFailedException("Connection failed in execute()", e);
+            for (; received < count; ++received) {
+                batch.reply(received).fail(failure);
+            }
+            throw failure;
+        }
+    }
+
+    /*
+     * Requests and parsing shared by the GUI RPC calls and by RpcBatch
+     */
+
+    static final String GET_CC_STATUS_REQUEST = "<get_cc_status/>\n";
+    static final String GET_FILE_TRANSFERS_REQUEST = "<get_file_transfers/>\n";
+    static final String GET_HOST_INFO_REQUEST = "<get_host_info/>\n";
+    static final String GET_MESSAGE_COUNT_REQUEST = "<get_message_count/>\n";
+    static final String GET_PROJECT_STATUS_REQUEST = "<get_project_status/>\n";
+    static final String GET_RESULTS_REQUEST = "<get_results/>\n";
+    static final String GET_ACTIVE_RESULTS_REQUEST =
+        "<get_results>\n" +
+        "<active_only>1</active_only>\n" +
+        "</get_results>\n";
+
+    static void buildExchangeVersionsRequest(StringBuilder request) {
+        request.append("<exchange_versions>\n  <major>");
+        request.append(Boinc.MAJOR_VERSION);
+        request.append("</major>\n  <minor>");
+        request.append(Boinc.MINOR_VERSION);
+        request.append("</minor>\n  <release>");
+        request.append(Boinc.RELEASE);
+        request.append("</release>\n</exchange_versions>\n");
+    }
+
+    static String getMessagesRequest(int seqNo) {
+        if (seqNo == 0) {
+            // get all messages
+            return "<get_messages/>\n";
+        }
+        return
+            "<get_messages>\n" +
+            " <seqno>" + seqNo + "</seqno>\n" +
+            "</get_messages>\n";
+    }
+
+    // The parsers below use the recycled parsers when recycling is enabled (see setRecycling())
+
+    Vector<Transfer> parseTransfers(String reply) throws RpcClientFailedException {
+        return (mTransfersParser != null) ? mTransfersParser.parseRecycled(reply) : TransfersParser.parse(reply);
+    }
+
+    Vector<Transfer> parseTransfers(InputStream reply) throws RpcClientFailedException, IOException {
+        return (mTransfersParser != null) ? mTransfersParser.parseRecycled(reply) : TransfersParser.parse(reply);
+    }
+
+    Vector<Project> parseProjects(String reply) throws RpcClientFailedException {
+        return (mProjectsParser != null) ? mProjectsParser.parseRecycled(reply) : ProjectsParser.parse(reply);
+    }
+
+    Vector<Project> parseProjects(InputStream reply) throws RpcClientFailedException, IOException {
+        return (mProjectsParser != null) ? mProjectsParser.parseRecycled(reply) : ProjectsParser.parse(reply);
+    }
+
+    Vector<Result> parseResults(String reply, boolean activeOnly) throws RpcClientFailedException {
+        ResultsParser parser = activeOnly ? mActiveResultsParser : mResultsParser;
+        return (parser != null) ? parser.parseRecycled(reply) : ResultsParser.parse(reply);
+    }
+
+    Vector<Result> parseResults(InputStream reply, boolean activeOnly) throws RpcClientFailedException, IOException {
+        ResultsParser parser = activeOnly ? mActiveResultsParser : mResultsParser;
+        return (parser != null) ? parser.parseRecycled(reply) : ResultsParser.parse(reply);
     }
 
     /*
@@ -423,13 +876,7 @@ public class RpcClient {
      */
     public VersionInfo exchangeVersions() throws RpcClientFailedException {
         mRequest.setLength(0);
-        mRequest.append("<exchange_versions>\n  <major>");
-        mRequest.append(Boinc.MAJOR_VERSION);
-        mRequest.append("</major>\n  <minor>");
-        mRequest.append(Boinc.MINOR_VERSION);
-        mRequest.append("</minor>\n  <release>");
-        mRequest.append(Boinc.RELEASE);
-        mRequest.append("</release>\n</exchange_versions>\n");
+        buildExchangeVersionsRequest(mRequest);
         try {
             sendRequest(mRequest.toString());
             VersionInfo versionInfo = VersionInfoParser.parse(receiveReply());
@@ -453,8 +900,20 @@ public class RpcClient {
      */
     public CcStatus getCcStatus() throws RpcClientFailedException {
         try {
-            sendRequest("<get_cc_status/>\n");
-            CcStatus ccStatus = CcStatusParser.parse(receiveReply());
+            sendRequest(GET_CC_STATUS_REQUEST);
+            CcStatus ccStatus;
+            if (mStreamingParse) {
+                InputStream reply = receiveReplyStream();
+                try {
+                    ccStatus = CcStatusParser.parse(reply);
+                }
+                finally {
+                    closeReplyStream(reply);
+                }
+            }
+            else {
+                ccStatus = CcStatusParser.parse(receiveReply());
+            }
             return ccStatus;
         }
         catch (IOException e) {
@@ -475,8 +934,20 @@ public class RpcClient {
      */
     public Vector<Transfer> getFileTransfers() throws RpcClientFailedException {
         try {
-            sendRequest("<get_file_transfers/>\n");
-            Vector<Transfer> transfers = TransfersParser.parse(receiveReply());
+            sendRequest(GET_FILE_TRANSFERS_REQUEST);
+            Vector<Transfer> transfers;
+            if (mStreamingParse) {
+                InputStream reply = receiveReplyStream();
+                try {
+                    transfers = parseTransfers(reply);
+                }
+                finally {
+                    closeReplyStream(reply);
+                }
+            }
+            else {
+                transfers = parseTransfers(receiveReply());
+            }
             return transfers;
         }
         catch (IOException e) {
@@ -497,8 +968,20 @@ public class RpcClient {
      */
     public HostInfo getHostInfo() throws RpcClientFailedException {
         try {
-            sendRequest("<get_host_info/>\n");
-            HostInfo hostInfo = HostInfoParser.parse(receiveReply());
+            sendRequest(GET_HOST_INFO_REQUEST);
+            HostInfo hostInfo;
+            if (mStreamingParse) {
+                InputStream reply = receiveReplyStream();
+                try {
+                    hostInfo = HostInfoParser.parse(reply);
+                }
+                finally {
+                    closeReplyStream(reply);
+                }
+            }
+            else {
+                hostInfo = HostInfoParser.parse(receiveReply());
+            }
             return hostInfo;
         }
         catch (IOException e) {
@@ -519,7 +1002,7 @@ public class RpcClient {
      */
     public int getMessageCount() throws RpcClientFailedException {
         try {
-            sendRequest("<get_message_count/>\n");
+            sendRequest(GET_MESSAGE_COUNT_REQUEST);
             return MessageCountParser.getSeqno(receiveReply());
         }
         catch (IOException e) {
@@ -540,18 +1023,7 @@ public class RpcClient {
      */
     public Vector<Message> getMessages(int seqNo) throws RpcClientFailedException {
         try {
-            String request;
-            if (seqNo == 0) {
-                // get all messages
-                request = "<get_messages/>\n";
-            }
-            else {
-                request =
-                    "<get_messages>\n" +
-                    " <seqno>" + seqNo + "</seqno>\n" +
-                    "</get_messages>\n";
-            }
-            sendRequest(request);
+            sendRequest(getMessagesRequest(seqNo));
             Vector<Message> messages = MessagesParser.parse(receiveReply());
             return messages;
         }
@@ -573,8 +1045,20 @@ public class RpcClient {
      */
     public Vector<Project> getProjectStatus() throws RpcClientFailedException {
         try {
-            sendRequest("<get_project_status/>\n");
-            Vector<Project> projects = ProjectsParser.parse(receiveReply());
+            sendRequest(GET_PROJECT_STATUS_REQUEST);
+            Vector<Project> projects;
+            if (mStreamingParse) {
+                InputStream reply = receiveReplyStream();
+                try {
+                    projects = parseProjects(reply);
+                }
+                finally {
+                    closeReplyStream(reply);
+                }
+            }
+            else {
+                projects = parseProjects(receiveReply());
+            }
             return projects;
         }
         catch (IOException e) {
@@ -594,13 +1078,21 @@ public class RpcClient {
      * </ul>
      */
     public Vector<Result> getActiveResults() throws RpcClientFailedException {
-        final String request =
-            "<get_results>\n" +
-            "<active_only>1</active_only>\n" +
-            "</get_results>\n";
         try {
-            sendRequest(request);
-            Vector<Result> results = ResultsParser.parse(receiveReply());
+            sendRequest(GET_ACTIVE_RESULTS_REQUEST);
+            Vector<Result> results;
+            if (mStreamingParse) {
+                InputStream reply = receiveReplyStream();
+                try {
+                    results = parseResults(reply, true);
+                }
+                finally {
+                    closeReplyStream(reply);
+                }
+            }
+            else {
+                results = parseResults(receiveReply(), true);
+            }
             return results;
         }
         catch (IOException e) {
@@ -621,8 +1113,20 @@ public class RpcClient {
      */
     public Vector<Result> getResults() throws RpcClientFailedException {
         try {
-            sendRequest("<get_results/>\n");
-            Vector<Result> results = ResultsParser.parse(receiveReply());
+            sendRequest(GET_RESULTS_REQUEST);
+            Vector<Result> results;
+            if (mStreamingParse) {
+                InputStream reply = receiveReplyStream();
+                try {
+                    results = parseResults(reply, false);
+                }
+                finally {
+                    closeReplyStream(reply);
+                }
+            }
+            else {
+                results = parseResults(receiveReply(), false);
+            }
             return results;
         }
         catch (IOException e) {
@@ -642,9 +1146,41 @@ public class RpcClient {
      * </ul>
      */
     public CcState getState() throws RpcClientFailedException {
+        return getState(CcState.ALL);
+    }
+
+    /**
+     * Performs get_state RPC towards BOINC client, parsing only the given sections of the reply.
+     * The client always sends the complete state, but the sections not requested are skipped
+     * during parsing (no objects are created for them) and they are null in returned state.
+     *
+     * @param sections the sections to be parsed, combination of {@link CcState#HOST_INFO},
+     *                 {@link CcState#PROJECTS}, {@link CcState#APPS}, {@link CcState#WORKUNITS}
+     *                 and {@link CcState#RESULTS}; or {@link CcState#VERSION_ONLY}
+     * @return parsed result of RPC call in case of success
+     * @throws RpcClientFailedException in case of failure:
+     * <ul>
+     * <li>{@link AuthorizationFailedException} in case of unauthorized</li>
+     * <li>{@link InvalidDataReceivedException} in case of incorrect data received</li>
+     * <li>{@link ConnectionFailedException} in case connection fails</li>
+     * </ul>
+     */
+    public CcState getState(int sections) throws RpcClientFailedException {
         try {
             sendRequest("<get_state/>\n");
-            CcState result = CcStateParser.parse(receiveReply());
+            CcState result;
+            if (mStreamingParse) {
+                InputStream reply = receiveReplyStream();
+                try {
+                    result = CcStateParser.parse(reply, sections, mSymbols);
+                }
+                finally {
+                    closeReplyStream(reply);
+                }
+            }
+            else {
+                result = CcStateParser.parse(receiveReply(), sections, mSymbols);
+            }
             return result;
         }
         catch (IOException e) {
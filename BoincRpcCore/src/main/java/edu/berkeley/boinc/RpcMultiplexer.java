@@ -0,0 +1,621 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.SAXException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+
+/**
+ * GUI RPC transport handling many connections to BOINC core clients on single thread.
+ * <p>
+ * Each {@link Session} is one GUI RPC connection (non-blocking {@link SocketChannel}),
+ * all sessions are served by one I/O thread using {@link Selector}.
+ * Session performs connect and authorization (auth1/auth2) by itself; afterwards
+ * the requests are written as soon as possible (more requests can be pipelined on one
+ * session) and the {@code \003} terminated replies are delivered to callbacks in order
+ * of requests.
+ * <p>
+ * The replies are delivered as raw XML; caller parses them by appropriate parser,
+ * e.g. {@link ResultsParser#parse(String)}.
+ * <p>
+ * All callbacks are called on the I/O thread of multiplexer, so they should not block.
+ * An exception thrown by callback is logged and does not affect the other sessions.
+ * The methods of multiplexer and sessions can be called from any thread; when the multiplexer
+ * is not running (not started yet or already stopped), the requests fail immediately.
+ */
+public class RpcMultiplexer {
+    private static final String TAG = "RpcMultiplexer";
+    private static final int CONNECT_TIMEOUT = 30000;      // 30s
+    private static final int READ_TIMEOUT = 15000;         // 15s
+    private static final int SELECT_TIMEOUT = 1000;        // 1s, granularity of timeouts check
+    private static final int READ_BUF_SIZE = 8192;
+    private static final int REPLY_BUFFER_INIT_SIZE = 8192;
+
+    private static final int STATE_CONNECTING     = 0;
+    private static final int STATE_AUTHORIZING    = 1;
+    private static final int STATE_READY          = 2;
+    private static final int STATE_CLOSED         = 3;
+
+    /**
+     * Receiver of reply to single request
+     */
+    public interface ReplyCallback {
+        /**
+         * Reply to request was received
+         * @param session session where the request was sent
+         * @param reply the reply data (without terminator)
+         */
+        public abstract void onReply(Session session, String reply);
+
+        /**
+         * Request failed - session was closed or connection failed before reply was received
+         * @param session session where the request was sent
+         * @param e the reason of failure
+         */
+        public abstract void onFailure(Session session, RpcClientFailedException e);
+    }
+
+    /**
+     * Receiver of session state changes
+     */
+    public interface SessionListener {
+        /**
+         * Session is connected and authorized, the requests will be sent now
+         * @param session the session which became ready
+         */
+        public abstract void sessionReady(Session session);
+
+        /**
+         * Session failed (connect failed, authorization failed, connection lost, timeout)
+         * and it is closed now. Not called when session is closed by {@link Session#close()}.
+         * @param session the failed session
+         * @param e the reason of failure
+         */
+        public abstract void sessionFailed(Session session, RpcClientFailedException e);
+    }
+
+    /**
+     * Single GUI RPC connection served by multiplexer
+     */
+    public final class Session {
+        private final InetSocketAddress mAddress;
+        private final String mPassword;
+        private final SessionListener mListener;
+        private Object mAttachment = null;
+        // Following is accessed only by I/O thread
+        private SocketChannel mChannel = null;
+        private SelectionKey mKey = null;
+        private int mState = STATE_CONNECTING;
+        private long mDeadline = 0;
+        private LinkedList<ByteBuffer> mOutgoing = new LinkedList<ByteBuffer>();
+        private LinkedList<ReplyCallback> mPending = new LinkedList<ReplyCallback>();
+        private LinkedList<String> mWaitingRequests = new LinkedList<String>();
+        private LinkedList<ReplyCallback> mWaitingCallbacks = new LinkedList<ReplyCallback>();
+        private byte[] mReply = new byte[REPLY_BUFFER_INIT_SIZE];
+        private int mReplyLength = 0;
+
+        private Session(InetSocketAddress address, String password, SessionListener listener) {
+            mAddress = address;
+            mPassword = (password == null) ? "" : password;
+            mListener = listener;
+        }
+
+        /**
+         * Queues the request; it is sent when the session is ready
+         * @param request the request itself (e.g. {@code "<get_results/>\n"})
+         * @param callback receiver of the reply
+         */
+        public void request(final String request, final ReplyCallback callback) {
+            boolean posted = post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mState == STATE_CLOSED) {
+                        notifyFailure(callback, Session.this, new ConnectionFailedException("Session closed"));
+                    }
+                    else if (mState == STATE_READY) {
+                        send(Session.this, request, callback);
+                    }
+                    else {
+                        // Not authorized yet - send later
+                        mWaitingRequests.add(request);
+                        mWaitingCallbacks.add(callback);
+                    }
+                }
+            });
+            if (!posted) {
+                notifyFailure(callback, this, new ConnectionFailedException("Multiplexer stopped"));
+            }
+        }
+
+        /**
+         * Closes the session; callbacks of pending requests are notified about failure
+         */
+        public void close() {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    closeSession(Session.this, new ConnectionFailedException("Session closed"), false);
+                }
+            });
+        }
+
+        public final InetSocketAddress getAddress() {
+            return mAddress;
+        }
+
+        public final Object getAttachment() {
+            return mAttachment;
+        }
+
+        public final void setAttachment(Object attachment) {
+            mAttachment = attachment;
+        }
+    }
+
+    private final NetStats mNetStats;
+    private final LinkedList<Runnable> mTasks = new LinkedList<Runnable>();
+    private final LinkedList<Session> mSessions = new LinkedList<Session>();
+    private final ByteBuffer mReadBuffer = ByteBuffer.allocate(READ_BUF_SIZE);
+    private volatile Selector mSelector = null;
+    private Thread mThread = null;
+    private volatile boolean mRunning = false;
+
+    public RpcMultiplexer() {
+        this(null);
+    }
+
+    public RpcMultiplexer(NetStats netStats) {
+        mNetStats = netStats;
+    }
+
+    /**
+     * Starts the I/O thread of multiplexer
+     * @throws IOException in case selector cannot be opened
+     */
+    public synchronized void start() throws IOException {
+        if (mThread != null) return; // Already started
+        mSelector = Selector.open();
+        mRunning = true;
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runLoop();
+            }
+        }, TAG);
+        mThread.start();
+    }
+
+    /**
+     * Stops the I/O thread; all sessions are closed and the callbacks of pending requests
+     * are notified about failure
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            thread = mThread;
+            if (thread == null) return; // Not started
+            mRunning = false;
+            mThread = null;
+        }
+        mSelector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                Log.w(TAG, "Interrupted while waiting for I/O thread");
+            }
+        }
+    }
+
+    /**
+     * Creates new session and starts the connection to BOINC core client.
+     * The address is resolved on the calling thread.
+     *
+     * @param address Internet address of client (hostname or IP-address)
+     * @param port Port of BOINC client (default port is 31416)
+     * @param password Clear text password used for authorization (empty for no authorization)
+     * @param listener receiver of session state changes
+     * @return the new session
+     * @throws ConnectionFailedException in case address cannot be resolved
+     *                                   or the multiplexer is not running
+     */
+    public Session openSession(String address, int port, String password, SessionListener listener) throws ConnectionFailedException {
+        InetSocketAddress socketAddress;
+        try {
+            socketAddress = new InetSocketAddress(address, port);
+        }
+        catch (IllegalArgumentException e) {
+            throw new ConnectionFailedException("Connection failed: illegal argument", e);
+        }
+        if (socketAddress.isUnresolved()) {
+            throw new ConnectionFailedException("Connection failed: unknown host \"" + address + "\"");
+        }
+        final Session session = new Session(socketAddress, password, listener);
+        boolean posted = post(new Runnable() {
+            @Override
+            public void run() {
+                connect(session);
+            }
+        });
+        if (!posted) {
+            throw new ConnectionFailedException("Connection failed: multiplexer is not running");
+        }
+        return session;
+    }
+
+    /*
+     * Private methods - executed by I/O thread
+     */
+
+    // Returns false (and drops the task) when the I/O thread is not running, as the task would never run
+    private boolean post(Runnable task) {
+        synchronized (mTasks) {
+            // The I/O thread runs the queued tasks once more after mRunning is cleared,
+            // so the task added while it is still set is always executed
+            if (!mRunning) return false;
+            mTasks.add(task);
+        }
+        Selector selector = mSelector;
+        if (selector != null) selector.wakeup();
+        return true;
+    }
+
+    /*
+     * Callbacks are code of the caller; the exception thrown there must not stop the I/O thread
+     */
+
+    private static void notifyReply(ReplyCallback callback, Session session, String reply) {
+        try {
+            callback.onReply(session, reply);
+        }
+        catch (RuntimeException e) {
+            Log.e(TAG, "ReplyCallback.onReply() failed for " + session.mAddress, e);
+        }
+    }
+
+    private static void notifyFailure(ReplyCallback callback, Session session, RpcClientFailedException reason) {
+        try {
+            callback.onFailure(session, reason);
+        }
+        catch (RuntimeException e) {
+            Log.e(TAG, "ReplyCallback.onFailure() failed for " + session.mAddress, e);
+        }
+    }
+
+    private static void notifyReady(Session session) {
+        try {
+            session.mListener.sessionReady(session);
+        }
+        catch (RuntimeException e) {
+            Log.e(TAG, "SessionListener.sessionReady() failed for " + session.mAddress, e);
+        }
+    }
+
+    private static void notifyFailed(Session session, RpcClientFailedException reason) {
+        try {
+            session.mListener.sessionFailed(session, reason);
+        }
+        catch (RuntimeException e) {
+            Log.e(TAG, "SessionListener.sessionFailed() failed for " + session.mAddress, e);
+        }
+    }
+
+    private void runTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (mTasks) {
+                if (mTasks.isEmpty()) return;
+                task = mTasks.removeFirst();
+            }
+            task.run();
+        }
+    }
+
+    private void runLoop() {
+        if (DebugFlags.DEBUG) Log.d(TAG, "I/O thread started");
+        while (mRunning) {
+            try {
+                mSelector.select(SELECT_TIMEOUT);
+            }
+            catch (IOException e) {
+                Log.e(TAG, "select() failed", e);
+                break;
+            }
+            runTasks();
+            Iterator<SelectionKey> it = mSelector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                Session session = (Session)key.attachment();
+                if (!key.isValid()) continue;
+                try {
+                    if (key.isConnectable()) handleConnect(session);
+                    if (key.isValid() && key.isReadable()) handleRead(session);
+                    if (key.isValid() && key.isWritable()) handleWrite(session);
+                }
+                catch (IOException e) {
+                    if (DebugFlags.DEBUG) Log.d(TAG, "I/O failure for " + session.mAddress, e);
+                    String message = (session.mState == STATE_CONNECTING) ? "Connect failed" : "Connection failed";
+                    closeSession(session, new ConnectionFailedException(message, e), true);
+                }
+            }
+            checkTimeouts();
+        }
+        // Stopped - close everything
+        runTasks();
+        while (!mSessions.isEmpty()) {
+            closeSession(mSessions.getFirst(), new ConnectionFailedException("Multiplexer stopped"), false);
+        }
+        try {
+            mSelector.close();
+        }
+        catch (IOException e) {
+            Log.w(TAG, "selector close failure", e);
+        }
+        if (DebugFlags.DEBUG) Log.d(TAG, "I/O thread finished");
+    }
+
+    private void connect(Session session) {
+        if (session.mState == STATE_CLOSED) return; // Closed before connect started
+        try {
+            session.mChannel = SocketChannel.open();
+            session.mChannel.configureBlocking(false);
+            mSessions.add(session);
+            session.mDeadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+            if (session.mChannel.connect(session.mAddress)) {
+                session.mKey = session.mChannel.register(mSelector, SelectionKey.OP_READ, session);
+                connected(session);
+            }
+            else {
+                session.mKey = session.mChannel.register(mSelector, SelectionKey.OP_CONNECT, session);
+            }
+        }
+        catch (IOException e) {
+            closeSession(session, new ConnectionFailedException("Connect failed", e), true);
+        }
+    }
+
+    private void handleConnect(Session session) throws IOException {
+        if (!session.mChannel.finishConnect()) return;
+        session.mKey.interestOps(SelectionKey.OP_READ);
+        connected(session);
+    }
+
+    private void connected(Session session) {
+        if (DebugFlags.DEBUG) Log.d(TAG, "Connected to " + session.mAddress);
+        if (mNetStats != null) {
+            mNetStats.connectionOpened();
+        }
+        session.mDeadline = 0;
+        if (session.mPassword.equals("")) {
+            ready(session);
+        }
+        else {
+            session.mState = STATE_AUTHORIZING;
+            send(session, "<auth1/>\n", mAuth1Callback);
+        }
+    }
+
+    private void ready(Session session) {
+        session.mState = STATE_READY;
+        while (!session.mWaitingRequests.isEmpty()) {
+            send(session, session.mWaitingRequests.removeFirst(), session.mWaitingCallbacks.removeFirst());
+        }
+        notifyReady(session);
+    }
+
+    private final ReplyCallback mAuth1Callback = new ReplyCallback() {
+        @Override
+        public void onReply(Session session, String reply) {
+            StringBuilder sb = new StringBuilder();
+            try {
+                Xml.parse(reply, new RpcClient.Auth1Parser(sb)); // get nonce value
+            }
+            catch (SAXException e) {
+                closeSession(session, new InvalidDataReceivedException("Malformed data received during authorization", e), true);
+                return;
+            }
+            // Operation: combine nonce & password, make MD5 hash
+            sb.append(session.mPassword);
+            String nonceHash = Md5.hash(sb.toString());
+            send(session, "<auth2>\n<nonce_hash>" + nonceHash + "</nonce_hash>\n</auth2>\n", mAuth2Callback);
+        }
+
+        @Override
+        public void onFailure(Session session, RpcClientFailedException e) {
+            // Session failure is reported to listener
+        }
+    };
+
+    private final ReplyCallback mAuth2Callback = new ReplyCallback() {
+        @Override
+        public void onReply(Session session, String reply) {
+            StringBuilder sb = new StringBuilder();
+            try {
+                Xml.parse(reply, new RpcClient.Auth2Parser(sb));
+            }
+            catch (SAXException e) {
+                closeSession(session, new InvalidDataReceivedException("Malformed data received during authorization", e), true);
+                return;
+            }
+            if (!sb.toString().equals("authorized")) {
+                if (DebugFlags.DEBUG) Log.d(TAG, "Authorization failed for " + session.mAddress);
+                closeSession(session, new AuthorizationFailedException(), true);
+                return;
+            }
+            if (DebugFlags.DEBUG) Log.d(TAG, "Authorized successfully to " + session.mAddress);
+            ready(session);
+        }
+
+        @Override
+        public void onFailure(Session session, RpcClientFailedException e) {
+            // Session failure is reported to listener
+        }
+    };
+
+    private void send(Session session, String request, ReplyCallback callback) {
+        if (DebugFlags.DEBUG_DATA) Log.d(TAG, "Sending request to " + session.mAddress + ": \n" + request);
+        byte[] data;
+        try {
+            data = ("<boinc_gui_rpc_request>\n" + request + "</boinc_gui_rpc_request>\n\003").getBytes("ISO8859_1");
+        }
+        catch (UnsupportedEncodingException e) {
+            // Cannot happen, ISO8859_1 is always supported
+            data = new byte[0];
+        }
+        session.mOutgoing.add(ByteBuffer.wrap(data));
+        session.mPending.add(callback);
+        if (session.mPending.size() == 1) {
+            // First pending request - the reply is expected from now
+            session.mDeadline = System.currentTimeMillis() + READ_TIMEOUT;
+        }
+        session.mKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    private void handleWrite(Session session) throws IOException {
+        while (!session.mOutgoing.isEmpty()) {
+            ByteBuffer buffer = session.mOutgoing.getFirst();
+            int written = session.mChannel.write(buffer);
+            if (mNetStats != null && written > 0) {
+                mNetStats.bytesTransferred(written);
+            }
+            if (buffer.hasRemaining()) {
+                // Socket buffer full; wait for next OP_WRITE
+                return;
+            }
+            session.mOutgoing.removeFirst();
+        }
+        session.mKey.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void handleRead(Session session) throws IOException {
+        mReadBuffer.clear();
+        int bytesRead = session.mChannel.read(mReadBuffer);
+        if (bytesRead == -1) {
+            throw new IOException("Connection closed by peer");
+        }
+        if (mNetStats != null) {
+            mNetStats.bytesReceived(bytesRead);
+        }
+        if (!session.mPending.isEmpty()) {
+            // Data are flowing - restart the timeout
+            session.mDeadline = System.currentTimeMillis() + READ_TIMEOUT;
+        }
+        byte[] data = mReadBuffer.array();
+        int start = 0;
+        for (int i = 0; i < bytesRead; ++i) {
+            if (data[i] == '\003') {
+                appendReply(session, data, start, i - start);
+                start = i + 1;
+                replyReceived(session);
+                if (session.mState == STATE_CLOSED) return;
+            }
+        }
+        appendReply(session, data, start, bytesRead - start);
+    }
+
+    private void appendReply(Session session, byte[] data, int offset, int length) {
+        if (length == 0) return;
+        int needed = session.mReplyLength + length;
+        if (needed > session.mReply.length) {
+            byte[] reply = new byte[Math.max(needed, session.mReply.length * 2)];
+            System.arraycopy(session.mReply, 0, reply, 0, session.mReplyLength);
+            session.mReply = reply;
+        }
+        System.arraycopy(data, offset, session.mReply, session.mReplyLength, length);
+        session.mReplyLength = needed;
+    }
+
+    private void replyReceived(Session session) throws IOException {
+        String reply = new String(session.mReply, 0, session.mReplyLength, "UTF-8");
+        session.mReplyLength = 0;
+        if (session.mReply.length > REPLY_BUFFER_INIT_SIZE) {
+            // Do not keep the buffer of the largest reply (e.g. state) for the lifetime of session
+            session.mReply = new byte[REPLY_BUFFER_INIT_SIZE];
+        }
+        if (session.mPending.isEmpty()) {
+            Log.w(TAG, "Unexpected reply from " + session.mAddress + " dropped");
+            return;
+        }
+        ReplyCallback callback = session.mPending.removeFirst();
+        session.mDeadline = session.mPending.isEmpty() ? 0 : (System.currentTimeMillis() + READ_TIMEOUT);
+        if (DebugFlags.DEBUG_DATA) Log.d(TAG, "Received reply from " + session.mAddress + ": \n" + reply);
+        notifyReply(callback, session, reply);
+    }
+
+    private void checkTimeouts() {
+        long now = System.currentTimeMillis();
+        Iterator<Session> it = mSessions.iterator();
+        while (it.hasNext()) {
+            Session session = it.next();
+            if (session.mDeadline != 0 && now > session.mDeadline) {
+                if (DebugFlags.DEBUG) Log.d(TAG, "Timeout for " + session.mAddress);
+                // Removed here, so closeSession() does not modify the list being iterated;
+                // callbacks cannot modify it either, they can only post tasks
+                it.remove();
+                String message = (session.mState == STATE_CONNECTING) ? "Connect failed" : "Connection failed: no reply";
+                closeSession(session, new ConnectionFailedException(message), true);
+            }
+        }
+    }
+
+    private void closeSession(Session session, RpcClientFailedException reason, boolean notifyListener) {
+        if (session.mState == STATE_CLOSED) return; // Already closed
+        boolean wasConnected = (session.mState != STATE_CONNECTING);
+        session.mState = STATE_CLOSED;
+        mSessions.remove(session);
+        if (session.mKey != null) {
+            session.mKey.cancel();
+        }
+        if (session.mChannel != null) {
+            try {
+                session.mChannel.close();
+            }
+            catch (IOException e) {
+                Log.w(TAG, "channel close failure", e);
+            }
+        }
+        if (wasConnected && mNetStats != null) {
+            mNetStats.connectionClosed();
+        }
+        session.mOutgoing.clear();
+        while (!session.mPending.isEmpty()) {
+            notifyFailure(session.mPending.removeFirst(), session, reason);
+        }
+        while (!session.mWaitingCallbacks.isEmpty()) {
+            notifyFailure(session.mWaitingCallbacks.removeFirst(), session, reason);
+        }
+        session.mWaitingRequests.clear();
+        if (notifyListener) {
+            notifyFailed(session, reason);
+        }
+        if (DebugFlags.DEBUG) Log.d(TAG, "Session to " + session.mAddress + " closed: " + reason.getMessage());
+    }
+}
@@ -0,0 +1,266 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Recorder of GUI RPC session: every request and its raw reply (bytes as received,
+ * without terminator) are written with timing to a compact (gzip-compressed) session file.
+ * The session can be read back by {@link #read(InputStream)}, e.g. to be served
+ * by replay server for benchmarking with real replies.
+ * <p>
+ * The recorder is attached to {@link RpcClient} by {@link RpcClient#setSessionRecorder(SessionRecorder)}.
+ * The replies are matched to the requests in order, so also the pipelined requests
+ * (see {@link RpcBatch}) are recorded correctly.
+ */
+public class SessionRecorder implements Closeable {
+    private static final String TAG = "SessionRecorder";
+    private static final int MAGIC = 0x42525331; // "BRS1"
+
+    /**
+     * Single request and its reply
+     */
+    public static class Exchange {
+        /** The request (without {@code <boinc_gui_rpc_request>} wrapper) */
+        public final String request;
+        /** Time when request was sent, in milliseconds since start of the session */
+        public final long sentAt;
+        /** Time from sending the request to the first bytes of reply, in microseconds */
+        public final int replyDelay;
+        /** Time from the first to the last bytes of reply, in microseconds */
+        public final int replyDuration;
+        /** The reply as received, without terminator */
+        public final byte[] reply;
+
+        public Exchange(String request, long sentAt, int replyDelay, int replyDuration, byte[] reply) {
+            this.request = request;
+            this.sentAt = sentAt;
+            this.replyDelay = replyDelay;
+            this.replyDuration = replyDuration;
+            this.reply = reply;
+        }
+
+        /**
+         * @return name of request, e.g. "get_state"
+         */
+        public String rpcName() {
+            return TimedInputStream.rpcName(request);
+        }
+    }
+
+    private static class PendingRequest {
+        public final String request;
+        public final long sent;
+
+        public PendingRequest(String request, long sent) {
+            this.request = request;
+            this.sent = sent;
+        }
+    }
+
+    private final DataOutputStream mOutput;
+    private final long mStart = System.nanoTime();
+    private final ArrayDeque<PendingRequest> mPending = new ArrayDeque<PendingRequest>();
+    private final ByteArrayOutputStream mReply = new ByteArrayOutputStream(8192);
+    private long mReplyStart = 0;
+    private int mExchanges = 0;
+
+    /**
+     * @param output stream where the session is written; closed by {@link #close()}
+     * @throws IOException if the header cannot be written
+     */
+    public SessionRecorder(OutputStream output) throws IOException {
+        mOutput = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(output), 65536));
+        mOutput.writeInt(MAGIC);
+    }
+
+    /**
+     * @param file file where the session is written (overwritten if exists)
+     * @throws IOException if the file cannot be created
+     */
+    public SessionRecorder(File file) throws IOException {
+        this(new FileOutputStream(file));
+    }
+
+    /**
+     * @return number of exchanges recorded so far
+     */
+    public synchronized int exchangeCount() {
+        return mExchanges;
+    }
+
+    /**
+     * Writes the recorded data and closes the file; the requests without reply are dropped
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        mPending.clear();
+        mOutput.close();
+    }
+
+    /**
+     * Reads the whole session
+     * @param input stream of session file (closed when read)
+     * @return the exchanges in order of sending the requests
+     * @throws IOException if the stream cannot be read or it is not a session file
+     */
+    public static List<Exchange> read(InputStream input) throws IOException {
+        ArrayList<Exchange> exchanges = new ArrayList<Exchange>();
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(input), 65536));
+        try {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a session file");
+            }
+            while (true) {
+                long sentAt;
+                try {
+                    sentAt = data.readLong();
+                }
+                catch (EOFException e) {
+                    break;
+                }
+                final int replyDelay = data.readInt();
+                final int replyDuration = data.readInt();
+                byte[] request = new byte[data.readInt()];
+                data.readFully(request);
+                byte[] reply = new byte[data.readInt()];
+                data.readFully(reply);
+                exchanges.add(new Exchange(new String(request, "ISO8859_1"), sentAt, replyDelay, replyDuration, reply));
+            }
+        }
+        finally {
+            data.close();
+        }
+        return exchanges;
+    }
+
+    /**
+     * Reads the whole session from file
+     * @param file the session file
+     * @return the exchanges in order of sending the requests
+     * @throws IOException if the file cannot be read or it is not a session file
+     */
+    public static List<Exchange> read(File file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    /*
+     * Used by RpcClient
+     */
+
+    /**
+     * Notes the request being sent
+     * @param request the request (without wrapper)
+     */
+    synchronized void requestSent(String request) {
+        mPending.addLast(new PendingRequest(request, System.nanoTime()));
+    }
+
+    /**
+     * Drops the state of current connection (requests waiting for reply, partial reply)
+     */
+    synchronized void connectionClosed() {
+        mPending.clear();
+        mReply.reset();
+        mReplyStart = 0;
+    }
+
+    /**
+     * Wraps the socket input stream, so the received replies are recorded
+     * @param input the socket input stream
+     * @return stream to be read instead of input
+     */
+    InputStream wrap(InputStream input) {
+        return new FilterInputStream(input) {
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                int bytesRead = in.read(buffer, offset, count);
+                if (bytesRead > 0) {
+                    received(buffer, offset, bytesRead);
+                }
+                return bytesRead;
+            }
+        };
+    }
+
+    private synchronized void received(byte[] buffer, int offset, int length) {
+        final long now = System.nanoTime();
+        int start = offset;
+        final int end = offset + length;
+        for (int i = offset; i < end; ++i) {
+            if (buffer[i] != '\003') continue;
+            if (mReplyStart == 0) mReplyStart = now;
+            mReply.write(buffer, start, i - start);
+            replyCompleted(now);
+            start = i + 1;
+        }
+        if (start < end) {
+            if (mReplyStart == 0) mReplyStart = now;
+            mReply.write(buffer, start, end - start);
+        }
+    }
+
+    private void replyCompleted(long now) {
+        PendingRequest pending = mPending.pollFirst();
+        try {
+            if (pending == null) {
+                // Reply without request - cannot be replayed
+                Log.w(TAG, "Dropping unexpected reply (" + mReply.size() + " bytes)");
+            }
+            else {
+                byte[] request = pending.request.getBytes("ISO8859_1");
+                mOutput.writeLong((pending.sent - mStart) / 1000000);
+                mOutput.writeInt((int)((mReplyStart - pending.sent) / 1000));
+                mOutput.writeInt((int)((now - mReplyStart) / 1000));
+                mOutput.writeInt(request.length);
+                mOutput.write(request);
+                mOutput.writeInt(mReply.size());
+                mReply.writeTo(mOutput);
+                ++mExchanges;
+            }
+        }
+        catch (IOException e) {
+            // Recording must not break the session itself
+            Log.w(TAG, "Failed to record the reply", e);
+        }
+        mReply.reset();
+        mReplyStart = 0;
+    }
+}
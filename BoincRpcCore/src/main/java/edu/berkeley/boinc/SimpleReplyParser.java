@@ -19,8 +19,6 @@
 
 package edu.berkeley.boinc;
 
-import android.util.Log;
-import android.util.Xml;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -57,7 +55,7 @@ public class SimpleReplyParser extends DefaultHandler {
             return parser.result();
         }
         catch (SAXException e) {
-            if (BuildConfig.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
             throw new InvalidDataReceivedException("Malformed XML while parsing simple reply", e);
         }
 
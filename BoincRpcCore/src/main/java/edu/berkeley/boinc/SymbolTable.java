@@ -0,0 +1,126 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package edu.berkeley.boinc;
+
+
+/**
+ * Table of canonical instances of the strings repeated in the replies, like project URLs,
+ * application names or resources ("1 CPU"); similar to {@link String#intern()}, but private
+ * to the session with one client.
+ * <p>
+ * The parsers with the table set (see {@link BaseParser#setSymbolTable(SymbolTable)}) look up
+ * such values directly from the parsed characters, so no String is created when the value
+ * is already in the table. All the objects parsed in the session then share the same instances,
+ * which reduces the retained memory of big task lists, and the maps keyed by these values
+ * are compared by identity (the {@link String#equals(Object)} returns on the first check).
+ * <p>
+ * Only the values of low cardinality should be added; to be safe, the table stops growing
+ * at {@link #MAX_SIZE} symbols and then only the existing ones are returned.
+ * <p>
+ * The table is not thread-safe; it is expected to be used by the thread of single connection.
+ */
+public final class SymbolTable {
+    /** Maximum number of symbols in table */
+    public static final int MAX_SIZE = 4096;
+
+    private String[] mSymbols = new String[64];
+    private int[] mHashes = new int[64];
+    private int mSize = 0;
+
+    /**
+     * Returns the canonical instance of the given characters
+     * @param chars the characters of symbol, e.g. the content of parsed element
+     * @return the symbol from table, or new String if it was not there yet
+     */
+    public String intern(CharSequence chars) {
+        final int hash = hash(chars);
+        final int mask = mSymbols.length - 1;
+        int i = spread(hash) & mask;
+        String candidate;
+        while ((candidate = mSymbols[i]) != null) {
+            if (mHashes[i] == hash && contentEquals(candidate, chars)) return candidate;
+            i = (i + 1) & mask;
+        }
+        String symbol = chars.toString();
+        if (mSize < MAX_SIZE) {
+            add(symbol, hash, i);
+        }
+        return symbol;
+    }
+
+    /**
+     * @return number of symbols in table
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Removes all symbols from table
+     */
+    public void clear() {
+        mSymbols = new String[64];
+        mHashes = new int[64];
+        mSize = 0;
+    }
+
+    private void add(String symbol, int hash, int slot) {
+        mSymbols[slot] = symbol;
+        mHashes[slot] = hash;
+        ++mSize;
+        if (mSize * 2 > mSymbols.length) {
+            // Keep load factor at most 0.5, so the probe sequences are short
+            String[] symbols = mSymbols;
+            int[] hashes = mHashes;
+            mSymbols = new String[symbols.length * 2];
+            mHashes = new int[symbols.length * 2];
+            final int mask = mSymbols.length - 1;
+            for (int j = 0; j < symbols.length; ++j) {
+                if (symbols[j] == null) continue;
+                int i = spread(hashes[j]) & mask;
+                while (mSymbols[i] != null) i = (i + 1) & mask;
+                mSymbols[i] = symbols[j];
+                mHashes[i] = hashes[j];
+            }
+        }
+    }
+
+    // The same as String.hashCode(), so the hash of symbol is computed equally from String
+    private static int hash(CharSequence chars) {
+        int hash = 0;
+        final int length = chars.length();
+        for (int i = 0; i < length; ++i) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        return hash;
+    }
+
+    private static boolean contentEquals(String symbol, CharSequence chars) {
+        final int length = chars.length();
+        if (symbol.length() != length) return false;
+        for (int i = 0; i < length; ++i) {
+            if (symbol.charAt(i) != chars.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,112 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import java.util.Locale;
+
+
+/**
+ * Table mapping the names of XML elements to numeric identifiers, so the parsers can dispatch
+ * the element by {@code switch} instead of chain of {@code equalsIgnoreCase()} comparisons.
+ * <p>
+ * The table is built once per parser class (static field) and then only read, so it can be
+ * shared by all parsers of the class without synchronization. The lookup is hash-based
+ * (open addressing, the hash code of name is cached by String), so it costs the same
+ * for the first and the last known element. The names are matched case-insensitively
+ * as before; the lower-case names (which BOINC client sends) are found directly.
+ */
+final class TagTable {
+    /** Identifier returned for names not in the table */
+    public static final int UNKNOWN = 0;
+
+    private String[] mNames = new String[32];
+    private int[] mIds = new int[32];
+    private int mSize = 0;
+
+    /**
+     * Adds the element to the table
+     * @param name name of element, in lower case
+     * @param id identifier of element, must not be {@link #UNKNOWN}
+     * @return this table, so the calls can be chained
+     */
+    public TagTable add(String name, int id) {
+        if (id == UNKNOWN) throw new IllegalArgumentException("Invalid id of " + name);
+        if ((mSize + 1) * 2 > mNames.length) {
+            // Keep load factor at most 0.5, so the probe sequences are short
+            String[] names = mNames;
+            int[] ids = mIds;
+            mNames = new String[names.length * 2];
+            mIds = new int[names.length * 2];
+            mSize = 0;
+            for (int i = 0; i < names.length; ++i) {
+                if (names[i] != null) put(names[i], ids[i]);
+            }
+        }
+        put(name.toLowerCase(Locale.US), id);
+        return this;
+    }
+
+    /**
+     * Looks up the element
+     * @param name name of element (e.g. {@code localName} of SAX event)
+     * @return identifier of element, or {@link #UNKNOWN} if it's not in the table
+     */
+    public int get(String name) {
+        final int id = find(name);
+        if (id != UNKNOWN) return id;
+        // Maybe upper-case letters used (matched case-insensitively)
+        for (int i = name.length() - 1; i >= 0; --i) {
+            if (Character.isUpperCase(name.charAt(i))) {
+                return find(name.toLowerCase(Locale.US));
+            }
+        }
+        return UNKNOWN;
+    }
+
+    private int find(String name) {
+        final int mask = mNames.length - 1;
+        int i = spread(name.hashCode()) & mask;
+        String candidate;
+        while ((candidate = mNames[i]) != null) {
+            if (candidate == name || candidate.equals(name)) return mIds[i];
+            i = (i + 1) & mask;
+        }
+        return UNKNOWN;
+    }
+
+    private void put(String name, int id) {
+        final int mask = mNames.length - 1;
+        int i = spread(name.hashCode()) & mask;
+        while (mNames[i] != null) {
+            if (mNames[i].equals(name)) {
+                mIds[i] = id;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        mNames[i] = name;
+        mIds[i] = id;
+        ++mSize;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,172 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+
+/**
+ * Socket input stream applying the {@link AdaptiveTimeouts} to the reading of replies.
+ * <p>
+ * While the first bytes of reply are awaited, the socket timeout is the reply timeout
+ * of the request; afterwards it is the stall timeout (the reply is being received,
+ * so only lack of progress is detected). The measured time to the first bytes, the longest
+ * wait for data and the transfer rate during the reply (reported by {@link #replyFinished()})
+ * and the timeouts are reported back to {@link AdaptiveTimeouts}.
+ * <p>
+ * Only {@link #read(byte[], int, int)} is measured; single byte reads
+ * (e.g. idle connection probe) pass through.
+ * <p>
+ * The timeouts can be limited by {@link #setLimit(int)} (e.g. the deadline of operation
+ * of {@link AsyncRpcClient}); the read timed out by the limit is not reported as timeout.
+ */
+class TimedInputStream extends FilterInputStream {
+    private final Socket mSocket;
+    private final AdaptiveTimeouts mTimeouts;
+    private String mRpcName = null;   // request which is waiting for the first bytes of reply
+    private long mReplyStart;
+    private boolean mInReply = false; // reply is being received, its progress is measured
+    private long mFirstBytes;         // time of first bytes of reply being received
+    private long mLongestWait;        // longest blocking read during the reply
+    private int mReplyBytes;          // bytes received during the reply
+    private int mLimit = 0;           // maximal timeout, 0 for no limit
+    private boolean mLimited = false; // current timeout is the limit, not the adaptive timeout
+
+    public TimedInputStream(InputStream input, Socket socket, AdaptiveTimeouts timeouts) {
+        super(input);
+        mSocket = socket;
+        mTimeouts = timeouts;
+    }
+
+    /**
+     * Starts waiting for the reply to the request
+     * @param rpcName the name of request (e.g. "get_state")
+     * @param sentAt the time when the request was flushed to socket, by {@link System#nanoTime()};
+     *               for pipelined requests, all of them were flushed at the same time
+     * @throws IOException if socket timeout cannot be set
+     */
+    public void expectReply(String rpcName, long sentAt) throws IOException {
+        mRpcName = rpcName;
+        mReplyStart = sentAt;
+        mInReply = false;
+        setTimeout(mTimeouts.replyTimeout(rpcName));
+    }
+
+    /**
+     * Continues with the reply which first bytes were already received together with the
+     * previous (pipelined) reply. There is no time to the first bytes to be measured,
+     * only the progress is watched.
+     * @throws IOException if socket timeout cannot be set
+     */
+    public void replyInProgress() throws IOException {
+        mRpcName = null;
+        startProgress(System.nanoTime());
+        setTimeout(mTimeouts.stallTimeout());
+    }
+
+    /**
+     * Ends the reply being received; its progress is reported to {@link AdaptiveTimeouts}
+     */
+    public void replyFinished() {
+        if (!mInReply) return;
+        mInReply = false;
+        mTimeouts.replyReceived(mLongestWait / 1000000.0F, mReplyBytes, (System.nanoTime() - mFirstBytes) / 1000000.0F);
+    }
+
+    private void startProgress(long now) {
+        mInReply = true;
+        mFirstBytes = now;
+        mLongestWait = 0;
+        mReplyBytes = 0;
+    }
+
+    /**
+     * Limits the timeouts applied to socket
+     * @param limit the maximal timeout in milliseconds, 0 for no limit
+     */
+    public void setLimit(int limit) {
+        mLimit = limit;
+    }
+
+    private void setTimeout(int timeout) throws IOException {
+        mLimited = (mLimit > 0 && timeout > mLimit);
+        mSocket.setSoTimeout(mLimited ? mLimit : timeout);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        int bytesRead;
+        final long readStart = System.nanoTime();
+        try {
+            bytesRead = in.read(buffer, offset, count);
+        }
+        catch (SocketTimeoutException e) {
+            mInReply = false;
+            if (mLimited) {
+                // Not the adaptive timeout expired, but the limit set by caller
+                throw e;
+            }
+            if (mRpcName != null) {
+                mTimeouts.replyTimedOut(mRpcName);
+            }
+            else {
+                mTimeouts.stallTimedOut();
+            }
+            throw e;
+        }
+        if (bytesRead > 0) {
+            long now = System.nanoTime();
+            if (mRpcName != null) {
+                // First bytes of reply - from now on, only progress is watched
+                mTimeouts.replyStarted(mRpcName, (now - mReplyStart) / 1000000.0F);
+                mRpcName = null;
+                startProgress(now);
+                setTimeout(mTimeouts.stallTimeout());
+            }
+            else if (mInReply) {
+                // Only the time blocked in read counts, not the time spent by parsing between reads
+                long wait = now - readStart;
+                if (wait > mLongestWait) mLongestWait = wait;
+            }
+            mReplyBytes += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Extracts the name of request, e.g. "get_results" from {@code "<get_results>\n..."}
+     * @param request the request itself
+     * @return the name of request
+     */
+    public static String rpcName(String request) {
+        int end = 1;
+        final int length = request.length();
+        while (end < length) {
+            char c = request.charAt(end);
+            if (c == '>' || c == '/' || c == ' ' || c == '\n') break;
+            ++end;
+        }
+        return request.substring(1, end);
+    }
+}
@@ -0,0 +1,315 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Vector;
+
+
+public class TransfersParser extends BaseParser {
+    private static final String TAG = "TransfersParser";
+
+    // Elements handled by this parser, see ELEMENTS
+    private static final int FILE_TRANSFER = 1;
+    private static final int FILE_XFER = 2;
+    private static final int PERSISTENT_FILE_XFER = 3;
+    private static final int PROJECT_URL = 4;
+    private static final int NAME = 5;
+    private static final int IS_UPLOAD = 6;
+    private static final int GENERATED_LOCALLY = 7;
+    private static final int NBYTES = 8;
+    private static final int STATUS = 9;
+    private static final int TIME_SO_FAR = 10;
+    private static final int NEXT_REQUEST_TIME = 11;
+    private static final int LAST_BYTES_XFERRED = 12;
+    private static final int BYTES_XFERRED = 13;
+    private static final int XFER_SPEED = 14;
+    private static final int PROJECT_BACKOFF = 15;
+
+    private static final TagTable ELEMENTS = new TagTable()
+            .add("file_transfer", FILE_TRANSFER)
+            .add("file_xfer", FILE_XFER)
+            .add("persistent_file_xfer", PERSISTENT_FILE_XFER)
+            .add("project_url", PROJECT_URL)
+            .add("name", NAME)
+            .add("is_upload", IS_UPLOAD)
+            .add("generated_locally", GENERATED_LOCALLY)
+            .add("nbytes", NBYTES)
+            .add("status", STATUS)
+            .add("time_so_far", TIME_SO_FAR)
+            .add("next_request_time", NEXT_REQUEST_TIME)
+            .add("last_bytes_xferred", LAST_BYTES_XFERRED)
+            .add("bytes_xferred", BYTES_XFERRED)
+            .add("xfer_speed", XFER_SPEED)
+            .add("project_backoff", PROJECT_BACKOFF);
+
+    // Transfers of previous parsing, reused by parseRecycled()
+    private final Recycler<Transfer> mRecycler = new Recycler<Transfer>() {
+        @Override
+        Transfer create() {
+            return new Transfer();
+        }
+
+        @Override
+        String key(Transfer transfer) {
+            return transfer.name;
+        }
+
+        @Override
+        void copy(Transfer from, Transfer to) {
+            to.name = from.name;
+            to.project_url = from.project_url;
+            to.is_upload = from.is_upload;
+            to.nbytes = from.nbytes;
+            to.xfer_active = from.xfer_active;
+            to.status = from.status;
+            to.next_request_time = from.next_request_time;
+            to.time_so_far = from.time_so_far;
+            to.bytes_xferred = from.bytes_xferred;
+            to.xfer_speed = from.xfer_speed;
+            to.project_backoff = from.project_backoff;
+        }
+    };
+    private Transfer mTransfer = null;
+    // The transfer from previous parsing at the same position (or empty one), its strings are reused if not changed
+    private Transfer mPrevious = null;
+
+    public final Vector<Transfer> getTransfers() throws AuthorizationFailedException {
+        if (mUnauthorized) throw new AuthorizationFailedException();
+        return mRecycler.result();
+    }
+
+    /**
+     * Parse the RPC result (file_transfers) and generate vector of transfers info
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @return vector of projects info
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     */
+    public static Vector<Transfer> parse(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
+        try {
+            TransfersParser parser = new TransfersParser();
+            Xml.parse(rpcResult, parser);
+            return parser.getTransfers();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            throw new InvalidDataReceivedException("Malformed XML while parsing <file_transfers>", e);
+        }
+    }
+
+    /**
+     * Parse the RPC result (file_transfers) directly from the stream, while it is being received
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @return vector of transfers info
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public static Vector<Transfer> parse(InputStream rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        try {
+            TransfersParser parser = new TransfersParser();
+            Xml.parse(rpcResult, Xml.Encoding.UTF_8, parser);
+            return parser.getTransfers();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML in received stream");
+            throw new InvalidDataReceivedException("Malformed XML while parsing <file_transfers>", e);
+        }
+    }
+
+    /**
+     * Parse the RPC result (file_transfers) by this parser, updating in place the transfers returned
+     * by previous call (matched by name), instead of creating new ones
+     * <p>
+     * The returned vector and the transfers in it are valid only until the next call.
+     *
+     * @param rpcResult String returned by RPC call of core client
+     * @return vector of transfers info, the same vector in each call
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     */
+    public Vector<Transfer> parseRecycled(String rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException {
+        try {
+            reset();
+            Xml.parse(rpcResult, this);
+            return getTransfers();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            throw new InvalidDataReceivedException("Malformed XML while parsing <file_transfers>", e);
+        }
+    }
+
+    /**
+     * Parse the RPC result (file_transfers) by this parser directly from the stream, updating in place
+     * the transfers returned by previous call, see {@link #parseRecycled(String)}
+     *
+     * @param rpcResult stream of reply to RPC call of core client
+     * @return vector of transfers info, the same vector in each call
+     * @throws AuthorizationFailedException in case of unauthorized
+     * @throws InvalidDataReceivedException in case XML cannot be parsed
+     * @throws IOException in case of error when reading the stream
+     */
+    public Vector<Transfer> parseRecycled(InputStream rpcResult) throws AuthorizationFailedException, InvalidDataReceivedException, IOException {
+        try {
+            reset();
+            Xml.parse(rpcResult, Xml.Encoding.UTF_8, this);
+            return getTransfers();
+        }
+        catch (SAXException e) {
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML in received stream");
+            throw new InvalidDataReceivedException("Malformed XML while parsing <file_transfers>", e);
+        }
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        mRecycler.begin();
+        mTransfer = null;
+        mPrevious = null;
+    }
+
+    @Override
+    public void endDocument() {
+        mRecycler.end();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        super.startElement(uri, localName, qName, attributes);
+        switch (ELEMENTS.get(localName)) {
+        case FILE_TRANSFER:
+            if (mTransfer != null) {
+                // previous <file_transfer> not closed - dropping it!
+                Log.i(TAG, "Dropping unfinished <file_transfer> data");
+            }
+            mTransfer = mRecycler.scratch();
+            mPrevious = mRecycler.candidate();
+            break;
+        case FILE_XFER:
+            // Just constructor, flag should be set if it's present
+            if (mTransfer != null) {
+                mTransfer.xfer_active = true;
+            }
+            break;
+        case PERSISTENT_FILE_XFER:
+            // Just constructor, but nothing to do here
+            // We just do not set mElementStarted flag here, so we will
+            // avoid unnecessary work in BaseParser.characters()
+            break;
+        default:
+            // Another element, hopefully primitive and not constructor
+            // (although unknown constructor does not hurt, because there will be primitive start anyway)
+            mElementStarted = true;
+            mCurrentElement.setLength(0);
+            break;
+        }
+    }
+
+    // Method characters(char[] ch, int start, int length) is implemented by BaseParser,
+    // filling mCurrentElement (including stripping of leading whitespaces)
+    //@Override
+    //public void characters(char[] ch, int start, int length) throws SAXException { }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        super.endElement(uri, localName, qName);
+        try {
+            if (mTransfer != null) {
+                // We are inside <file_transfer>
+                final int element = ELEMENTS.get(localName);
+                if (element == FILE_TRANSFER) {
+                    // Closing tag of <project> - add to vector and be ready for next one
+                    if (!mTransfer.project_url.equals("") && !mTransfer.name.equals("")) {
+                        // project_url is a must
+                        mRecycler.commit(mTransfer);
+                    }
+                    mTransfer = null;
+                    mPrevious = null;
+                }
+                else if (element != TagTable.UNKNOWN) {
+                    // Not the closing tag - we decode possible inner tags
+                    trimEnd();
+                    switch (element) {
+                    case PROJECT_URL:
+                        mTransfer.project_url = currentSymbol(mPrevious.project_url);
+                        break;
+                    case NAME:
+                        mTransfer.name = currentString(mPrevious.name);
+                        break;
+                    case IS_UPLOAD:
+                        mTransfer.is_upload = currentFlag();
+                        break;
+                    case GENERATED_LOCALLY:
+                        // The <generated_locally> is deprecated legacy tag
+                        mTransfer.is_upload = currentFlag();
+                        break;
+                    case NBYTES:
+                        mTransfer.nbytes = currentLong();
+                        break;
+                    case STATUS:
+                        mTransfer.status = currentInt();
+                        break;
+                    case TIME_SO_FAR:
+                        // inside <persistent_file_xfer>
+                        mTransfer.time_so_far = currentLong();
+                        break;
+                    case NEXT_REQUEST_TIME:
+                        // inside <persistent_file_xfer>
+                        mTransfer.next_request_time = currentLong();
+                        break;
+                    case LAST_BYTES_XFERRED:
+                        // inside <persistent_file_xfer>
+                        // See also <bytes_xferred> below, both are setting the same parameters
+                        if (mTransfer.bytes_xferred == 0) {
+                            // Not set yet
+                            mTransfer.bytes_xferred = currentLong();
+                        }
+                        break;
+                    case BYTES_XFERRED:
+                        // Total bytes transferred, but this info is not available if networking
+                        // is suspended. This info is present only inside <file_xfer> (active transfer)
+                        // In such case we overwrite value set by <last_bytes_xferred>
+                        mTransfer.bytes_xferred = currentLong();
+                        break;
+                    case XFER_SPEED:
+                        // inside <file_xfer>
+                        mTransfer.xfer_speed = currentFloat();
+                        break;
+                    case PROJECT_BACKOFF:
+                        mTransfer.project_backoff = currentLong();
+                        break;
+                    }
+                }
+            }
+        }
+        catch (NumberFormatException e) {
+            Log.i(TAG, "Exception when decoding " + localName);
+        }
+        mElementStarted = false;
+    }
+}
@@ -19,8 +19,6 @@
 
 package edu.berkeley.boinc;
 
-import android.util.Log;
-import android.util.Xml;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
@@ -50,7 +48,7 @@ public class VersionInfoParser extends BaseParser {
             return parser.getVersionInfo();
         }
         catch (SAXException e) {
-            if (BuildConfig.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
             throw new InvalidDataReceivedException("Malformed XML while parsing <server_version>", e);
         }
     }
@@ -91,13 +89,13 @@ public class VersionInfoParser extends BaseParser {
                     // Not the closing tag - we decode possible inner tags
                     trimEnd();
                     if (localName.equalsIgnoreCase("major")) {
-                        mVersionInfo.major = Integer.parseInt(mCurrentElement.toString());
+                        mVersionInfo.major = currentInt();
                     }
                     else if (localName.equalsIgnoreCase("minor")) {
-                        mVersionInfo.minor = Integer.parseInt(mCurrentElement.toString());
+                        mVersionInfo.minor = currentInt();
                     }
                     else if (localName.equalsIgnoreCase("release")) {
-                        mVersionInfo.release = Integer.parseInt(mCurrentElement.toString());
+                        mVersionInfo.release = currentInt();
                     }
                 }
             }
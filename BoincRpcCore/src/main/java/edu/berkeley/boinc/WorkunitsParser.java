@@ -19,8 +19,6 @@
 
 package edu.berkeley.boinc;
 
-import android.util.Log;
-import android.util.Xml;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import java.util.Vector;
@@ -29,6 +27,18 @@ import java.util.Vector;
 public class WorkunitsParser extends BaseParser {
     private static final String TAG = "WorkunitsParser";
 
+    // Elements handled by this parser, see ELEMENTS
+    private static final int WORKUNIT = 1;
+    private static final int NAME = 2;
+    private static final int APP_NAME = 3;
+    private static final int VERSION_NUM = 4;
+
+    private static final TagTable ELEMENTS = new TagTable()
+            .add("workunit", WORKUNIT)
+            .add("name", NAME)
+            .add("app_name", APP_NAME)
+            .add("version_num", VERSION_NUM);
+
     private Vector<Workunit> mWorkunits = new Vector<Workunit>();
     private Workunit mWorkunit = null;
 
@@ -52,7 +62,7 @@ public class WorkunitsParser extends BaseParser {
             return parser.getWorkunits();
         }
         catch (SAXException e) {
-            if (BuildConfig.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
+            if (DebugFlags.DEBUG) Log.d(TAG, "Malformed XML:\n" + rpcResult);
             throw new InvalidDataReceivedException("Malformed XML while parsing <workunits>", e);
         }
     }
@@ -60,7 +70,7 @@ public class WorkunitsParser extends BaseParser {
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
         super.startElement(uri, localName, qName, attributes);
-        if (localName.equalsIgnoreCase("workunit")) {
+        if (ELEMENTS.get(localName) == WORKUNIT) {
             mWorkunit = new Workunit();
         }
         else {
@@ -82,7 +92,8 @@ public class WorkunitsParser extends BaseParser {
         try {
             if (mWorkunit != null) {
                 // We are inside <workunit>
-                if (localName.equalsIgnoreCase("workunit")) {
+                final int element = ELEMENTS.get(localName);
+                if (element == WORKUNIT) {
                     // Closing tag of <workunit> - add to vector and be ready for next one
                     if (!mWorkunit.name.equals("")) {
                         // name is a must
@@ -90,17 +101,19 @@ public class WorkunitsParser extends BaseParser {
                     }
                     mWorkunit = null;
                 }
-                else {
+                else if (element != TagTable.UNKNOWN) {
                     // Not the closing tag - we decode possible inner tags
                     trimEnd();
-                    if (localName.equalsIgnoreCase("name")) {
+                    switch (element) {
+                    case NAME:
                         mWorkunit.name = mCurrentElement.toString();
-                    }
-                    else if (localName.equalsIgnoreCase("app_name")) {
-                        mWorkunit.app_name = mCurrentElement.toString();
-                    }
-                    else if (localName.equalsIgnoreCase("version_num")) {
-                        mWorkunit.version_num = Integer.parseInt(mCurrentElement.toString());
+                        break;
+                    case APP_NAME:
+                        mWorkunit.app_name = currentSymbol(null);
+                        break;
+                    case VERSION_NUM:
+                        mWorkunit.version_num = currentInt();
+                        break;
                     }
                 }
             }
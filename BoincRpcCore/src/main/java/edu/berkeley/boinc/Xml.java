@@ -0,0 +1,155 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+
+/**
+ * SAX parsing facade of the library, with the same calls as {@code android.util.Xml}.
+ * <p>
+ * By default the standard JAXP parser is used; the platform can set its own
+ * {@link Backend} (e.g. the native parser of Android) by {@link #setBackend(Backend)}.
+ */
+public final class Xml {
+    /**
+     * Supported character encodings of input stream
+     */
+    public enum Encoding {
+        US_ASCII("US-ASCII"),
+        UTF_8("UTF-8"),
+        UTF_16("UTF-16"),
+        ISO_8859_1("ISO-8859-1");
+
+        final String name;
+
+        Encoding(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * SAX parser implementation
+     */
+    public interface Backend {
+        void parse(String xml, ContentHandler contentHandler) throws SAXException;
+        void parse(Reader in, ContentHandler contentHandler) throws IOException, SAXException;
+    }
+
+    private static class JaxpBackend implements Backend {
+        // Default error handler of JAXP prints errors to stderr; failures are reported by exception only
+        private static final ErrorHandler sErrorHandler = new ErrorHandler() {
+            @Override
+            public void warning(SAXParseException e) {}
+
+            @Override
+            public void error(SAXParseException e) {}
+
+            @Override
+            public void fatalError(SAXParseException e) throws SAXException {
+                throw e;
+            }
+        };
+
+        // XMLReader is not thread-safe, but can be reused for consecutive parsing
+        private final ThreadLocal<XMLReader> mReader = new ThreadLocal<XMLReader>();
+
+        private XMLReader reader(ContentHandler contentHandler) throws SAXException {
+            XMLReader reader = mReader.get();
+            if (reader == null) {
+                try {
+                    SAXParserFactory factory = SAXParserFactory.newInstance();
+                    factory.setNamespaceAware(true);
+                    reader = factory.newSAXParser().getXMLReader();
+                    reader.setErrorHandler(sErrorHandler);
+                }
+                catch (ParserConfigurationException e) {
+                    throw new SAXException(e);
+                }
+                mReader.set(reader);
+            }
+            reader.setContentHandler(contentHandler);
+            return reader;
+        }
+
+        @Override
+        public void parse(String xml, ContentHandler contentHandler) throws SAXException {
+            try {
+                reader(contentHandler).parse(new InputSource(new StringReader(xml)));
+            }
+            catch (IOException e) {
+                // Reading from String does not fail
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public void parse(Reader in, ContentHandler contentHandler) throws IOException, SAXException {
+            reader(contentHandler).parse(new InputSource(in));
+        }
+    }
+
+    private static volatile Backend sBackend = new JaxpBackend();
+
+    private Xml() {}
+
+    /**
+     * Sets the SAX parser implementation
+     * @param backend the new implementation, or null to restore the default (JAXP)
+     */
+    public static void setBackend(Backend backend) {
+        sBackend = (backend != null) ? backend : new JaxpBackend();
+    }
+
+    /**
+     * Parses the given XML string and fires events on the given SAX handler
+     */
+    public static void parse(String xml, ContentHandler contentHandler) throws SAXException {
+        sBackend.parse(xml, contentHandler);
+    }
+
+    /**
+     * Parses XML from the given input stream and fires events on the given SAX handler.
+     * <p>
+     * The bytes are decoded before they are passed to parser, replacing malformed input
+     * (e.g. invalid UTF-8 in message from project) by U+FFFD, so the result is the same
+     * as when the reply is decoded to String first.
+     */
+    public static void parse(InputStream in, Encoding encoding, ContentHandler contentHandler) throws IOException, SAXException {
+        Reader reader = new InputStreamReader(in, Charset.forName(encoding.name).newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        sBackend.parse(reader, contentHandler);
+    }
+}
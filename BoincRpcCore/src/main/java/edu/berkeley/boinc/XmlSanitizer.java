@@ -19,7 +19,6 @@
 
 package edu.berkeley.boinc;
 
-import android.util.Log;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
@@ -52,7 +51,7 @@ public class XmlSanitizer {
      */
     public static String sanitize(final String input, final String tag) {
         Pattern p = Pattern.compile("<" + tag + ">(.+?)</" + tag + ">", Pattern.DOTALL);
-        if (BuildConfig.DEBUG) Log.d(TAG, "sanitize(): Using pattern \"" + p.pattern() + "\"");
+        if (DebugFlags.DEBUG) Log.d(TAG, "sanitize(): Using pattern \"" + p.pattern() + "\"");
         Matcher m = p.matcher(input);
         StringBuffer sb = new StringBuffer();
         if (!m.find()) {
@@ -66,7 +65,7 @@ public class XmlSanitizer {
             pos = m.end(1);
         }
         sb = sb.append(input, pos, input.length());
-        if (BuildConfig.DEBUG_DATA) {
+        if (DebugFlags.DEBUG_DATA) {
             Log.d(TAG, "Sanitized string: ");
             BufferedReader dbr = new BufferedReader(new StringReader(sb.toString()), 1024);
             String dl;
@@ -0,0 +1,112 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+
+public class AdaptiveTimeoutsTest {
+
+    @Test
+    public void defaultsWithoutMeasurement() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts();
+        assertThat(timeouts.connectTimeout(), is(equalTo(AdaptiveTimeouts.DEFAULT_CONNECT_TIMEOUT)));
+        assertThat(timeouts.replyTimeout("get_state"), is(equalTo(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT)));
+        assertThat(timeouts.stallTimeout(), is(equalTo(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT)));
+    }
+
+    @Test
+    public void fastHostShortTimeouts() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts();
+        timeouts.connectCompleted(5);
+        timeouts.replyStarted("get_cc_status", 10);
+        // Stall timeout is not derived from connect
+        assertThat(timeouts.stallTimeout(), is(equalTo(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT)));
+        timeouts.replyReceived(2, 1000, 3);
+        // Limited by minimum values
+        assertThat(timeouts.connectTimeout(), is(equalTo(3000)));
+        assertThat(timeouts.replyTimeout("get_cc_status"), is(equalTo(8000)));
+        assertThat(timeouts.stallTimeout(), is(equalTo(4000)));
+        // Other RPC types are not measured yet
+        assertThat(timeouts.replyTimeout("get_state"), is(equalTo(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT)));
+    }
+
+    @Test
+    public void timeoutPerRpcType() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts();
+        for (int i = 0; i < 10; ++i) {
+            timeouts.replyStarted("get_cc_status", 100);
+            timeouts.replyStarted("get_state", 8000);
+        }
+        assertThat(timeouts.replyTimeout("get_cc_status"), is(equalTo(8000)));
+        int stateTimeout = timeouts.replyTimeout("get_state");
+        assertTrue(stateTimeout > 8000);
+        assertTrue(stateTimeout < AdaptiveTimeouts.DEFAULT_READ_TIMEOUT);
+        // Slow replies of big state are getting longer budget than default
+        for (int i = 0; i < 10; ++i) {
+            timeouts.replyStarted("get_state", 20000);
+        }
+        assertTrue(timeouts.replyTimeout("get_state") > AdaptiveTimeouts.DEFAULT_READ_TIMEOUT);
+    }
+
+    @Test
+    public void backoffAfterTimeout() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts();
+        timeouts.replyStarted("get_results", 4000);
+        assertThat(timeouts.replyTimeout("get_results"), is(equalTo(12000)));
+        timeouts.replyTimedOut("get_results");
+        assertThat(timeouts.replyTimeout("get_results"), is(equalTo(24000)));
+        timeouts.replyTimedOut("get_results");
+        assertThat(timeouts.replyTimeout("get_results"), is(equalTo(48000)));
+        // Successful measurement cancels backoff
+        timeouts.replyStarted("get_results", 4000);
+        assertThat(timeouts.replyTimeout("get_results"), is(equalTo(10000)));
+        timeouts.reset();
+        assertThat(timeouts.replyTimeout("get_results"), is(equalTo(AdaptiveTimeouts.DEFAULT_READ_TIMEOUT)));
+    }
+
+    @Test
+    public void stallTimeoutScaledByRate() {
+        AdaptiveTimeouts timeouts = new AdaptiveTimeouts();
+        // Fast network - short waits, limited by minimum
+        timeouts.replyReceived(10, 1000000, 100);
+        assertThat(timeouts.stallTimeout(), is(equalTo(4000)));
+        timeouts.reset();
+        // Slow network (10 kB/s) - even with short waits, there must be time for window of data
+        timeouts.replyReceived(10, 100000, 10000);
+        assertThat(timeouts.stallTimeout(), is(equalTo(13107)));
+        // Long waits are measured too
+        timeouts.reset();
+        timeouts.replyReceived(3000, 100000, 1000);
+        assertThat(timeouts.stallTimeout(), is(equalTo(9000)));
+    }
+
+    @Test
+    public void rpcName() {
+        assertThat(TimedInputStream.rpcName("<get_state/>\n"), is(equalTo("get_state")));
+        assertThat(TimedInputStream.rpcName("<get_results>\n<active_only>1</active_only>\n</get_results>\n"), is(equalTo("get_results")));
+        assertThat(TimedInputStream.rpcName("<auth2>\n<nonce_hash>x</nonce_hash>\n</auth2>\n"), is(equalTo("auth2")));
+    }
+}
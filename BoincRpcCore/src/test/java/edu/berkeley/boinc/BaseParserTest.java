@@ -0,0 +1,120 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class BaseParserTest {
+    private final BaseParser mParser = new BaseParser();
+
+    private BaseParser current(String value) {
+        mParser.mCurrentElement.setLength(0);
+        mParser.mCurrentElement.append(value);
+        return mParser;
+    }
+
+    @Test
+    public void decodeInt() {
+        String[] values = { "0", "7", "-1", "+42", "123456789", "2147483647", "-2147483648", "0012" };
+        for (String value: values) {
+            assertThat(value, current(value).currentInt(), is(equalTo(Integer.parseInt(value))));
+        }
+    }
+
+    @Test
+    public void decodeDouble() {
+        String[] values = { "0", "0.000000", "-0.000000", "9711.279000", "1456776412.000000",
+                "82063360.000000", "0.590909", "1e5", "2.5E-3", "-1.25e+07", "123456789012345678",
+                "0.1234567890123456789", "1e300", "4.9e-324", ".5", "7.", "1.5f", "Infinity", "NaN" };
+        for (String value: values) {
+            assertThat(value, current(value).currentDouble(), is(equalTo(Double.parseDouble(value))));
+            assertThat(value, current(value).currentLong(), is(equalTo((long)Double.parseDouble(value))));
+        }
+    }
+
+    @Test
+    public void decodeFloat() {
+        String[] values = { "0", "0.590909", "0.992840", "100.000000", "-3.5", "1e10", "1234.5678e-2",
+                "0.333333333333", "16777217", "3.4e38" };
+        for (String value: values) {
+            assertThat(value, current(value).currentFloat(), is(equalTo(Float.parseFloat(value))));
+        }
+    }
+
+    @Test
+    public void decodeFormattedValues() {
+        // Values as printed by BOINC client ("%f" and "%e" formats)
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; ++i) {
+            final double number = (random.nextDouble() - 0.3) * Math.pow(10, random.nextInt(20) - 6);
+            String[] values = {
+                String.format(Locale.US, "%f", number),
+                String.format(Locale.US, "%e", number),
+                Double.toString(number),
+            };
+            for (String value: values) {
+                assertThat(value, current(value).currentDouble(), is(equalTo(Double.parseDouble(value))));
+                assertThat(value, current(value).currentFloat(), is(equalTo(Float.parseFloat(value))));
+            }
+        }
+    }
+
+    @Test
+    public void invalidValues() {
+        String[] values = { "", "-", "abc", "1.2.3", "12a", "1e", "2147483648", " 1" };
+        for (String value: values) {
+            try {
+                current(value).currentInt();
+                fail("NumberFormatException expected for \"" + value + "\"");
+            }
+            catch (NumberFormatException e) {
+                // Expected
+            }
+        }
+        String[] numbers = { "", "-", "abc", "1.2.3", "12a", "1e", "e5" };
+        for (String value: numbers) {
+            try {
+                current(value).currentDouble();
+                fail("NumberFormatException expected for \"" + value + "\"");
+            }
+            catch (NumberFormatException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void decodeFlag() {
+        assertFalse(current("0").currentFlag());
+        assertTrue(current("1").currentFlag());
+        assertTrue(current("").currentFlag());
+    }
+}
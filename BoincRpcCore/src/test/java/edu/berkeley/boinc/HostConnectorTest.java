@@ -0,0 +1,165 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package edu.berkeley.boinc;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class HostConnectorTest {
+    private ServerSocket mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new ServerSocket(0, 10, InetAddress.getByName("127.0.0.1"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+    }
+
+    @Test
+    public void interleaveFamilies() throws IOException {
+        InetAddress v6a = InetAddress.getByName("2001:db8::1");
+        InetAddress v6b = InetAddress.getByName("2001:db8::2");
+        InetAddress v4a = InetAddress.getByName("192.0.2.1");
+        InetAddress v4b = InetAddress.getByName("192.0.2.2");
+        InetAddress[] ordered = HostConnector.interleave(new InetAddress[] { v6a, v6b, v4a, v4b });
+        assertThat(ordered, is(equalTo(new InetAddress[] { v6a, v4a, v6b, v4b })));
+        ordered = HostConnector.interleave(new InetAddress[] { v4a, v4b, v6a });
+        assertThat(ordered, is(equalTo(new InetAddress[] { v4a, v6a, v4b })));
+    }
+
+    @Test
+    public void resolvedAddressesCached() throws IOException {
+        HostConnector connector = new HostConnector();
+        InetAddress[] first = connector.resolve("127.0.0.1");
+        assertThat(connector.resolve("127.0.0.1"), is(sameInstance(first)));
+        connector.invalidate("127.0.0.1");
+        assertThat(connector.resolve("127.0.0.1"), is(not(sameInstance(first))));
+    }
+
+    @Test
+    public void cacheExpires() throws IOException {
+        HostConnector connector = new HostConnector(0);
+        InetAddress[] first = connector.resolve("127.0.0.1");
+        assertThat(connector.resolve("127.0.0.1"), is(not(sameInstance(first))));
+    }
+
+    @Test
+    public void connectSecondAddress() throws IOException {
+        HostConnector connector = new HostConnector();
+        // Nothing listens on 127.0.0.2, connect there is refused
+        InetAddress[] addresses = new InetAddress[] {
+                InetAddress.getByName("127.0.0.2"), InetAddress.getByName("127.0.0.1") };
+        long start = System.currentTimeMillis();
+        Socket socket = connector.connect(addresses, mServer.getLocalPort(), 10000);
+        try {
+            assertTrue(socket.isConnected());
+            assertThat(socket.getInetAddress(), is(equalTo(addresses[1])));
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void connectAllAddressesFailed() throws IOException {
+        HostConnector connector = new HostConnector();
+        InetAddress[] addresses = new InetAddress[] {
+                InetAddress.getByName("127.0.0.2"), InetAddress.getByName("127.0.0.3") };
+        try {
+            connector.connect(addresses, mServer.getLocalPort(), 10000).close();
+            fail("Connect should fail");
+        }
+        catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void failedConnectDropsCachedAddresses() throws IOException {
+        HostConnector connector = new HostConnector();
+        InetAddress[] cached = connector.resolve("127.0.0.2");
+        try {
+            connector.connect("127.0.0.2", mServer.getLocalPort(), 10000).close();
+            fail("Connect should fail");
+        }
+        catch (IOException e) {
+            // Expected
+        }
+        assertThat(connector.resolve("127.0.0.2"), is(not(sameInstance(cached))));
+    }
+
+    @Test
+    public void cancelledAttemptFails() throws IOException {
+        HostConnector connector = new HostConnector();
+        InetAddress[] cached = connector.resolve("127.0.0.1");
+        HostConnector.Attempt attempt = new HostConnector.Attempt();
+        attempt.cancel();
+        try {
+            connector.connect("127.0.0.1", mServer.getLocalPort(), 10000, attempt).close();
+            fail("Cancelled connect should fail");
+        }
+        catch (InterruptedIOException e) {
+            // Expected
+        }
+        // Cancel does not drop cached addresses
+        assertThat(connector.resolve("127.0.0.1"), is(sameInstance(cached)));
+        // The same for parallel attempts
+        attempt = new HostConnector.Attempt();
+        attempt.cancel();
+        InetAddress[] addresses = new InetAddress[] {
+                InetAddress.getByName("127.0.0.2"), InetAddress.getByName("127.0.0.1") };
+        try {
+            connector.connect(addresses, mServer.getLocalPort(), 10000, attempt).close();
+            fail("Cancelled connect should fail");
+        }
+        catch (InterruptedIOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void cancelClosesEstablishedConnection() throws IOException {
+        HostConnector connector = new HostConnector();
+        HostConnector.Attempt attempt = new HostConnector.Attempt();
+        Socket socket = connector.connect("127.0.0.1", mServer.getLocalPort(), 10000, attempt);
+        assertTrue(socket.isConnected());
+        attempt.cancel();
+        assertTrue(socket.isClosed());
+    }
+}
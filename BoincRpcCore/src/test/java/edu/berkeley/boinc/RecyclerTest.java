@@ -0,0 +1,110 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package edu.berkeley.boinc;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Vector;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class RecyclerTest {
+    private static class Entity {
+        String name = "";
+        int value = 0;
+    }
+
+    private Recycler<Entity> mRecycler;
+
+    @Before
+    public void setUp() {
+        mRecycler = new Recycler<Entity>() {
+            @Override
+            Entity create() {
+                return new Entity();
+            }
+            @Override
+            String key(Entity entity) {
+                return entity.name;
+            }
+            @Override
+            void copy(Entity from, Entity to) {
+                to.name = from.name;
+                to.value = from.value;
+            }
+        };
+    }
+
+    private Vector<Entity> cycle(String... names) {
+        mRecycler.begin();
+        for (int i = 0; i < names.length; ++i) {
+            Entity entity = mRecycler.scratch();
+            entity.name = names[i];
+            entity.value = i;
+            mRecycler.commit(entity);
+        }
+        mRecycler.end();
+        return mRecycler.result();
+    }
+
+    @Test
+    public void sameOrder() {
+        Vector<Entity> first = new Vector<Entity>(cycle("a", "b", "c"));
+        Vector<Entity> second = cycle("a", "b", "c");
+        for (int i = 0; i < 3; ++i) {
+            assertThat(second.elementAt(i), is(sameInstance(first.elementAt(i))));
+        }
+    }
+
+    @Test
+    public void reordered() {
+        Vector<Entity> first = new Vector<Entity>(cycle("a", "b", "c", "d"));
+        Vector<Entity> second = new Vector<Entity>(cycle("c", "a", "d", "b"));
+        assertThat(second.elementAt(0), is(sameInstance(first.elementAt(2))));
+        assertThat(second.elementAt(1), is(sameInstance(first.elementAt(0))));
+        assertThat(second.elementAt(2), is(sameInstance(first.elementAt(3))));
+        assertThat(second.elementAt(3), is(sameInstance(first.elementAt(1))));
+        assertThat(second.elementAt(0).value, is(equalTo(0)));
+        // The candidates follow the new order in next cycle
+        mRecycler.begin();
+        assertThat(mRecycler.candidate(), is(sameInstance(first.elementAt(2))));
+        assertThat(mRecycler.candidate("b"), is(sameInstance(first.elementAt(1))));
+        Vector<Entity> third = cycle("a", "b", "c", "d");
+        for (int i = 0; i < 4; ++i) {
+            assertThat(third.elementAt(i), is(sameInstance(first.elementAt(i))));
+        }
+    }
+
+    @Test
+    public void addedAndRemoved() {
+        Vector<Entity> first = new Vector<Entity>(cycle("a", "b", "c"));
+        Vector<Entity> second = new Vector<Entity>(cycle("b", "x", "c"));
+        assertThat(second.elementAt(0), is(sameInstance(first.elementAt(1))));
+        assertThat(second.elementAt(1).name, is(equalTo("x")));
+        assertThat(second.elementAt(2), is(sameInstance(first.elementAt(2))));
+        Vector<Entity> third = cycle("a", "x");
+        assertThat(third.elementAt(0).name, is(equalTo("a")));
+        assertThat(third.elementAt(1), is(sameInstance(second.elementAt(1))));
+    }
+}
@@ -0,0 +1,147 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package edu.berkeley.boinc;
+
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+import java.util.Vector;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+
+public class ReplyLexerTest {
+    private static final ReplyLexer LEXER = new ReplyLexer("body");
+
+    // Records the events in compact form: <name attr=value>, text, </name>
+    private static class Recorder extends DefaultHandler {
+        final StringBuilder events = new StringBuilder();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            events.append('<').append(localName);
+            for (int i = 0; i < attributes.getLength(); ++i) {
+                events.append(' ').append(attributes.getLocalName(i)).append('=').append(attributes.getValue(i));
+            }
+            events.append('>');
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            events.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            events.append("</").append(localName).append('>');
+        }
+    }
+
+    private static String lex(String xml) throws SAXException {
+        Recorder recorder = new Recorder();
+        LEXER.parse(xml, recorder);
+        return recorder.events.toString();
+    }
+
+    private static void assertMalformed(String xml) {
+        try {
+            lex(xml);
+            fail("SAXException expected for: " + xml);
+        }
+        catch (SAXException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void wellFormed() throws SAXException {
+        assertThat(lex("<?xml version=\"1.0\"?>\n<a>\n <b>1</b><!-- note --><c/>\n</a>\n"),
+                is(equalTo("<a>\n <b>1</b><c></c>\n</a>")));
+    }
+
+    @Test
+    public void entities() throws SAXException {
+        assertThat(lex("<a>&lt;x&gt; &amp; &quot;&apos; &#65;&#x42;</a>"), is(equalTo("<a><x> & \"' AB</a>")));
+        // Not an entity, the ampersand is taken literally
+        assertThat(lex("<a>R&D &amp co &unknown;</a>"), is(equalTo("<a>R&D &amp co &unknown;</a>")));
+        assertThat(lex("<a>line1\r\nline2\rline3</a>"), is(equalTo("<a>line1\nline2\nline3</a>")));
+    }
+
+    @Test
+    public void attributes() throws SAXException {
+        assertThat(lex("<a x=\"1\" y='2 3' z=http://host/p?a=1&amp;b=2></a>"),
+                is(equalTo("<a x=1 y=2 3 z=http://host/p?a=1&b=2></a>")));
+    }
+
+    @Test
+    public void rawBody() throws SAXException {
+        assertThat(lex("<msg><body>New version. <a href=http://x/d.php>Download it.</a> <b></body></msg>"),
+                is(equalTo("<msg><body>New version. <a href=http://x/d.php>Download it.</a> <b></body></msg>")));
+        assertThat(lex("<msg><body><![CDATA[\n1 < 2 </body>\n]]> &amp;</body></msg>"),
+                is(equalTo("<msg><body>\n1 < 2 </body>\n &</body></msg>")));
+        // Same element outside of the raw element is taken as markup
+        assertThat(lex("<msg><b>x</b></msg>"), is(equalTo("<msg><b>x</b></msg>")));
+    }
+
+    @Test
+    public void malformed() {
+        assertMalformed("");
+        assertMalformed("  \n");
+        assertMalformed("<a><b></a>");
+        assertMalformed("<a></a></b>");
+        assertMalformed("<a></a><b></b>");
+        assertMalformed("text<a></a>");
+        assertMalformed("<a></a>text");
+        assertMalformed("<a><body>unterminated</a>");
+    }
+
+    @Test
+    public void truncated() {
+        final String reply = "<boinc_gui_rpc_reply>\n<msgs>\n<msg><body>x</body></msg>\n</msgs>\n</boinc_gui_rpc_reply>";
+        for (int length = 0; length < reply.length(); ++length) {
+            assertMalformed(reply.substring(0, length));
+        }
+    }
+
+    @Test
+    public void messagesWithUnescapedBody() throws Exception {
+        final String reply =
+                "<boinc_gui_rpc_reply>\n" +
+                "<msgs>\n" +
+                "<msg>\n" +
+                " <project></project>\n" +
+                " <pri>1</pri>\n" +
+                " <seqno>12692</seqno>\n" +
+                " <body>\nA new version of BOINC is available. <a href=http://boinc.berkeley.edu/download.php>Download it.</a>\n</body>\n" +
+                " <time>1456395487</time>\n" +
+                "</msg>\n" +
+                "</msgs>\n" +
+                "</boinc_gui_rpc_reply>\n";
+        Vector<Message> messages = MessagesParser.parse(reply);
+        assertThat(messages.size(), is(equalTo(1)));
+        assertThat(messages.elementAt(0).seqno, is(equalTo(12692)));
+        assertThat(messages.elementAt(0).timestamp, is(equalTo(1456395487L)));
+        assertThat(messages.elementAt(0).body,
+                is(equalTo("A new version of BOINC is available. <a href=http://boinc.berkeley.edu/download.php>Download it.</a>")));
+    }
+}
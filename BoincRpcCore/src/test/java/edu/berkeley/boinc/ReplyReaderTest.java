@@ -0,0 +1,151 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+
+public class ReplyReaderTest {
+
+    // Stream returning at most one byte per read() call
+    private static class TrickleInputStream extends ByteArrayInputStream {
+        public TrickleInputStream(byte[] buf) {
+            super(buf);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, (len > 0) ? 1 : 0);
+        }
+    }
+
+    @Test
+    public void terminatorInsideChunk() throws IOException {
+        ReplyReader reader = new ReplyReader(16);
+        reader.setInput(new ByteArrayInputStream("<a/>\003<b/>\003<c/>".getBytes("UTF-8")));
+        assertThat(reader.readReply(), is(true));
+        assertThat(reader.decodeReply("UTF-8"), is(equalTo("<a/>")));
+        assertThat(reader.bytesConsumed(), is(5));
+        assertThat(reader.readReply(), is(true));
+        assertThat(reader.decodeReply("UTF-8"), is(equalTo("<b/>")));
+        assertThat(reader.readReply(), is(false));
+        assertThat(reader.decodeReply("UTF-8"), is(equalTo("<c/>")));
+        assertThat(reader.readReply(), is(false));
+        assertThat(reader.replyLength(), is(0));
+    }
+
+    @Test
+    public void multiByteCharacterSplitBetweenReads() throws IOException {
+        final String text = "<body>P\u00f4vodn\u00e1 spr\u00e1va \u20ac</body>";
+        ReplyReader reader = new ReplyReader(16);
+        reader.setInput(new TrickleInputStream((text + "\003").getBytes("UTF-8")));
+        assertThat(reader.readReply(), is(true));
+        assertThat(reader.decodeReply("UTF-8"), is(equalTo(text)));
+    }
+
+    @Test
+    public void replyLargerThanBuffer() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; ++i) {
+            sb.append("<seqno>").append(i).append("</seqno>\n");
+        }
+        final String text = sb.toString();
+        ReplyReader reader = new ReplyReader(1024);
+        reader.setInput(new ByteArrayInputStream((text + "\003").getBytes("UTF-8")));
+        assertThat(reader.readReply(), is(true));
+        assertThat(reader.decodeReply("UTF-8"), is(equalTo(text)));
+        assertThat(reader.bytesConsumed(), is(text.length() + 1));
+    }
+
+    @Test
+    public void trimAfterLargeReply() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            sb.append("<seqno>").append(i).append("</seqno>\n");
+        }
+        final String text = sb.toString();
+        ReplyReader reader = new ReplyReader(64);
+        reader.setInput(new ByteArrayInputStream((text + "\003<a/>\003").getBytes("UTF-8")));
+        assertThat(reader.readReply(), is(true));
+        assertThat(reader.decodeReply("UTF-8"), is(equalTo(text)));
+        int pending = reader.pendingBytes();
+        reader.trim();
+        assertThat(reader.capacity(), is(64));
+        assertThat(reader.pendingBytes(), is(pending));
+        assertThat(reader.readReply(), is(true));
+        assertThat(reader.decodeReply("UTF-8"), is(equalTo("<a/>")));
+    }
+
+    @Test
+    public void streamSingleBytes() throws IOException {
+        ReplyReader reader = new ReplyReader(4);
+        reader.setInput(new ByteArrayInputStream("<a/>\003<b/>\003".getBytes("UTF-8")));
+        InputStream reply = reader.openReplyStream();
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = reply.read()) != -1) {
+            sb.append((char)b);
+        }
+        reply.close();
+        assertThat(sb.toString(), is(equalTo("<a/>")));
+        assertThat(reader.replyLength(), is(4));
+        assertThat(reader.bytesConsumed(), is(5));
+        assertThat(reader.readReply(), is(true));
+        assertThat(reader.decodeReply("UTF-8"), is(equalTo("<b/>")));
+    }
+
+    @Test
+    public void streamWithMalformedUtf8() throws IOException, SAXException {
+        byte[] text = "<body>ab\u00e1</body>".getBytes("UTF-8");
+        text[7] = (byte)0xff; // 'b' replaced by byte which is never valid in UTF-8
+        byte[] data = new byte[text.length + 1];
+        System.arraycopy(text, 0, data, 0, text.length);
+        data[text.length] = '\003';
+        ReplyReader reader = new ReplyReader(16);
+        reader.setInput(new ByteArrayInputStream(data));
+        final StringBuilder body = new StringBuilder();
+        InputStream reply = reader.openReplyStream();
+        try {
+            Xml.parse(reply, Xml.Encoding.UTF_8, new DefaultHandler() {
+                @Override
+                public void characters(char[] ch, int start, int length) {
+                    body.append(ch, start, length);
+                }
+            });
+        }
+        finally {
+            reply.close();
+        }
+        assertThat(body.toString(), is(equalTo("a\ufffd\u00e1")));
+        reader.setInput(new ByteArrayInputStream(data));
+        assertThat(reader.readReply(), is(true));
+        assertThat(reader.decodeReply("UTF-8"), is(equalTo("<body>a\ufffd\u00e1</body>")));
+    }
+}
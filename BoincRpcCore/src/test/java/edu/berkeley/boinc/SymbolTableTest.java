@@ -0,0 +1,83 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package edu.berkeley.boinc;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class SymbolTableTest {
+
+    @Test
+    public void sameInstanceReturned() {
+        SymbolTable table = new SymbolTable();
+        String first = table.intern(new StringBuilder("http://www.worldcommunitygrid.org/"));
+        String second = table.intern(new StringBuilder("http://www.worldcommunitygrid.org/"));
+        assertThat(second, is(sameInstance(first)));
+        assertThat(table.intern("http://www.worldcommunitygrid.org/"), is(sameInstance(first)));
+        assertThat(table.size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void differentSymbols() {
+        SymbolTable table = new SymbolTable();
+        String cpu = table.intern("1 CPU");
+        String gpu = table.intern("1 CPU + 1 NVIDIA GPU");
+        String empty = table.intern("");
+        assertThat(cpu, is(equalTo("1 CPU")));
+        assertThat(gpu, is(equalTo("1 CPU + 1 NVIDIA GPU")));
+        assertThat(empty, is(equalTo("")));
+        assertThat(table.intern(new StringBuilder("1 CPU")), is(sameInstance(cpu)));
+        assertThat(table.size(), is(equalTo(3)));
+        // The same hash code, different content
+        assertThat(table.intern("Aa"), is(not(sameInstance(table.intern("BB")))));
+    }
+
+    @Test
+    public void manySymbols() {
+        SymbolTable table = new SymbolTable();
+        String[] symbols = new String[1000];
+        for (int i = 0; i < symbols.length; ++i) {
+            symbols[i] = table.intern("app_" + i);
+        }
+        for (int i = 0; i < symbols.length; ++i) {
+            assertThat(table.intern(new StringBuilder("app_" + i)), is(sameInstance(symbols[i])));
+        }
+        assertThat(table.size(), is(equalTo(1000)));
+    }
+
+    @Test
+    public void sizeLimited() {
+        SymbolTable table = new SymbolTable();
+        for (int i = 0; i < SymbolTable.MAX_SIZE + 10; ++i) {
+            table.intern("task_" + i);
+        }
+        assertThat(table.size(), is(equalTo(SymbolTable.MAX_SIZE)));
+        // Not added anymore, so new instance each time
+        int beyondLimit = SymbolTable.MAX_SIZE + 1;
+        String beyond = table.intern("task_" + beyondLimit);
+        assertThat(table.intern("task_" + beyondLimit), is(not(sameInstance(beyond))));
+        assertThat(table.intern("task_0"), is(sameInstance(table.intern("task_0"))));
+    }
+}
@@ -0,0 +1,67 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+
+public class TagTableTest {
+
+    @Test
+    public void knownElementsFound() {
+        TagTable table = new TagTable().add("result", 1).add("name", 2).add("active_task", 3);
+        assertThat(table.get("result"), is(equalTo(1)));
+        assertThat(table.get("name"), is(equalTo(2)));
+        assertThat(table.get("active_task"), is(equalTo(3)));
+        // Not the same instance as the key in table
+        assertThat(table.get(new String("name")), is(equalTo(2)));
+    }
+
+    @Test
+    public void unknownElements() {
+        TagTable table = new TagTable().add("result", 1);
+        assertThat(table.get("results"), is(equalTo(TagTable.UNKNOWN)));
+        assertThat(table.get(""), is(equalTo(TagTable.UNKNOWN)));
+        assertThat(table.get("Resultx"), is(equalTo(TagTable.UNKNOWN)));
+    }
+
+    @Test
+    public void caseInsensitive() {
+        TagTable table = new TagTable().add("fraction_done", 7);
+        assertThat(table.get("FRACTION_DONE"), is(equalTo(7)));
+        assertThat(table.get("Fraction_Done"), is(equalTo(7)));
+    }
+
+    @Test
+    public void manyElements() {
+        TagTable table = new TagTable();
+        for (int i = 1; i <= 500; ++i) {
+            table.add("element_" + i, i);
+        }
+        for (int i = 1; i <= 500; ++i) {
+            assertThat(table.get("element_" + i), is(equalTo(i)));
+        }
+        assertThat(table.get("element_501"), is(equalTo(TagTable.UNKNOWN)));
+    }
+}
@@ -20,17 +20,12 @@
 package edu.berkeley.boinc;
 
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.robolectric.RobolectricTestRunner;
-import org.robolectric.annotation.Config;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
 
-@RunWith(RobolectricTestRunner.class)
-@Config(manifest=Config.NONE)
 public class XmlSanitizerTest {
     private static final String rawText1 =
             "<msg>\n" +
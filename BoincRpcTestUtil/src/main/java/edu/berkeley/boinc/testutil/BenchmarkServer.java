@@ -0,0 +1,60 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Server playing back the configured replies, for transport benchmarks.
+ * <p>
+ * The replies are encoded once, when set, so serving them costs only
+ * the socket writes and the client side is measured.
+ */
+public class BenchmarkServer extends GuiRpcServer {
+    private Map<String, byte[]> mReplies = new ConcurrentHashMap<String, byte[]>();
+
+    public BenchmarkServer() {
+        super(0);
+    }
+
+    public BenchmarkServer(int port) {
+        super(port);
+    }
+
+    /**
+     * Sets the reply sent to all requests of given name
+     * @param rpcName name of request, e.g. "get_state"
+     * @param reply the whole reply, including {@code <boinc_gui_rpc_reply>} element
+     */
+    public void setReply(String rpcName, String reply) {
+        mReplies.put(rpcName, encode(reply));
+    }
+
+    @Override
+    protected boolean handleRequest(Connection connection, String rpcName, String request) throws IOException {
+        byte[] reply = mReplies.get(rpcName);
+        if (reply == null) return false;
+        connection.send(reply);
+        return true;
+    }
+}
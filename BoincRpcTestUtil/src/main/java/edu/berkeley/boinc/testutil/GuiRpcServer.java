@@ -0,0 +1,414 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import edu.berkeley.boinc.Log;
+import edu.berkeley.boinc.Md5;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * GUI RPC server emulating BOINC core client on loopback interface, for tests and benchmarks
+ * running on plain JVM (the same role as {@code BoincClientStub} of instrumentation tests).
+ * <p>
+ * The server handles the framing of requests and replies ({@code \003} terminator) and the
+ * authorization (auth1/auth2 with password set by {@link #setPassword(String)}); the other
+ * requests are passed to {@link #handleRequest(Connection, String, String)} of subclass.
+ * <p>
+ * All servers share one acceptor thread, so many servers (e.g. thousands of simulated hosts)
+ * can listen at the same time; each accepted connection is served by its own thread.
+ */
+public abstract class GuiRpcServer {
+    private static final String TAG = "GuiRpcServer";
+    private static final int READ_BUF_SIZE = 8192;
+
+    private static Acceptor sAcceptor = null;
+    private static final ExecutorService sConnectionExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "GuiRpcServer-connection");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Single thread accepting the connections of all servers
+     */
+    private static class Acceptor implements Runnable {
+        private final Selector mSelector;
+        private final ConcurrentLinkedQueue<GuiRpcServer> mPending = new ConcurrentLinkedQueue<GuiRpcServer>();
+
+        public Acceptor() throws IOException {
+            mSelector = Selector.open();
+            Thread thread = new Thread(this, "GuiRpcServer-acceptor");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        public void register(GuiRpcServer server) {
+            mPending.add(server);
+            mSelector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    mSelector.select();
+                    GuiRpcServer server;
+                    while ((server = mPending.poll()) != null) {
+                        server.mListener.register(mSelector, SelectionKey.OP_ACCEPT, server);
+                    }
+                    Iterator<SelectionKey> keys = mSelector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid() || !key.isAcceptable()) continue;
+                        server = (GuiRpcServer)key.attachment();
+                        try {
+                            SocketChannel channel = ((ServerSocketChannel)key.channel()).accept();
+                            if (channel != null) {
+                                server.accepted(channel);
+                            }
+                        }
+                        catch (IOException e) {
+                            // Listener of single server failed (e.g. closed meanwhile)
+                            key.cancel();
+                        }
+                    }
+                }
+                catch (IOException e) {
+                    Log.e(TAG, "Acceptor failed", e);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Single accepted connection
+     */
+    public class Connection implements Runnable {
+        private final SocketChannel mChannel;
+        private InputStream mInput;
+        private OutputStream mOutput;
+        private boolean mAuthorized;
+        private String mNonce = null;
+        private Object mAttachment = null;
+
+        private Connection(SocketChannel channel) throws IOException {
+            mChannel = channel;
+            channel.configureBlocking(true);
+            channel.socket().setTcpNoDelay(true);
+            mInput = new BufferedInputStream(channel.socket().getInputStream(), READ_BUF_SIZE);
+            mOutput = channel.socket().getOutputStream();
+            mAuthorized = (mPassword.length() == 0);
+        }
+
+        @Override
+        public void run() {
+            byte[] request = new byte[READ_BUF_SIZE];
+            int length = 0;
+            try {
+                int b;
+                while ((b = mInput.read()) != -1) {
+                    if (b == '\003') {
+                        handle(new String(request, 0, length, "ISO8859_1"));
+                        length = 0;
+                    }
+                    else {
+                        if (length == request.length) {
+                            byte[] larger = new byte[request.length * 2];
+                            System.arraycopy(request, 0, larger, 0, length);
+                            request = larger;
+                        }
+                        request[length++] = (byte)b;
+                    }
+                }
+            }
+            catch (IOException e) {
+                // Connection closed (by client or by stop())
+            }
+            finally {
+                close();
+            }
+        }
+
+        private void handle(String request) throws IOException {
+            final String rpcName = rpcName(request);
+            if (rpcName.equals("auth1")) {
+                mNonce = Double.toString(System.currentTimeMillis() / 1000.0);
+                send("<boinc_gui_rpc_reply>\n<nonce>" + mNonce + "</nonce>\n</boinc_gui_rpc_reply>\n");
+            }
+            else if (rpcName.equals("auth2")) {
+                String nonceHash = elementValue(request, "nonce_hash");
+                mAuthorized = (mNonce != null) && Md5.hash(mNonce + mPassword).equals(nonceHash);
+                send(mAuthorized ?
+                        "<boinc_gui_rpc_reply>\n<authorized/>\n</boinc_gui_rpc_reply>\n" :
+                        "<boinc_gui_rpc_reply>\n<unauthorized/>\n</boinc_gui_rpc_reply>\n");
+            }
+            else if (!mAuthorized) {
+                send("<boinc_gui_rpc_reply>\n<unauthorized/>\n</boinc_gui_rpc_reply>\n");
+            }
+            else if (!handleRequest(this, rpcName, request)) {
+                if (rpcName.equals("exchange_versions")) {
+                    send("<boinc_gui_rpc_reply>\n<server_version>\n   <major>7</major>\n   <minor>6</minor>\n" +
+                            "   <release>22</release>\n</server_version>\n</boinc_gui_rpc_reply>\n");
+                }
+                else {
+                    send("<boinc_gui_rpc_reply>\n<error>unrecognized op</error>\n</boinc_gui_rpc_reply>\n");
+                }
+            }
+        }
+
+        /**
+         * Sends the reply; the terminator is appended
+         * @param reply the whole reply, including {@code <boinc_gui_rpc_reply>} element
+         * @throws IOException if sending failed
+         */
+        public void send(String reply) throws IOException {
+            send(encode(reply));
+        }
+
+        /**
+         * Sends the raw data (e.g. reply prepared by {@link GuiRpcServer#encode(String)})
+         * @param data the data to send
+         * @throws IOException if sending failed
+         */
+        public void send(byte[] data) throws IOException {
+            mOutput.write(data);
+            mOutput.flush();
+        }
+
+        /**
+         * @return socket of this connection
+         */
+        public Socket socket() {
+            return mChannel.socket();
+        }
+
+        public Object getAttachment() {
+            return mAttachment;
+        }
+
+        public void setAttachment(Object attachment) {
+            mAttachment = attachment;
+        }
+
+        /**
+         * Closes the connection
+         */
+        public void close() {
+            try {
+                mChannel.close();
+            }
+            catch (IOException e) {
+                // Nothing to do
+            }
+            synchronized (mConnections) {
+                mConnections.remove(this);
+            }
+        }
+    }
+
+    private final InetAddress mBindAddress;
+    private final int mRequestedPort;
+    private volatile String mPassword = "";
+    private ServerSocketChannel mListener = null;
+    private final Set<Connection> mConnections = new HashSet<Connection>();
+
+    /**
+     * @param port port to listen on, 0 for any free port (see {@link #getPort()})
+     */
+    public GuiRpcServer(int port) {
+        this(null, port);
+    }
+
+    /**
+     * @param bindAddress address of interface to listen on, null for loopback interface
+     * @param port port to listen on, 0 for any free port (see {@link #getPort()})
+     */
+    public GuiRpcServer(InetAddress bindAddress, int port) {
+        mBindAddress = bindAddress;
+        mRequestedPort = port;
+    }
+
+    /**
+     * Starts listening (on loopback interface unless other address was given)
+     * @return the port where the server listens
+     * @throws IOException if the port cannot be bound
+     */
+    public int start() throws IOException {
+        ServerSocketChannel listener = ServerSocketChannel.open();
+        listener.socket().setReuseAddress(true);
+        InetAddress bindAddress = (mBindAddress != null) ? mBindAddress : InetAddress.getByName("127.0.0.1");
+        listener.socket().bind(new InetSocketAddress(bindAddress, mRequestedPort), 50);
+        listener.configureBlocking(false);
+        mListener = listener;
+        synchronized (GuiRpcServer.class) {
+            if (sAcceptor == null) {
+                sAcceptor = new Acceptor();
+            }
+            sAcceptor.register(this);
+        }
+        return getPort();
+    }
+
+    /**
+     * Stops listening and closes all connections
+     */
+    public void stop() {
+        if (mListener != null) {
+            try {
+                mListener.close();
+            }
+            catch (IOException e) {
+                // Nothing to do
+            }
+        }
+        Connection[] connections;
+        synchronized (mConnections) {
+            connections = mConnections.toArray(new Connection[mConnections.size()]);
+        }
+        for (Connection connection: connections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return port where the server listens
+     */
+    public int getPort() {
+        return mListener.socket().getLocalPort();
+    }
+
+    /**
+     * Sets the password required from clients; applies to new connections
+     * @param password the password, empty for no authorization
+     */
+    public void setPassword(String password) {
+        mPassword = password;
+    }
+
+    /**
+     * @return number of currently open connections
+     */
+    public int connectionCount() {
+        synchronized (mConnections) {
+            return mConnections.size();
+        }
+    }
+
+    /**
+     * Handles the request of authorized client. Called on the thread of connection.
+     *
+     * @param connection connection where the request arrived, used to send reply
+     * @param rpcName name of request, e.g. "get_state"
+     * @param request the whole request (without terminator)
+     * @return true if request was handled, false to send default reply
+     *         (server version for {@code <exchange_versions>}, error otherwise)
+     * @throws IOException if reply cannot be sent
+     */
+    protected abstract boolean handleRequest(Connection connection, String rpcName, String request) throws IOException;
+
+    /**
+     * Called when new connection was accepted
+     * @param connection the new connection
+     */
+    protected void connectionOpened(Connection connection) {
+    }
+
+    private void accepted(SocketChannel channel) throws IOException {
+        Connection connection = new Connection(channel);
+        synchronized (mConnections) {
+            mConnections.add(connection);
+        }
+        connectionOpened(connection);
+        sConnectionExecutor.execute(connection);
+    }
+
+    /**
+     * Encodes the reply to the bytes sent to client, including terminator
+     * @param reply the whole reply
+     * @return encoded reply
+     */
+    public static byte[] encode(String reply) {
+        try {
+            return (reply + '\003').getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Extracts the name of request, e.g. "get_results" from
+     * {@code "<boinc_gui_rpc_request>\n<get_results>\n..."}
+     * @param request the request
+     * @return the name of request
+     */
+    public static String rpcName(String request) {
+        int start = request.indexOf('<');
+        if (start >= 0 && request.startsWith("<boinc_gui_rpc_request>", start)) {
+            start = request.indexOf('<', start + 1);
+        }
+        if (start < 0) return "";
+        int end = start + 1;
+        final int length = request.length();
+        while (end < length) {
+            char c = request.charAt(end);
+            if (c == '>' || c == '/' || Character.isWhitespace(c)) break;
+            ++end;
+        }
+        return request.substring(start + 1, end);
+    }
+
+    /**
+     * @return value of the first element of given name in request, or null if not present
+     */
+    public static String elementValue(String request, String element) {
+        final String startTag = "<" + element + ">";
+        int start = request.indexOf(startTag);
+        if (start < 0) return null;
+        start += startTag.length();
+        int end = request.indexOf("</" + element + ">", start);
+        if (end < 0) return null;
+        return request.substring(start, end).trim();
+    }
+}
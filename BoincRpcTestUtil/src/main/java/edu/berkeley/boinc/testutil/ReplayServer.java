@@ -0,0 +1,159 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import edu.berkeley.boinc.SessionRecorder;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Server replaying the session recorded by {@link SessionRecorder}.
+ * <p>
+ * Each request gets the next recorded reply to the request of the same name (e.g. the n-th
+ * {@code <get_state/>} gets the reply to the n-th recorded {@code <get_state/>}); when the
+ * recorded replies are exhausted, they are served again from the first one.
+ * The replies are sent with the recorded timing (delay of the first bytes and duration
+ * of the transfer) multiplied by the time scale; scale 0 sends them immediately.
+ * <p>
+ * The authorization is handled by the server (see {@link #setPassword(String)}),
+ * the recorded authorization requests are ignored.
+ */
+public class ReplayServer extends GuiRpcServer {
+    private static final int CHUNKS = 16;
+
+    private static class Replies {
+        public final List<SessionRecorder.Exchange> exchanges = new ArrayList<SessionRecorder.Exchange>();
+        public final List<byte[]> data = new ArrayList<byte[]>();
+        public int next = 0;
+    }
+
+    private final Map<String, Replies> mReplies = new HashMap<String, Replies>();
+    private volatile double mTimeScale = 1.0;
+
+    /**
+     * @param bindAddress address of interface to listen on, null for loopback interface
+     * @param port port to listen on, 0 for any free port
+     * @param exchanges the recorded session (see {@link SessionRecorder#read(File)})
+     */
+    public ReplayServer(InetAddress bindAddress, int port, List<SessionRecorder.Exchange> exchanges) {
+        super(bindAddress, port);
+        for (SessionRecorder.Exchange exchange: exchanges) {
+            final String rpcName = exchange.rpcName();
+            if (rpcName.equals("auth1") || rpcName.equals("auth2")) continue;
+            Replies replies = mReplies.get(rpcName);
+            if (replies == null) {
+                replies = new Replies();
+                mReplies.put(rpcName, replies);
+            }
+            byte[] data = new byte[exchange.reply.length + 1];
+            System.arraycopy(exchange.reply, 0, data, 0, exchange.reply.length);
+            data[exchange.reply.length] = '\003';
+            replies.exchanges.add(exchange);
+            replies.data.add(data);
+        }
+    }
+
+    /**
+     * @param port port to listen on, 0 for any free port
+     * @param exchanges the recorded session
+     */
+    public ReplayServer(int port, List<SessionRecorder.Exchange> exchanges) {
+        this(null, port, exchanges);
+    }
+
+    /**
+     * Sets the scale of recorded timing
+     * @param scale 1.0 for original timing, 0 to send the replies immediately
+     */
+    public void setTimeScale(double scale) {
+        mTimeScale = scale;
+    }
+
+    @Override
+    protected boolean handleRequest(Connection connection, String rpcName, String request) throws IOException {
+        final Replies replies = mReplies.get(rpcName);
+        if (replies == null) return false;
+        SessionRecorder.Exchange exchange;
+        byte[] data;
+        synchronized (replies) {
+            exchange = replies.exchanges.get(replies.next);
+            data = replies.data.get(replies.next);
+            replies.next = (replies.next + 1) % replies.data.size();
+        }
+        final double scale = mTimeScale;
+        sleepMicros((long)(exchange.replyDelay * scale));
+        final long duration = (long)(exchange.replyDuration * scale);
+        if (duration < 1000 || data.length < CHUNKS) {
+            connection.send(data);
+            return true;
+        }
+        // Spread the reply over the recorded duration
+        final long start = System.nanoTime();
+        final int chunkSize = (data.length + CHUNKS - 1) / CHUNKS;
+        int offset = 0;
+        for (int i = 0; offset < data.length; ++i) {
+            final int length = Math.min(chunkSize, data.length - offset);
+            connection.socket().getOutputStream().write(data, offset, length);
+            offset += length;
+            final long due = start + duration * 1000 * (i + 1) / CHUNKS;
+            sleepMicros((due - System.nanoTime()) / 1000);
+        }
+        return true;
+    }
+
+    private static void sleepMicros(long micros) {
+        if (micros < 1000) return;
+        try {
+            Thread.sleep(micros / 1000);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Serves the recorded session until terminated.
+     * Usage: {@code ReplayServer session-file [port [time-scale [bind-address]]]}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayServer session-file [port [time-scale [bind-address]]]");
+            System.exit(2);
+        }
+        final List<SessionRecorder.Exchange> exchanges = SessionRecorder.read(new File(args[0]));
+        final int port = (args.length > 1) ? Integer.parseInt(args[1]) : 31416;
+        final InetAddress bindAddress = (args.length > 3) ? InetAddress.getByName(args[3]) : null;
+        ReplayServer server = new ReplayServer(bindAddress, port, exchanges);
+        if (args.length > 2) {
+            server.setTimeScale(Double.parseDouble(args[2]));
+        }
+        server.start();
+        System.out.println("Replaying " + exchanges.size() + " exchanges of " + args[0] + " on port " + server.getPort());
+        while (true) {
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import edu.berkeley.boinc.RpcClient;
+import edu.berkeley.boinc.SessionRecorder;
+import java.io.File;
+
+
+/**
+ * Records GUI RPC session with real BOINC client to a session file, to be replayed
+ * later by {@link ReplayServer}. The client is polled the same way as the manager does
+ * (state once, then periodically results, projects, transfers and new messages).
+ * <p>
+ * Usage: {@code SessionCapture host[:port] session-file [polls [interval-seconds [password]]]}
+ */
+public class SessionCapture {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: SessionCapture host[:port] session-file [polls [interval-seconds [password]]]");
+            System.exit(2);
+        }
+        String host = args[0];
+        int port = 31416;
+        final int colon = host.lastIndexOf(':');
+        if (colon > 0 && host.indexOf(':') == colon) {
+            port = Integer.parseInt(host.substring(colon + 1));
+            host = host.substring(0, colon);
+        }
+        final int polls = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+        final int interval = (args.length > 3) ? Integer.parseInt(args[3]) : 5;
+        final String password = (args.length > 4) ? args[4] : null;
+
+        SessionRecorder recorder = new SessionRecorder(new File(args[1]));
+        RpcClient rpcClient = new RpcClient();
+        rpcClient.setSessionRecorder(recorder);
+        try {
+            rpcClient.open(host, port);
+            if (password != null) {
+                rpcClient.authorize(password);
+            }
+            rpcClient.exchangeVersions();
+            rpcClient.getHostInfo();
+            rpcClient.getState();
+            int seqno = 0;
+            for (int i = 0; i < polls; ++i) {
+                if (i > 0) {
+                    Thread.sleep(interval * 1000L);
+                }
+                rpcClient.getCcStatus();
+                rpcClient.getResults();
+                rpcClient.getProjectStatus();
+                rpcClient.getFileTransfers();
+                final int lastSeqno = rpcClient.getMessageCount();
+                if (lastSeqno != seqno) {
+                    rpcClient.getMessages(seqno);
+                    seqno = lastSeqno;
+                }
+                System.out.println("Poll " + (i + 1) + "/" + polls + ": " + recorder.exchangeCount() + " exchanges recorded");
+            }
+        }
+        finally {
+            rpcClient.close();
+            recorder.close();
+        }
+    }
+}
@@ -0,0 +1,473 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import edu.berkeley.boinc.Log;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * TCP proxy shaping the traffic between GUI RPC client and server (e.g. {@code RpcClient}
+ * and a stub), to measure the behavior under mobile-like network conditions:
+ * <ul>
+ * <li>round-trip time and its jitter (delay of data in both directions)</li>
+ * <li>throughput cap (in each direction)</li>
+ * <li>stall in the middle of each reply</li>
+ * <li>connection reset in the middle of reply (with given probability) or on demand</li>
+ * </ul>
+ * The settings can be changed while the proxy runs; they apply to the data forwarded afterwards.
+ * The data are forwarded in order, the jitter does not reorder them.
+ */
+public class ShapingProxy {
+    private static final String TAG = "ShapingProxy";
+    private static final int BUF_SIZE = 8192;
+    private static final int CHUNK_SIZE = 1460;
+
+    private final InetSocketAddress mTarget;
+    private final InetAddress mBindAddress;
+    private final int mRequestedPort;
+    private ServerSocket mListener = null;
+    private final Set<Link> mLinks = new HashSet<Link>();
+    private final Random mRandom = new Random();
+    private final AtomicLong mBytesForwarded = new AtomicLong();
+    private final AtomicLong mResets = new AtomicLong();
+
+    private volatile int mRtt = 0;
+    private volatile int mJitter = 0;
+    private volatile int mBandwidth = 0;
+    private volatile int mStallAfter = -1;
+    private volatile int mStallDuration = 0;
+    private volatile double mResetRate = 0;
+
+    /**
+     * Chunk of data waiting for its time to be forwarded
+     */
+    private static class Chunk {
+        public final byte[] data;
+        public final int length;
+        public final long due;
+
+        public Chunk(byte[] data, int length, long due) {
+            this.data = data;
+            this.length = length;
+            this.due = due;
+        }
+    }
+
+    /**
+     * One direction of proxied connection: reader thread queues the data with their due time,
+     * writer thread sends them when due, paced by the throughput cap
+     */
+    private class Pipe {
+        private final Link mLink;
+        private final InputStream mInput;
+        private final OutputStream mOutput;
+        private final boolean mReply;
+        private final LinkedBlockingQueue<Chunk> mQueue = new LinkedBlockingQueue<Chunk>();
+        private long mLastDue = 0;
+        private long mReplyBytes = 0;
+        private boolean mStalled = false;
+        private long mResetAt = -1;
+
+        public Pipe(Link link, Socket from, Socket to, boolean reply) throws IOException {
+            mLink = link;
+            mInput = from.getInputStream();
+            mOutput = to.getOutputStream();
+            mReply = reply;
+        }
+
+        public void start(String name) {
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    read();
+                }
+            }, name + "-reader");
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    write();
+                }
+            }, name + "-writer");
+            reader.setDaemon(true);
+            writer.setDaemon(true);
+            reader.start();
+            writer.start();
+        }
+
+        private void read() {
+            try {
+                while (true) {
+                    byte[] buffer = new byte[BUF_SIZE];
+                    int length = mInput.read(buffer);
+                    if (length < 0) break;
+                    long due = System.nanoTime() + delay() * 1000000L;
+                    if (due < mLastDue) due = mLastDue;
+                    mLastDue = due;
+                    mQueue.add(new Chunk(buffer, length, due));
+                }
+            }
+            catch (IOException e) {
+                // Connection closed
+            }
+            mQueue.add(new Chunk(null, -1, mLastDue));
+        }
+
+        private void write() {
+            try {
+                while (true) {
+                    Chunk chunk = mQueue.take();
+                    sleepUntil(chunk.due);
+                    if (chunk.length < 0) break;
+                    forward(chunk.data, chunk.length);
+                }
+                mLink.closeOutput(this);
+            }
+            catch (InterruptedException e) {
+                mLink.close(false);
+            }
+            catch (IOException e) {
+                mLink.close(false);
+            }
+        }
+
+        private void forward(byte[] data, int length) throws IOException, InterruptedException {
+            int offset = 0;
+            while (offset < length) {
+                int size = Math.min(CHUNK_SIZE, length - offset);
+                if (mReply) {
+                    if (mReplyBytes == 0) {
+                        // New reply starts
+                        mStalled = false;
+                        mResetAt = -1;
+                        final double resetRate = mResetRate;
+                        if (resetRate > 0) {
+                            synchronized (mRandom) {
+                                if (mRandom.nextDouble() < resetRate) {
+                                    mResetAt = mRandom.nextInt(4096);
+                                }
+                            }
+                        }
+                    }
+                    final int stallAfter = mStallAfter;
+                    if (stallAfter >= 0 && !mStalled) {
+                        if (mReplyBytes >= stallAfter) {
+                            mStalled = true;
+                            Thread.sleep(mStallDuration);
+                        }
+                        else {
+                            size = (int)Math.min(size, stallAfter - mReplyBytes);
+                        }
+                    }
+                    if (mResetAt >= 0) {
+                        if (mReplyBytes >= mResetAt) {
+                            mResets.incrementAndGet();
+                            mLink.close(true);
+                            throw new IOException("Connection reset by proxy");
+                        }
+                        size = (int)Math.min(size, mResetAt - mReplyBytes);
+                    }
+                    // Is the end of reply within this piece?
+                    for (int i = offset; i < offset + size; ++i) {
+                        if (data[i] == '\003') {
+                            size = i + 1 - offset;
+                            break;
+                        }
+                    }
+                }
+                final long start = System.nanoTime();
+                mOutput.write(data, offset, size);
+                mOutput.flush();
+                mBytesForwarded.addAndGet(size);
+                if (mReply) {
+                    mReplyBytes = (data[offset + size - 1] == '\003') ? 0 : mReplyBytes + size;
+                }
+                offset += size;
+                final int bandwidth = mBandwidth;
+                if (bandwidth > 0) {
+                    sleepUntil(start + size * 1000000000L / bandwidth);
+                }
+            }
+        }
+    }
+
+    /**
+     * Proxied connection (client side and server side sockets)
+     */
+    private class Link {
+        private final Socket mClient;
+        private final Socket mServer;
+        private int mOpenOutputs = 2;
+
+        public Link(Socket client, Socket server) {
+            mClient = client;
+            mServer = server;
+        }
+
+        public void start() throws IOException {
+            new Pipe(this, mClient, mServer, false).start("ShapingProxy-request");
+            new Pipe(this, mServer, mClient, true).start("ShapingProxy-reply");
+        }
+
+        public synchronized void closeOutput(Pipe pipe) {
+            // Forward the end of stream, close completely when both directions ended
+            try {
+                (pipe.mReply ? mClient : mServer).shutdownOutput();
+            }
+            catch (IOException e) {
+                // Closed already
+            }
+            if (--mOpenOutputs == 0) {
+                close(false);
+            }
+        }
+
+        /**
+         * @param reset true to abort the client side with RST instead of regular close
+         */
+        public void close(boolean reset) {
+            if (reset) {
+                try {
+                    mClient.setSoLinger(true, 0);
+                }
+                catch (SocketException e) {
+                    // Closed already
+                }
+            }
+            closeQuietly(mClient);
+            closeQuietly(mServer);
+            synchronized (mLinks) {
+                mLinks.remove(this);
+            }
+        }
+    }
+
+    /**
+     * @param targetHost address of proxied server
+     * @param targetPort port of proxied server
+     */
+    public ShapingProxy(InetAddress targetHost, int targetPort) {
+        this(null, 0, targetHost, targetPort);
+    }
+
+    /**
+     * @param bindAddress address of interface to listen on, null for loopback interface
+     * @param port port to listen on, 0 for any free port (see {@link #getPort()})
+     * @param targetHost address of proxied server
+     * @param targetPort port of proxied server
+     */
+    public ShapingProxy(InetAddress bindAddress, int port, InetAddress targetHost, int targetPort) {
+        mBindAddress = bindAddress;
+        mRequestedPort = port;
+        mTarget = new InetSocketAddress(targetHost, targetPort);
+    }
+
+    /**
+     * Sets the round-trip time; half of it delays each direction
+     * @param rtt round-trip time in milliseconds
+     */
+    public void setRtt(int rtt) {
+        mRtt = rtt;
+    }
+
+    /**
+     * Sets the jitter - random addition (0 to jitter) to the delay of each direction
+     * @param jitter maximal addition in milliseconds
+     */
+    public void setJitter(int jitter) {
+        mJitter = jitter;
+    }
+
+    /**
+     * Sets the throughput cap of each direction
+     * @param bytesPerSecond the cap, 0 for unlimited
+     */
+    public void setBandwidth(int bytesPerSecond) {
+        mBandwidth = bytesPerSecond;
+    }
+
+    /**
+     * Sets the stall in each reply
+     * @param afterBytes number of bytes of reply forwarded before the stall, -1 for no stall
+     * @param millis duration of the stall in milliseconds
+     */
+    public void setStall(int afterBytes, int millis) {
+        mStallDuration = millis;
+        mStallAfter = afterBytes;
+    }
+
+    /**
+     * Sets the probability of connection reset during the reply; the reset happens
+     * within first 4 KB of reply
+     * @param probability probability per reply (0 to 1)
+     */
+    public void setResetRate(double probability) {
+        mResetRate = probability;
+    }
+
+    /**
+     * Resets all currently proxied connections
+     */
+    public void resetAll() {
+        Link[] links;
+        synchronized (mLinks) {
+            links = mLinks.toArray(new Link[mLinks.size()]);
+        }
+        for (Link link: links) {
+            mResets.incrementAndGet();
+            link.close(true);
+        }
+    }
+
+    /**
+     * @return number of bytes forwarded (both directions)
+     */
+    public long bytesForwarded() {
+        return mBytesForwarded.get();
+    }
+
+    /**
+     * @return number of connection resets (by {@link #setResetRate(double)} or {@link #resetAll()})
+     */
+    public long resetCount() {
+        return mResets.get();
+    }
+
+    /**
+     * Starts listening
+     * @return the port where the proxy listens
+     * @throws IOException if the port cannot be bound
+     */
+    public int start() throws IOException {
+        final ServerSocket listener = new ServerSocket();
+        listener.setReuseAddress(true);
+        InetAddress bindAddress = (mBindAddress != null) ? mBindAddress : InetAddress.getByName("127.0.0.1");
+        listener.bind(new InetSocketAddress(bindAddress, mRequestedPort), 50);
+        mListener = listener;
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept(listener);
+            }
+        }, "ShapingProxy-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return getPort();
+    }
+
+    /**
+     * Stops listening and closes all proxied connections
+     */
+    public void stop() {
+        closeQuietly(mListener);
+        Link[] links;
+        synchronized (mLinks) {
+            links = mLinks.toArray(new Link[mLinks.size()]);
+        }
+        for (Link link: links) {
+            link.close(false);
+        }
+    }
+
+    /**
+     * @return port where the proxy listens
+     */
+    public int getPort() {
+        return mListener.getLocalPort();
+    }
+
+    private void accept(ServerSocket listener) {
+        while (true) {
+            Socket client;
+            try {
+                client = listener.accept();
+            }
+            catch (IOException e) {
+                // Stopped
+                return;
+            }
+            Socket server = new Socket();
+            try {
+                client.setTcpNoDelay(true);
+                server.setTcpNoDelay(true);
+                server.connect(mTarget);
+                Link link = new Link(client, server);
+                synchronized (mLinks) {
+                    mLinks.add(link);
+                }
+                link.start();
+            }
+            catch (IOException e) {
+                Log.w(TAG, "Cannot connect to " + mTarget, e);
+                closeQuietly(client);
+                closeQuietly(server);
+            }
+        }
+    }
+
+    private int delay() {
+        int delay = mRtt / 2;
+        final int jitter = mJitter;
+        if (jitter > 0) {
+            synchronized (mRandom) {
+                delay += mRandom.nextInt(jitter + 1);
+            }
+        }
+        return delay;
+    }
+
+    private static void sleepUntil(long due) throws InterruptedException {
+        final long wait = due - System.nanoTime();
+        if (wait > 0) {
+            Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        }
+        catch (IOException e) {
+            // Nothing to do
+        }
+    }
+
+    private static void closeQuietly(ServerSocket socket) {
+        if (socket == null) return;
+        try {
+            socket.close();
+        }
+        catch (IOException e) {
+            // Nothing to do
+        }
+    }
+}
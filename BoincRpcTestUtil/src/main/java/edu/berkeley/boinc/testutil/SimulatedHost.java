@@ -0,0 +1,261 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Simulated BOINC host: GUI RPC server with evolving {@link SimulatedState}, with configurable
+ * latency, bandwidth and failures of the connection.
+ * <p>
+ * The state advances lazily on each request, by the elapsed wall-clock time multiplied by
+ * {@link Config#speed}, so idle hosts cost nothing and thousands of them can run in one process.
+ */
+public class SimulatedHost extends GuiRpcServer {
+    private static final int CHUNK_SIZE = 1460;
+
+    /**
+     * Parameters of simulated host
+     */
+    public static class Config {
+        /** Number of attached projects (1 to 10) */
+        public int projects = 3;
+        /** Number of tasks */
+        public int tasks = 20;
+        /** Number of CPUs (tasks running at once) */
+        public int cpus = 4;
+        /** Average CPU time of task in seconds */
+        public double taskDuration = 3600;
+        /** Simulated time per wall-clock time */
+        public double speed = 1.0;
+        /** Delay before each reply in milliseconds */
+        public int latency = 0;
+        /** Random addition to latency in milliseconds (0 to jitter) */
+        public int jitter = 0;
+        /** Throughput of replies in bytes/second, 0 for unlimited */
+        public int bandwidth = 0;
+        /** Speed of file transfers of simulated client in bytes/second */
+        public double transferSpeed = 100000;
+        /** Probability (0 to 1) that the request fails (connection closed, no reply or truncated reply) */
+        public double failureRate = 0;
+        /** GUI RPC password, empty for no authorization */
+        public String password = "";
+
+        public Config copy() {
+            Config config = new Config();
+            config.projects = projects;
+            config.tasks = tasks;
+            config.cpus = cpus;
+            config.taskDuration = taskDuration;
+            config.speed = speed;
+            config.latency = latency;
+            config.jitter = jitter;
+            config.bandwidth = bandwidth;
+            config.transferSpeed = transferSpeed;
+            config.failureRate = failureRate;
+            config.password = password;
+            return config;
+        }
+    }
+
+    private final Config mConfig;
+    private final SimulatedState mState;
+    private final Random mRandom;
+    private long mLastAdvance;
+    private final AtomicLong mRequests = new AtomicLong();
+    private final AtomicLong mFailures = new AtomicLong();
+    private final AtomicLong mBytesSent = new AtomicLong();
+
+    /**
+     * @param bindAddress address of interface to listen on, null for loopback interface
+     * @param port port to listen on, 0 for any free port
+     * @param seed seed of random generator, different hosts should use different seeds
+     * @param config parameters of the host
+     */
+    public SimulatedHost(InetAddress bindAddress, int port, long seed, Config config) {
+        super(bindAddress, port);
+        mConfig = config.copy();
+        mRandom = new Random(seed);
+        mState = new SimulatedState(seed, config.projects, config.tasks, config.cpus,
+                config.taskDuration, config.transferSpeed);
+        mLastAdvance = System.nanoTime();
+        setPassword(config.password);
+    }
+
+    /**
+     * @return state of the host
+     */
+    public SimulatedState getState() {
+        return mState;
+    }
+
+    /**
+     * @return number of requests handled (excluding authorization)
+     */
+    public long requestCount() {
+        return mRequests.get();
+    }
+
+    /**
+     * @return number of injected failures
+     */
+    public long failureCount() {
+        return mFailures.get();
+    }
+
+    /**
+     * @return number of bytes of replies sent
+     */
+    public long bytesSent() {
+        return mBytesSent.get();
+    }
+
+    @Override
+    protected boolean handleRequest(Connection connection, String rpcName, String request) throws IOException {
+        mRequests.incrementAndGet();
+        advanceState();
+        final String reply = reply(rpcName, request);
+        if (reply == null) return false;
+        byte[] data = encode(reply);
+        int failure = 0;
+        int delay = mConfig.latency;
+        synchronized (mRandom) {
+            if (mConfig.failureRate > 0 && mRandom.nextDouble() < mConfig.failureRate) {
+                failure = 1 + mRandom.nextInt(3);
+            }
+            if (mConfig.jitter > 0) {
+                delay += mRandom.nextInt(mConfig.jitter + 1);
+            }
+        }
+        sleep(delay);
+        if (failure != 0) {
+            mFailures.incrementAndGet();
+            switch (failure) {
+            case 1:
+                // Connection dropped
+                connection.close();
+                return true;
+            case 2:
+                // Request ignored, no reply at all
+                return true;
+            default:
+                // Reply truncated, then connection dropped
+                write(connection, data, data.length / 2);
+                connection.close();
+                return true;
+            }
+        }
+        write(connection, data, data.length);
+        return true;
+    }
+
+    private String reply(String rpcName, String request) {
+        if (rpcName.equals("get_state")) {
+            return mState.stateReply();
+        }
+        else if (rpcName.equals("get_results")) {
+            return mState.resultsReply("1".equals(elementValue(request, "active_only")));
+        }
+        else if (rpcName.equals("get_project_status")) {
+            return mState.projectsReply();
+        }
+        else if (rpcName.equals("get_file_transfers")) {
+            return mState.transfersReply();
+        }
+        else if (rpcName.equals("get_messages")) {
+            int seqno = 0;
+            String value = elementValue(request, "seqno");
+            if (value != null) {
+                try {
+                    seqno = Integer.parseInt(value.trim());
+                }
+                catch (NumberFormatException e) {
+                    // Send all
+                }
+            }
+            return mState.messagesReply(seqno);
+        }
+        else if (rpcName.equals("get_message_count")) {
+            return mState.messageCountReply();
+        }
+        else if (rpcName.equals("get_cc_status")) {
+            return mState.ccStatusReply();
+        }
+        else if (rpcName.equals("get_host_info")) {
+            return mState.hostInfoReply();
+        }
+        else if (rpcName.equals("exchange_versions")) {
+            return null;
+        }
+        // Commands (project operations, modes, ...) always succeed
+        return "<boinc_gui_rpc_reply>\n<success/>\n</boinc_gui_rpc_reply>\n";
+    }
+
+    private void advanceState() {
+        final long now = System.nanoTime();
+        double seconds;
+        synchronized (this) {
+            seconds = (now - mLastAdvance) / 1e9;
+            mLastAdvance = now;
+        }
+        mState.advance(seconds * mConfig.speed);
+    }
+
+    private void write(Connection connection, byte[] data, int length) throws IOException {
+        if (mConfig.bandwidth <= 0) {
+            if (length == data.length) {
+                connection.send(data);
+            }
+            else {
+                connection.socket().getOutputStream().write(data, 0, length);
+            }
+            mBytesSent.addAndGet(length);
+            return;
+        }
+        final long start = System.nanoTime();
+        int offset = 0;
+        while (offset < length) {
+            final int chunk = Math.min(CHUNK_SIZE, length - offset);
+            connection.socket().getOutputStream().write(data, offset, chunk);
+            offset += chunk;
+            mBytesSent.addAndGet(chunk);
+            // Wait until the time when the data sent so far would be transferred
+            final long due = start + offset * 1000000000L / mConfig.bandwidth;
+            final long wait = due - System.nanoTime();
+            if (wait > 0) {
+                sleep((int)(wait / 1000000));
+            }
+        }
+    }
+
+    private static void sleep(int millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Random;
+
+
+/**
+ * Evolving state of simulated BOINC core client.
+ * <p>
+ * The state changes as the (simulated) time advances, similarly to real client:
+ * <ul>
+ * <li>up to {@code cpus} tasks are running, their fraction done grows</li>
+ * <li>finished task is uploaded (file transfer), then reported; new workunit arrives instead
+ *     (downloaded by file transfer), so the number of tasks stays the same</li>
+ * <li>the events are logged as messages with growing sequence number</li>
+ * </ul>
+ * The replies are rendered in the same format as real client sends.
+ * The methods are thread-safe.
+ */
+public class SimulatedState {
+    private static final int STATE_DOWNLOADING = 1;
+    private static final int STATE_DOWNLOADED = 2;
+    private static final int STATE_UPLOADING = 4;
+    private static final int STATE_UPLOADED = 5;
+
+    private static final int MAX_MESSAGES = 2000;
+    private static final double MAX_STEP = 10.0; // seconds
+
+    private static final String[] PROJECT_NAMES = {
+        "Einstein@Home", "POGS", "WUProp@Home", "SETI@home", "World Community Grid",
+        "Rosetta@home", "LHC@home", "Asteroids@home", "PrimeGrid", "Milkyway@Home",
+    };
+    private static final String[] APPS = {
+        "einsteinbinary_BRP4", "pogs", "data_collect_v4", "setiathome_v8", "hcc1",
+        "minirosetta", "sixtrack", "period_search", "llrPPS", "milkyway",
+    };
+
+    private static class Task {
+        public String name;
+        public int project;
+        public int state;
+        public boolean active = false;
+        public double duration;      // CPU time needed to finish
+        public double elapsed = 0;
+        public double received;
+        public double deadline;
+        public double reportAt = 0;
+    }
+
+    private static class FileTransfer {
+        public final Task task;
+        public final boolean upload;
+        public final double size;
+        public double transferred = 0;
+        public double timeSoFar = 0;
+
+        public FileTransfer(Task task, boolean upload, double size) {
+            this.task = task;
+            this.upload = upload;
+            this.size = size;
+        }
+    }
+
+    private static class Msg {
+        public final int seqno;
+        public final int project;   // -1 for messages of client itself
+        public final long time;
+        public final String body;
+
+        public Msg(int seqno, int project, long time, String body) {
+            this.seqno = seqno;
+            this.project = project;
+            this.time = time;
+            this.body = body;
+        }
+    }
+
+    private final Random mRandom;
+    private final int mProjects;
+    private final int mCpus;
+    private final double mTransferSpeed;
+    private final double mTaskDuration;
+    private ArrayList<Task> mTasks = new ArrayList<Task>();
+    private ArrayList<FileTransfer> mTransfers = new ArrayList<FileTransfer>();
+    private ArrayDeque<Msg> mMessages = new ArrayDeque<Msg>();
+    private int mSeqno = 0;
+    private int mWuCounter = 0;
+    private double mNow;
+
+    /**
+     * @param seed seed of random generator, so the evolution is reproducible
+     * @param projects number of attached projects (1 to 10)
+     * @param tasks number of tasks
+     * @param cpus number of tasks running at once
+     * @param taskDuration average CPU time of task in seconds
+     * @param transferSpeed speed of file transfers in bytes/second
+     */
+    public SimulatedState(long seed, int projects, int tasks, int cpus, double taskDuration, double transferSpeed) {
+        mRandom = new Random(seed);
+        mProjects = Math.max(1, Math.min(projects, PROJECT_NAMES.length));
+        mCpus = cpus;
+        mTaskDuration = taskDuration;
+        mTransferSpeed = transferSpeed;
+        mNow = System.currentTimeMillis() / 1000.0;
+        log(-1, "Starting BOINC client version 7.6.22 for x86_64-pc-linux-gnu");
+        for (int i = 0; i < tasks; ++i) {
+            Task task = newTask(i % mProjects);
+            task.state = STATE_DOWNLOADED;
+            if (i < cpus) {
+                // Already running for some time
+                task.elapsed = mRandom.nextDouble() * task.duration;
+            }
+            mTasks.add(task);
+        }
+        scheduleTasks();
+    }
+
+    /**
+     * Advances the simulated time
+     * @param seconds simulated time in seconds
+     */
+    public synchronized void advance(double seconds) {
+        while (seconds > 0) {
+            final double step = Math.min(seconds, MAX_STEP);
+            step(step);
+            seconds -= step;
+        }
+    }
+
+    /**
+     * @return sequence number of the last message
+     */
+    public synchronized int messageSeqno() {
+        return mSeqno;
+    }
+
+    /**
+     * @return number of tasks
+     */
+    public synchronized int taskCount() {
+        return mTasks.size();
+    }
+
+    private void step(double dt) {
+        mNow += dt;
+        // Computation
+        for (Task task: mTasks) {
+            if (!task.active) continue;
+            task.elapsed += dt;
+            if (task.elapsed >= task.duration) {
+                task.elapsed = task.duration;
+                task.active = false;
+                task.state = STATE_UPLOADING;
+                log(task.project, "Computation for task " + task.name + " finished");
+                mTransfers.add(new FileTransfer(task, true, 50000 + mRandom.nextInt(5000000)));
+                log(task.project, "Started upload of " + task.name + "_0");
+            }
+        }
+        // File transfers share the bandwidth
+        if (!mTransfers.isEmpty()) {
+            final double share = mTransferSpeed * dt / mTransfers.size();
+            Iterator<FileTransfer> it = mTransfers.iterator();
+            while (it.hasNext()) {
+                FileTransfer transfer = it.next();
+                transfer.transferred += share;
+                transfer.timeSoFar += dt;
+                if (transfer.transferred < transfer.size) continue;
+                it.remove();
+                Task task = transfer.task;
+                if (transfer.upload) {
+                    log(task.project, "Finished upload of " + task.name + "_0");
+                    task.state = STATE_UPLOADED;
+                    task.reportAt = mNow + 60 + mRandom.nextInt(600);
+                }
+                else {
+                    log(task.project, "Finished download of " + task.name);
+                    task.state = STATE_DOWNLOADED;
+                }
+            }
+        }
+        // Reporting of uploaded tasks, new work arrives instead
+        for (int i = 0; i < mTasks.size(); ++i) {
+            Task task = mTasks.get(i);
+            if (task.state != STATE_UPLOADED || mNow < task.reportAt) continue;
+            log(task.project, "Sending scheduler request: To report completed tasks.");
+            log(task.project, "Reporting 1 completed tasks");
+            Task newTask = newTask(task.project);
+            mTasks.set(i, newTask);
+            log(task.project, "Scheduler request completed: got 1 new tasks");
+            mTransfers.add(new FileTransfer(newTask, false, 100000 + mRandom.nextInt(2000000)));
+            log(task.project, "Started download of " + newTask.name);
+        }
+        scheduleTasks();
+    }
+
+    private void scheduleTasks() {
+        int running = 0;
+        for (Task task: mTasks) {
+            if (task.active) ++running;
+        }
+        for (Task task: mTasks) {
+            if (running >= mCpus) break;
+            if (task.active || task.state != STATE_DOWNLOADED) continue;
+            task.active = true;
+            ++running;
+            log(task.project, "Starting task " + task.name);
+        }
+    }
+
+    private Task newTask(int project) {
+        Task task = new Task();
+        ++mWuCounter;
+        task.name = APPS[project] + "_" + (1456171613 + mWuCounter) + "_" + mRandom.nextInt(100000) + "_0";
+        task.project = project;
+        task.state = STATE_DOWNLOADING;
+        task.duration = mTaskDuration * (0.5 + mRandom.nextDouble());
+        task.received = mNow;
+        task.deadline = mNow + 7 * 86400;
+        return task;
+    }
+
+    private void log(int project, String body) {
+        mMessages.addLast(new Msg(++mSeqno, project, (long)mNow, body));
+        if (mMessages.size() > MAX_MESSAGES) {
+            mMessages.removeFirst();
+        }
+    }
+
+    /*
+     * Replies
+     */
+
+    public synchronized String stateReply() {
+        StringBuilder sb = new StringBuilder(4096 + mTasks.size() * 1500);
+        sb.append("<boinc_gui_rpc_reply>\n<client_state>\n");
+        appendHostInfo(sb);
+        for (int p = 0; p < mProjects; ++p) {
+            appendProject(sb, p);
+            sb.append("<app>\n    <name>").append(APPS[p]).append("</name>\n")
+                .append("    <user_friendly_name>").append(PROJECT_NAMES[p]).append(" application</user_friendly_name>\n")
+                .append("    <non_cpu_intensive>0</non_cpu_intensive>\n</app>\n")
+                .append("<app_version>\n    <app_name>").append(APPS[p]).append("</app_name>\n")
+                .append("    <version_num>100</version_num>\n    <platform>x86_64-pc-linux-gnu</platform>\n")
+                .append("    <avg_ncpus>1.000000</avg_ncpus>\n    <flops>3330128030.754157</flops>\n</app_version>\n");
+            for (Task task: mTasks) {
+                if (task.project != p) continue;
+                sb.append("<workunit>\n    <name>").append(wuName(task)).append("</name>\n")
+                    .append("    <app_name>").append(APPS[p]).append("</app_name>\n")
+                    .append("    <version_num>100</version_num>\n")
+                    .append("    <rsc_fpops_est>1000000000000.000000</rsc_fpops_est>\n</workunit>\n");
+                appendResult(sb, task);
+            }
+        }
+        sb.append("<platform_name>x86_64-pc-linux-gnu</platform_name>\n")
+            .append("<core_client_major_version>7</core_client_major_version>\n")
+            .append("<core_client_minor_version>6</core_client_minor_version>\n")
+            .append("<core_client_release>22</core_client_release>\n")
+            .append("</client_state>\n</boinc_gui_rpc_reply>\n");
+        return sb.toString();
+    }
+
+    public synchronized String resultsReply(boolean activeOnly) {
+        StringBuilder sb = new StringBuilder(1024 + mTasks.size() * 1000);
+        sb.append("<boinc_gui_rpc_reply>\n<results>\n");
+        for (Task task: mTasks) {
+            if (activeOnly && !task.active) continue;
+            appendResult(sb, task);
+        }
+        sb.append("</results>\n</boinc_gui_rpc_reply>\n");
+        return sb.toString();
+    }
+
+    public synchronized String projectsReply() {
+        StringBuilder sb = new StringBuilder(1024 + mProjects * 1500);
+        sb.append("<boinc_gui_rpc_reply>\n<projects>\n");
+        for (int p = 0; p < mProjects; ++p) {
+            appendProject(sb, p);
+        }
+        sb.append("</projects>\n</boinc_gui_rpc_reply>\n");
+        return sb.toString();
+    }
+
+    public synchronized String transfersReply() {
+        StringBuilder sb = new StringBuilder(1024 + mTransfers.size() * 800);
+        sb.append("<boinc_gui_rpc_reply>\n<file_transfers>\n");
+        for (FileTransfer transfer: mTransfers) {
+            final int p = transfer.task.project;
+            sb.append("<file_transfer>\n    <project_url>").append(projectUrl(p)).append("</project_url>\n")
+                .append("    <project_name>").append(PROJECT_NAMES[p]).append("</project_name>\n")
+                .append("    <name>").append(transfer.upload ? transfer.task.name + "_0" : transfer.task.name).append("</name>\n")
+                .append("    <nbytes>").append(number(transfer.size)).append("</nbytes>\n")
+                .append("    <status>0</status>\n")
+                .append("    <persistent_file_xfer>\n        <num_retries>0</num_retries>\n")
+                .append("        <time_so_far>").append(number(transfer.timeSoFar)).append("</time_so_far>\n")
+                .append("        <last_bytes_xferred>").append(number(transfer.transferred)).append("</last_bytes_xferred>\n")
+                .append("        <is_upload>").append(transfer.upload ? 1 : 0).append("</is_upload>\n")
+                .append("    </persistent_file_xfer>\n")
+                .append("    <file_xfer>\n        <bytes_xferred>").append(number(transfer.transferred)).append("</bytes_xferred>\n")
+                .append("        <xfer_speed>").append(number(mTransferSpeed / mTransfers.size())).append("</xfer_speed>\n")
+                .append("    </file_xfer>\n</file_transfer>\n");
+        }
+        sb.append("</file_transfers>\n</boinc_gui_rpc_reply>\n");
+        return sb.toString();
+    }
+
+    /**
+     * @param seqno sequence number of last known message (0 for all messages)
+     * @return reply to {@code <get_messages>}
+     */
+    public synchronized String messagesReply(int seqno) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("<boinc_gui_rpc_reply>\n<msgs>\n");
+        for (Msg msg: mMessages) {
+            if (msg.seqno <= seqno) continue;
+            sb.append("<msg>\n <project>").append((msg.project < 0) ? "" : PROJECT_NAMES[msg.project]).append("</project>\n")
+                .append(" <pri>1</pri>\n <seqno>").append(msg.seqno).append("</seqno>\n")
+                .append(" <body>\n").append(msg.body).append("\n</body>\n")
+                .append(" <time>").append(msg.time).append("</time>\n</msg>\n");
+        }
+        sb.append("</msgs>\n</boinc_gui_rpc_reply>\n");
+        return sb.toString();
+    }
+
+    public synchronized String messageCountReply() {
+        return "<boinc_gui_rpc_reply>\n<seqno>" + mSeqno + "</seqno>\n</boinc_gui_rpc_reply>\n";
+    }
+
+    public String ccStatusReply() {
+        return "<boinc_gui_rpc_reply>\n<cc_status>\n" +
+                "   <network_status>0</network_status>\n" +
+                "   <task_suspend_reason>0</task_suspend_reason>\n" +
+                "   <task_mode>2</task_mode>\n   <task_mode_perm>2</task_mode_perm>\n" +
+                "   <gpu_suspend_reason>0</gpu_suspend_reason>\n" +
+                "   <gpu_mode>2</gpu_mode>\n   <gpu_mode_perm>2</gpu_mode_perm>\n" +
+                "   <network_suspend_reason>0</network_suspend_reason>\n" +
+                "   <network_mode>2</network_mode>\n   <network_mode_perm>2</network_mode_perm>\n" +
+                "</cc_status>\n</boinc_gui_rpc_reply>\n";
+    }
+
+    public String hostInfoReply() {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("<boinc_gui_rpc_reply>\n");
+        appendHostInfo(sb);
+        sb.append("</boinc_gui_rpc_reply>\n");
+        return sb.toString();
+    }
+
+    private void appendHostInfo(StringBuilder sb) {
+        sb.append("<host_info>\n    <timezone>3600</timezone>\n")
+            .append("    <domain_name>simulated</domain_name>\n    <ip_addr>127.0.0.1</ip_addr>\n")
+            .append("    <p_ncpus>").append(mCpus).append("</p_ncpus>\n    <p_vendor>GenuineIntel</p_vendor>\n")
+            .append("    <p_model>Simulated CPU</p_model>\n")
+            .append("    <p_fpops>2227719169.069331</p_fpops>\n    <p_iops>12828645195.720629</p_iops>\n")
+            .append("    <m_nbytes>4150296576.000000</m_nbytes>\n    <m_swap>5999947776.000000</m_swap>\n")
+            .append("    <d_total>131933581312.000000</d_total>\n    <d_free>67023462400.000000</d_free>\n")
+            .append("    <os_name>Linux</os_name>\n    <os_version>4.4.0</os_version>\n")
+            .append("</host_info>\n");
+    }
+
+    private void appendProject(StringBuilder sb, int p) {
+        sb.append("<project>\n    <master_url>").append(projectUrl(p)).append("</master_url>\n")
+            .append("    <project_name>").append(PROJECT_NAMES[p]).append("</project_name>\n")
+            .append("    <user_name>Simulated user</user_name>\n    <team_name>Simulated team</team_name>\n")
+            .append("    <user_total_credit>").append(number(100000 + p * 1000)).append("</user_total_credit>\n")
+            .append("    <user_expavg_credit>500.000000</user_expavg_credit>\n")
+            .append("    <host_total_credit>").append(number(10000 + p * 100)).append("</host_total_credit>\n")
+            .append("    <host_expavg_credit>50.000000</host_expavg_credit>\n")
+            .append("    <resource_share>100.000000</resource_share>\n")
+            .append("</project>\n");
+    }
+
+    private void appendResult(StringBuilder sb, Task task) {
+        sb.append("<result>\n    <name>").append(task.name).append("</name>\n")
+            .append("    <wu_name>").append(wuName(task)).append("</wu_name>\n")
+            .append("    <version_num>100</version_num>\n")
+            .append("    <project_url>").append(projectUrl(task.project)).append("</project_url>\n")
+            .append("    <final_cpu_time>").append(number((task.state >= STATE_UPLOADING) ? task.elapsed : 0)).append("</final_cpu_time>\n")
+            .append("    <exit_status>0</exit_status>\n")
+            .append("    <state>").append(task.state).append("</state>\n")
+            .append("    <report_deadline>").append(number(task.deadline)).append("</report_deadline>\n")
+            .append("    <received_time>").append(number(task.received)).append("</received_time>\n")
+            .append("    <estimated_cpu_time_remaining>").append(number(task.duration - task.elapsed)).append("</estimated_cpu_time_remaining>\n");
+        if (task.state == STATE_UPLOADED) {
+            sb.append("    <ready_to_report/>\n");
+        }
+        if (task.active) {
+            sb.append("<active_task>\n    <active_task_state>1</active_task_state>\n")
+                .append("    <app_version_num>100</app_version_num>\n")
+                .append("    <scheduler_state>2</scheduler_state>\n")
+                .append("    <checkpoint_cpu_time>").append(number(task.elapsed)).append("</checkpoint_cpu_time>\n")
+                .append("    <fraction_done>").append(number(task.elapsed / task.duration)).append("</fraction_done>\n")
+                .append("    <current_cpu_time>").append(number(task.elapsed)).append("</current_cpu_time>\n")
+                .append("    <elapsed_time>").append(number(task.elapsed)).append("</elapsed_time>\n")
+                .append("    <working_set_size_smoothed>40103936.000000</working_set_size_smoothed>\n")
+                .append("</active_task>\n");
+        }
+        sb.append("</result>\n");
+    }
+
+    private static String projectUrl(int p) {
+        return "http://project" + p + ".example.org/";
+    }
+
+    private static String wuName(Task task) {
+        return task.name.substring(0, task.name.length() - 2);
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.US, "%.6f", value);
+    }
+}
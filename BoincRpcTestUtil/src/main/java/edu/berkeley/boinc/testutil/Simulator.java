@@ -0,0 +1,169 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Runs many simulated BOINC hosts ({@link SimulatedHost}) on consecutive ports,
+ * for load and soak testing of the manager against realistic, evolving clients.
+ * <p>
+ * Usage: {@code Simulator [options]}, see {@link #usage()}. Statistics of all hosts
+ * are printed periodically until the process is terminated.
+ */
+public class Simulator {
+    private final List<SimulatedHost> mHosts = new ArrayList<SimulatedHost>();
+
+    /**
+     * Starts the hosts
+     * @param count number of hosts
+     * @param bindAddress address of interface to listen on, null for loopback interface
+     * @param firstPort port of the first host, next hosts use next ports; 0 for any free ports
+     * @param config parameters of each host
+     * @throws IOException if some port cannot be bound (the already started hosts are stopped)
+     */
+    public void start(int count, InetAddress bindAddress, int firstPort, SimulatedHost.Config config) throws IOException {
+        for (int i = 0; i < count; ++i) {
+            final int port = (firstPort == 0) ? 0 : firstPort + i;
+            SimulatedHost host = new SimulatedHost(bindAddress, port, i, config);
+            try {
+                host.start();
+            }
+            catch (IOException e) {
+                stop();
+                throw new IOException("Cannot listen on port " + port + ": " + e.getMessage(), e);
+            }
+            mHosts.add(host);
+        }
+    }
+
+    /**
+     * Stops all hosts
+     */
+    public void stop() {
+        for (SimulatedHost host: mHosts) {
+            host.stop();
+        }
+        mHosts.clear();
+    }
+
+    /**
+     * @return the started hosts
+     */
+    public List<SimulatedHost> getHosts() {
+        return mHosts;
+    }
+
+    /**
+     * @return one-line statistics of all hosts
+     */
+    public String statistics() {
+        long requests = 0;
+        long failures = 0;
+        long bytes = 0;
+        int connections = 0;
+        for (SimulatedHost host: mHosts) {
+            requests += host.requestCount();
+            failures += host.failureCount();
+            bytes += host.bytesSent();
+            connections += host.connectionCount();
+        }
+        return String.format("hosts: %d, connections: %d, requests: %d, failures: %d, sent: %d kB",
+                mHosts.size(), connections, requests, failures, bytes / 1024);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: Simulator [options]");
+        System.err.println("  --hosts N          number of hosts (default 1)");
+        System.err.println("  --port P           port of the first host (default 31416), next hosts use next ports");
+        System.err.println("  --bind ADDRESS     address to listen on (default 127.0.0.1)");
+        System.err.println("  --projects N       projects per host (default 3, max 10)");
+        System.err.println("  --tasks N          tasks per host (default 20)");
+        System.err.println("  --cpus N           running tasks per host (default 4)");
+        System.err.println("  --task-duration S  average CPU time of task in seconds (default 3600)");
+        System.err.println("  --speed X          simulated time per wall-clock time (default 1)");
+        System.err.println("  --latency MS       delay before each reply (default 0)");
+        System.err.println("  --jitter MS        random addition to latency (default 0)");
+        System.err.println("  --bandwidth B      throughput of replies in bytes/s (default unlimited)");
+        System.err.println("  --failure-rate P   probability of failed request, 0 to 1 (default 0)");
+        System.err.println("  --password TEXT    GUI RPC password (default none)");
+        System.err.println("  --stats S          interval of statistics in seconds (default 10)");
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimulatedHost.Config config = new SimulatedHost.Config();
+        int hosts = 1;
+        int port = 31416;
+        int statsInterval = 10;
+        InetAddress bindAddress = null;
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                final String option = args[i];
+                if (option.equals("--help")) {
+                    usage();
+                    return;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value of " + option);
+                }
+                final String value = args[++i];
+                if (option.equals("--hosts")) hosts = Integer.parseInt(value);
+                else if (option.equals("--port")) port = Integer.parseInt(value);
+                else if (option.equals("--bind")) bindAddress = InetAddress.getByName(value);
+                else if (option.equals("--projects")) config.projects = Integer.parseInt(value);
+                else if (option.equals("--tasks")) config.tasks = Integer.parseInt(value);
+                else if (option.equals("--cpus")) config.cpus = Integer.parseInt(value);
+                else if (option.equals("--task-duration")) config.taskDuration = Double.parseDouble(value);
+                else if (option.equals("--speed")) config.speed = Double.parseDouble(value);
+                else if (option.equals("--latency")) config.latency = Integer.parseInt(value);
+                else if (option.equals("--jitter")) config.jitter = Integer.parseInt(value);
+                else if (option.equals("--bandwidth")) config.bandwidth = Integer.parseInt(value);
+                else if (option.equals("--failure-rate")) config.failureRate = Double.parseDouble(value);
+                else if (option.equals("--password")) config.password = value;
+                else if (option.equals("--stats")) statsInterval = Integer.parseInt(value);
+                else throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(2);
+        }
+
+        final Simulator simulator = new Simulator();
+        simulator.start(hosts, bindAddress, port, config);
+        System.out.println("Started " + hosts + " simulated hosts on ports " + port + "-" + (port + hosts - 1));
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                System.out.println(simulator.statistics());
+                simulator.stop();
+            }
+        });
+        while (true) {
+            Thread.sleep(statsInterval * 1000L);
+            System.out.println(simulator.statistics());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import edu.berkeley.boinc.Message;
+import edu.berkeley.boinc.Project;
+import edu.berkeley.boinc.Result;
+import edu.berkeley.boinc.RpcBatch;
+import edu.berkeley.boinc.RpcClient;
+import edu.berkeley.boinc.SessionRecorder;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Vector;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+
+public class ReplayServerTest {
+
+    private static List<SessionRecorder.Exchange> record(SimulatedHost.Config config) throws Exception {
+        SimulatedHost host = new SimulatedHost(null, 0, 1, config);
+        host.start();
+        ByteArrayOutputStream session = new ByteArrayOutputStream();
+        SessionRecorder recorder = new SessionRecorder(session);
+        RpcClient rpcClient = new RpcClient();
+        rpcClient.setSessionRecorder(recorder);
+        try {
+            rpcClient.open("127.0.0.1", host.getPort());
+            rpcClient.authorize("secret");
+            rpcClient.getResults();
+            host.getState().advance(3600);
+            // Pipelined requests are recorded as well
+            RpcBatch batch = new RpcBatch();
+            batch.getResults();
+            batch.getProjectStatus();
+            batch.getMessages(0);
+            rpcClient.execute(batch);
+        }
+        finally {
+            rpcClient.close();
+            recorder.close();
+            host.stop();
+        }
+        return SessionRecorder.read(new ByteArrayInputStream(session.toByteArray()));
+    }
+
+    @Test
+    public void sessionRecorded() throws Exception {
+        SimulatedHost.Config config = new SimulatedHost.Config();
+        config.password = "secret";
+        config.latency = 50;
+        List<SessionRecorder.Exchange> exchanges = record(config);
+        assertThat(exchanges.size(), is(equalTo(6)));
+        assertThat(exchanges.get(0).rpcName(), is(equalTo("auth1")));
+        assertThat(exchanges.get(2).rpcName(), is(equalTo("get_results")));
+        assertThat(exchanges.get(3).rpcName(), is(equalTo("get_results")));
+        assertThat(exchanges.get(4).rpcName(), is(equalTo("get_project_status")));
+        assertThat(exchanges.get(5).rpcName(), is(equalTo("get_messages")));
+        assertTrue(exchanges.get(2).replyDelay >= 50000);
+        String reply = new String(exchanges.get(2).reply, "UTF-8");
+        assertTrue(reply.startsWith("<boinc_gui_rpc_reply>"));
+        assertTrue(reply.endsWith("</boinc_gui_rpc_reply>\n"));
+    }
+
+    @Test
+    public void sessionReplayed() throws Exception {
+        SimulatedHost.Config config = new SimulatedHost.Config();
+        config.password = "secret";
+        config.taskDuration = 600;
+        List<SessionRecorder.Exchange> exchanges = record(config);
+        ReplayServer server = new ReplayServer(0, exchanges);
+        server.setTimeScale(0);
+        server.start();
+        RpcClient rpcClient = new RpcClient();
+        try {
+            rpcClient.open("127.0.0.1", server.getPort());
+            Vector<Result> first = rpcClient.getResults();
+            Vector<Result> second = rpcClient.getResults();
+            // The replies are served in recorded order, then again from the first one
+            assertThat(rpcClient.getResults().get(0).name, is(equalTo(first.get(0).name)));
+            assertThat(second.get(0).name, is(not(first.get(0).name)));
+            Vector<Project> projects = rpcClient.getProjectStatus();
+            assertThat(projects.size(), is(equalTo(config.projects)));
+            Vector<Message> messages = rpcClient.getMessages(0);
+            assertTrue(messages.size() > 0);
+        }
+        finally {
+            rpcClient.close();
+            server.stop();
+        }
+    }
+}
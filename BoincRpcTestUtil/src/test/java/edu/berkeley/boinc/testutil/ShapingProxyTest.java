@@ -0,0 +1,124 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import edu.berkeley.boinc.ConnectionFailedException;
+import edu.berkeley.boinc.Result;
+import edu.berkeley.boinc.RpcClient;
+import edu.berkeley.boinc.RpcClientFailedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Vector;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class ShapingProxyTest {
+    private SimulatedHost mHost;
+    private ShapingProxy mProxy;
+    private RpcClient mRpcClient;
+
+    @Before
+    public void setUp() throws Exception {
+        SimulatedHost.Config config = new SimulatedHost.Config();
+        config.tasks = 50;
+        mHost = new SimulatedHost(null, 0, 1, config);
+        mHost.start();
+        mProxy = new ShapingProxy(InetAddress.getByName("127.0.0.1"), mHost.getPort());
+        mProxy.start();
+        mRpcClient = new RpcClient();
+    }
+
+    @After
+    public void tearDown() {
+        mRpcClient.close();
+        mProxy.stop();
+        mHost.stop();
+    }
+
+    @Test
+    public void forwarded() throws RpcClientFailedException {
+        mRpcClient.open("127.0.0.1", mProxy.getPort());
+        Vector<Result> results = mRpcClient.getResults();
+        assertThat(results.size(), is(equalTo(50)));
+        assertTrue(mProxy.bytesForwarded() > 0);
+    }
+
+    @Test
+    public void roundTripTime() throws RpcClientFailedException {
+        mProxy.setRtt(200);
+        mRpcClient.open("127.0.0.1", mProxy.getPort());
+        long start = System.nanoTime();
+        mRpcClient.getCcStatus();
+        long duration = (System.nanoTime() - start) / 1000000;
+        assertTrue("duration " + duration, duration >= 200);
+    }
+
+    @Test
+    public void bandwidthLimited() throws RpcClientFailedException {
+        final int size = mHost.getState().resultsReply(false).length();
+        mProxy.setBandwidth(size * 4);
+        mRpcClient.open("127.0.0.1", mProxy.getPort());
+        long start = System.nanoTime();
+        mRpcClient.getResults();
+        long duration = (System.nanoTime() - start) / 1000000;
+        assertTrue("duration " + duration, duration >= 200);
+    }
+
+    @Test
+    public void stallMidReply() throws RpcClientFailedException {
+        mProxy.setStall(1000, 1500);
+        mRpcClient.open("127.0.0.1", mProxy.getPort());
+        mRpcClient.setReadTimeout(500);
+        try {
+            mRpcClient.getResults();
+            fail("Reply should time out during stall");
+        }
+        catch (ConnectionFailedException e) {
+            assertThat(e.getMessage(), is(equalTo("Connection failed in getResults()")));
+        }
+    }
+
+    @Test
+    public void connectionReset() throws RpcClientFailedException {
+        mProxy.setResetRate(1.0);
+        mRpcClient.open("127.0.0.1", mProxy.getPort());
+        try {
+            mRpcClient.getResults();
+            fail("Connection should be reset");
+        }
+        catch (ConnectionFailedException e) {
+            assertThat(e.getMessage(), is(equalTo("Connection failed in getResults()")));
+        }
+        assertThat(mProxy.resetCount(), is(equalTo(1L)));
+        // Reconnect works
+        mProxy.setResetRate(0);
+        mRpcClient.close();
+        mRpcClient.open("127.0.0.1", mProxy.getPort());
+        assertThat(mRpcClient.getResults().size(), is(equalTo(50)));
+    }
+}
@@ -0,0 +1,138 @@
+/* 
+ * AndroBOINC - BOINC Manager for Android
+ * Copyright (C) 2010, Pavol Michalec
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package edu.berkeley.boinc.testutil;
+
+import edu.berkeley.boinc.CcState;
+import edu.berkeley.boinc.ConnectionFailedException;
+import edu.berkeley.boinc.Message;
+import edu.berkeley.boinc.Result;
+import edu.berkeley.boinc.RpcClient;
+import edu.berkeley.boinc.RpcClientFailedException;
+import edu.berkeley.boinc.Transfer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Vector;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+
+public class SimulatedHostTest {
+    private SimulatedHost mHost;
+    private RpcClient mRpcClient;
+
+    @Before
+    public void setUp() throws Exception {
+        SimulatedHost.Config config = new SimulatedHost.Config();
+        config.projects = 2;
+        config.tasks = 10;
+        config.cpus = 2;
+        config.taskDuration = 600;
+        config.password = "secret";
+        mHost = new SimulatedHost(null, 0, 1, config);
+        mHost.start();
+        mRpcClient = new RpcClient();
+        mRpcClient.open("127.0.0.1", mHost.getPort());
+        mRpcClient.authorize("secret");
+    }
+
+    @After
+    public void tearDown() {
+        mRpcClient.close();
+        mHost.stop();
+    }
+
+    @Test
+    public void stateParsed() throws RpcClientFailedException {
+        CcState state = mRpcClient.getState();
+        assertThat(state, is(notNullValue()));
+        assertThat(state.projects.size(), is(equalTo(2)));
+        assertThat(state.results.size(), is(equalTo(10)));
+        assertThat(state.workunits.size(), is(equalTo(10)));
+        assertThat(mRpcClient.getActiveResults().size(), is(equalTo(2)));
+        assertThat(mRpcClient.getProjectStatus().size(), is(equalTo(2)));
+        assertThat(mRpcClient.getHostInfo(), is(notNullValue()));
+        assertThat(mRpcClient.getCcStatus(), is(notNullValue()));
+    }
+
+    @Test
+    public void stateEvolves() throws RpcClientFailedException {
+        Vector<Result> before = mRpcClient.getResults();
+        final int seqno = mRpcClient.getMessageCount();
+        // Long enough to finish the running tasks, but not to report them
+        mHost.getState().advance(700);
+        Vector<Result> after = mRpcClient.getResults();
+        assertThat(after.size(), is(equalTo(before.size())));
+        int finished = 0;
+        int uploading = 0;
+        for (Result result: after) {
+            if (result.state >= 4) ++finished;
+            if (result.state == 4) ++uploading;
+        }
+        assertTrue(finished > 0);
+        Vector<Transfer> transfers = mRpcClient.getFileTransfers();
+        assertThat(transfers.size(), is(equalTo(uploading)));
+        Vector<Message> messages = mRpcClient.getMessages(seqno);
+        assertTrue(messages.size() > 0);
+        assertThat(messages.get(0).seqno, is(equalTo(seqno + 1)));
+        assertThat(mRpcClient.getMessageCount(), is(equalTo(messages.lastElement().seqno)));
+        // After a day all finished tasks are reported and replaced by new ones
+        mHost.getState().advance(86400);
+        after = mRpcClient.getResults();
+        assertThat(after.size(), is(equalTo(before.size())));
+        assertThat(after.get(0).name, is(not(before.get(0).name)));
+    }
+
+    @Test
+    public void failuresInjected() throws ConnectionFailedException {
+        SimulatedHost.Config config = new SimulatedHost.Config();
+        config.failureRate = 1.0;
+        SimulatedHost host = new SimulatedHost(null, 0, 2, config);
+        try {
+            host.start();
+            RpcClient rpcClient = new RpcClient();
+            rpcClient.open("127.0.0.1", host.getPort());
+            rpcClient.setReadTimeout(1000);
+            try {
+                rpcClient.getResults();
+                throw new AssertionError("Request did not fail");
+            }
+            catch (RpcClientFailedException e) {
+                // Expected
+            }
+            finally {
+                rpcClient.close();
+            }
+            assertThat(host.failureCount(), is(equalTo(1L)));
+        }
+        catch (java.io.IOException e) {
+            throw new AssertionError(e);
+        }
+        finally {
+            host.stop();
+        }
+    }
+}